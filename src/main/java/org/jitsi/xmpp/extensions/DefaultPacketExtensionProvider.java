@@ -56,6 +56,14 @@ public class DefaultPacketExtensionProvider<C extends AbstractPacketExtension>
         this.packetClass = c;
     }
 
+    /**
+     * @return the {@link Class} that the packets we parse belong to.
+     */
+    public Class<C> getPacketClass()
+    {
+        return packetClass;
+    }
+
     /**
      * Parse an extension sub-packet and create a <tt>C</tt> instance. At
      * the beginning of the method call, the xml parser will be positioned on
@@ -102,6 +110,10 @@ public class DefaultPacketExtensionProvider<C extends AbstractPacketExtension>
         while (!done)
         {
             eventType = parser.next();
+            if (eventType == XmlPullParser.Event.START_ELEMENT && ParsingProjection.skipIfExcluded(parser))
+            {
+                continue;
+            }
             if (eventType == XmlPullParser.Event.START_ELEMENT || eventType == XmlPullParser.Event.END_ELEMENT)
             {
                 elementName = parser.getName();
@@ -0,0 +1,164 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Decodes the string representation of an enum used in the protocol (e.g. an attribute or element name) into the
+ * enum value, using a hash table built once per enum.
+ *
+ * Unlike looping over {@code values()} (which copies the array on every call) or {@code valueOf(s.toUpperCase())}
+ * (which allocates a new string and throws for unknown values), decoding does not allocate. Case-insensitive
+ * decoders first try an exact match, and only compare ignoring case if that fails, so the common case where the
+ * input uses the canonical case is a single hash lookup.
+ *
+ * Instances are immutable and thread safe, and are meant to be kept in a static field of the enum.
+ *
+ * @param <E> the enum type.
+ */
+public final class EnumDecoder<E extends Enum<E>>
+{
+    /**
+     * The enum type.
+     */
+    private final Class<E> enumClass;
+
+    /**
+     * Maps the canonical string representation to the enum value.
+     */
+    private final Map<String, E> values;
+
+    /**
+     * The string representations, in the same order as {@link #constants}. Used for case-insensitive matching.
+     */
+    private final String[] keys;
+
+    /**
+     * The enum values, in the same order as {@link #keys}.
+     */
+    private final E[] constants;
+
+    /**
+     * Whether to ignore case when decoding.
+     */
+    private final boolean ignoreCase;
+
+    private EnumDecoder(Class<E> enumClass, Function<E, String> toKey, boolean ignoreCase)
+    {
+        this.enumClass = enumClass;
+        this.constants = enumClass.getEnumConstants();
+        this.keys = new String[constants.length];
+        this.ignoreCase = ignoreCase;
+
+        Map<String, E> values = new HashMap<>(constants.length * 2);
+        for (int i = 0; i < constants.length; i++)
+        {
+            keys[i] = toKey.apply(constants[i]);
+            if (values.put(keys[i], constants[i]) != null)
+            {
+                throw new IllegalArgumentException("Duplicate key for " + enumClass.getName() + ": " + keys[i]);
+            }
+        }
+        this.values = values;
+    }
+
+    /**
+     * Creates a decoder which matches the enum constants' {@link Enum#name()}.
+     */
+    public static <E extends Enum<E>> @NotNull EnumDecoder<E> byName(@NotNull Class<E> enumClass, boolean ignoreCase)
+    {
+        return new EnumDecoder<>(enumClass, Enum::name, ignoreCase);
+    }
+
+    /**
+     * Creates a decoder which matches the enum constants' {@link Enum#toString()}.
+     */
+    public static <E extends Enum<E>> @NotNull EnumDecoder<E> byToString(
+        @NotNull Class<E> enumClass,
+        boolean ignoreCase)
+    {
+        return new EnumDecoder<>(enumClass, Enum::toString, ignoreCase);
+    }
+
+    /**
+     * Creates a decoder which matches the given string representation of the enum constants. It should be the one used
+     * in the XML, so that decoding canonical input only needs an exact match.
+     */
+    public static <E extends Enum<E>> @NotNull EnumDecoder<E> of(
+        @NotNull Class<E> enumClass,
+        @NotNull Function<E, String> toKey,
+        boolean ignoreCase)
+    {
+        return new EnumDecoder<>(enumClass, toKey, ignoreCase);
+    }
+
+    /**
+     * Decodes a string.
+     * @return the matching enum value, or {@code null} if {@code s} is {@code null} or does not match any value.
+     */
+    public @Nullable E decode(@Nullable String s)
+    {
+        if (s == null)
+        {
+            return null;
+        }
+
+        E value = values.get(s);
+        if (value == null && ignoreCase)
+        {
+            for (int i = 0; i < keys.length; i++)
+            {
+                if (keys[i].equalsIgnoreCase(s))
+                {
+                    return constants[i];
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a string.
+     * @return the matching enum value, or {@code defaultValue} if {@code s} is {@code null} or does not match any
+     * value.
+     */
+    @Contract("_, !null -> !null")
+    public E decode(@Nullable String s, E defaultValue)
+    {
+        E value = decode(s);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Decodes a string.
+     * @return the matching enum value.
+     * @throws IllegalArgumentException if {@code s} is {@code null} or does not match any value.
+     */
+    public @NotNull E decodeOrThrow(@Nullable String s)
+        throws IllegalArgumentException
+    {
+        E value = decode(s);
+        if (value == null)
+        {
+            throw new IllegalArgumentException(s + " is not a valid " + enumClass.getSimpleName());
+        }
+        return value;
+    }
+}
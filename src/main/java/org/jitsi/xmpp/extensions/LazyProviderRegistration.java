@@ -0,0 +1,232 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions;
+
+import org.jitsi.xmpp.*;
+import org.jitsi.xmpp.extensions.coin.*;
+import org.jitsi.xmpp.extensions.colibri2.*;
+import org.jitsi.xmpp.extensions.health.*;
+import org.jitsi.xmpp.extensions.jingle.*;
+import org.jitsi.xmpp.extensions.rayo.*;
+import org.jitsi.xmpp.extensions.visitors.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.parsing.*;
+import org.jivesoftware.smack.provider.*;
+import org.jivesoftware.smack.xml.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+
+/**
+ * Registers the IQ and extension providers from this library with Smack's
+ * {@link ProviderManager}, either eagerly or lazily.
+ *
+ * In lazy mode only a lightweight proxy is registered for each entry of the
+ * {@link ProviderManifest}. The proxy loads and instantiates the real provider
+ * (and with it the IQ or extension classes) when the first element of its type
+ * is parsed, and then replaces itself with the real provider.
+ */
+public final class LazyProviderRegistration
+{
+    private LazyProviderRegistration()
+    {
+    }
+
+    /**
+     * Registers all providers.
+     * @param lazy whether to register proxies from the {@link ProviderManifest}
+     * instead of loading all providers up front.
+     */
+    public static void registerProviders(boolean lazy)
+    {
+        if (lazy)
+        {
+            registerLazily();
+        }
+        else
+        {
+            registerEagerly();
+        }
+    }
+
+    /**
+     * Loads and registers all providers listed in the {@link ProviderManifest}
+     * using their own registration methods.
+     */
+    public static void registerEagerly()
+    {
+        IqProviderUtils.registerProviders();
+        JingleIQProvider.registerProviders();
+        CoinIQProvider.registerProviders();
+        RayoIqProvider.registerProviders();
+        VisitorsIq.Companion.registerProviders();
+        HealthCheckIQProvider.registerIQProvider();
+        Smack.INSTANCE.registerMuteIqProviders();
+    }
+
+    /**
+     * Registers a proxy for each provider listed in the {@link ProviderManifest}.
+     * No provider or extension classes are loaded until they are needed.
+     */
+    public static void registerLazily()
+    {
+        for (ProviderManifest.Entry entry : ProviderManifest.getEntries())
+        {
+            if (entry.getKind() == ProviderManifest.Kind.IQ)
+            {
+                ProviderManager.addIQProvider(entry.getElement(), entry.getNamespace(), new LazyIqProvider(entry));
+            }
+            else
+            {
+                ProviderManager.addExtensionProvider(
+                    entry.getElement(),
+                    entry.getNamespace(),
+                    new LazyExtensionElementProvider(entry));
+            }
+        }
+    }
+
+    /**
+     * Loads and instantiates the provider for a manifest entry. Uses the
+     * provider's static {@code INSTANCE} if it has one.
+     */
+    static Object createProvider(ProviderManifest.Entry entry)
+    {
+        ClassLoader classLoader = LazyProviderRegistration.class.getClassLoader();
+        try
+        {
+            Class<?> providerClass = Class.forName(entry.getProviderClassName(), true, classLoader);
+            if (entry.getElementClassName() != null)
+            {
+                Class<?> elementClass = Class.forName(entry.getElementClassName(), true, classLoader);
+                return providerClass.getConstructor(Class.class).newInstance(elementClass);
+            }
+
+            try
+            {
+                Field instance = providerClass.getField("INSTANCE");
+                if (Modifier.isStatic(instance.getModifiers()) && providerClass.isAssignableFrom(instance.getType()))
+                {
+                    return instance.get(null);
+                }
+            }
+            catch (NoSuchFieldException ignored)
+            {
+                // Fall back to the no-arg constructor.
+            }
+
+            Constructor<?> constructor = providerClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Failed to create the provider for " + entry, e);
+        }
+    }
+
+    /**
+     * A proxy for an {@link ExtensionElementProvider} which is created on first use.
+     */
+    private static final class LazyExtensionElementProvider
+        extends ExtensionElementProvider<ExtensionElement>
+    {
+        private final ProviderManifest.Entry entry;
+
+        private volatile ExtensionElementProvider<?> delegate;
+
+        private LazyExtensionElementProvider(ProviderManifest.Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        @Override
+        public ExtensionElement parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment)
+            throws XmlPullParserException, IOException, SmackParsingException
+        {
+            return getDelegate().parse(parser, initialDepth, xmlEnvironment);
+        }
+
+        private ExtensionElementProvider<?> getDelegate()
+        {
+            ExtensionElementProvider<?> delegate = this.delegate;
+            if (delegate == null)
+            {
+                synchronized (this)
+                {
+                    delegate = this.delegate;
+                    if (delegate == null)
+                    {
+                        delegate = (ExtensionElementProvider<?>) createProvider(entry);
+                        this.delegate = delegate;
+
+                        if (ProviderManager.getExtensionProvider(entry.getElement(), entry.getNamespace()) == this)
+                        {
+                            ProviderManager.addExtensionProvider(entry.getElement(), entry.getNamespace(), delegate);
+                        }
+                    }
+                }
+            }
+            return delegate;
+        }
+    }
+
+    /**
+     * A proxy for an {@link IqProvider} which is created on first use.
+     */
+    private static final class LazyIqProvider
+        extends IqProvider<IQ>
+    {
+        private final ProviderManifest.Entry entry;
+
+        private volatile IqProvider<?> delegate;
+
+        private LazyIqProvider(ProviderManifest.Entry entry)
+        {
+            this.entry = entry;
+        }
+
+        @Override
+        public IQ parse(XmlPullParser parser, int initialDepth, IqData iqData, XmlEnvironment xmlEnvironment)
+            throws XmlPullParserException, IOException, SmackParsingException
+        {
+            return getDelegate().parse(parser, initialDepth, iqData, xmlEnvironment);
+        }
+
+        private IqProvider<?> getDelegate()
+        {
+            IqProvider<?> delegate = this.delegate;
+            if (delegate == null)
+            {
+                synchronized (this)
+                {
+                    delegate = this.delegate;
+                    if (delegate == null)
+                    {
+                        delegate = (IqProvider<?>) createProvider(entry);
+                        this.delegate = delegate;
+
+                        if (ProviderManager.getIQProvider(entry.getElement(), entry.getNamespace()) == this)
+                        {
+                            ProviderManager.addIQProvider(entry.getElement(), entry.getNamespace(), delegate);
+                        }
+                    }
+                }
+            }
+            return delegate;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions;
+
+import org.jetbrains.annotations.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.util.*;
+import org.jivesoftware.smack.xml.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A set of element paths to parse when parsing an IQ. Everything else is skipped at the parser level, without looking
+ * up or calling providers or creating extension elements for it. The result is an IQ of the usual type, with only the
+ * projected children.
+ *
+ * Paths are relative to the IQ's child element and consist of steps separated by {@code /}. A step is an element
+ * name, optionally preceded by a namespace in braces and optionally followed by a single attribute predicate, e.g.
+ * {@code endpoint/transport}, <code>{jitsi:colibri2}endpoint/sources</code> or {@code stat[@name='stress_level']}. A
+ * step without a namespace matches any namespace. Elements on a path are created with all of their attributes, but
+ * only the children on a path. The element at the end of a path is parsed in full.
+ *
+ * An empty projection only keeps the IQ child element itself and its attributes.
+ *
+ * Projections are honoured by {@link DefaultPacketExtensionProvider},
+ * {@link org.jitsi.xmpp.extensions.colibri2.IqProviderUtils#parseExtensions(XmlPullParser, int)} and the providers
+ * built on them (e.g. colibri2, colibri stats and visitors). Other providers parse their children in full.
+ */
+public final class ParsingProjection
+{
+    /**
+     * The projection used while parsing on the current thread, if any.
+     */
+    private static final ThreadLocal<Context> current = new ThreadLocal<>();
+
+    /**
+     * The number of threads which are currently parsing with a projection, so that parsing without a projection
+     * doesn't need to look at the thread local.
+     */
+    private static volatile int active = 0;
+
+    /**
+     * The root of the path tree.
+     */
+    private final Step root;
+
+    private ParsingProjection(Step root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Creates a projection from paths in the syntax described in the class documentation.
+     */
+    public static @NotNull ParsingProjection of(@NotNull String... paths)
+    {
+        Step root = new Step(null, null, null, null);
+        for (String path : paths)
+        {
+            Step step = root;
+            for (String s : path.split("/"))
+            {
+                step = step.child(parseStep(s, path));
+            }
+            step.terminal = true;
+        }
+        return new ParsingProjection(root);
+    }
+
+    /**
+     * Parses an IQ using this projection.
+     * @param xml the IQ.
+     */
+    public @NotNull IQ parseIQ(@NotNull String xml)
+        throws Exception
+    {
+        return parseIQ(PacketParserUtils.getParserFor(xml));
+    }
+
+    /**
+     * Parses an IQ using this projection.
+     * @param parser a parser positioned at the start tag of the {@code iq} element.
+     */
+    public @NotNull IQ parseIQ(@NotNull XmlPullParser parser)
+        throws Exception
+    {
+        Context previous = current.get();
+        current.set(new Context(root, parser.getDepth() + 1));
+        synchronized (ParsingProjection.class)
+        {
+            active++;
+        }
+        try
+        {
+            return PacketParserUtils.parseIQ(parser);
+        }
+        finally
+        {
+            synchronized (ParsingProjection.class)
+            {
+                active--;
+            }
+            if (previous == null)
+            {
+                current.remove();
+            }
+            else
+            {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * To be called by providers when the parser is positioned at the start tag of a child element, before looking up
+     * its provider. If a projection is active and excludes the element, skips to its end tag.
+     * @return {@code true} if the element was skipped and the parser is now at its end tag, {@code false} if the
+     * element should be parsed as usual.
+     */
+    public static boolean skipIfExcluded(@NotNull XmlPullParser parser)
+        throws XmlPullParserException, IOException
+    {
+        if (active == 0)
+        {
+            return false;
+        }
+        Context context = current.get();
+        if (context == null || context.includes(parser))
+        {
+            return false;
+        }
+
+        int depth = parser.getDepth();
+        while (parser.next() != XmlPullParser.Event.END_ELEMENT || parser.getDepth() != depth)
+        {
+            if (parser.getEventType() == XmlPullParser.Event.END_DOCUMENT)
+            {
+                throw new IOException("Unexpected end of document");
+            }
+        }
+        return true;
+    }
+
+    private static Step parseStep(String s, String path)
+    {
+        String namespace = null;
+        String attribute = null;
+        String value = null;
+
+        if (s.startsWith("{"))
+        {
+            int end = s.indexOf('}');
+            if (end < 0)
+            {
+                throw new IllegalArgumentException("Invalid path: " + path);
+            }
+            namespace = s.substring(1, end);
+            s = s.substring(end + 1);
+        }
+
+        int predicate = s.indexOf('[');
+        if (predicate >= 0)
+        {
+            String p = s.substring(predicate);
+            s = s.substring(0, predicate);
+            int equals = p.indexOf('=');
+            if (!p.startsWith("[@") || !p.endsWith("]") || equals < 0)
+            {
+                throw new IllegalArgumentException("Invalid path: " + path);
+            }
+            attribute = p.substring(2, equals);
+            value = p.substring(equals + 1, p.length() - 1);
+            if (value.length() < 2 || (value.charAt(0) != '\'' && value.charAt(0) != '"')
+                || value.charAt(value.length() - 1) != value.charAt(0))
+            {
+                throw new IllegalArgumentException("Invalid path: " + path);
+            }
+            value = value.substring(1, value.length() - 1);
+        }
+
+        if (s.isEmpty())
+        {
+            throw new IllegalArgumentException("Invalid path: " + path);
+        }
+        return new Step(s, namespace, attribute, value);
+    }
+
+    /**
+     * A node in the path tree.
+     */
+    private static final class Step
+    {
+        private final String name;
+
+        /** The namespace, or {@code null} to match any namespace. */
+        private final String namespace;
+
+        /** The name of the attribute in the predicate, or {@code null} if there is no predicate. */
+        private final String attribute;
+
+        private final String value;
+
+        private final List<Step> children = new ArrayList<>();
+
+        /** Whether a path ends here, i.e. the whole subtree is included. */
+        private boolean terminal = false;
+
+        private Step(String name, String namespace, String attribute, String value)
+        {
+            this.name = name;
+            this.namespace = namespace;
+            this.attribute = attribute;
+            this.value = value;
+        }
+
+        private Step child(Step step)
+        {
+            for (Step child : children)
+            {
+                if (child.name.equals(step.name)
+                    && Objects.equals(child.namespace, step.namespace)
+                    && Objects.equals(child.attribute, step.attribute)
+                    && Objects.equals(child.value, step.value))
+                {
+                    return child;
+                }
+            }
+            children.add(step);
+            return step;
+        }
+
+        private boolean matches(XmlPullParser parser)
+        {
+            return name.equals(parser.getName())
+                && (namespace == null || namespace.equals(parser.getNamespace()))
+                && (attribute == null || value.equals(parser.getAttributeValue("", attribute)));
+        }
+    }
+
+    /**
+     * The state of parsing with a projection on one thread.
+     */
+    private static final class Context
+    {
+        /**
+         * Marks an element inside the subtree of a path's last step, which is included with all its descendants.
+         */
+        private static final Step ALL = new Step(null, null, null, null);
+
+        /**
+         * The depth of the IQ's child element.
+         */
+        private final int rootDepth;
+
+        /**
+         * The step matched by the most recent included element at each depth, relative to {@link #rootDepth}.
+         */
+        private Step[] steps = new Step[8];
+
+        private Context(Step root, int rootDepth)
+        {
+            this.rootDepth = rootDepth;
+            steps[0] = root;
+        }
+
+        private boolean includes(XmlPullParser parser)
+        {
+            int level = parser.getDepth() - rootDepth;
+            if (level <= 0)
+            {
+                return true;
+            }
+
+            Step parent = steps[level - 1];
+            Step step = null;
+            if (parent == null || parent == ALL)
+            {
+                /* Inside an included subtree, or the parent was parsed by a provider which doesn't use projections. */
+                step = ALL;
+            }
+            else
+            {
+                for (Step child : parent.children)
+                {
+                    if (child.matches(parser))
+                    {
+                        step = child.terminal ? ALL : child;
+                        break;
+                    }
+                }
+            }
+
+            if (step == null)
+            {
+                return false;
+            }
+            if (level >= steps.length)
+            {
+                steps = Arrays.copyOf(steps, steps.length * 2);
+            }
+            steps[level] = step;
+            Arrays.fill(steps, level + 1, steps.length, null);
+            return true;
+        }
+    }
+}
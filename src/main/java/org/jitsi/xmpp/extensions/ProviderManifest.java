@@ -0,0 +1,228 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The list of IQ and extension providers registered by
+ * {@link LazyProviderRegistration#registerEagerly()}, identified by name only so
+ * that it can be read without loading any provider or extension classes.
+ *
+ * The list is read from the {@code providers.manifest} resource in this package.
+ * Each non-empty line which doesn't start with '#' has the form
+ * {@code <iq|extension> <element> <namespace> <provider class> [<element class>]}.
+ */
+public final class ProviderManifest
+{
+    /**
+     * The name of the manifest resource, relative to this class.
+     */
+    public static final String RESOURCE_NAME = "providers.manifest";
+
+    /**
+     * The parsed manifest, loaded on first use.
+     */
+    private static List<Entry> entries;
+
+    private ProviderManifest()
+    {
+    }
+
+    /**
+     * @return the entries in the manifest, in the order they appear in it.
+     */
+    public static synchronized @NotNull List<Entry> getEntries()
+    {
+        if (entries == null)
+        {
+            try (InputStream in = ProviderManifest.class.getResourceAsStream(RESOURCE_NAME))
+            {
+                if (in == null)
+                {
+                    throw new IllegalStateException("Provider manifest not found: " + RESOURCE_NAME);
+                }
+                entries = Collections.unmodifiableList(parse(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Failed to read the provider manifest", e);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Parses a manifest.
+     */
+    static List<Entry> parse(Reader reader)
+        throws IOException
+    {
+        List<Entry> result = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null)
+        {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#"))
+            {
+                result.add(Entry.parse(line));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The kind of provider in a manifest {@link Entry}.
+     */
+    public enum Kind
+    {
+        IQ("iq"),
+        EXTENSION("extension");
+
+        private final String value;
+
+        Kind(String value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public String toString()
+        {
+            return value;
+        }
+
+        private static final EnumDecoder<Kind> DECODER = EnumDecoder.byToString(Kind.class, false);
+
+        public static Kind parse(String value)
+        {
+            Kind kind = DECODER.decode(value);
+            if (kind == null)
+            {
+                throw new IllegalArgumentException("Invalid provider kind: " + value);
+            }
+            return kind;
+        }
+    }
+
+    /**
+     * A single provider registration.
+     */
+    public static final class Entry
+    {
+        private final Kind kind;
+
+        private final String element;
+
+        private final String namespace;
+
+        private final String providerClassName;
+
+        /**
+         * The class of the extension elements, for {@link DefaultPacketExtensionProvider} entries. Null otherwise.
+         */
+        private final String elementClassName;
+
+        public Entry(
+            @NotNull Kind kind,
+            @NotNull String element,
+            @NotNull String namespace,
+            @NotNull String providerClassName,
+            @Nullable String elementClassName)
+        {
+            this.kind = kind;
+            this.element = element;
+            this.namespace = namespace;
+            this.providerClassName = providerClassName;
+            this.elementClassName = elementClassName;
+        }
+
+        static Entry parse(String line)
+        {
+            String[] parts = line.split("\\s+");
+            if (parts.length != 4 && parts.length != 5)
+            {
+                throw new IllegalArgumentException("Invalid provider manifest line: " + line);
+            }
+            return new Entry(Kind.parse(parts[0]), parts[1], parts[2], parts[3], parts.length == 5 ? parts[4] : null);
+        }
+
+        public @NotNull Kind getKind()
+        {
+            return kind;
+        }
+
+        public @NotNull String getElement()
+        {
+            return element;
+        }
+
+        public @NotNull String getNamespace()
+        {
+            return namespace;
+        }
+
+        public @NotNull String getProviderClassName()
+        {
+            return providerClassName;
+        }
+
+        public @Nullable String getElementClassName()
+        {
+            return elementClassName;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+            Entry entry = (Entry) o;
+            return kind == entry.kind
+                && element.equals(entry.element)
+                && namespace.equals(entry.namespace)
+                && providerClassName.equals(entry.providerClassName)
+                && Objects.equals(elementClassName, entry.elementClassName);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(kind, element, namespace, providerClassName, elementClassName);
+        }
+
+        /**
+         * @return the entry formatted as a manifest line.
+         */
+        @Override
+        public String toString()
+        {
+            return kind + " " + element + " " + namespace + " " + providerClassName
+                + (elementClassName == null ? "" : " " + elementClassName);
+        }
+    }
+}
@@ -15,39 +15,117 @@
  */
 package org.jitsi.xmpp.extensions;
 
+import org.jetbrains.annotations.*;
 import org.jivesoftware.smack.packet.*;
 import org.jivesoftware.smack.parsing.*;
 import org.jivesoftware.smack.provider.*;
 import org.jivesoftware.smack.xml.*;
 
+import javax.xml.namespace.*;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Catch all unexpected exceptions while parsing and convert them to a {@link SmackParsingException}.
  *
  * Implementations should override either {@link #doParse(XmlPullParser)} or
  * {@link #doParse(XmlPullParser, int, IqData, XmlEnvironment)} if they need the extra parameters.
+ *
+ * Parsing failures are counted per IQ type (the element name and namespace of the IQ child element), see
+ * {@link #getErrorCounts()}.
  */
 public abstract class SafeParseIqProvider<I extends IQ> extends IqProvider<I>
 {
+    /**
+     * Whether the exceptions created to wrap unexpected failures should skip capturing their own stack trace.
+     */
+    private static volatile boolean stacklessExceptions = false;
+
+    /**
+     * The number of parsing failures per IQ type.
+     */
+    private static final Map<QName, LongAdder> errorCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Sets whether the {@link SmackParsingException}s created to wrap unexpected failures should skip capturing their
+     * own stack trace. This only saves the stack walk for the wrapper, whose trace would duplicate that of the
+     * wrapped exception. The wrapped exception captured its full stack trace when it was thrown, so most of the cost
+     * of a failure is still paid, and its trace is still available as the cause.
+     */
+    public static void setStacklessExceptions(boolean stackless)
+    {
+        stacklessExceptions = stackless;
+    }
+
+    /**
+     * @return whether stackless exceptions are enabled.
+     */
+    public static boolean isStacklessExceptions()
+    {
+        return stacklessExceptions;
+    }
+
+    /**
+     * @return a snapshot of the number of parsing failures per IQ type (element name and namespace).
+     */
+    public static @NotNull Map<QName, Long> getErrorCounts()
+    {
+        Map<QName, Long> snapshot = new HashMap<>();
+        errorCounts.forEach((qName, count) -> snapshot.put(qName, count.sum()));
+        return snapshot;
+    }
+
+    /**
+     * @return the number of parsing failures for IQs of the given type.
+     */
+    public static long getErrorCount(@NotNull QName qName)
+    {
+        LongAdder count = errorCounts.get(qName);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Resets all parsing failure counts.
+     */
+    public static void resetErrorCounts()
+    {
+        errorCounts.clear();
+    }
+
     @Override
     public I parse(XmlPullParser parser, int initialDepth, IqData iqData, XmlEnvironment xmlEnvironment)
         throws XmlPullParserException, IOException, SmackParsingException
     {
+        /* The parser is positioned at the IQ child element, save its name before it moves. */
+        String element = parser.getName();
+        String namespace = parser.getNamespace();
         try
         {
             return doParse(parser, initialDepth, iqData, xmlEnvironment);
         }
         catch (XmlPullParserException | IOException | SmackParsingException e)
         {
+            countError(element, namespace);
             throw e;
         }
         catch (Exception e)
         {
-            throw new OtherSmackParsingException(e);
+            QName qName = countError(element, namespace);
+            throw stacklessExceptions
+                ? new StacklessSmackParsingException(e, qName)
+                : new OtherSmackParsingException(e, qName);
         }
     }
 
+    private static QName countError(String element, String namespace)
+    {
+        QName qName = new QName(namespace == null ? "" : namespace, element == null ? "" : element);
+        errorCounts.computeIfAbsent(qName, k -> new LongAdder()).increment();
+        return qName;
+    }
+
     /**
      * Default implementation which ignores all params except {@code parser}.
      * Override if the extra parameters are needed.
@@ -67,11 +145,44 @@ public abstract class SafeParseIqProvider<I extends IQ> extends IqProvider<I>
         throw new SmackParsingException("Not implemented");
     }
 
-    static class OtherSmackParsingException extends SmackParsingException
+    /**
+     * A {@link SmackParsingException} wrapping an unexpected failure, which carries the type of the IQ which failed
+     * to parse.
+     */
+    public static class OtherSmackParsingException extends SmackParsingException
     {
-        OtherSmackParsingException(Exception e)
+        private final QName iqType;
+
+        OtherSmackParsingException(Exception e, QName iqType)
         {
             super(e);
+            this.iqType = iqType;
+        }
+
+        /**
+         * @return the element name and namespace of the IQ which failed to parse.
+         */
+        public QName getIqType()
+        {
+            return iqType;
+        }
+    }
+
+    /**
+     * An {@link OtherSmackParsingException} which does not capture its own stack trace. The trace of the cause is
+     * kept.
+     */
+    static class StacklessSmackParsingException extends OtherSmackParsingException
+    {
+        StacklessSmackParsingException(Exception e, QName iqType)
+        {
+            super(e, iqType);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            return this;
         }
     }
 }
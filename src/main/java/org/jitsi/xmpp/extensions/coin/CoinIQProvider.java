@@ -35,39 +35,47 @@ public class CoinIQProvider
     /**
      * Provider for description packet extension.
      */
-    private final DescriptionProvider descriptionProvider
+    private static final DescriptionProvider descriptionProvider
         = new DescriptionProvider();
 
     /**
      * Provider for users packet extension.
      */
-    private final UsersProvider usersProvider = new UsersProvider();
+    private static final UsersProvider usersProvider = new UsersProvider();
 
     /**
      * Provider for state packet extension.
      */
-    private final StateProvider stateProvider = new StateProvider();
+    private static final StateProvider stateProvider = new StateProvider();
 
     /**
      * Provider for URIs packet extension.
      */
-    private final DefaultPacketExtensionProvider<URIsPacketExtension>
+    private static final DefaultPacketExtensionProvider<URIsPacketExtension>
        urisProvider = new DefaultPacketExtensionProvider<>(
                URIsPacketExtension.class);
 
     /**
      * Provider for sidebars by val packet extension.
      */
-    private final DefaultPacketExtensionProvider<SidebarsByValPacketExtension>
+    private static final DefaultPacketExtensionProvider<SidebarsByValPacketExtension>
        sidebarsByValProvider =
            new DefaultPacketExtensionProvider<>(
                    SidebarsByValPacketExtension.class);
 
     /**
-     * Constructor.
+     * A shared instance. The provider is stateless.
      */
-    public CoinIQProvider()
+    public static final CoinIQProvider INSTANCE = new CoinIQProvider();
+
+    /**
+     * Registers {@link #INSTANCE} as the provider for Coin IQs, as well as the
+     * extension providers for the elements nested in them.
+     */
+    public static void registerProviders()
     {
+        ProviderManager.addIQProvider(CoinIQ.ELEMENT, CoinIQ.NAMESPACE, INSTANCE);
+
         ProviderManager.addExtensionProvider(
                 UserRolesPacketExtension.ELEMENT,
                 UserRolesPacketExtension.NAMESPACE,
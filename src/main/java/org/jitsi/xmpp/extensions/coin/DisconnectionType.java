@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.coin;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * Disconnection type.
  *
@@ -68,6 +70,12 @@ public enum DisconnectionType
         return type;
     }
 
+    /**
+     * Decodes the disconnection type names used in the XML.
+     */
+    private static final EnumDecoder<DisconnectionType> DECODER
+        = EnumDecoder.byToString(DisconnectionType.class, false);
+
     /**
      * Returns a <tt>DisconnectionType</tt>.
      *
@@ -81,11 +89,11 @@ public enum DisconnectionType
     public static DisconnectionType parseString(String typeStr)
         throws IllegalArgumentException
     {
-        for (DisconnectionType value : values())
-            if (value.toString().equals(typeStr))
-                return value;
+        DisconnectionType value = DECODER.decode(typeStr);
+        if (value == null)
+            throw new IllegalArgumentException(
+                typeStr + " is not a valid reason");
 
-        throw new IllegalArgumentException(
-            typeStr + " is not a valid reason");
+        return value;
     }
 }
@@ -32,6 +32,17 @@ import java.io.*;
 public class EndpointProvider
     extends ExtensionElementProvider<EndpointPacketExtension>
 {
+    /**
+     * Provider for the call-info child elements.
+     */
+    private static final ExtensionElementProvider<CallInfoPacketExtension> callInfoProvider
+        = new DefaultPacketExtensionProvider<>(CallInfoPacketExtension.class);
+
+    /**
+     * Provider for the media child elements.
+     */
+    private static final MediaProvider mediaProvider = new MediaProvider();
+
     /**
      * Parses a endpoint extension sub-packet and creates a {@link
      * EndpointPacketExtension} instance. At the beginning of the method
@@ -95,19 +106,15 @@ public class EndpointProvider
                     break;
                 case CallInfoPacketExtension.ELEMENT:
                 {
-                    ExtensionElementProvider<CallInfoPacketExtension> provider
-                        = new DefaultPacketExtensionProvider<>(
-                        CallInfoPacketExtension.class);
                     CallInfoPacketExtension childExtension
-                        = provider.parse(parser);
+                        = callInfoProvider.parse(parser);
                     ext.addChildExtension(childExtension);
                     break;
                 }
                 case MediaPacketExtension.ELEMENT:
                 {
-                    MediaProvider provider = new MediaProvider();
                     MediaPacketExtension childExtension =
-                        provider.parse(parser);
+                        mediaProvider.parse(parser);
                     ext.addChildExtension(childExtension);
                     break;
                 }
@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.coin;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * Endpoint status type.
  *
@@ -93,6 +95,12 @@ public enum EndpointStatusType
         return type;
     }
 
+    /**
+     * Decodes the endpoint status names used in the XML.
+     */
+    private static final EnumDecoder<EndpointStatusType> DECODER
+        = EnumDecoder.byToString(EndpointStatusType.class, false);
+
     /**
      * Returns a <tt>EndPointType</tt>.
      *
@@ -106,11 +114,11 @@ public enum EndpointStatusType
     public static EndpointStatusType parseString(String typeStr)
         throws IllegalArgumentException
     {
-        for (EndpointStatusType value : values())
-            if (value.toString().equals(typeStr))
-                return value;
+        EndpointStatusType value = DECODER.decode(typeStr);
+        if (value == null)
+            throw new IllegalArgumentException(
+                typeStr + " is not a valid reason");
 
-        throw new IllegalArgumentException(
-            typeStr + " is not a valid reason");
+        return value;
     }
 }
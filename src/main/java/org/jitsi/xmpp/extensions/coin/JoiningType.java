@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.coin;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * Joining type.
  *
@@ -63,6 +65,11 @@ public enum JoiningType
         return type;
     }
 
+    /**
+     * Decodes the joining type names used in the XML.
+     */
+    private static final EnumDecoder<JoiningType> DECODER = EnumDecoder.byToString(JoiningType.class, false);
+
     /**
      * Returns a <tt>JoiningType</tt>.
      *
@@ -76,11 +83,11 @@ public enum JoiningType
     public static JoiningType parseString(String typeStr)
         throws IllegalArgumentException
     {
-        for (JoiningType value : values())
-            if (value.toString().equals(typeStr))
-                return value;
+        JoiningType value = DECODER.decode(typeStr);
+        if (value == null)
+            throw new IllegalArgumentException(
+                typeStr + " is not a valid reason");
 
-        throw new IllegalArgumentException(
-            typeStr + " is not a valid reason");
+        return value;
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.coin;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * Status type.
  *
@@ -37,6 +39,11 @@ public enum StateType
      */
     deleted;
 
+    /**
+     * Decodes the state names used in the XML.
+     */
+    private static final EnumDecoder<StateType> DECODER = EnumDecoder.byToString(StateType.class, false);
+
     /**
      * Returns a <tt>StateType</tt>.
      *
@@ -50,11 +57,11 @@ public enum StateType
     public static StateType parseString(String typeStr)
         throws IllegalArgumentException
     {
-        for (StateType value : values())
-            if (value.toString().equals(typeStr))
-                return value;
+        StateType value = DECODER.decode(typeStr);
+        if (value == null)
+            throw new IllegalArgumentException(
+                typeStr + " is not a valid reason");
 
-        throw new IllegalArgumentException(
-            typeStr + " is not a valid reason");
+        return value;
     }
 }
@@ -30,6 +30,11 @@ import java.io.*;
 public class UserProvider
     extends ExtensionElementProvider<UserPacketExtension>
 {
+    /**
+     * Provider for the endpoint child elements.
+     */
+    private static final EndpointProvider endpointProvider = new EndpointProvider();
+
     /**
      * Parses a User extension sub-packet and creates a {@link
      * UserPacketExtension} instance. At the beginning of the method
@@ -84,8 +89,7 @@ public class UserProvider
                 }
                 else if (elementName.equals(EndpointPacketExtension.ELEMENT))
                 {
-                    EndpointProvider provider = new EndpointProvider();
-                    ext.addChildExtension(provider.parse(parser));
+                    ext.addChildExtension(endpointProvider.parse(parser));
                 }
             }
             else if (eventType == XmlPullParser.Event.END_ELEMENT)
@@ -30,6 +30,11 @@ import java.io.*;
 public class UsersProvider
     extends ExtensionElementProvider<UsersPacketExtension>
 {
+    /**
+     * Provider for the user child elements.
+     */
+    private static final UserProvider userProvider = new UserProvider();
+
     /**
      * Parses a users extension sub-packet and creates a {@link
      * UsersPacketExtension} instance. At the beginning of the method
@@ -74,8 +79,7 @@ public class UsersProvider
             {
                 if (elementName.equals(UserPacketExtension.ELEMENT))
                 {
-                    UserProvider provider = new UserProvider();
-                    ExtensionElement childExtension = provider.parse(parser);
+                    ExtensionElement childExtension = userProvider.parse(parser);
                     ext.addChildExtension(childExtension);
                 }
             }
@@ -32,14 +32,20 @@ import org.jivesoftware.smack.xml.*;
 public class ColibriStatsIqProvider
     extends SafeParseIqProvider<ColibriStatsIQ>
 {
-    /** Initializes a new <tt>ColibriIQProvider</tt> instance. */
-    public ColibriStatsIqProvider()
+    /** A shared instance. The provider is stateless. */
+    public static final ColibriStatsIqProvider INSTANCE = new ColibriStatsIqProvider();
+
+    /**
+     * Registers {@link #INSTANCE} as the provider for {@link ColibriStatsIQ},
+     * as well as the providers for the stats extensions.
+     */
+    public static void registerProviders()
     {
         // ColibriStatsIQ
         ProviderManager.addIQProvider(
             ColibriStatsIQ.ELEMENT,
             ColibriStatsIQ.NAMESPACE,
-            this);
+            INSTANCE);
 
         // ColibriStatsExtension
         ProviderManager.addExtensionProvider(
@@ -87,6 +93,11 @@ public class ColibriStatsIqProvider
                 {
                     case START_ELEMENT:
                     {
+                        if (ParsingProjection.skipIfExcluded(parser))
+                        {
+                            break;
+                        }
+
                         String name = parser.getName();
 
                         if (ColibriStatsExtension.Stat.ELEMENT.equals(name))
@@ -15,10 +15,13 @@
  */
 package org.jitsi.xmpp.extensions.colibri.json;
 
+import java.io.IOException;
 import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.node.*;
 import org.jitsi.xmpp.extensions.*;
@@ -28,6 +31,10 @@ import org.jitsi.xmpp.extensions.jingle.*;
 /**
  * Implements (utility) functions to deserialize instances of
  * {@link ColibriConferenceIQ} and related classes from JSON instances.
+ * <p>
+ * Sources and source groups, which make up most of large messages, can also
+ * be read straight from a <tt>JsonParser</tt>, with the same results and
+ * errors as when they are read from a <tt>JsonNode</tt>.
  *
  * @author Lyubomir Marinov
  */
@@ -657,6 +664,351 @@ public final class JSONDeserializer
         return transportIQ;
     }
 
+    /**
+     * Reads a source from <tt>parser</tt>, which is positioned at the first
+     * token of its value, like {@link #deserializeSource(JsonNode)}. When
+     * this returns, <tt>parser</tt> is positioned at the last token of the
+     * value.
+     */
+    public static SourcePacketExtension deserializeSource(JsonParser parser)
+        throws IOException
+    {
+        JsonToken token = parser.currentToken();
+
+        if (token == JsonToken.VALUE_NULL)
+        {
+            return null;
+        }
+        else if (token.isNumeric() || token == JsonToken.VALUE_STRING)
+        {
+            long ssrc;
+            try
+            {
+                ssrc = deserializeSSRC(parser);
+            }
+            catch (NumberFormatException nfe)
+            {
+                return null;
+            }
+            SourcePacketExtension sourceIQ = new SourcePacketExtension();
+            sourceIQ.setSSRC(ssrc);
+            return sourceIQ;
+        }
+        else if (token != JsonToken.START_OBJECT)
+        {
+            JsonNodeType nodeType = nodeType(token);
+            parser.skipChildren();
+            throw new IllegalArgumentException("Unexpected source node type: " + nodeType);
+        }
+
+        long ssrc = 0;
+        NumberFormatException ssrcException = null;
+        String name = null;
+        String videoType = null;
+        String rid = null;
+        Map<String, String> parameters = null;
+        JsonNodeType parametersType = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field)
+            {
+            case SourcePacketExtension.SSRC_ATTR_NAME:
+                try
+                {
+                    ssrc = deserializeSSRC(parser);
+                    ssrcException = null;
+                }
+                catch (NumberFormatException nfe)
+                {
+                    ssrcException = nfe;
+                }
+                break;
+            case SourcePacketExtension.NAME_ATTR_NAME:
+                name = textOrNull(parser);
+                break;
+            case SourcePacketExtension.VIDEO_TYPE_ATTR_NAME:
+                videoType = textOrNull(parser);
+                break;
+            case SourcePacketExtension.RID_ATTR_NAME:
+                rid = textOrNull(parser);
+                break;
+            case JSONSerializer.PARAMETERS:
+                parameters = null;
+                parametersType = null;
+                if (value == JsonToken.START_OBJECT)
+                {
+                    /* Like an ObjectNode, a repeated name keeps its first position and gets its last value. */
+                    parameters = new LinkedHashMap<>();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME)
+                    {
+                        String paramName = parser.currentName();
+                        JsonToken paramValue = parser.nextToken();
+                        parameters.put(paramName, paramValue == JsonToken.VALUE_NULL ? null : asText(parser));
+                    }
+                }
+                else if (value != JsonToken.VALUE_NULL)
+                {
+                    parametersType = nodeType(value);
+                    parser.skipChildren();
+                }
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+
+        if (ssrcException != null)
+        {
+            return null;
+        }
+        if (parametersType != null)
+        {
+            throw new IllegalArgumentException(
+                "Expected object for source parameters, got: " + parametersType);
+        }
+
+        SourcePacketExtension sourceIQ = new SourcePacketExtension();
+        sourceIQ.setSSRC(ssrc);
+        if (name != null)
+        {
+            sourceIQ.setName(name);
+        }
+        if (videoType != null)
+        {
+            sourceIQ.setVideoType(videoType);
+        }
+        if (rid != null)
+        {
+            sourceIQ.setRid(rid);
+        }
+        if (parameters != null)
+        {
+            parameters.forEach((paramName, paramValue) ->
+                sourceIQ.addParameter(new ParameterPacketExtension(paramName, paramValue)));
+        }
+        return sourceIQ;
+    }
+
+    /**
+     * Reads a source group from <tt>parser</tt>, which is positioned at the
+     * first token of its value, like {@link #deserializeSourceGroup(JsonNode)}.
+     * When this returns, <tt>parser</tt> is positioned at the last token of
+     * the value.
+     */
+    public static SourceGroupPacketExtension deserializeSourceGroup(
+            JsonParser parser)
+        throws IOException
+    {
+        JsonToken token = parser.currentToken();
+
+        if (token == JsonToken.VALUE_NULL)
+        {
+            return null;
+        }
+        else if (token != JsonToken.START_OBJECT)
+        {
+            JsonNodeType nodeType = nodeType(token);
+            parser.skipChildren();
+            throw new IllegalArgumentException("Expected object for source group, got: " + nodeType);
+        }
+
+        JsonToken semanticsToken = null;
+        String semantics = null;
+        JsonNodeType sourcesType = null;
+        /* The sources, or the exceptions thrown while reading them, which only matter if the semantics are valid. */
+        List<Object> sources = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if (SourceGroupPacketExtension.SEMANTICS_ATTR_NAME.equals(field))
+            {
+                semanticsToken = value;
+                semantics = value == JsonToken.VALUE_NULL ? null : asText(parser);
+            }
+            else if (JSONSerializer.SOURCES.equals(field))
+            {
+                sources = null;
+                sourcesType = null;
+                if (value == JsonToken.START_ARRAY)
+                {
+                    sources = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY)
+                    {
+                        try
+                        {
+                            sources.add(deserializeSource(parser));
+                        }
+                        catch (IllegalArgumentException iae)
+                        {
+                            sources.add(iae);
+                        }
+                    }
+                }
+                else if (value != JsonToken.VALUE_NULL)
+                {
+                    sourcesType = nodeType(value);
+                    parser.skipChildren();
+                }
+            }
+            else
+            {
+                parser.skipChildren();
+            }
+        }
+
+        if (semantics == null || semantics.length() == 0)
+        {
+            return null;
+        }
+        else if (semanticsToken != JsonToken.VALUE_STRING)
+        {
+            throw new IllegalArgumentException("Expected string semantics, got: " + nodeType(semanticsToken));
+        }
+        if (sourcesType != null)
+        {
+            throw new IllegalArgumentException("Expected array for sources, got: " + sourcesType);
+        }
+        if (sources == null || sources.isEmpty())
+        {
+            return null;
+        }
+
+        List<SourcePacketExtension> sourcePacketExtensions = new ArrayList<>();
+        for (Object source : sources)
+        {
+            if (source instanceof IllegalArgumentException)
+            {
+                throw (IllegalArgumentException) source;
+            }
+            else if (source != null)
+            {
+                sourcePacketExtensions.add((SourcePacketExtension) source);
+            }
+        }
+
+        SourceGroupPacketExtension sourceGroupIQ = new SourceGroupPacketExtension();
+        sourceGroupIQ.setSemantics(semantics);
+        sourceGroupIQ.addSources(sourcePacketExtensions);
+        return sourceGroupIQ;
+    }
+
+    /**
+     * Reads an SSRC from the current value of <tt>parser</tt>, like
+     * {@link #deserializeSSRC(JsonNode)}.
+     */
+    public static int deserializeSSRC(JsonParser parser)
+        throws IOException, NumberFormatException
+    {
+        JsonToken token = parser.currentToken();
+
+        if (token == JsonToken.VALUE_NULL)
+        {
+            return 0;
+        }
+        else if (token == JsonToken.VALUE_NUMBER_INT)
+        {
+            return parser.getNumberValue().intValue();
+        }
+        else if (token == JsonToken.VALUE_NUMBER_FLOAT)
+        {
+            return (int) parser.getDoubleValue();
+        }
+
+        String s = asText(parser);
+
+        if (s.startsWith("-"))
+        {
+            return Integer.parseInt(s);
+        }
+        else
+        {
+            return (int) Long.parseLong(s);
+        }
+    }
+
+    /**
+     * Returns the text of the current value of <tt>parser</tt> like
+     * {@link JsonNode#asText()} would for the equivalent node, skipping the
+     * value if it is an object or an array.
+     */
+    public static String asText(JsonParser parser)
+        throws IOException
+    {
+        switch (parser.currentToken())
+        {
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+            return parser.getNumberValue().toString();
+        case VALUE_NUMBER_FLOAT:
+            return Double.toString(parser.getDoubleValue());
+        case VALUE_TRUE:
+            return "true";
+        case VALUE_FALSE:
+            return "false";
+        case VALUE_NULL:
+            return "null";
+        default:
+            parser.skipChildren();
+            return "";
+        }
+    }
+
+    /**
+     * Returns the current value of <tt>parser</tt> if it is a string, or
+     * <tt>null</tt> (skipping the value) if it is not.
+     */
+    private static String textOrNull(JsonParser parser)
+        throws IOException
+    {
+        if (parser.currentToken() == JsonToken.VALUE_STRING)
+        {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * Returns the type of the node which a value starting with
+     * <tt>token</tt> would be read into, for error messages matching those
+     * of the <tt>JsonNode</tt> based functions.
+     */
+    public static JsonNodeType nodeType(JsonToken token)
+    {
+        if (token == null)
+            return JsonNodeType.MISSING;
+
+        switch (token)
+        {
+        case START_OBJECT:
+            return JsonNodeType.OBJECT;
+        case START_ARRAY:
+            return JsonNodeType.ARRAY;
+        case VALUE_STRING:
+            return JsonNodeType.STRING;
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            return JsonNodeType.NUMBER;
+        case VALUE_TRUE:
+        case VALUE_FALSE:
+            return JsonNodeType.BOOLEAN;
+        case VALUE_NULL:
+            return JsonNodeType.NULL;
+        case VALUE_EMBEDDED_OBJECT:
+            return JsonNodeType.POJO;
+        default:
+            return JsonNodeType.MISSING;
+        }
+    }
+
     /**
      * Prevents the initialization of new <tt>JSONDeserializer</tt> instances.
      */
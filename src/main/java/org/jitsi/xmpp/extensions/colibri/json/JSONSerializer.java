@@ -15,9 +15,11 @@
  */
 package org.jitsi.xmpp.extensions.colibri.json;
 
+import java.io.IOException;
 import java.net.*;
 import java.util.*;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.*;
 import org.jetbrains.annotations.*;
 import org.jitsi.xmpp.extensions.*;
@@ -27,6 +29,10 @@ import org.jitsi.xmpp.extensions.jingle.*;
 /**
  * Implements (utility) functions to serialize instances of
  * {@link ColibriConferenceIQ} and related classes into JSON instances.
+ * <p>
+ * Each function which builds a tree of <tt>JsonNode</tt>s has an overload
+ * which writes the same JSON straight to a <tt>JsonGenerator</tt> instead,
+ * without building the tree.
  *
  * @author Lyubomir Marinov
  */
@@ -622,6 +628,489 @@ public final class JSONSerializer
         return webSocketsJSONArray;
     }
 
+    /**
+     * Writes the attribute values of an <tt>AbstractPacketExtension</tt> as
+     * fields of the current object of a <tt>JsonGenerator</tt>, like
+     * {@link #serializeAbstractPacketExtensionAttributes(AbstractPacketExtension, ObjectNode)}.
+     */
+    public static void serializeAbstractPacketExtensionAttributes(
+            AbstractPacketExtension abstractPacketExtension,
+            JsonGenerator generator)
+        throws IOException
+    {
+        for (String name : abstractPacketExtension.getAttributeNames())
+        {
+            writeAttribute(
+                    name,
+                    abstractPacketExtension.getAttribute(name),
+                    generator);
+        }
+    }
+
+    private static void writeAttribute(
+            String name,
+            Object value,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (value instanceof Enum)
+            value = value.toString();
+
+        if (value instanceof String)
+            generator.writeStringField(name, (String) value);
+        else if (value instanceof Boolean)
+            generator.writeBooleanField(name, (Boolean) value);
+        else if (value instanceof Integer)
+            generator.writeNumberField(name, (Integer) value);
+        else if (value instanceof Long)
+            generator.writeNumberField(name, (Long) value);
+        else if (value != null)
+            generator.writeStringField(name, value.toString());
+    }
+
+    public static void serializeCandidate(
+            CandidatePacketExtension candidate,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (candidate == null)
+        {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        serializeAbstractPacketExtensionAttributes(candidate, generator);
+        generator.writeEndObject();
+    }
+
+    public static void serializeCandidates(
+            Collection<CandidatePacketExtension> candidates,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (candidates == null)
+        {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (CandidatePacketExtension candidate : candidates)
+            serializeCandidate(candidate, generator);
+        generator.writeEndArray();
+    }
+
+    public static void serializeFingerprint(
+            DtlsFingerprintPacketExtension fingerprint,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (fingerprint == null)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        String theFingerprint = fingerprint.getFingerprint();
+
+        generator.writeStartObject();
+        if (theFingerprint != null)
+        {
+            generator.writeStringField(
+                    fingerprint.getElementName(),
+                    theFingerprint);
+        }
+        for (String name : fingerprint.getAttributeNames())
+        {
+            Object value = fingerprint.getAttribute(name);
+
+            /* Any value which the attribute loop writes as a string. */
+            if (DtlsFingerprintPacketExtension.CRYPTEX_ATTR_NAME.equals(name)
+                    && value != null
+                    && !(value instanceof Boolean)
+                    && !(value instanceof Integer)
+                    && !(value instanceof Long))
+            {
+                /* Represent cryptex as a boolean. */
+                generator.writeBooleanField(
+                        name,
+                        Boolean.parseBoolean(value.toString()));
+            }
+            else
+            {
+                writeAttribute(name, value, generator);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    public static void serializeFingerprints(
+            Collection<DtlsFingerprintPacketExtension> fingerprints,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (fingerprints == null)
+        {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (DtlsFingerprintPacketExtension fingerprint : fingerprints)
+            serializeFingerprint(fingerprint, generator);
+        generator.writeEndArray();
+    }
+
+    public static void serializeParameters(
+            Collection<ParameterPacketExtension> parameters,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (parameters == null)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        /*
+         * Like an ObjectNode, write a repeated name once, at the position of
+         * its first occurrence and with the value of its last one. Parameter
+         * lists are short, so look for repetitions linearly.
+         */
+        List<ParameterPacketExtension> list = new ArrayList<>(parameters);
+        int size = list.size();
+
+        generator.writeStartObject();
+        for (int i = 0; i < size; i++)
+        {
+            String name = parameterKey(list.get(i));
+
+            if (name == null)
+                continue;
+
+            boolean repeated = false;
+
+            for (int j = 0; j < i && !repeated; j++)
+                repeated = name.equals(parameterKey(list.get(j)));
+            if (repeated)
+                continue;
+
+            String value = list.get(i).getValue();
+
+            for (int j = i + 1; j < size; j++)
+            {
+                if (name.equals(parameterKey(list.get(j))))
+                    value = list.get(j).getValue();
+            }
+            generator.writeStringField(name, value);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Returns the JSON name of a parameter, or <tt>null</tt> if the parameter
+     * is not serialized.
+     */
+    private static String parameterKey(ParameterPacketExtension parameter)
+    {
+        String name = parameter.getName();
+
+        if (name == null && parameter.getValue() == null)
+            return null;
+        return name != null ? name : "null";
+    }
+
+    public static void serializeRtcpFbs(
+            @NotNull Collection<RtcpFbPacketExtension> rtcpFbs,
+            JsonGenerator generator)
+        throws IOException
+    {
+        generator.writeStartArray();
+        for (RtcpFbPacketExtension ext : rtcpFbs)
+        {
+            String type = ext.getFeedbackType();
+            String subtype = ext.getFeedbackSubtype();
+
+            if (type != null)
+            {
+                generator.writeStartObject();
+                generator.writeStringField(
+                        RtcpFbPacketExtension.TYPE_ATTR_NAME,
+                        type);
+                if (subtype != null)
+                {
+                    generator.writeStringField(
+                            RtcpFbPacketExtension.SUBTYPE_ATTR_NAME,
+                            subtype);
+                }
+                generator.writeEndObject();
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    public static void serializePayloadType(
+            PayloadTypePacketExtension payloadType,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (payloadType == null)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        List<ParameterPacketExtension> parameters
+            = payloadType.getParameters();
+        List<RtcpFbPacketExtension> rtcpFeedbackTypeList
+            = payloadType.getRtcpFeedbackTypeList();
+
+        generator.writeStartObject();
+        serializeAbstractPacketExtensionAttributes(payloadType, generator);
+        if ((parameters != null) && !parameters.isEmpty())
+        {
+            generator.writeFieldName(PARAMETERS);
+            serializeParameters(parameters, generator);
+        }
+        if ((rtcpFeedbackTypeList != null) && !rtcpFeedbackTypeList.isEmpty())
+        {
+            generator.writeFieldName(RTCP_FBS);
+            serializeRtcpFbs(rtcpFeedbackTypeList, generator);
+        }
+        generator.writeEndObject();
+    }
+
+    public static void serializePayloadTypes(
+            Collection<PayloadTypePacketExtension> payloadTypes,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (payloadTypes == null)
+        {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (PayloadTypePacketExtension payloadType : payloadTypes)
+            serializePayloadType(payloadType, generator);
+        generator.writeEndArray();
+    }
+
+    public static void serializeRtpHdrExt(
+            RTPHdrExtPacketExtension rtpHdrExt,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (rtpHdrExt == null)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        String id = rtpHdrExt.getID();
+        URI uri = rtpHdrExt.getURI();
+        ContentPacketExtension.SendersEnum senders = rtpHdrExt.getSenders();
+        String attributes = rtpHdrExt.getAttributes();
+
+        generator.writeStartObject();
+        if (id != null)
+        {
+            generator.writeNumberField(
+                    RTPHdrExtPacketExtension.ID_ATTR_NAME,
+                    Long.parseLong(id));
+        }
+        if (uri != null)
+        {
+            generator.writeStringField(
+                    RTPHdrExtPacketExtension.URI_ATTR_NAME,
+                    uri.toString());
+        }
+        if (senders != null)
+        {
+            generator.writeStringField(
+                    RTPHdrExtPacketExtension.SENDERS_ATTR_NAME,
+                    senders.toString());
+        }
+        if (attributes != null)
+        {
+            generator.writeStringField(
+                    RTPHdrExtPacketExtension.ATTRIBUTES_ATTR_NAME,
+                    attributes);
+        }
+        generator.writeEndObject();
+    }
+
+    public static void serializeRtpHdrExts(
+            Collection<RTPHdrExtPacketExtension> rtpHdrExts,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (rtpHdrExts == null)
+        {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (RTPHdrExtPacketExtension rtpHdrExt : rtpHdrExts)
+            serializeRtpHdrExt(rtpHdrExt, generator);
+        generator.writeEndArray();
+    }
+
+    public static void serializeSource(
+            SourcePacketExtension source,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (source == null)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        String name = source.getName();
+        String videoType = source.getVideoType();
+        String rid = source.getRid();
+        List<ParameterPacketExtension> parameters = source.getParameters();
+
+        /* Backward compatibility - sources used to just be their ssrc values. */
+        if (name == null && rid == null && parameters.isEmpty())
+        {
+            generator.writeNumber(source.getSSRC());
+            return;
+        }
+
+        generator.writeStartObject();
+        generator.writeNumberField(SourcePacketExtension.SSRC_ATTR_NAME, source.getSSRC());
+        if (name != null)
+        {
+            generator.writeStringField(SourcePacketExtension.NAME_ATTR_NAME, name);
+        }
+        if (videoType != null)
+        {
+            generator.writeStringField(SourcePacketExtension.VIDEO_TYPE_ATTR_NAME, videoType);
+        }
+        if (rid != null)
+        {
+            generator.writeStringField(SourcePacketExtension.RID_ATTR_NAME, rid);
+        }
+        if (!parameters.isEmpty())
+        {
+            generator.writeFieldName(PARAMETERS);
+            serializeParameters(parameters, generator);
+        }
+        generator.writeEndObject();
+    }
+
+    public static void serializeSourceGroups(
+            Collection<SourceGroupPacketExtension> sourceGroups,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (sourceGroups == null || sourceGroups.size() == 0)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        generator.writeStartArray();
+        for (SourceGroupPacketExtension sourceGroup : sourceGroups)
+        {
+            String semantics = sourceGroup.getSemantics();
+            List<SourcePacketExtension> sources = sourceGroup.getSources();
+
+            if (semantics != null && semantics.length() != 0
+                    && sources != null && sources.size() != 0)
+            {
+                generator.writeStartObject();
+                generator.writeStringField(
+                        SourceGroupPacketExtension.SEMANTICS_ATTR_NAME,
+                        semantics);
+                generator.writeArrayFieldStart(SOURCES);
+                for (SourcePacketExtension source : sources)
+                    generator.writeNumber(source.getSSRC());
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            else
+            {
+                generator.writeNull();
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    public static void serializeSources(
+            Collection<SourcePacketExtension> sources,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (sources == null)
+        {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (SourcePacketExtension source : sources)
+            serializeSource(source, generator);
+        generator.writeEndArray();
+    }
+
+    public static void serializeTransport(
+            IceUdpTransportPacketExtension transport,
+            JsonGenerator generator)
+        throws IOException
+    {
+        if (transport == null)
+        {
+            generator.writeNull();
+            return;
+        }
+
+        String xmlns = transport.getNamespace();
+        List<DtlsFingerprintPacketExtension> fingerprints
+            = transport.getChildExtensionsOfType(
+                    DtlsFingerprintPacketExtension.class);
+        List<CandidatePacketExtension> candidateList
+            = transport.getCandidateList();
+        List<WebSocketPacketExtension> webSocketList
+            = transport.getChildExtensionsOfType(
+                    WebSocketPacketExtension.class);
+        RemoteCandidatePacketExtension remoteCandidate
+            = transport.getRemoteCandidate();
+
+        generator.writeStartObject();
+        if (xmlns != null)
+            generator.writeStringField(XMLNS, xmlns);
+        serializeAbstractPacketExtensionAttributes(transport, generator);
+        if ((fingerprints != null) && !fingerprints.isEmpty())
+        {
+            generator.writeFieldName(FINGERPRINTS);
+            serializeFingerprints(fingerprints, generator);
+        }
+        if ((candidateList != null) && !candidateList.isEmpty())
+        {
+            generator.writeFieldName(CANDIDATE_LIST);
+            serializeCandidates(candidateList, generator);
+        }
+        if (remoteCandidate != null)
+        {
+            generator.writeFieldName(remoteCandidate.getElementName());
+            serializeCandidate(remoteCandidate, generator);
+        }
+        if ((webSocketList != null) && !webSocketList.isEmpty())
+        {
+            generator.writeArrayFieldStart(WEBSOCKET_LIST);
+            for (WebSocketPacketExtension webSocket : webSocketList)
+                generator.writeString(serializeWebSocket(webSocket));
+            generator.writeEndArray();
+        }
+        if (transport.isRtcpMux())
+        {
+            generator.writeBooleanField(
+                    IceRtcpmuxPacketExtension.ELEMENT,
+                    true);
+        }
+        generator.writeEndObject();
+    }
+
     /** Prevents the initialization of new <tt>JSONSerializer</tt> instances. */
     private JSONSerializer()
     {
@@ -29,12 +29,27 @@ public abstract class AbstractConferenceModificationIQ<I extends AbstractConfere
      */
     public static final String NAMESPACE = "jitsi:colibri2";
 
+    /**
+     * The index of the endpoints, computed on the first lookup. Races only lead to computing it more than once.
+     */
+    private EntityIndex<Colibri2Endpoint> endpointIndex;
+
+    /**
+     * The index of the relays, computed on the first lookup. Races only lead to computing it more than once.
+     */
+    private EntityIndex<Colibri2Relay> relayIndex;
 
     /** Initializes a new {@link ConferenceModifyIQ} instance. */
     protected AbstractConferenceModificationIQ(Builder<I> b, String element)
     {
         super(b, element, NAMESPACE);
 
+        /* The templates must precede the entities which refer to them. */
+        if (b.templates != null)
+        {
+            addExtension(b.templates);
+        }
+
         for (AbstractConferenceEntity ce: b.conferenceEntities)
         {
             addExtension(ce);
@@ -57,11 +72,68 @@ public abstract class AbstractConferenceModificationIQ<I extends AbstractConfere
         return getExtensions(Colibri2Relay.class);
     }
 
+    /**
+     * Get the endpoints described by the message, indexed by ID. The index is computed on the first call, so endpoints
+     * must not be added to or removed from the IQ afterwards.
+     */
+    public @NotNull EntityIndex<Colibri2Endpoint> getEndpointIndex()
+    {
+        EntityIndex<Colibri2Endpoint> index = endpointIndex;
+        if (index == null)
+        {
+            index = new EntityIndex<>(getEndpoints());
+            endpointIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the relays described by the message, indexed by ID. The index is computed on the first call, so relays
+     * must not be added to or removed from the IQ afterwards.
+     */
+    public @NotNull EntityIndex<Colibri2Relay> getRelayIndex()
+    {
+        EntityIndex<Colibri2Relay> index = relayIndex;
+        if (index == null)
+        {
+            index = new EntityIndex<>(getRelays());
+            relayIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the endpoint with the given ID, or null.
+     */
+    public @Nullable Colibri2Endpoint getEndpoint(@NotNull String id)
+    {
+        return getEndpointIndex().get(id);
+    }
+
+    /**
+     * Get the relay with the given ID, or null.
+     */
+    public @Nullable Colibri2Relay getRelay(@NotNull String id)
+    {
+        return getRelayIndex().get(id);
+    }
+
+    /**
+     * Get the templates which the media and transports of the entities may refer to. This is always null for a parsed
+     * IQ, because the references are expanded when parsing.
+     */
+    public @Nullable Templates getTemplates()
+    {
+        return getExtension(Templates.class);
+    }
+
     public abstract static class Builder<I extends AbstractConferenceModificationIQ>
         extends IqBuilder<Builder<I>, I>
     {
         private final List<AbstractConferenceEntity> conferenceEntities = new ArrayList<>();
 
+        private Templates templates;
+
         protected Builder(IqData iqCommon)
         {
             super(iqCommon);
@@ -84,6 +156,16 @@ public abstract class AbstractConferenceModificationIQ<I extends AbstractConfere
             return this;
         }
 
+        /**
+         * Sets the templates which the media and transports of the entities refer to, see {@link Colibri2Templates}.
+         */
+        public Builder<I> setTemplates(@Nullable Templates templates)
+        {
+            this.templates = templates;
+
+            return this;
+        }
+
         public Builder<I> addEndpoint(Colibri2Endpoint ep)
         {
             return addConferenceEntity(ep);
@@ -45,6 +45,12 @@ public class Capability extends AbstractPacketExtension
      */
     public static final String CAP_PRIVATE_ADDRESS_CONNECTIVITY = "private-address-connectivity";
 
+    /**
+     * The entity understands colibri2 IQs which define shared media and transports once in a {@link Templates}
+     * element and refer to them by ID.
+     */
+    public static final String CAP_TEMPLATES = "templates";
+
     /**
      * Creates an {@link Capability} instance.
      */
@@ -73,7 +79,9 @@ public class Capability extends AbstractPacketExtension
     }
 
     /**
-     * Sets the capability name.
+     * Sets the capability name. A capability must not be renamed once it has been added to an endpoint, which caches
+     * the names of its capabilities (see {@link Colibri2Endpoint#getCapabilitySet()}). Remove it and add a new one
+     * instead.
      * @param capabilityName - the name to set.
      */
     public void setName(String capabilityName)
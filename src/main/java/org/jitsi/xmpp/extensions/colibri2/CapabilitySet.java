@@ -0,0 +1,164 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * An immutable set of endpoint capability names. The capabilities known to this library (e.g.
+ * {@link Capability#CAP_SOURCE_NAME_SUPPORT}) are stored as bits, so checking for one is a hash lookup and a mask
+ * instead of a scan over the {@link Capability} elements. Other names are kept in a separate set.
+ */
+public final class CapabilitySet
+{
+    /**
+     * The known capability names, in the order of their bits.
+     */
+    private static final String[] KNOWN = {
+        Capability.CAP_SOURCE_NAME_SUPPORT,
+        Capability.CAP_SSRC_REWRITING_SUPPORT,
+        Capability.CAP_PRIVATE_ADDRESS_CONNECTIVITY,
+        Capability.CAP_TEMPLATES
+    };
+
+    /**
+     * Maps each known capability name to its bit.
+     */
+    private static final Map<String, Integer> BITS = new HashMap<>();
+
+    static
+    {
+        for (int i = 0; i < KNOWN.length; i++)
+        {
+            BITS.put(KNOWN[i], i);
+        }
+    }
+
+    /**
+     * The empty set.
+     */
+    public static final CapabilitySet EMPTY = new CapabilitySet(0, Collections.emptySet());
+
+    /**
+     * The bits of the known capabilities in this set.
+     */
+    private final long bits;
+
+    /**
+     * The names in this set which are not known.
+     */
+    private final Set<String> others;
+
+    private CapabilitySet(long bits, Set<String> others)
+    {
+        this.bits = bits;
+        this.others = others;
+    }
+
+    /**
+     * Creates the set of the names of {@code capabilities}. Capabilities without a name are ignored.
+     */
+    public static @NotNull CapabilitySet of(@NotNull Collection<Capability> capabilities)
+    {
+        if (capabilities.isEmpty())
+        {
+            return EMPTY;
+        }
+
+        long bits = 0;
+        Set<String> others = null;
+        for (Capability capability : capabilities)
+        {
+            String name = capability.getName();
+            if (name == null)
+            {
+                continue;
+            }
+
+            Integer bit = BITS.get(name);
+            if (bit != null)
+            {
+                bits |= 1L << bit;
+            }
+            else
+            {
+                if (others == null)
+                {
+                    others = new HashSet<>();
+                }
+                others.add(name);
+            }
+        }
+
+        return new CapabilitySet(bits, others == null ? Collections.emptySet() : Collections.unmodifiableSet(others));
+    }
+
+    /**
+     * @return true if this set contains the capability {@code name}.
+     */
+    public boolean contains(String name)
+    {
+        Integer bit = BITS.get(name);
+        if (bit != null)
+        {
+            return (bits & (1L << bit)) != 0;
+        }
+        return others.contains(name);
+    }
+
+    public boolean isEmpty()
+    {
+        return bits == 0 && others.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof CapabilitySet))
+        {
+            return false;
+        }
+        CapabilitySet that = (CapabilitySet) o;
+        return bits == that.bits && others.equals(that.others);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(bits) * 31 + others.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < KNOWN.length; i++)
+        {
+            if ((bits & (1L << i)) != 0)
+            {
+                joiner.add(KNOWN[i]);
+            }
+        }
+        others.forEach(joiner::add);
+        return joiner.toString();
+    }
+}
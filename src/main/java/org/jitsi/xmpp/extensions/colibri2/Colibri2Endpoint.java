@@ -52,6 +52,19 @@ public class Colibri2Endpoint
      */
     public static final String MUC_ROLE_ATTR_NAME = "muc-role";
 
+    /**
+     * Incremented after every change to the capability children. Only changed while holding the lock of this
+     * endpoint, so that no increment is lost.
+     */
+    private volatile int capabilitiesVersion;
+
+    /**
+     * The names of the capability children, computed when first needed, with the {@link #capabilitiesVersion} they
+     * were computed for. A reader which races with a change may store a set computed from the old children, but it
+     * stores it with the old version, so the next reader computes the set again.
+     */
+    private volatile CachedCapabilitySet capabilitySet;
+
     /**
      * Construct Colibri2Endpoint.  Needs to be public for DefaultPacketExtensionProvider to work.
      */
@@ -142,13 +155,74 @@ public class Colibri2Endpoint
         return new Builder();
     }
 
+    /**
+     * @return the names of this endpoint's capabilities.
+     */
+    public @NotNull CapabilitySet getCapabilitySet()
+    {
+        /* Read the version before the children, so that a change made while computing is detected next time. */
+        int version = capabilitiesVersion;
+        CachedCapabilitySet cached = capabilitySet;
+        if (cached == null || cached.version != version)
+        {
+            cached = new CachedCapabilitySet(version, CapabilitySet.of(getCapabilities()));
+            capabilitySet = cached;
+        }
+        return cached.set;
+    }
+
     /**
      * @param capabilityName the capability name to check for.
      * @return true if this endpoint has the capability of the given name.
      */
     public boolean hasCapability(String capabilityName)
     {
-        return getCapabilities().stream().anyMatch(c -> capabilityName.equals(c.getName()));
+        return getCapabilitySet().contains(capabilityName);
+    }
+
+    @Override
+    public void addChildExtension(ExtensionElement childExtension)
+    {
+        super.addChildExtension(childExtension);
+        if (childExtension instanceof Capability)
+        {
+            capabilitiesChanged();
+        }
+    }
+
+    @Override
+    public boolean removeChildExtension(ExtensionElement childExtension)
+    {
+        boolean removed = super.removeChildExtension(childExtension);
+        if (removed && childExtension instanceof Capability)
+        {
+            capabilitiesChanged();
+        }
+        return removed;
+    }
+
+    /**
+     * Invalidates the cached {@link CapabilitySet}. Must be called after the capability children have changed.
+     */
+    private synchronized void capabilitiesChanged()
+    {
+        capabilitiesVersion++;
+    }
+
+    /**
+     * A {@link CapabilitySet} with the version of the capability children it was computed from.
+     */
+    private static final class CachedCapabilitySet
+    {
+        private final int version;
+
+        private final CapabilitySet set;
+
+        private CachedCapabilitySet(int version, CapabilitySet set)
+        {
+            this.version = version;
+            this.set = set;
+        }
     }
 
     /**
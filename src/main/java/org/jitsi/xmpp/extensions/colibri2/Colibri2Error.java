@@ -23,6 +23,7 @@ import org.jivesoftware.smack.xml.*;
 
 import javax.xml.namespace.*;
 import java.io.*;
+import java.util.*;
 
 public class Colibri2Error
         extends AbstractPacketExtension
@@ -100,6 +101,9 @@ public class Colibri2Error
         UNKNOWN_ENDPOINT,
         UNSPECIFIED;
 
+        private static final EnumDecoder<Reason> DECODER = EnumDecoder.of(
+            Reason.class, r -> r.name().toLowerCase(Locale.ROOT), true);
+
         @NotNull
         public static Reason parseString(String s)
                 throws IllegalArgumentException
@@ -109,7 +113,7 @@ public class Colibri2Error
                 return UNSPECIFIED;
             }
 
-            return Reason.valueOf(s.toUpperCase());
+            return DECODER.decodeOrThrow(s);
         }
     }
 }
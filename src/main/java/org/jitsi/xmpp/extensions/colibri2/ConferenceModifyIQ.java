@@ -236,6 +236,16 @@ public class ConferenceModifyIQ
             return this;
         }
 
+        /**
+         * Sets the connects element, replacing any which have been added. An empty element is distinct from
+         * {@code null}.
+         */
+        public Builder setConnects(@Nullable Connects connects)
+        {
+            this.connects = connects;
+            return this;
+        }
+
         public Builder addConnect(@NotNull Connect connect)
         {
             if (connects == null)
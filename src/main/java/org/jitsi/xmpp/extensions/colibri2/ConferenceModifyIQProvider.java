@@ -35,6 +35,19 @@ public class ConferenceModifyIQProvider extends SafeParseIqProvider<ConferenceMo
             IqData iqData,
             XmlEnvironment xmlEnvironment)
             throws XmlPullParserException, IOException, SmackParsingException
+    {
+        ConferenceModifyIQ iq = parseAttributes(parser, iqData).build();
+        IqProviderUtils.parseExtensions(parser, initialDepth, iq);
+
+        return iq;
+    }
+
+    /**
+     * Creates a builder for the IQ from the attributes of the conference-modify element the parser is positioned at.
+     * The child elements are not parsed.
+     */
+    public static ConferenceModifyIQ.Builder parseAttributes(XmlPullParser parser, IqData iqData)
+        throws SmackParsingException
     {
         ConferenceModifyIQ.Builder builder = ConferenceModifyIQ.builder(iqData);
 
@@ -65,9 +78,6 @@ public class ConferenceModifyIQProvider extends SafeParseIqProvider<ConferenceMo
             builder.setExpire(Boolean.parseBoolean(expire));
         }
 
-        ConferenceModifyIQ iq = builder.build();
-        IqProviderUtils.parseExtensions(parser, initialDepth, iq);
-
-        return iq;
+        return builder;
     }
 }
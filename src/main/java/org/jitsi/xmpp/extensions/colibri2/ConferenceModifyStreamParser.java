@@ -0,0 +1,118 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2;
+
+import org.jetbrains.annotations.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.parsing.*;
+import org.jivesoftware.smack.util.*;
+import org.jivesoftware.smack.xml.*;
+
+import java.io.*;
+import java.util.function.*;
+
+/**
+ * Parses a {@link ConferenceModifyIQ} and hands each top-level child (e.g. a {@link Colibri2Endpoint} or a
+ * {@link Colibri2Relay}) to a consumer as soon as its end tag has been parsed, instead of only returning once the
+ * whole IQ has been parsed.
+ *
+ * The consumer is called on the parsing thread and the parser does not advance until it returns, so a slow consumer
+ * naturally holds back the parsing. When the children are not retained, each one can be garbage collected as soon as
+ * the consumer is done with it, and the live memory needed for a large IQ does not grow with the number of
+ * endpoints.
+ */
+public final class ConferenceModifyStreamParser
+{
+    private ConferenceModifyStreamParser()
+    {
+    }
+
+    /**
+     * Parses a conference-modify IQ from a string.
+     * @see #parse(XmlPullParser, Consumer, boolean)
+     */
+    public static @NotNull ConferenceModifyIQ parse(
+            @NotNull String iq,
+            @NotNull Consumer<? super ExtensionElement> consumer,
+            boolean retainExtensions)
+        throws XmlPullParserException, IOException, SmackParsingException
+    {
+        return parse(PacketParserUtils.getParserFor(iq), consumer, retainExtensions);
+    }
+
+    /**
+     * Parses a conference-modify IQ.
+     * @param parser a parser positioned at the start tag of the {@code iq} element. When this method returns it is
+     * positioned at the end tag of the {@code iq} element.
+     * @param consumer the consumer which is passed each child of the conference-modify element, in document order.
+     * @param retainExtensions whether to also add the children to the returned IQ. When {@code false} the returned IQ
+     * only has the attributes of the conference-modify element (e.g. the meeting ID).
+     * @return the parsed IQ.
+     */
+    public static @NotNull ConferenceModifyIQ parse(
+            @NotNull XmlPullParser parser,
+            @NotNull Consumer<? super ExtensionElement> consumer,
+            boolean retainExtensions)
+        throws XmlPullParserException, IOException, SmackParsingException
+    {
+        if (parser.getEventType() != XmlPullParser.Event.START_ELEMENT || !"iq".equals(parser.getName()))
+        {
+            throw new SmackParsingException("Expected an iq start tag, found " + parser.getEventType()
+                + " " + parser.getName());
+        }
+
+        int iqDepth = parser.getDepth();
+        IqData iqData = StanzaBuilder.buildIqData(parser.getAttributeValue("", "id"))
+            .ofType(IQ.Type.fromString(parser.getAttributeValue("", "type")))
+            .from(ParserUtils.getJidAttribute(parser, "from"))
+            .to(ParserUtils.getJidAttribute(parser, "to"));
+
+        XmlPullParser.Event eventType = parser.next();
+        while (eventType == XmlPullParser.Event.TEXT_CHARACTERS)
+        {
+            // Ignore whitespace between the iq and conference-modify tags.
+            eventType = parser.next();
+        }
+        if (eventType != XmlPullParser.Event.START_ELEMENT
+            || !ConferenceModifyIQ.ELEMENT.equals(parser.getName())
+            || !ConferenceModifyIQ.NAMESPACE.equals(parser.getNamespace()))
+        {
+            throw new SmackParsingException("Expected a " + ConferenceModifyIQ.ELEMENT + " element, found "
+                + eventType + " " + parser.getName());
+        }
+
+        ConferenceModifyIQ iq = ConferenceModifyIQProvider.parseAttributes(parser, iqData).build();
+        Consumer<? super ExtensionElement> c = retainExtensions
+            ? extension ->
+            {
+                iq.addExtension(extension);
+                consumer.accept(extension);
+            }
+            : consumer;
+        IqProviderUtils.parseExtensions(parser, parser.getDepth(), c);
+
+        /* Skip anything else in the IQ (e.g. an error element). */
+        while (parser.next() != XmlPullParser.Event.END_ELEMENT || parser.getDepth() != iqDepth)
+        {
+            if (parser.getEventType() == XmlPullParser.Event.END_DOCUMENT)
+            {
+                throw new SmackParsingException("Unexpected end of document");
+            }
+        }
+
+        return iq;
+    }
+}
@@ -17,6 +17,7 @@ package org.jitsi.xmpp.extensions.colibri2;
 
 import org.jetbrains.annotations.*;
 import org.jitsi.xmpp.extensions.*;
+import org.jivesoftware.smack.packet.*;
 
 import javax.xml.namespace.*;
 import java.util.*;
@@ -36,6 +37,12 @@ public class Endpoints
      */
     public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
+    /**
+     * The index of the endpoints. It is set by the builder, or computed on the first lookup for a parsed element, and
+     * reset when the children change. Races only lead to computing it more than once.
+     */
+    private EntityIndex<Colibri2Endpoint> index;
+
     /**
      * Construct Endpoints.  Needs to be public for DefaultPacketExtensionProvider to work.
      */
@@ -55,6 +62,7 @@ public class Endpoints
         {
             addChildExtension(e);
         }
+        index = new EntityIndex<>(new ArrayList<>(b.endpoints));
     }
 
     /**
@@ -65,6 +73,49 @@ public class Endpoints
         return getChildExtensionsOfType(Colibri2Endpoint.class);
     }
 
+    /**
+     * Get the endpoints in this endpoint set, indexed by ID.
+     */
+    public @NotNull EntityIndex<Colibri2Endpoint> getEndpointIndex()
+    {
+        EntityIndex<Colibri2Endpoint> index = this.index;
+        if (index == null)
+        {
+            index = new EntityIndex<>(getEndpoints());
+            this.index = index;
+        }
+        return index;
+    }
+
+    /**
+     * Get the endpoint with the given ID, or null.
+     */
+    public @Nullable Colibri2Endpoint getEndpoint(@NotNull String id)
+    {
+        return getEndpointIndex().get(id);
+    }
+
+    @Override
+    public void addChildExtension(ExtensionElement childExtension)
+    {
+        super.addChildExtension(childExtension);
+        if (childExtension instanceof Colibri2Endpoint)
+        {
+            index = null;
+        }
+    }
+
+    @Override
+    public boolean removeChildExtension(ExtensionElement childExtension)
+    {
+        boolean removed = super.removeChildExtension(childExtension);
+        if (removed && childExtension instanceof Colibri2Endpoint)
+        {
+            index = null;
+        }
+        return removed;
+    }
+
     /**
      * Get a builder for Colibri2Endpoint objects.
      */
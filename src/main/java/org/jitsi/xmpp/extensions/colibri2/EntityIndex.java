@@ -0,0 +1,97 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * An immutable list of conference entities (endpoints or relays) in document order, indexed by ID. If several
+ * entities have the same ID, {@link #get(String)} returns the first one, like a scan of the list would.
+ */
+public final class EntityIndex<T extends AbstractConferenceEntity>
+    implements Iterable<T>
+{
+    /**
+     * The entities, in document order.
+     */
+    private final List<T> entities;
+
+    /**
+     * The entities by ID.
+     */
+    private final Map<String, T> byId;
+
+    /**
+     * Creates an index of {@code entities}, which is not copied and must not be modified afterwards.
+     */
+    EntityIndex(@NotNull List<T> entities)
+    {
+        this.entities = Collections.unmodifiableList(entities);
+        byId = new HashMap<>(Math.max(4, entities.size() * 4 / 3 + 1));
+        for (T entity : entities)
+        {
+            byId.putIfAbsent(entity.getId(), entity);
+        }
+    }
+
+    /**
+     * Get the entity with the given ID, or null.
+     */
+    public @Nullable T get(@NotNull String id)
+    {
+        return byId.get(id);
+    }
+
+    /**
+     * Whether there is an entity with the given ID.
+     */
+    public boolean contains(@NotNull String id)
+    {
+        return byId.containsKey(id);
+    }
+
+    /**
+     * Get the entities in document order, as an unmodifiable list which is not copied.
+     */
+    public @NotNull List<T> getList()
+    {
+        return entities;
+    }
+
+    public int size()
+    {
+        return entities.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return entities.isEmpty();
+    }
+
+    @Override
+    public @NotNull Iterator<T> iterator()
+    {
+        return entities.iterator();
+    }
+
+    @Override
+    public String toString()
+    {
+        return entities.toString();
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2;
+
+import org.jetbrains.annotations.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.util.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Parses IQs (e.g. large {@link ConferenceModifyIQ}s) from input which arrives in arbitrary chunks, without ever
+ * blocking a thread waiting for the rest of a stanza.
+ *
+ * Bytes or characters are fed as they arrive. A lightweight scanner keeps track of the element nesting across feeds,
+ * and as soon as a top-level element is complete it is handed to the registered providers (including
+ * {@link IqProviderUtils#parseExtensions(org.jivesoftware.smack.xml.XmlPullParser, int)} and the colibri2 providers)
+ * and the resulting IQ is returned. Whitespace between stanzas is ignored.
+ *
+ * Instances are not thread safe; use one per connection.
+ */
+public class IncrementalIqParser
+{
+    /* Scanner states. */
+    private static final int STATE_TEXT = 0;
+    private static final int STATE_MARKUP_START = 1;
+    private static final int STATE_START_TAG = 2;
+    private static final int STATE_END_TAG = 3;
+    private static final int STATE_ATTRIBUTE_VALUE = 4;
+    private static final int STATE_COMMENT = 5;
+    private static final int STATE_CDATA = 6;
+    private static final int STATE_PROCESSING_INSTRUCTION = 7;
+    private static final int STATE_DECLARATION = 8;
+
+    private static final String COMMENT_START = "<!--";
+    private static final String COMMENT_END = "-->";
+    private static final String CDATA_START = "<![CDATA[";
+    private static final String CDATA_END = "]]>";
+    private static final String PI_END = "?>";
+
+    /**
+     * The characters received so far which have not yet been consumed as part of a complete stanza.
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * The decoder used for byte input. It keeps partial multi-byte sequences between calls to {@link #feed(byte[])}.
+     */
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    /**
+     * Bytes of an incomplete multi-byte character left over from the previous byte feed.
+     */
+    private byte[] pendingBytes = new byte[0];
+
+    /**
+     * The maximum size in characters of a single stanza, or -1 for no limit.
+     */
+    private final int maxStanzaSize;
+
+    /** The index in {@link #buffer} of the next character to be scanned. */
+    private int position = 0;
+
+    /** The index in {@link #buffer} where the current stanza starts, or -1 if no stanza has started yet. */
+    private int stanzaStart = -1;
+
+    /** The current element depth. */
+    private int depth = 0;
+
+    /** The current scanner state. */
+    private int state = STATE_TEXT;
+
+    /** The quote character which terminates the attribute value currently being scanned. */
+    private char quote;
+
+    /** Whether the previous character in the current start tag was a '/'. */
+    private boolean slashSeen = false;
+
+    /**
+     * Creates a new parser without a limit on the size of a stanza.
+     */
+    public IncrementalIqParser()
+    {
+        this(-1);
+    }
+
+    /**
+     * Creates a new parser.
+     * @param maxStanzaSize the maximum size in characters of a single stanza, or -1 for no limit. Exceeding the limit
+     * causes {@link #feed(CharSequence)} to throw and the parser to be reset.
+     */
+    public IncrementalIqParser(int maxStanzaSize)
+    {
+        this.maxStanzaSize = maxStanzaSize;
+    }
+
+    /**
+     * Feeds the given bytes (UTF-8 encoded) to the parser.
+     * @return the IQs completed by this chunk of input, in order. Usually empty.
+     */
+    public @NotNull List<IQ> feed(byte[] data)
+        throws Exception
+    {
+        return feed(data, 0, data.length);
+    }
+
+    /**
+     * Feeds {@code length} bytes (UTF-8 encoded) from {@code data} starting at {@code offset} to the parser.
+     * @return the IQs completed by this chunk of input, in order. Usually empty.
+     */
+    public @NotNull List<IQ> feed(byte[] data, int offset, int length)
+        throws Exception
+    {
+        ByteBuffer in;
+        if (pendingBytes.length == 0)
+        {
+            in = ByteBuffer.wrap(data, offset, length);
+        }
+        else
+        {
+            in = ByteBuffer.allocate(pendingBytes.length + length);
+            in.put(pendingBytes).put(data, offset, length).flip();
+        }
+
+        CharBuffer out = CharBuffer.allocate(in.remaining());
+        CoderResult result = decoder.decode(in, out, false);
+        if (result.isError())
+        {
+            reset();
+            result.throwException();
+        }
+
+        pendingBytes = new byte[in.remaining()];
+        in.get(pendingBytes);
+
+        out.flip();
+        return feed(out);
+    }
+
+    /**
+     * Feeds the given characters to the parser.
+     * @return the IQs completed by this chunk of input, in order. Usually empty.
+     */
+    public @NotNull List<IQ> feed(@NotNull CharSequence data)
+        throws Exception
+    {
+        buffer.append(data);
+
+        List<String> stanzas = scan();
+        if (stanzas.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        List<IQ> iqs = new ArrayList<>(stanzas.size());
+        for (String stanza : stanzas)
+        {
+            iqs.add(PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(stanza)));
+        }
+        return iqs;
+    }
+
+    /**
+     * @return whether part of a stanza has been received, but the stanza is not yet complete.
+     */
+    public boolean hasPartialStanza()
+    {
+        return stanzaStart >= 0;
+    }
+
+    /**
+     * Discards all buffered input and state.
+     */
+    public void reset()
+    {
+        buffer.setLength(0);
+        pendingBytes = new byte[0];
+        decoder.reset();
+        position = 0;
+        stanzaStart = -1;
+        depth = 0;
+        state = STATE_TEXT;
+        slashSeen = false;
+    }
+
+    /**
+     * Scans the newly buffered characters, and extracts any stanzas which have been completed. Consumed characters are
+     * removed from the buffer.
+     */
+    private List<String> scan()
+        throws IOException
+    {
+        List<String> stanzas = null;
+        int length = buffer.length();
+
+        scan:
+        while (position < length)
+        {
+            char c = buffer.charAt(position);
+            switch (state)
+            {
+            case STATE_TEXT:
+                if (c == '<')
+                {
+                    if (stanzaStart < 0)
+                    {
+                        stanzaStart = position;
+                    }
+                    state = STATE_MARKUP_START;
+                }
+                else if (stanzaStart < 0 && !Character.isWhitespace(c))
+                {
+                    reset();
+                    throw new IOException("Unexpected character outside of a stanza: " + c);
+                }
+                position++;
+                break;
+
+            case STATE_MARKUP_START:
+                if (c == '/')
+                {
+                    state = STATE_END_TAG;
+                    position++;
+                }
+                else if (c == '?')
+                {
+                    state = STATE_PROCESSING_INSTRUCTION;
+                    position++;
+                }
+                else if (c == '!')
+                {
+                    /* Decide between a comment, CDATA and a declaration. We may need more input to know. */
+                    int markupStart = position - 1;
+                    Boolean isComment = startsWith(markupStart, COMMENT_START);
+                    Boolean isCdata = startsWith(markupStart, CDATA_START);
+                    if (isComment == null || isCdata == null)
+                    {
+                        break scan;
+                    }
+                    if (isComment)
+                    {
+                        state = STATE_COMMENT;
+                        position = markupStart + COMMENT_START.length();
+                    }
+                    else if (isCdata)
+                    {
+                        state = STATE_CDATA;
+                        position = markupStart + CDATA_START.length();
+                    }
+                    else
+                    {
+                        state = STATE_DECLARATION;
+                        position++;
+                    }
+                }
+                else
+                {
+                    state = STATE_START_TAG;
+                    slashSeen = false;
+                    position++;
+                }
+                break;
+
+            case STATE_START_TAG:
+                if (c == '"' || c == '\'')
+                {
+                    quote = c;
+                    state = STATE_ATTRIBUTE_VALUE;
+                }
+                else if (c == '>')
+                {
+                    state = STATE_TEXT;
+                    if (!slashSeen)
+                    {
+                        depth++;
+                    }
+                    else if (depth == 0)
+                    {
+                        stanzas = addStanza(stanzas, position + 1);
+                    }
+                }
+                slashSeen = c == '/';
+                position++;
+                break;
+
+            case STATE_ATTRIBUTE_VALUE:
+                if (c == quote)
+                {
+                    state = STATE_START_TAG;
+                }
+                position++;
+                break;
+
+            case STATE_END_TAG:
+                if (c == '>')
+                {
+                    state = STATE_TEXT;
+                    depth--;
+                    if (depth == 0)
+                    {
+                        stanzas = addStanza(stanzas, position + 1);
+                    }
+                    else if (depth < 0)
+                    {
+                        reset();
+                        throw new IOException("Unbalanced end tag");
+                    }
+                }
+                position++;
+                break;
+
+            case STATE_COMMENT:
+            case STATE_CDATA:
+            case STATE_PROCESSING_INSTRUCTION:
+                String end = state == STATE_COMMENT ? COMMENT_END : state == STATE_CDATA ? CDATA_END : PI_END;
+                int endIndex = buffer.indexOf(end, position);
+                if (endIndex < 0)
+                {
+                    /* Keep the last few characters, which could be the beginning of the terminator. */
+                    position = Math.max(position, length - end.length() + 1);
+                    break scan;
+                }
+                position = endIndex + end.length();
+                state = STATE_TEXT;
+                if (depth == 0)
+                {
+                    /* A top-level comment or processing instruction (e.g. an XML declaration) is not a stanza. */
+                    stanzaStart = -1;
+                }
+                break;
+
+            case STATE_DECLARATION:
+                if (c == '>')
+                {
+                    state = STATE_TEXT;
+                    if (depth == 0)
+                    {
+                        stanzaStart = -1;
+                    }
+                }
+                position++;
+                break;
+
+            default:
+                throw new IllegalStateException("Unknown state " + state);
+            }
+        }
+
+        compact();
+        return stanzas == null ? Collections.emptyList() : stanzas;
+    }
+
+    /**
+     * Records the stanza which starts at {@link #stanzaStart} and ends at {@code end} (exclusive).
+     */
+    private List<String> addStanza(List<String> stanzas, int end)
+        throws IOException
+    {
+        checkSize(end - stanzaStart);
+        if (stanzas == null)
+        {
+            stanzas = new ArrayList<>(1);
+        }
+        stanzas.add(buffer.substring(stanzaStart, end));
+        stanzaStart = -1;
+        return stanzas;
+    }
+
+    /**
+     * Removes the characters which are no longer needed from the beginning of the buffer.
+     */
+    private void compact()
+        throws IOException
+    {
+        int keepFrom = stanzaStart >= 0 ? stanzaStart : position;
+        if (keepFrom > 0)
+        {
+            buffer.delete(0, keepFrom);
+            position -= keepFrom;
+            if (stanzaStart >= 0)
+            {
+                stanzaStart = 0;
+            }
+        }
+
+        checkSize(buffer.length());
+    }
+
+    /**
+     * Resets the parser and throws if {@code size} exceeds {@link #maxStanzaSize}.
+     */
+    private void checkSize(int size)
+        throws IOException
+    {
+        if (maxStanzaSize >= 0 && size > maxStanzaSize)
+        {
+            reset();
+            throw new IOException("Stanza size exceeds the limit (" + size + " > " + maxStanzaSize + ")");
+        }
+    }
+
+    /**
+     * Checks whether the buffer contains {@code s} starting at {@code index}.
+     * @return {@code null} if there is not enough input to tell yet.
+     */
+    private Boolean startsWith(int index, String s)
+    {
+        int available = buffer.length() - index;
+        for (int i = 0; i < s.length(); i++)
+        {
+            if (i >= available)
+            {
+                return null;
+            }
+            if (buffer.charAt(index + i) != s.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -27,6 +27,7 @@ import org.jivesoftware.smack.xml.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.*;
 
 /**
  * Utility class for parsing Colibri2 IQs.
@@ -48,27 +49,68 @@ public class IqProviderUtils
             throws XmlPullParserException, IOException, SmackParsingException
     {
         List<ExtensionElement> ret = new ArrayList<>();
+        parseExtensions(parser, initialDepth, ret::add);
+        return ret;
+    }
+
+    /**
+     * Parses the child elements of the element at {@code initialDepth} like
+     * {@link #parseExtensions(XmlPullParser, int)}, but instead of collecting them passes each one to
+     * {@code consumer} as soon as its end tag has been parsed. The consumer is called on the parsing thread, so
+     * parsing does not continue until it returns.
+     *
+     * A {@link Templates} element is not passed to the consumer. Instead, the media and transports of the following
+     * conference entities which refer to it are expanded (see {@link Colibri2Templates#expand}).
+     */
+    public static void parseExtensions(
+            XmlPullParser parser,
+            int initialDepth,
+            Consumer<? super ExtensionElement> consumer)
+            throws XmlPullParserException, IOException, SmackParsingException
+    {
+        Templates templates = null;
         while (true)
         {
             XmlPullParser.Event eventType = parser.next();
             switch (eventType)
             {
             case START_ELEMENT:
+                if (ParsingProjection.skipIfExcluded(parser))
+                {
+                    break;
+                }
                 String tagName = parser.getName();
                 String namespace = parser.getNamespace();
 
                 ExtensionElement extension = parseExtension(parser, tagName, namespace);
 
-                if (extension != null)
+                if (extension instanceof Templates)
+                {
+                    templates = (Templates) extension;
+                }
+                else if (extension instanceof AbstractConferenceEntity)
+                {
+                    AbstractConferenceEntity expanded;
+                    try
+                    {
+                        expanded = Colibri2Templates.expand((AbstractConferenceEntity) extension, templates);
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        throw new SmackParsingException(e.getMessage());
+                    }
+                    consumer.accept(expanded);
+                }
+                else if (extension != null)
                 {
-                    ret.add(extension);
+                    consumer.accept(extension);
                 }
                 break;
 
             case END_ELEMENT:
                 if (parser.getDepth() == initialDepth)
                 {
-                    return ret;
+                    return;
                 }
                 break;
             default:
@@ -165,13 +207,14 @@ public class IqProviderUtils
             new Media.Provider());
         ProviderManager.addExtensionProvider(Transport.ELEMENT, Transport.NAMESPACE,
             new DefaultPacketExtensionProvider<>(Transport.class));
+        ProviderManager.addExtensionProvider(Templates.ELEMENT, Templates.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(Templates.class));
 
         ProviderManager.addExtensionProvider(ParameterPacketExtension.ELEMENT, ColibriConferenceIQ.NAMESPACE,
             new DefaultPacketExtensionProvider<>(ParameterPacketExtension.class));
 
-        // Colibri2 shares extensions with jingle. Instantiating JingleIQProvider registers the extensions, but not
-        // Jingle provider itself.
-        new JingleIQProvider();
+        // Colibri2 shares extensions with jingle. Register the extensions, but not the Jingle provider itself.
+        JingleIQProvider.registerExtensionProviders();
 
         /* Original colibri does something weird with these elements' namespaces, so register them here. */
         ProviderManager.addExtensionProvider(ForceMute.ELEMENT, ForceMute.NAMESPACE, new ForceMute.Provider());
@@ -189,7 +189,7 @@ public class Media
             return this;
         }
 
-        /* TODO: add something to set values from higher-level Jingle structures. */
+        /* See Colibri2JingleConverter for converting from and to Jingle contents. */
 
         private Builder()
         {
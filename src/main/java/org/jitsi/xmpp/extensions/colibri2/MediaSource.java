@@ -233,7 +233,7 @@ public class MediaSource
             return this;
         }
 
-        /* TODO: add something to set values from higher-level Jingle structures. */
+        /* See Colibri2JingleConverter for converting from and to Jingle contents. */
 
         private Builder()
         {
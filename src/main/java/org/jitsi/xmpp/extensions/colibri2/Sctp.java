@@ -23,6 +23,7 @@ import org.jivesoftware.smack.xml.*;
 
 import javax.xml.namespace.*;
 import java.io.*;
+import java.util.*;
 
 public class Sctp
     extends AbstractPacketExtension
@@ -76,7 +77,7 @@ public class Sctp
     {
         String roleString = getAttributeAsString(ROLE_ATTR_NAME);
         if (roleString == null) return null;
-        return Role.valueOf(roleString.toUpperCase());
+        return Role.parseString(roleString);
     }
 
     @Nullable
@@ -159,9 +160,12 @@ public class Sctp
         CLIENT,
         SERVER;
 
+        private static final EnumDecoder<Role> DECODER = EnumDecoder.of(
+            Role.class, r -> r.name().toLowerCase(Locale.ROOT), true);
+
         public static Role parseString(String s)
         {
-            return valueOf(s.toUpperCase());
+            return DECODER.decodeOrThrow(s);
         }
     }
 }
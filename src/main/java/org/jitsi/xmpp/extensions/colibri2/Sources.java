@@ -101,7 +101,7 @@ public class Sources
         }
 
 
-        /* TODO: add something to set values from higher-level Jingle structures. */
+        /* See Colibri2JingleConverter for converting from and to Jingle contents. */
 
         private Builder()
         {
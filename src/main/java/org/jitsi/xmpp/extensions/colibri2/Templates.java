@@ -0,0 +1,190 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2;
+
+import org.jetbrains.annotations.*;
+import org.jitsi.xmpp.extensions.*;
+
+import javax.xml.namespace.*;
+import java.util.*;
+
+/**
+ * The <tt>templates</tt> child of a colibri2 IQ, which defines {@link Media} and {@link Transport} elements once so
+ * that the conference entities of the IQ can refer to them by ID instead of repeating them. Each template has an
+ * <tt>id</tt> attribute, and a referring element has a <tt>template</tt> attribute with that ID:
+ * <ul>
+ * <li>A referring <tt>media</tt> has only its <tt>type</tt>, and stands for the whole template.</li>
+ * <li>A referring <tt>transport</tt> has everything except the ICE candidates, which are taken from the ICE-UDP
+ * transport of the template.</li>
+ * </ul>
+ * The element precedes the conference entities. Templates are only sent to a peer which supports
+ * {@link Capability#CAP_TEMPLATES}, and are expanded when parsing, see {@link Colibri2Templates}.
+ */
+public class Templates
+    extends AbstractPacketExtension
+{
+    /**
+     * The XML element name of the Colibri2 Templates element.
+     */
+    public static final String ELEMENT = "templates";
+
+    /**
+     * The XML namespace of the Colibri2 Templates element.
+     */
+    public static final String NAMESPACE = ConferenceModifyIQ.NAMESPACE;
+
+    /**
+     * The qualified name of the element.
+     */
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    /**
+     * The name of the attribute which holds the ID of a template.
+     */
+    public static final String ID_ATTR_NAME = "id";
+
+    /**
+     * The name of the attribute with which a <tt>media</tt> or <tt>transport</tt> refers to a template.
+     */
+    public static final String TEMPLATE_ATTR_NAME = "template";
+
+    /**
+     * Construct Templates.  Needs to be public for DefaultPacketExtensionProvider to work.
+     */
+    public Templates()
+    {
+        super(NAMESPACE, ELEMENT);
+    }
+
+    /**
+     * Construct templates from a builder - used by Builder#build().
+     */
+    private Templates(Builder b)
+    {
+        this();
+
+        for (Media m : b.media)
+        {
+            addChildExtension(m);
+        }
+
+        for (Transport t : b.transports)
+        {
+            addChildExtension(t);
+        }
+    }
+
+    /**
+     * Get the media templates.
+     */
+    public @NotNull List<Media> getMedia()
+    {
+        return getChildExtensionsOfType(Media.class);
+    }
+
+    /**
+     * Get the transport templates.
+     */
+    public @NotNull List<Transport> getTransports()
+    {
+        return getChildExtensionsOfType(Transport.class);
+    }
+
+    /**
+     * Get the media template with the given ID, or null.
+     */
+    public @Nullable Media getMedia(String id)
+    {
+        return findById(getMedia(), id);
+    }
+
+    /**
+     * Get the transport template with the given ID, or null.
+     */
+    public @Nullable Transport getTransport(String id)
+    {
+        return findById(getTransports(), id);
+    }
+
+    private static <T extends AbstractPacketExtension> T findById(List<T> templates, String id)
+    {
+        for (T template : templates)
+        {
+            if (id.equals(template.getAttributeAsString(ID_ATTR_NAME)))
+            {
+                return template;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the ID of the template which {@code element} refers to, or null if it is not a reference.
+     */
+    public static @Nullable String getTemplateId(@NotNull AbstractPacketExtension element)
+    {
+        return element.getAttributeAsString(TEMPLATE_ATTR_NAME);
+    }
+
+    /**
+     * Get a builder for Templates objects.
+     */
+    @Contract(value = " -> new", pure = true)
+    public static @NotNull Builder getBuilder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Builder for Templates objects.
+     */
+    public static final class Builder
+    {
+        private final List<Media> media = new ArrayList<>();
+
+        private final List<Transport> transports = new ArrayList<>();
+
+        private Builder()
+        {
+        }
+
+        /**
+         * Adds a media template. Its ID attribute is set, so it must not be used elsewhere.
+         */
+        public Builder addMedia(@NotNull String id, @NotNull Media m)
+        {
+            m.setAttribute(ID_ATTR_NAME, id);
+            media.add(m);
+            return this;
+        }
+
+        /**
+         * Adds a transport template. Its ID attribute is set, so it must not be used elsewhere.
+         */
+        public Builder addTransport(@NotNull String id, @NotNull Transport t)
+        {
+            t.setAttribute(ID_ATTR_NAME, id);
+            transports.add(t);
+            return this;
+        }
+
+        @Contract(" -> new")
+        public @NotNull Templates build()
+        {
+            return new Templates(this);
+        }
+    }
+}
@@ -17,7 +17,7 @@ package org.jitsi.xmpp.extensions.health;
 
 import org.jitsi.xmpp.extensions.AbstractPacketExtension;
 import org.jitsi.xmpp.extensions.DefaultPacketExtensionProvider;
-import org.apache.commons.lang3.StringUtils;
+import org.jitsi.xmpp.extensions.EnumDecoder;
 import org.jivesoftware.smack.provider.ProviderManager;
 
 /**
@@ -89,6 +89,8 @@ public class HealthStatusPacketExt
             return health;
         }
 
+        private static final EnumDecoder<Health> DECODER = EnumDecoder.byToString(Health.class, true);
+
         /**
          * Parses <tt>Health</tt> from given string.
          *
@@ -100,18 +102,7 @@ public class HealthStatusPacketExt
          */
         public static Health parse(String health)
         {
-            if (StringUtils.isEmpty(health))
-            {
-                return UNDEFINED;
-            }
-            try
-            {
-                return Health.valueOf(health.toUpperCase());
-            }
-            catch (IllegalArgumentException e)
-            {
-                return UNDEFINED;
-            }
+            return DECODER.decode(health, UNDEFINED);
         }
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.inputevt;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * Enumeration about the possible actions for an InputEvt IQ.
  *
@@ -65,6 +67,11 @@ public enum InputEvtAction
         return actionName;
     }
 
+    /**
+     * Decodes the action names used in the XML.
+     */
+    private static final EnumDecoder<InputEvtAction> DECODER = EnumDecoder.byToString(InputEvtAction.class, false);
+
     /**
      * Returns a <tt>InputEvtAction</tt> value corresponding to the specified
      * <tt>inputActionStr</tt>.
@@ -79,11 +86,11 @@ public enum InputEvtAction
     public static InputEvtAction parseString(String inputActionStr)
         throws IllegalArgumentException
     {
-        for (InputEvtAction value : values())
-            if (value.toString().equals(inputActionStr))
-                return value;
+        InputEvtAction value = DECODER.decode(inputActionStr);
+        if (value == null)
+            throw new IllegalArgumentException(
+                inputActionStr + " is not a valid Input action");
 
-        throw new IllegalArgumentException(
-            inputActionStr + " is not a valid Input action");
+        return value;
     }
 }
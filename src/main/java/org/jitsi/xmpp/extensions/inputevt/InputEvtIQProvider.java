@@ -26,6 +26,12 @@ import org.jivesoftware.smack.xml.*;
 public class InputEvtIQProvider
     extends SafeParseIqProvider<InputEvtIQ>
 {
+    /**
+     * Provider for the remote-control child elements.
+     */
+    private static final RemoteControlExtensionProvider remoteControlProvider
+        = new RemoteControlExtensionProvider();
+
     /**
      * Parse the Input IQ sub-document and returns the corresponding
      * <tt>InputEvtIQ</tt>.
@@ -53,8 +59,7 @@ public class InputEvtIQProvider
                 // <remote-control>
                 if (RemoteControlExtensionProvider.ELEMENT_REMOTE_CONTROL.equals(parser.getName()))
                 {
-                    RemoteControlExtensionProvider provider = new RemoteControlExtensionProvider();
-                    RemoteControlExtension item = provider.parse(parser);
+                    RemoteControlExtension item = remoteControlProvider.parse(parser);
 
                     inputEvtIQ.addRemoteControl(item);
                 }
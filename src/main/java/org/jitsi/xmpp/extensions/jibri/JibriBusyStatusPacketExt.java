@@ -17,7 +17,7 @@ package org.jitsi.xmpp.extensions.jibri;
 
 import org.jitsi.xmpp.extensions.AbstractPacketExtension;
 import org.jitsi.xmpp.extensions.DefaultPacketExtensionProvider;
-import org.apache.commons.lang3.StringUtils;
+import org.jitsi.xmpp.extensions.EnumDecoder;
 import org.jivesoftware.smack.provider.ProviderManager;
 
 /**
@@ -90,6 +90,8 @@ public class JibriBusyStatusPacketExt
             return name;
         }
 
+        private static final EnumDecoder<BusyStatus> DECODER = EnumDecoder.byToString(BusyStatus.class, true);
+
         /**
          * Parses <tt>Status</tt> from given string.
          *
@@ -101,17 +103,7 @@ public class JibriBusyStatusPacketExt
          */
         public static BusyStatus parse(String status)
         {
-            if (StringUtils.isEmpty(status))
-                return UNDEFINED;
-
-            try
-            {
-                return BusyStatus.valueOf(status.toUpperCase());
-            }
-            catch(IllegalArgumentException e)
-            {
-                return UNDEFINED;
-            }
+            return DECODER.decode(status, UNDEFINED);
         }
     }
 }
@@ -15,8 +15,7 @@
  */
 package org.jitsi.xmpp.extensions.jibri;
 
-import org.apache.commons.lang3.StringUtils;
-
+import org.jitsi.xmpp.extensions.EnumDecoder;
 import org.jivesoftware.smack.packet.*;
 import org.jxmpp.jid.EntityBareJid;
 
@@ -536,6 +535,8 @@ public class JibriIq
             return name;
         }
 
+        private static final EnumDecoder<Action> DECODER = EnumDecoder.byToString(Action.class, true);
+
         /**
          * Parses <tt>Action</tt> from given string.
          *
@@ -547,17 +548,7 @@ public class JibriIq
          */
         public static Action parse(String action)
         {
-            if (StringUtils.isEmpty(action))
-                return UNDEFINED;
-
-            try
-            {
-                return Action.valueOf(action.toUpperCase());
-            }
-            catch(IllegalArgumentException e)
-            {
-                return UNDEFINED;
-            }
+            return DECODER.decode(action, UNDEFINED);
         }
     }
 
@@ -606,6 +597,8 @@ public class JibriIq
             return mode;
         }
 
+        private static final EnumDecoder<RecordingMode> DECODER = EnumDecoder.byToString(RecordingMode.class, true);
+
         /**
          * Parses <tt>RecordingMode</tt> from given string.
          *
@@ -617,17 +610,7 @@ public class JibriIq
          */
         public static RecordingMode parse(String status)
         {
-            if (StringUtils.isEmpty(status))
-                return UNDEFINED;
-
-            try
-            {
-                return RecordingMode.valueOf(status.toUpperCase());
-            }
-            catch(IllegalArgumentException e)
-            {
-                return UNDEFINED;
-            }
+            return DECODER.decode(status, UNDEFINED);
         }
     }
 
@@ -653,6 +636,8 @@ public class JibriIq
             return name;
         }
 
+        private static final EnumDecoder<FailureReason> DECODER = EnumDecoder.byToString(FailureReason.class, true);
+
         /**
          * Parses <tt>Status</tt> from given string.
          *
@@ -664,17 +649,7 @@ public class JibriIq
          */
         public static FailureReason parse(String status)
         {
-            if (StringUtils.isEmpty(status))
-                return UNDEFINED;
-
-            try
-            {
-                return FailureReason.valueOf(status.toUpperCase());
-            }
-            catch(IllegalArgumentException e)
-            {
-                return UNDEFINED;
-            }
+            return DECODER.decode(status, UNDEFINED);
         }
     }
 
@@ -726,6 +701,8 @@ public class JibriIq
             return name;
         }
 
+        private static final EnumDecoder<Status> DECODER = EnumDecoder.byToString(Status.class, true);
+
         /**
          * Parses <tt>Status</tt> from given string.
          *
@@ -737,17 +714,7 @@ public class JibriIq
          */
         public static Status parse(String status)
         {
-            if (StringUtils.isEmpty(status))
-                return UNDEFINED;
-
-            try
-            {
-                return Status.valueOf(status.toUpperCase());
-            }
-            catch(IllegalArgumentException e)
-            {
-                return UNDEFINED;
-            }
+            return DECODER.decode(status, UNDEFINED);
         }
     }
 }
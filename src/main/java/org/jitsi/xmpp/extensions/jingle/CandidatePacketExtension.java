@@ -376,7 +376,7 @@ public abstract class CandidatePacketExtension extends AbstractPacketExtension
      */
     public CandidateType getType()
     {
-        return CandidateType.valueOf(getAttributeAsString(TYPE_ATTR_NAME));
+        return CandidateType.parseString(getAttributeAsString(TYPE_ATTR_NAME));
     }
 
     /**
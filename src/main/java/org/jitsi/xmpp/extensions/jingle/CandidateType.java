@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.jingle;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * An enumeration containing allowed types for {@link
  * CandidatePacketExtension}s.
@@ -68,4 +70,19 @@ public enum CandidateType
      * Old name for Host Candidate used by Google Talk.
      */
     local;
+
+    private static final EnumDecoder<CandidateType> DECODER = EnumDecoder.byName(CandidateType.class, false);
+
+    /**
+     * Returns the <tt>CandidateType</tt> with the given name.
+     *
+     * @param s the name of the candidate type.
+     * @return the <tt>CandidateType</tt> with the given name.
+     * @throws IllegalArgumentException if <tt>s</tt> is not a valid value.
+     */
+    public static CandidateType parseString(String s)
+        throws IllegalArgumentException
+    {
+        return DECODER.decodeOrThrow(s);
+    }
 }
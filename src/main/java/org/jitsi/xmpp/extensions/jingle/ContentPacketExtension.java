@@ -67,7 +67,20 @@ public class ContentPacketExtension extends AbstractPacketExtension
          * Indicates that content type was originally generated by the session
          * addressee
          */
-        responder
+        responder;
+
+        private static final EnumDecoder<CreatorEnum> DECODER = EnumDecoder.byName(CreatorEnum.class, false);
+
+        /**
+         * Returns the <tt>CreatorEnum</tt> with the given name.
+         *
+         * @throws IllegalArgumentException if <tt>s</tt> is not a valid value.
+         */
+        public static CreatorEnum parseString(String s)
+            throws IllegalArgumentException
+        {
+            return DECODER.decodeOrThrow(s);
+        }
     };
 
     /**
@@ -94,7 +107,20 @@ public class ContentPacketExtension extends AbstractPacketExtension
          * Indicates that both parties in this session will be generating
          * content
          */
-        both
+        both;
+
+        private static final EnumDecoder<SendersEnum> DECODER = EnumDecoder.byName(SendersEnum.class, false);
+
+        /**
+         * Returns the <tt>SendersEnum</tt> with the given name.
+         *
+         * @throws IllegalArgumentException if <tt>s</tt> is not a valid value.
+         */
+        public static SendersEnum parseString(String s)
+            throws IllegalArgumentException
+        {
+            return DECODER.decodeOrThrow(s);
+        }
     };
 
     /**
@@ -160,7 +186,7 @@ public class ContentPacketExtension extends AbstractPacketExtension
      */
     public CreatorEnum getCreator()
     {
-        return CreatorEnum.valueOf(getAttributeAsString(CREATOR_ATTR_NAME));
+        return CreatorEnum.parseString(getAttributeAsString(CREATOR_ATTR_NAME));
     }
 
     /**
@@ -268,7 +294,7 @@ public class ContentPacketExtension extends AbstractPacketExtension
 
         return attributeVal == null
                     ? null
-                    : SendersEnum.valueOf( attributeVal.toString() );
+                    : SendersEnum.parseString(attributeVal.toString());
     }
 
     /**
@@ -51,6 +51,12 @@ public class GroupPacketExtension
      */
     public static final String SEMANTICS_BUNDLE = "BUNDLE";
 
+    /**
+     * The provider used to parse the content child elements.
+     */
+    private static final DefaultPacketExtensionProvider<ContentPacketExtension> CONTENT_PROVIDER
+        = new DefaultPacketExtensionProvider<>(ContentPacketExtension.class);
+
     /**
      * Creates a new {@link GroupPacketExtension} instance with the proper
      * element name and namespace.
@@ -146,9 +152,6 @@ public class GroupPacketExtension
         boolean done = false;
         XmlPullParser.Event eventType;
         String elementName;
-        DefaultPacketExtensionProvider<ContentPacketExtension> contentProvider
-            = new DefaultPacketExtensionProvider<>(
-            ContentPacketExtension.class);
         while (!done)
         {
             eventType = parser.next();
@@ -157,7 +160,7 @@ public class GroupPacketExtension
             if (elementName.equals(ContentPacketExtension.ELEMENT))
             {
                 ContentPacketExtension content
-                    = contentProvider.parse(parser, xmlEnvironment);
+                    = CONTENT_PROVIDER.parse(parser, xmlEnvironment);
                 group.addChildExtension(content);
             }
 
@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.jingle;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * XEP-0166 Jingle, stipulates that the value of the 'action' attribute MUST be
  * one of the values enumerated here. If an entity receives a value not defined
@@ -214,6 +216,11 @@ public enum JingleAction
         return actionName;
     }
 
+    /**
+     * Decodes the action names used in the XML.
+     */
+    private static final EnumDecoder<JingleAction> DECODER = EnumDecoder.byToString(JingleAction.class, false);
+
     /**
      * Returns a <tt>JingleAction</tt> value corresponding to the specified
      * <tt>jingleActionStr</tt> or in other words {@link #SESSION_INITIATE} for
@@ -227,10 +234,6 @@ public enum JingleAction
      */
     public static JingleAction parseString(String jingleActionStr)
     {
-        for (JingleAction value : values())
-            if (value.toString().equals(jingleActionStr))
-                return value;
-
-        return null;
+        return DECODER.decode(jingleActionStr);
     }
 }
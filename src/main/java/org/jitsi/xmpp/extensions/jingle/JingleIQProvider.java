@@ -36,214 +36,195 @@ import org.jxmpp.jid.impl.*;
 public class JingleIQProvider extends SafeParseIqProvider<JingleIQ>
 {
     /**
-     * Creates a new instance of the <tt>JingleIQProvider</tt> and register all
-     * jingle related extension providers. It is the responsibility of the
-     * application to register the <tt>JingleIQProvider</tt> itself.
+     * A shared instance. The provider is stateless, so it can be used for any
+     * number of connections and threads.
      */
-    public JingleIQProvider()
-    {
-        //<description/> provider
-        ProviderManager.addExtensionProvider(
-                RtpDescriptionPacketExtension.ELEMENT,
-                RtpDescriptionPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(RtpDescriptionPacketExtension.class));
-
-        //<payload-type/> provider
-        ProviderManager.addExtensionProvider(
-                PayloadTypePacketExtension.ELEMENT,
-                RtpDescriptionPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(PayloadTypePacketExtension.class));
-
-        //<parameter/> provider
-        ProviderManager.addExtensionProvider(
-                ParameterPacketExtension.ELEMENT,
-                RtpDescriptionPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(ParameterPacketExtension.class));
-
-        //<rtp-hdrext/> provider
-        ProviderManager.addExtensionProvider(
-                RTPHdrExtPacketExtension.ELEMENT,
-                RTPHdrExtPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(RTPHdrExtPacketExtension.class));
-
-        //<extmap-allow-mixed> provider
-        ProviderManager.addExtensionProvider(
-                ExtmapAllowMixedPacketExtension.ELEMENT,
-                ExtmapAllowMixedPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(ExtmapAllowMixedPacketExtension.class));
+    public static final JingleIQProvider INSTANCE = new JingleIQProvider();
+
+    /* Sub-element providers, shared between all parses. */
+    private static final DefaultPacketExtensionProvider<ContentPacketExtension> contentProvider
+        = new DefaultPacketExtensionProvider<>(ContentPacketExtension.class);
+    private static final ReasonProvider reasonProvider = new ReasonProvider();
+    private static final DefaultPacketExtensionProvider<TransferPacketExtension> transferProvider
+        = new DefaultPacketExtensionProvider<>(TransferPacketExtension.class);
+    private static final DefaultPacketExtensionProvider<CoinPacketExtension> coinProvider
+        = new DefaultPacketExtensionProvider<>(CoinPacketExtension.class);
+    private static final DefaultPacketExtensionProvider<CallIdExtension> callidProvider
+        = new DefaultPacketExtensionProvider<>(CallIdExtension.class);
 
+    /**
+     * The jingle related extension providers. They are created once, and
+     * registered again by every call to {@link #registerExtensionProviders()}.
+     */
+    private static final ExtensionProviderRegistration[] extensionProviders =
+    {
+        // <description/> provider
+        new ExtensionProviderRegistration(
+            RtpDescriptionPacketExtension.ELEMENT,
+            RtpDescriptionPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(RtpDescriptionPacketExtension.class)),
+        // <payload-type/> provider
+        new ExtensionProviderRegistration(
+            PayloadTypePacketExtension.ELEMENT,
+            RtpDescriptionPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(PayloadTypePacketExtension.class)),
+        // <parameter/> provider
+        new ExtensionProviderRegistration(
+            ParameterPacketExtension.ELEMENT,
+            RtpDescriptionPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(ParameterPacketExtension.class)),
+        // <rtp-hdrext/> provider
+        new ExtensionProviderRegistration(
+            RTPHdrExtPacketExtension.ELEMENT,
+            RTPHdrExtPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(RTPHdrExtPacketExtension.class)),
+        // <extmap-allow-mixed> provider
+        new ExtensionProviderRegistration(
+            ExtmapAllowMixedPacketExtension.ELEMENT,
+            ExtmapAllowMixedPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(ExtmapAllowMixedPacketExtension.class)),
         // <sctpmap/> provider
-        ProviderManager.addExtensionProvider(
-                SctpMapExtension.ELEMENT,
-                SctpMapExtension.NAMESPACE,
-                new SctpMapExtensionProvider());
-
-        //<encryption/> provider
-        ProviderManager.addExtensionProvider(
-                EncryptionPacketExtension.ELEMENT,
-                RtpDescriptionPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(EncryptionPacketExtension.class));
-
-        //<zrtp-hash/> provider
-        ProviderManager.addExtensionProvider(
-                ZrtpHashPacketExtension.ELEMENT,
-                ZrtpHashPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(ZrtpHashPacketExtension.class));
-
-        //<crypto/> provider
-        ProviderManager.addExtensionProvider(
-                CryptoPacketExtension.ELEMENT,
-                RtpDescriptionPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(CryptoPacketExtension.class));
-
+        new ExtensionProviderRegistration(
+            SctpMapExtension.ELEMENT,
+            SctpMapExtension.NAMESPACE,
+            new SctpMapExtensionProvider()),
+        // <encryption/> provider
+        new ExtensionProviderRegistration(
+            EncryptionPacketExtension.ELEMENT,
+            RtpDescriptionPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(EncryptionPacketExtension.class)),
+        // <zrtp-hash/> provider
+        new ExtensionProviderRegistration(
+            ZrtpHashPacketExtension.ELEMENT,
+            ZrtpHashPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(ZrtpHashPacketExtension.class)),
+        // <crypto/> provider
+        new ExtensionProviderRegistration(
+            CryptoPacketExtension.ELEMENT,
+            RtpDescriptionPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(CryptoPacketExtension.class)),
         // <group/> provider
-        ProviderManager.addExtensionProvider(
-                GroupPacketExtension.ELEMENT,
-                GroupPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(GroupPacketExtension.class));
-
-        //ice-udp transport
-        ProviderManager.addExtensionProvider(
-                IceUdpTransportPacketExtension.ELEMENT,
-                IceUdpTransportPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(IceUdpTransportPacketExtension.class));
-
-        //<raw-udp/> provider
-        ProviderManager.addExtensionProvider(
-                RawUdpTransportPacketExtension.ELEMENT,
-                RawUdpTransportPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(RawUdpTransportPacketExtension.class));
-
-        //ice-udp <candidate/> provider
-        ProviderManager.addExtensionProvider(
-                IceCandidatePacketExtension.ELEMENT,
-                IceCandidatePacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(IceCandidatePacketExtension.class));
-
-        //raw-udp <candidate/> provider
-        ProviderManager.addExtensionProvider(
-                UdpCandidatePacketExtension.ELEMENT,
-                UdpCandidatePacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(UdpCandidatePacketExtension.class));
-
-        //ice-udp <remote-candidate/> provider
-        ProviderManager.addExtensionProvider(
-                RemoteCandidatePacketExtension.ELEMENT,
-                RemoteCandidatePacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(RemoteCandidatePacketExtension.class));
-
-        //inputevt <inputevt/> provider
-        ProviderManager.addExtensionProvider(
-                InputEvtPacketExtension.ELEMENT,
-                InputEvtPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(InputEvtPacketExtension.class));
-
-        //coin <conference-info/> provider
-        ProviderManager.addExtensionProvider(
-                CoinPacketExtension.ELEMENT,
-                CoinPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(CoinPacketExtension.class));
-
+        new ExtensionProviderRegistration(
+            GroupPacketExtension.ELEMENT,
+            GroupPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(GroupPacketExtension.class)),
+        // ice-udp transport
+        new ExtensionProviderRegistration(
+            IceUdpTransportPacketExtension.ELEMENT,
+            IceUdpTransportPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(IceUdpTransportPacketExtension.class)),
+        // <raw-udp/> provider
+        new ExtensionProviderRegistration(
+            RawUdpTransportPacketExtension.ELEMENT,
+            RawUdpTransportPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(RawUdpTransportPacketExtension.class)),
+        // ice-udp <candidate/> provider
+        new ExtensionProviderRegistration(
+            IceCandidatePacketExtension.ELEMENT,
+            IceCandidatePacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(IceCandidatePacketExtension.class)),
+        // raw-udp <candidate/> provider
+        new ExtensionProviderRegistration(
+            UdpCandidatePacketExtension.ELEMENT,
+            UdpCandidatePacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(UdpCandidatePacketExtension.class)),
+        // ice-udp <remote-candidate/> provider
+        new ExtensionProviderRegistration(
+            RemoteCandidatePacketExtension.ELEMENT,
+            RemoteCandidatePacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(RemoteCandidatePacketExtension.class)),
+        // inputevt <inputevt/> provider
+        new ExtensionProviderRegistration(
+            InputEvtPacketExtension.ELEMENT,
+            InputEvtPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(InputEvtPacketExtension.class)),
+        // coin <conference-info/> provider
+        new ExtensionProviderRegistration(CoinPacketExtension.ELEMENT, CoinPacketExtension.NAMESPACE, coinProvider),
         // DTLS-SRTP
-        ProviderManager.addExtensionProvider(
-                DtlsFingerprintPacketExtension.ELEMENT,
-                DtlsFingerprintPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(DtlsFingerprintPacketExtension.class));
-
-        /*
-         * XEP-0251: Jingle Session Transfer <transfer/> and <transferred>
-         * providers
-         */
-        ProviderManager.addExtensionProvider(
-                TransferPacketExtension.ELEMENT,
-                TransferPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(TransferPacketExtension.class));
-
-        ProviderManager.addExtensionProvider(
-                TransferredPacketExtension.ELEMENT,
-                TransferredPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(TransferredPacketExtension.class));
-
-        //conference description <callid/> provider
-        ProviderManager.addExtensionProvider(
-                CallIdExtension.ELEMENT,
-                ConferenceDescriptionExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(CallIdExtension.class));
-
-        //rtcp-fb
-        ProviderManager.addExtensionProvider(
-                RtcpFbPacketExtension.ELEMENT,
-                RtcpFbPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(RtcpFbPacketExtension.class));
-
-        //rtcp-mux (within ice transport)
-        ProviderManager.addExtensionProvider(
-                IceRtcpmuxPacketExtension.ELEMENT,
-                IceRtcpmuxPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(IceRtcpmuxPacketExtension.class));
-
-        //rtcp-mux (within rtp description)
-        ProviderManager.addExtensionProvider(
+        new ExtensionProviderRegistration(
+            DtlsFingerprintPacketExtension.ELEMENT,
+            DtlsFingerprintPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(DtlsFingerprintPacketExtension.class)),
+        // XEP-0251: Jingle Session Transfer <transfer/> and <transferred> providers
+        new ExtensionProviderRegistration(
+            TransferPacketExtension.ELEMENT,
+            TransferPacketExtension.NAMESPACE,
+            transferProvider),
+        new ExtensionProviderRegistration(
+            TransferredPacketExtension.ELEMENT,
+            TransferredPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(TransferredPacketExtension.class)),
+        // conference description <callid/> provider
+        new ExtensionProviderRegistration(
+            CallIdExtension.ELEMENT,
+            ConferenceDescriptionExtension.NAMESPACE,
+            callidProvider),
+        // rtcp-fb
+        new ExtensionProviderRegistration(
+            RtcpFbPacketExtension.ELEMENT,
+            RtcpFbPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(RtcpFbPacketExtension.class)),
+        // rtcp-mux (within ice transport)
+        new ExtensionProviderRegistration(
+            IceRtcpmuxPacketExtension.ELEMENT,
+            IceRtcpmuxPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(IceRtcpmuxPacketExtension.class)),
+        // rtcp-mux (within rtp description)
+        new ExtensionProviderRegistration(
             JingleRtcpmuxPacketExtension.ELEMENT,
             JingleRtcpmuxPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(JingleRtcpmuxPacketExtension.class));
-
-        //web-socket
-        ProviderManager.addExtensionProvider(
-                WebSocketPacketExtension.ELEMENT,
-                WebSocketPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(WebSocketPacketExtension.class));
-
-        //ssrcInfo
-        ProviderManager.addExtensionProvider(
-                SSRCInfoPacketExtension.ELEMENT,
-                SSRCInfoPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider
-                    <>(SSRCInfoPacketExtension.class));
-
-        ProviderManager.addExtensionProvider(
-                SourcePacketExtension.ELEMENT,
-                SourcePacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider<>(SourcePacketExtension.class));
-
-        ProviderManager.addExtensionProvider(
-                SourceGroupPacketExtension.ELEMENT,
-                SourceGroupPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider<>(SourceGroupPacketExtension.class));
+            new DefaultPacketExtensionProvider<>(JingleRtcpmuxPacketExtension.class)),
+        // web-socket
+        new ExtensionProviderRegistration(
+            WebSocketPacketExtension.ELEMENT,
+            WebSocketPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(WebSocketPacketExtension.class)),
+        // ssrcInfo
+        new ExtensionProviderRegistration(
+            SSRCInfoPacketExtension.ELEMENT,
+            SSRCInfoPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(SSRCInfoPacketExtension.class)),
+        new ExtensionProviderRegistration(
+            SourcePacketExtension.ELEMENT,
+            SourcePacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(SourcePacketExtension.class)),
+        new ExtensionProviderRegistration(
+            SourceGroupPacketExtension.ELEMENT,
+            SourceGroupPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(SourceGroupPacketExtension.class)),
+        new ExtensionProviderRegistration(
+            SourceRidGroupPacketExtension.ELEMENT,
+            SourceRidGroupPacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(SourceRidGroupPacketExtension.class)),
+        new ExtensionProviderRegistration(
+            ParameterPacketExtension.ELEMENT,
+            SourcePacketExtension.NAMESPACE,
+            new DefaultPacketExtensionProvider<>(ParameterPacketExtension.class))
+    };
 
-        ProviderManager.addExtensionProvider(
-                SourceRidGroupPacketExtension.ELEMENT,
-                SourceRidGroupPacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider<>(SourceRidGroupPacketExtension.class));
+    /**
+     * Registers {@link #INSTANCE} as the provider for Jingle IQs, as well as
+     * all jingle related extension providers.
+     */
+    public static void registerProviders()
+    {
+        ProviderManager.addIQProvider(JingleIQ.ELEMENT, JingleIQ.NAMESPACE, INSTANCE);
+        registerExtensionProviders();
+    }
 
-        ProviderManager.addExtensionProvider(
-                ParameterPacketExtension.ELEMENT,
-                SourcePacketExtension.NAMESPACE,
-                new DefaultPacketExtensionProvider<>(ParameterPacketExtension.class));
+    /**
+     * Registers all jingle related extension providers, but not the
+     * <tt>JingleIQProvider</tt> itself. The providers are shared instances, so
+     * this can be called any number of times, e.g. to replace providers which
+     * were registered in their place.
+     */
+    public static void registerExtensionProviders()
+    {
+        for (ExtensionProviderRegistration registration : extensionProviders)
+        {
+            ProviderManager.addExtensionProvider(
+                registration.element, registration.namespace, registration.provider);
+        }
     }
 
     /**
@@ -284,19 +265,6 @@ public class JingleIQProvider extends SafeParseIqProvider<JingleIQ>
 
         boolean done = false;
 
-        // Sub-elements providers
-        DefaultPacketExtensionProvider<ContentPacketExtension> contentProvider
-            = new DefaultPacketExtensionProvider
-            <>(ContentPacketExtension.class);
-        ReasonProvider reasonProvider = new ReasonProvider();
-        DefaultPacketExtensionProvider<TransferPacketExtension> transferProvider
-            = new DefaultPacketExtensionProvider
-            <>(TransferPacketExtension.class);
-        DefaultPacketExtensionProvider<CoinPacketExtension> coinProvider
-            = new DefaultPacketExtensionProvider<>(CoinPacketExtension.class);
-        DefaultPacketExtensionProvider<CallIdExtension> callidProvider
-            = new DefaultPacketExtensionProvider<>(CallIdExtension.class);
-
         // Now go on and parse the jingle element's content.
         XmlPullParser.Event eventType;
         String elementName;
@@ -350,7 +318,7 @@ public class JingleIQProvider extends SafeParseIqProvider<JingleIQ>
                 //<mute/> <active/> and other session-info elements
                 else if (namespace.equals(SessionInfoPacketExtension.NAMESPACE))
                 {
-                    SessionInfoType type = SessionInfoType.valueOf(elementName);
+                    SessionInfoType type = SessionInfoType.parseString(elementName);
 
                     //<mute/>
                     if ( type == SessionInfoType.mute
@@ -384,4 +352,21 @@ public class JingleIQProvider extends SafeParseIqProvider<JingleIQ>
         }
         return jingleIQ;
     }
+
+    /** An extension provider and the element it is registered for. */
+    private static final class ExtensionProviderRegistration
+    {
+        private final String element;
+
+        private final String namespace;
+
+        private final ExtensionElementProvider<?> provider;
+
+        private ExtensionProviderRegistration(String element, String namespace, ExtensionElementProvider<?> provider)
+        {
+            this.element = element;
+            this.namespace = namespace;
+            this.provider = provider;
+        }
+    }
 }
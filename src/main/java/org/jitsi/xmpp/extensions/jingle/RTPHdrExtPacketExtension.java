@@ -151,7 +151,7 @@ public class RTPHdrExtPacketExtension
         String attributeVal = getAttributeAsString(SENDERS_ATTR_NAME);
 
         return attributeVal == null
-            ? null : SendersEnum.valueOf( attributeVal.toString() );
+            ? null : SendersEnum.parseString(attributeVal);
     }
 
     /**
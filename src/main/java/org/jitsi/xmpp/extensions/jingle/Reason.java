@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.jingle;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * This enumeration contains the reason values that provide machine readable
  * information about the condition that prompted the corresponding jingle
@@ -159,6 +161,11 @@ public enum Reason
         return reasonValue;
     }
 
+    /**
+     * Decodes the reason names used in the XML.
+     */
+    private static final EnumDecoder<Reason> DECODER = EnumDecoder.byToString(Reason.class, false);
+
     /**
      * Returns a <tt>Reason</tt> value corresponding to the specified
      * <tt>reasonValueStr</tt> or in other words {@link #SUCCESS} for
@@ -173,10 +180,6 @@ public enum Reason
      */
     public static Reason parseString(String reasonValueStr)
     {
-        for (Reason value : values())
-            if (value.toString().equals(reasonValueStr))
-                return value;
-
-        return UNDEFINED;
+        return DECODER.decode(reasonValueStr, UNDEFINED);
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.jitsi.xmpp.extensions.jingle;
 
+import org.jitsi.xmpp.extensions.*;
+
 /**
  * Contains an enumeration of all possible <tt>session-info</tt> element.
  *
@@ -59,5 +61,20 @@ public enum SessionInfoType
     /**
      * Ends a <tt>mute</tt> state.
      */
-    unmute
+    unmute;
+
+    private static final EnumDecoder<SessionInfoType> DECODER = EnumDecoder.byName(SessionInfoType.class, false);
+
+    /**
+     * Returns the <tt>SessionInfoType</tt> with the given name.
+     *
+     * @param s the name of the session-info element.
+     * @return the <tt>SessionInfoType</tt> with the given name.
+     * @throws IllegalArgumentException if <tt>s</tt> is not a valid value.
+     */
+    public static SessionInfoType parseString(String s)
+        throws IllegalArgumentException
+    {
+        return DECODER.decodeOrThrow(s);
+    }
 }
@@ -32,20 +32,25 @@ public class JingleInfoQueryIQProvider
     /**
      * STUN packet extension provider.
      */
-    private final StunProvider stunProvider = new StunProvider();
+    private static final StunProvider stunProvider = new StunProvider();
 
     /**
      * Relay packet extension provider.
      */
-    private final RelayProvider relayProvider = new RelayProvider();
+    private static final RelayProvider relayProvider = new RelayProvider();
 
     /**
-     * Creates a new instance of the <tt>JingleInfoQueryIQProvider</tt> and
-     * register all related extension providers. It is the responsibility of the
-     * application to register the <tt>JingleInfoQueryIQProvider</tt> itself.
+     * A shared instance. The provider is stateless.
      */
-    public JingleInfoQueryIQProvider()
+    public static final JingleInfoQueryIQProvider INSTANCE = new JingleInfoQueryIQProvider();
+
+    /**
+     * Registers {@link #INSTANCE} as the provider for <tt>JingleInfoQueryIQ</tt>
+     * and all related extension providers.
+     */
+    public static void registerProviders()
     {
+        ProviderManager.addIQProvider(JingleInfoQueryIQ.ELEMENT, JingleInfoQueryIQ.NAMESPACE, INSTANCE);
         ProviderManager.addExtensionProvider(
                 ServerPacketExtension.ELEMENT,
                 ServerPacketExtension.NAMESPACE,
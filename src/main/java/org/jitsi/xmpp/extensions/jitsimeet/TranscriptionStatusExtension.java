@@ -67,8 +67,7 @@ public class TranscriptionStatusExtension
      */
     public Status getStatus()
     {
-        return Status.valueOf(
-            ((String) getAttribute(STATUS_ATTRIBUTE)).toUpperCase());
+        return Status.DECODER.decodeOrThrow((String) getAttribute(STATUS_ATTRIBUTE));
     }
 
     /**
@@ -86,6 +85,8 @@ public class TranscriptionStatusExtension
          */
         OFF("OFF");
 
+        private static final EnumDecoder<Status> DECODER = EnumDecoder.byToString(Status.class, true);
+
         /**
          * Status name holder.
          */
@@ -37,6 +37,19 @@ public class RayoIqProvider
      */
     public final static String NAMESPACE = "urn:xmpp:rayo:1";
 
+    /**
+     * A shared instance. The provider is stateless.
+     */
+    public static final RayoIqProvider INSTANCE = new RayoIqProvider();
+
+    /**
+     * Registers {@link #INSTANCE} into <tt>ProviderManager</tt>.
+     */
+    public static void registerProviders()
+    {
+        INSTANCE.registerRayoIQs();
+    }
+
     /**
      * Registers this IQ provider into <tt>ProviderManager</tt>.
      */
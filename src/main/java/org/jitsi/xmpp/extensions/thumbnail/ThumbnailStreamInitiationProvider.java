@@ -29,6 +29,11 @@ import java.util.*;
 public class ThumbnailStreamInitiationProvider
     extends SafeParseIqProvider<StreamInitiation>
 {
+    /**
+     * Provider for the data form in the feature element.
+     */
+    private static final DataFormProvider dataFormProvider = new DataFormProvider();
+
     private static final Logger logger = new LoggerImpl(ThumbnailStreamInitiationProvider.class.getName());
 
     /**
@@ -58,7 +63,6 @@ public class ThumbnailStreamInitiationProvider
 
         // feature
         DataForm form = null;
-        DataFormProvider dataFormProvider = new DataFormProvider();
 
         XmlPullParser.Event eventType;
         String elementName;
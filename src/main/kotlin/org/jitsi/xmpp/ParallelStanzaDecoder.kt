@@ -0,0 +1,285 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp
+
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.jitsimeet.ConferenceIq
+import org.jitsi.xmpp.extensions.visitors.VisitorsIq
+import org.jivesoftware.smack.packet.Stanza
+import org.jivesoftware.smack.util.PacketParserUtils
+import org.jivesoftware.smack.xml.XmlPullParser
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.function.Function
+
+/**
+ * Parses stanzas (e.g. received on a single connection's reader thread) in parallel on an [Executor], using the
+ * providers registered with Smack's `ProviderManager`.
+ *
+ * Stanzas are delivered to the [Listener] in the order in which they were submitted for each ordering key (see
+ * [orderingKey]), while stanzas with different keys are parsed and delivered in parallel. Stanzas without a key share
+ * a single ordered lane. Parsing itself always happens in parallel, even for stanzas with the same key, only the
+ * delivery is ordered.
+ *
+ * The executor can be any pool, e.g. a [ForkJoinPool] or (on Java 21+) a virtual-thread-per-task executor. The
+ * listener is called on the executor's threads, and must be thread safe: it is called concurrently for different keys.
+ */
+class ParallelStanzaDecoder @JvmOverloads constructor(
+    private val listener: Listener,
+    private val executor: Executor = ForkJoinPool.commonPool(),
+    /** Extracts the ordering key from a stanza's XML. Returns null if the stanza has no key. */
+    private val keyExtractor: Function<String, String?> = Function { orderingKey(it) }
+) {
+    private val logger = createLogger()
+
+    /** The future which completes when the last stanza submitted for each key has been delivered. */
+    private val lanes = ConcurrentHashMap<String, CompletableFuture<Void?>>()
+
+    /** Submits a stanza for parsing. Should be called from a single thread, in the order stanzas are received. */
+    fun submit(stanza: String) {
+        val key = keyExtractor.apply(stanza) ?: NO_KEY
+        val parsed = CompletableFuture.supplyAsync({ parse(stanza) }, executor)
+
+        lateinit var tail: CompletableFuture<Void?>
+        lanes.compute(key) { _, previous ->
+            (previous ?: COMPLETED).thenCompose {
+                parsed.handleAsync<Void?>({ result, throwable ->
+                    deliver(stanza, result, throwable)
+                    null
+                }, executor)
+            }.also { tail = it }
+        }
+        tail.whenComplete { _, _ -> lanes.remove(key, tail) }
+    }
+
+    /** Submits a UTF-8 encoded stanza for parsing. */
+    @JvmOverloads
+    fun submit(bytes: ByteArray, offset: Int = 0, length: Int = bytes.size) =
+        submit(String(bytes, offset, length, Charsets.UTF_8))
+
+    /** Returns a future which completes when all stanzas submitted so far have been delivered. */
+    fun allDelivered(): CompletableFuture<Void> = CompletableFuture.allOf(*lanes.values.toTypedArray())
+
+    /** The number of keys which have stanzas waiting to be parsed or delivered. */
+    val pendingKeys: Int
+        get() = lanes.size
+
+    private fun parse(stanza: String): Stanza = try {
+        PacketParserUtils.parseStanza(stanza)
+    } catch (e: Exception) {
+        throw CompletionException(e)
+    }
+
+    private fun deliver(content: String, stanza: Stanza?, throwable: Throwable?) {
+        try {
+            if (stanza != null) {
+                listener.stanzaParsed(stanza)
+            } else {
+                val cause = if (throwable is CompletionException) throwable.cause ?: throwable else throwable
+                listener.parsingFailed(content, cause as? Exception ?: RuntimeException(cause))
+            }
+        } catch (e: Exception) {
+            // Don't let a failing listener stall the lane.
+            logger.error("Listener failed", e)
+        }
+    }
+
+    interface Listener {
+        /** Called with each successfully parsed stanza. */
+        fun stanzaParsed(stanza: Stanza)
+
+        /** Called for each stanza which failed to parse, in the same order as successfully parsed stanzas. */
+        fun parsingFailed(content: String, e: Exception)
+    }
+
+    companion object {
+        private const val NO_KEY = ""
+        private val COMPLETED: CompletableFuture<Void?> = CompletableFuture.completedFuture(null)
+
+        /**
+         * Returns the ordering key of a stanza: the meeting-id of a [ConferenceModifyIQ], or the room of a
+         * [ConferenceIq] or [VisitorsIq]. Only the start tags of the stanza and of its first child element are read,
+         * by a plain scan of the string. Stanzas which the scan does not handle (e.g. with comments, prefixed
+         * elements or entity references before the key) are read with an XML parser instead.
+         * @return the key, or null if the stanza is of a different type or can not be parsed.
+         */
+        @JvmStatic
+        fun orderingKey(stanza: String): String? {
+            val child = try {
+                StartTagScanner(stanza).firstChild()
+            } catch (e: StartTagScanner.Unsupported) {
+                return parseOrderingKey(stanza)
+            }
+            return child?.let { keyFor(it.name, it.namespace) { name -> it.attributes[name] } }
+        }
+
+        /** Returns the ordering key of a stanza using an XML parser. */
+        private fun parseOrderingKey(stanza: String): String? = try {
+            val parser = PacketParserUtils.getParserFor(stanza)
+            var key: String? = null
+            var done = false
+            while (!done) {
+                when (parser.next()) {
+                    XmlPullParser.Event.START_ELEMENT -> {
+                        key = keyFor(parser.name, parser.namespace) { parser.getAttributeValue(it) }
+                        done = true
+                    }
+                    XmlPullParser.Event.END_ELEMENT, XmlPullParser.Event.END_DOCUMENT -> done = true
+                    else -> {}
+                }
+            }
+            key
+        } catch (e: Exception) {
+            null
+        }
+
+        private fun keyFor(name: String, namespace: String?, attribute: (String) -> String?): String? = when {
+            name == ConferenceModifyIQ.ELEMENT && namespace == ConferenceModifyIQ.NAMESPACE ->
+                attribute(ConferenceModifyIQ.MEETING_ID_ATTR_NAME)
+            name == ConferenceIq.ELEMENT && namespace == ConferenceIq.NAMESPACE ->
+                attribute(ConferenceIq.ROOM_ATTR_NAME)
+            name == VisitorsIq.ELEMENT && namespace == VisitorsIq.NAMESPACE ->
+                attribute(VisitorsIq.ROOM_ATTR_NAME)
+            else -> null
+        }
+    }
+
+    /**
+     * Reads the start tag of a stanza and of its first child element from a string, without an XML parser. Only
+     * unprefixed elements with quoted attributes which contain no entity references are supported, which covers the
+     * stanzas sent by Jitsi components. Anything else throws [Unsupported], so that the caller can use a parser.
+     */
+    private class StartTagScanner(private val xml: String) {
+        private var pos = 0
+
+        class StartTag(
+            val name: String,
+            val namespace: String?,
+            val attributes: Map<String, String>,
+            /** Whether the tag is that of an empty element, e.g. `<x/>`. */
+            val empty: Boolean
+        )
+
+        class Unsupported : Exception(null, null, false, false)
+
+        /** Returns the first child element of the root element, or null if it has none. */
+        fun firstChild(): StartTag? {
+            skipWhitespace()
+            val root = startTag(null)
+            if (root.empty) {
+                return null
+            }
+            skipText()
+            if (startsWith("</")) {
+                return null
+            }
+            return startTag(root.namespace)
+        }
+
+        private fun startTag(parentNamespace: String?): StartTag {
+            expect('<')
+            val name = name(allowPrefix = false)
+            val attributes = HashMap<String, String>()
+            var empty = false
+            while (true) {
+                skipWhitespace()
+                when (peek()) {
+                    '>' -> {
+                        pos++
+                        break
+                    }
+                    '/' -> {
+                        pos++
+                        expect('>')
+                        empty = true
+                        break
+                    }
+                    else -> {
+                        val attribute = name(allowPrefix = true)
+                        skipWhitespace()
+                        expect('=')
+                        skipWhitespace()
+                        attributes[attribute] = value()
+                    }
+                }
+            }
+            return StartTag(name, attributes["xmlns"] ?: parentNamespace, attributes, empty)
+        }
+
+        /** Reads an element name, which must not have a prefix, or an attribute name, which may. */
+        private fun name(allowPrefix: Boolean): String {
+            val start = pos
+            while (pos < xml.length && xml[pos].let { isNameChar(it) || (allowPrefix && it == ':') }) {
+                pos++
+            }
+            if (pos == start || peek() == ':') {
+                throw Unsupported()
+            }
+            return xml.substring(start, pos)
+        }
+
+        private fun value(): String {
+            val quote = peek()
+            if (quote != '\'' && quote != '"') {
+                throw Unsupported()
+            }
+            val end = xml.indexOf(quote, pos + 1)
+            if (end < 0) {
+                throw Unsupported()
+            }
+            val value = xml.substring(pos + 1, end)
+            if (value.contains('&') || value.contains('<')) {
+                throw Unsupported()
+            }
+            pos = end + 1
+            return value
+        }
+
+        /** Skips the text before the first child element, which must not contain markup other than elements. */
+        private fun skipText() {
+            val end = xml.indexOf('<', pos)
+            if (end < 0 || xml.indexOf('&', pos).let { it in pos until end } || startsWith("<!", end) ||
+                startsWith("<?", end)
+            ) {
+                throw Unsupported()
+            }
+            pos = end
+        }
+
+        private fun skipWhitespace() {
+            while (pos < xml.length && xml[pos].let { it == ' ' || it == '\t' || it == '\n' || it == '\r' }) {
+                pos++
+            }
+        }
+
+        private fun isNameChar(c: Char) = c.isLetterOrDigit() || c == '-' || c == '_' || c == '.'
+
+        private fun peek(): Char = if (pos < xml.length) xml[pos] else throw Unsupported()
+
+        private fun expect(c: Char) {
+            if (peek() != c) {
+                throw Unsupported()
+            }
+            pos++
+        }
+
+        private fun startsWith(prefix: String, at: Int = pos) = xml.startsWith(prefix, at)
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp
+
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.SafeParseIqProvider
+import org.jivesoftware.smack.parsing.ParsingExceptionCallback
+import org.jivesoftware.smack.parsing.UnparseableStanza
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A [ParsingExceptionCallback] which, like Smack's `ExceptionLoggingCallback`, logs stanzas which failed to parse
+ * without breaking the connection. To keep a flood of malformed stanzas from making logging the bottleneck, at most
+ * [maxTracesPerInterval] full traces are logged per [interval] for each provider (identified by the IQ type for
+ * failures from a [SafeParseIqProvider], and by the exception class otherwise). The number of suppressed failures is
+ * logged once the next interval starts.
+ */
+class RateLimitedExceptionLoggingCallback @JvmOverloads constructor(
+    private val maxTracesPerInterval: Int = 10,
+    private val interval: Duration = Duration.ofMinutes(1),
+    private val clock: Clock = Clock.systemUTC()
+) : ParsingExceptionCallback {
+    private val logger = createLogger()
+
+    private val limiters = ConcurrentHashMap<Any, Limiter>()
+
+    override fun handleUnparsableStanza(stanzaData: UnparseableStanza) =
+        handle(stanzaData.content, stanzaData.parsingException)
+
+    internal fun handle(content: CharSequence, e: Exception) {
+        val key = keyFor(e)
+        val limiter = limiters.computeIfAbsent(key) { Limiter() }
+
+        val suppressed = limiter.suppressedBeforeInterval(clock.instant())
+        if (suppressed > 0) {
+            logger.warn("Suppressed $suppressed parsing exception traces for $key in the last interval.")
+        }
+
+        if (limiter.tryAcquire()) {
+            logger.error("Smack message parsing exception. Content: '$content'", e)
+        }
+    }
+
+    /** Returns the number of full traces logged for [key] in the current interval. Used for testing. */
+    internal fun tracesLogged(key: Any): Int = limiters[key]?.logged ?: 0
+
+    private fun keyFor(e: Exception): Any =
+        if (e is SafeParseIqProvider.OtherSmackParsingException) e.iqType else e.javaClass.name
+
+    private inner class Limiter {
+        private var intervalStart: Instant = Instant.MIN
+        var logged = 0
+            private set
+        private var suppressed = 0
+
+        /**
+         * Starts a new interval if the current one has elapsed.
+         * @return the number of traces suppressed in the interval which just ended, or 0.
+         */
+        @Synchronized
+        fun suppressedBeforeInterval(now: Instant): Int {
+            if (intervalStart == Instant.MIN || Duration.between(intervalStart, now) >= interval) {
+                val previouslySuppressed = suppressed
+                intervalStart = now
+                logged = 0
+                suppressed = 0
+                return previouslySuppressed
+            }
+            return 0
+        }
+
+        @Synchronized
+        fun tryAcquire(): Boolean {
+            if (logged < maxTracesPerInterval) {
+                logged++
+                return true
+            }
+            suppressed++
+            return false
+        }
+    }
+}
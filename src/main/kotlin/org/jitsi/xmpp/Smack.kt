@@ -16,6 +16,7 @@
 package org.jitsi.xmpp
 
 import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.SafeParseIqProvider
 import org.jitsi.xmpp.extensions.jitsimeet.AbstractMuteIq
 import org.jitsi.xmpp.extensions.jitsimeet.MuteDesktopIq
 import org.jitsi.xmpp.extensions.jitsimeet.MuteDesktopIqProvider
@@ -25,7 +26,7 @@ import org.jitsi.xmpp.extensions.jitsimeet.MuteVideoIq
 import org.jitsi.xmpp.extensions.jitsimeet.MuteVideoIqProvider
 import org.jitsi.xmpp.stringprep.JitsiXmppStringprep
 import org.jivesoftware.smack.SmackConfiguration
-import org.jivesoftware.smack.parsing.ExceptionLoggingCallback
+import org.jivesoftware.smack.parsing.ParsingExceptionCallback
 import org.jivesoftware.smack.provider.ProviderManager
 import org.jivesoftware.smackx.bytestreams.socks5.Socks5Proxy
 import org.jxmpp.JxmppContext
@@ -34,7 +35,18 @@ import org.jxmpp.jid.impl.JidCreate
 object Smack {
     val logger = createLogger()
 
-    fun initialize(useJitsiXmppStringprep: Boolean = true) {
+    /**
+     * @param stacklessParseExceptions whether [SafeParseIqProvider] should skip capturing stack traces for the
+     * exceptions it wraps failures in. The wrapped exceptions keep theirs.
+     * @param parsingExceptionCallback the callback to install for stanzas which fail to parse. The default logs them
+     * with rate limiting.
+     */
+    @JvmOverloads
+    fun initialize(
+        useJitsiXmppStringprep: Boolean = true,
+        stacklessParseExceptions: Boolean = false,
+        parsingExceptionCallback: ParsingExceptionCallback = RateLimitedExceptionLoggingCallback()
+    ) {
         logger.info("Setting XML parsing limits.")
         System.setProperty("jdk.xml.entityExpansionLimit", "0")
         System.setProperty("jdk.xml.maxOccurLimit", "0")
@@ -53,7 +65,8 @@ object Smack {
 
         // if there is a parsing error, do not break the connection to the server(the default behaviour) as we need
         // it for the other conferences.
-        SmackConfiguration.setDefaultParsingExceptionCallback(ExceptionLoggingCallback())
+        SmackConfiguration.setDefaultParsingExceptionCallback(parsingExceptionCallback)
+        SafeParseIqProvider.setStacklessExceptions(stacklessParseExceptions)
         Socks5Proxy.setLocalSocks5ProxyEnabled(false)
     }
 
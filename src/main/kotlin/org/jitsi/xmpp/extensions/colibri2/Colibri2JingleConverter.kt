@@ -0,0 +1,219 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.jingle.ContentPacketExtension
+import org.jitsi.xmpp.extensions.jingle.ContentPacketExtension.CreatorEnum
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jitsi.xmpp.extensions.jingle.JingleIQ
+import org.jitsi.xmpp.extensions.jingle.JingleUtils
+import org.jitsi.xmpp.extensions.jingle.RtpDescriptionPacketExtension
+import org.jitsi.xmpp.extensions.jingle.SctpMapExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+
+/**
+ * Converts between the Jingle contents of a participant's session (e.g. a session-accept) and the colibri2 [Media],
+ * [Transport] and [Sources] of its endpoint.
+ *
+ * The participants of a conference usually offer the same payload types and RTP header extensions, so the [Media]
+ * converted from a content are cached by their XML, and the contents with the same codecs are converted to the same
+ * [Media] instance. Nothing is copied in either direction: the converted elements reference the payload types, header
+ * extensions, transports and sources of the original ones, so neither must be modified after the conversion.
+ *
+ * Thread safe.
+ */
+class Colibri2JingleConverter @JvmOverloads constructor(
+    /** The maximum number of distinct [Media] which are cached. */
+    private val cacheSize: Int = 64
+) {
+    /** The converted [Media] by [key], least recently used first. Guarded by itself. */
+    private val mediaCache = object : LinkedHashMap<String, Media>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Media>) = size > cacheSize
+    }
+
+    /** The number of [Media] currently cached. */
+    val cachedMediaCount: Int
+        get() = synchronized(mediaCache) { mediaCache.size }
+
+    /** Creates a builder for the endpoint [endpointId] with the media, transport and sources of [jingle]. */
+    fun toEndpoint(endpointId: String, jingle: JingleIQ) = toEndpoint(endpointId, jingle.contentList)
+
+    /** Creates a builder for the endpoint [endpointId] with the media, transport and sources of [contents]. */
+    fun toEndpoint(endpointId: String, contents: List<ContentPacketExtension>): Colibri2Endpoint.Builder =
+        Colibri2Endpoint.getBuilder().apply {
+            setId(endpointId)
+            contents.forEach { content -> toMedia(content)?.let { addMedia(it) } }
+            toTransport(contents)?.let { setTransport(it) }
+            toSources(endpointId, contents)?.let { setSources(it) }
+        }
+
+    /** Returns the [Media] of an audio or video [content], or null if it has no RTP description. */
+    fun toMedia(content: ContentPacketExtension): Media? {
+        val description = JingleUtils.getRtpDescription(content) ?: return null
+        val type = mediaType(content)?.takeIf { it == MediaType.AUDIO || it == MediaType.VIDEO } ?: return null
+        val key = key(type, description)
+        synchronized(mediaCache) { mediaCache[key] }?.let { return it }
+
+        val media = Media.getBuilder().apply {
+            setType(type)
+            description.payloadTypes.forEach { addPayloadType(it) }
+            description.extmapList.forEach { addRtpHdrExt(it) }
+            description.extmapAllowMixed?.let { setExtmapAllowMixed(it) }
+        }.build()
+        return synchronized(mediaCache) { mediaCache.getOrPut(key) { media } }
+    }
+
+    /**
+     * Returns the [Transport] of the bundled [contents], i.e. the first ICE-UDP transport, which requests SCTP if one
+     * of the contents is a data channel. Returns null if there is neither.
+     */
+    fun toTransport(contents: List<ContentPacketExtension>): Transport? {
+        val (data, rtp) = contents.partition { mediaType(it) == MediaType.DATA }
+        val iceUdp = (rtp + data).firstNotNullOfOrNull {
+            it.getFirstChildOfType(IceUdpTransportPacketExtension::class.java)
+        }
+        if (iceUdp == null && data.isEmpty()) {
+            return null
+        }
+        return Transport.getBuilder().apply {
+            iceUdp?.let { setIceUdpExtension(it) }
+            if (data.isNotEmpty()) {
+                setSctp(Sctp.Builder().build())
+            }
+        }.build()
+    }
+
+    /**
+     * Returns the sources of [contents] as colibri2 media sources, or null if there are none. Sources with the same
+     * name belong to the same media source, and sources without a name to the default one of their type for the
+     * endpoint (e.g. `endpointId-v0`). A source group belongs to the media source of its first SSRC.
+     */
+    fun toSources(endpointId: String, contents: List<ContentPacketExtension>): Sources? {
+        val mediaSources = LinkedHashMap<String, MediaSource.Builder>()
+        val bySsrc = HashMap<Long, MediaSource.Builder>()
+        contents.forEach { content ->
+            val description = JingleUtils.getRtpDescription(content) ?: return@forEach
+            val type = mediaType(content) ?: return@forEach
+            description.getChildExtensionsOfType(SourcePacketExtension::class.java).forEach { source ->
+                val id = source.name ?: defaultSourceName(endpointId, type)
+                val mediaSource = mediaSources.getOrPut(id) { MediaSource.getBuilder().setType(type).setId(id) }
+                mediaSource.addSource(source)
+                if (source.hasSSRC()) {
+                    bySsrc[source.ssrc] = mediaSource
+                }
+            }
+            description.getChildExtensionsOfType(SourceGroupPacketExtension::class.java).forEach { group ->
+                group.sources.firstOrNull()?.let { bySsrc[it.ssrc] }?.addSsrcGroup(group)
+            }
+        }
+        if (mediaSources.isEmpty()) {
+            return null
+        }
+        return Sources.getBuilder().apply { mediaSources.values.forEach { addMediaSource(it.build()) } }.build()
+    }
+
+    /** Creates the Jingle contents for the media, transport and sources of [entity]. */
+    @JvmOverloads
+    fun toContents(
+        entity: AbstractConferenceEntity,
+        creator: CreatorEnum = CreatorEnum.initiator
+    ): List<ContentPacketExtension> = toContents(entity.media, entity.transport, entity.sources, creator)
+
+    /**
+     * Creates a content for each of [media], bundled over the ICE-UDP transport of [transport], with the [sources] of
+     * its type. If [transport] requests SCTP a data content is added, with an `sctpmap` for the SCTP port.
+     */
+    @JvmOverloads
+    fun toContents(
+        media: List<Media>,
+        transport: Transport?,
+        sources: Sources?,
+        creator: CreatorEnum = CreatorEnum.initiator
+    ): List<ContentPacketExtension> {
+        val iceUdp = transport?.iceUdpTransport
+        val contents = media.mapTo(ArrayList()) { m ->
+            ContentPacketExtension(creator, m.type.toString()).apply {
+                addChildExtension(
+                    RtpDescriptionPacketExtension().apply {
+                        this.media = m.type.toString()
+                        m.payloadTypes.forEach { addPayloadType(it) }
+                        m.rtpHdrExts.forEach { addExtmap(it) }
+                        m.extmapAllowMixed?.let { extmapAllowMixed = it }
+                        sources?.mediaSources?.filter { it.type == m.type }?.forEach { mediaSource ->
+                            mediaSource.sources.forEach { addChildExtension(it) }
+                            mediaSource.ssrcGroups.forEach { addChildExtension(it) }
+                        }
+                    }
+                )
+                iceUdp?.let { addChildExtension(it) }
+            }
+        }
+        transport?.sctp?.let { sctp ->
+            contents += ContentPacketExtension(creator, DATA_CONTENT_NAME).apply {
+                /* The sctpmap is specific to this content, so it gets its own copy of the transport. */
+                val dataTransport = IceUdpTransportPacketExtension.cloneTransportAndCandidates(iceUdp, true)
+                    ?: IceUdpTransportPacketExtension()
+                dataTransport.addChildExtension(
+                    SctpMapExtension().apply {
+                        port = sctp.port ?: DEFAULT_SCTP_PORT
+                        setProtocol(SctpMapExtension.Protocol.WEBRTC_CHANNEL)
+                        streams = DEFAULT_SCTP_STREAMS
+                    }
+                )
+                addChildExtension(dataTransport)
+            }
+        }
+        return contents
+    }
+
+    /** Clears the cache of converted [Media]. */
+    fun clearCache() = synchronized(mediaCache) { mediaCache.clear() }
+
+    companion object {
+        /** The name of the Jingle content of the data channel. */
+        const val DATA_CONTENT_NAME = "data"
+
+        const val DEFAULT_SCTP_PORT = 5000
+
+        const val DEFAULT_SCTP_STREAMS = 1024
+
+        /** The name of the media source for the sources of [type] of [endpointId] which have no name. */
+        @JvmStatic
+        fun defaultSourceName(endpointId: String, type: MediaType) = "$endpointId-${type.toString()[0]}0"
+
+        /** Returns the media type of [content], or null if it is not a known type. */
+        private fun mediaType(content: ContentPacketExtension): MediaType? = try {
+            val description = JingleUtils.getRtpDescription(content)
+            if (description?.media == null) {
+                MediaType.parseString(content.name ?: return null)
+            } else {
+                JingleUtils.getMediaType(content)
+            }
+        } catch (e: IllegalArgumentException) {
+            if (content.name == DATA_CONTENT_NAME) MediaType.DATA else null
+        }
+
+        /** The key of the [Media] converted from [description]: its type and the XML of its codec elements. */
+        private fun key(type: MediaType, description: RtpDescriptionPacketExtension) = buildString {
+            append(type)
+            description.payloadTypes.forEach { append(it.toXML()) }
+            description.extmapList.forEach { append(it.toXML()) }
+            description.extmapAllowMixed?.let { append(it.toXML()) }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jitsi.xmpp.extensions.AbstractPacketExtension
+import org.jitsi.xmpp.extensions.jingle.CandidatePacketExtension
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jivesoftware.smack.packet.ExtensionElement
+import org.jivesoftware.smack.packet.IqData
+import org.jivesoftware.smack.packet.StanzaBuilder
+
+/**
+ * Compresses colibri2 IQs by moving repeated [Media] elements and ICE candidate sets into a [Templates] element, and
+ * expands the references again.
+ *
+ * In a `conference-modify` the media of all endpoints are usually the same, and in a `conference-modified` all
+ * endpoints usually get the same candidates (only the ufrag, pwd and fingerprints differ). A media element or a
+ * candidate set which occurs at least twice among the endpoints and relays of an IQ becomes a template, and each
+ * occurrence is replaced with a reference.
+ *
+ * Compression is opt-in: an IQ should only be compressed for a peer which supports [Capability.CAP_TEMPLATES]. The
+ * providers expand the references while parsing (see [IqProviderUtils.parseExtensions]), so a parsed IQ never has
+ * templates, and [Colibri2JSONSerializer][org.jitsi.xmpp.extensions.colibri2.json.Colibri2JSONSerializer] writes a
+ * compressed IQ in the expanded form.
+ *
+ * Expanded elements share their children with the templates and the original elements, so they must not be modified.
+ * [ConferenceModifySplitter] and [ConferenceModifyCoalescer] do not carry templates over, so an IQ should be
+ * compressed after splitting or coalescing.
+ */
+object Colibri2Templates {
+    /** Returns [iq] with its repeated media and candidate sets replaced by templates, or [iq] if nothing repeats. */
+    @JvmStatic
+    fun compress(iq: ConferenceModifyIQ): ConferenceModifyIQ {
+        val compressor = Compressor.create(iq) ?: return iq
+        return ConferenceModifyIQ.builder(iqData(iq)).apply {
+            setMeetingId(iq.meetingId)
+            setConferenceName(iq.conferenceName)
+            setCreate(iq.create)
+            setExpire(iq.expire)
+            setRtcstatsEnabled(iq.isRtcstatsEnabled)
+            setConnects(iq.connects)
+            compressor.addTo(this, iq)
+        }.build()
+    }
+
+    /** Returns [iq] with its repeated media and candidate sets replaced by templates, or [iq] if nothing repeats. */
+    @JvmStatic
+    fun compress(iq: ConferenceModifiedIQ): ConferenceModifiedIQ {
+        val compressor = Compressor.create(iq) ?: return iq
+        return ConferenceModifiedIQ.builder(iqData(iq)).apply {
+            setSources(iq.sources)
+            compressor.addTo(this, iq)
+        }.build()
+    }
+
+    /**
+     * Returns [entity] with the media and transports which refer to [templates] replaced by the templates, or
+     * [entity] itself if it has no references.
+     * @throws IllegalArgumentException if a reference can not be resolved.
+     */
+    @JvmStatic
+    fun <T : AbstractConferenceEntity> expand(entity: T, templates: Templates?): T {
+        if (entity.childExtensions.none { isReference(it) }) {
+            return entity
+        }
+        return copy(entity) { child ->
+            when {
+                !isReference(child) -> child
+                child is Media -> expand(child, templates)
+                else -> expand(child as Transport, templates)
+            }
+        }
+    }
+
+    private fun isReference(element: ExtensionElement) = when (element) {
+        is Media, is Transport -> Templates.getTemplateId(element as AbstractPacketExtension) != null
+        else -> false
+    }
+
+    private fun expand(media: Media, templates: Templates?): Media {
+        val id = Templates.getTemplateId(media)!!
+        val template = templates?.getMedia(id) ?: throw IllegalArgumentException("Unknown media template: $id")
+        require(template.type == media.type) { "Media template $id has type ${template.type}, not ${media.type}" }
+        return copy(template) { it }.apply { removeAttribute(Templates.ID_ATTR_NAME) }
+    }
+
+    private fun expand(transport: Transport, templates: Templates?): Transport {
+        val id = Templates.getTemplateId(transport)!!
+        val template = templates?.getTransport(id)
+            ?: throw IllegalArgumentException("Unknown transport template: $id")
+        val candidates = template.iceUdpTransport?.candidateList.orEmpty()
+        require(transport.iceUdpTransport != null) { "Transport refers to template $id, but has no ICE-UDP transport" }
+        return copy(transport) { child ->
+            if (child is IceUdpTransportPacketExtension) {
+                copy(child) { it }.apply { candidates.forEach { addCandidate(it) } }
+            } else {
+                child
+            }
+        }.apply { removeAttribute(Templates.TEMPLATE_ATTR_NAME) }
+    }
+
+    /** Copies the attributes and text of [element], and adds its children as mapped by [transform]. */
+    private fun <T : AbstractPacketExtension> copy(element: T, transform: (ExtensionElement) -> ExtensionElement): T =
+        AbstractPacketExtension.clone(element).apply {
+            element.childExtensions.forEach { addChildExtension(transform(it)) }
+        }
+
+    private fun iqData(iq: AbstractConferenceModificationIQ<*>): IqData =
+        StanzaBuilder.buildIqData(iq.stanzaId).ofType(iq.type).from(iq.from).to(iq.to)
+
+    /** Finds the repeated media and candidate sets of the entities of an IQ, and replaces them with references. */
+    private class Compressor private constructor(
+        /** The template IDs by the XML of the media. */
+        private val mediaIds: Map<String, String>,
+        /** The template IDs by the XML of the candidates. */
+        private val candidateIds: Map<String, String>,
+        private val templates: Templates
+    ) {
+        fun addTo(builder: AbstractConferenceModificationIQ.Builder<*>, iq: AbstractConferenceModificationIQ<*>) {
+            builder.setTemplates(templates)
+            iq.endpoints.forEach { builder.addConferenceEntity(compress(it)) }
+            iq.relays.forEach { builder.addConferenceEntity(compress(it)) }
+        }
+
+        private fun <T : AbstractConferenceEntity> compress(entity: T): T {
+            val children = entity.childExtensions
+            val compressed = children.map { child ->
+                when (child) {
+                    is Media -> mediaIds[key(child)]?.let { reference(child, it) } ?: child
+                    is Transport -> templateId(child)?.let { reference(child, it) } ?: child
+                    else -> child
+                }
+            }
+            if (compressed.indices.all { compressed[it] === children[it] }) {
+                return entity
+            }
+            return AbstractPacketExtension.clone(entity).apply { compressed.forEach { addChildExtension(it) } }
+        }
+
+        private fun templateId(transport: Transport) = candidatesKey(transport)?.let { candidateIds[it] }
+
+        private fun reference(media: Media, id: String) = Media.getBuilder().setType(media.type).build().apply {
+            setAttribute(Templates.TEMPLATE_ATTR_NAME, id)
+        }
+
+        /** Copies [transport] without the candidates of its ICE-UDP transport. */
+        private fun reference(transport: Transport, id: String) = copy(transport) { child ->
+            if (child is IceUdpTransportPacketExtension) {
+                AbstractPacketExtension.clone(child).apply {
+                    child.childExtensions.filter { it !is CandidatePacketExtension }.forEach { addChildExtension(it) }
+                }
+            } else {
+                child
+            }
+        }.apply { setAttribute(Templates.TEMPLATE_ATTR_NAME, id) }
+
+        companion object {
+            /** Returns a compressor for [iq], or null if nothing repeats or [iq] already has templates. */
+            fun create(iq: AbstractConferenceModificationIQ<*>): Compressor? {
+                if (iq.templates != null) {
+                    return null
+                }
+                val media = LinkedHashMap<String, Occurrences<Media>>()
+                val candidates = LinkedHashMap<String, Occurrences<Transport>>()
+                (iq.endpoints + iq.relays).forEach { entity ->
+                    entity.media.forEach { media.getOrPut(key(it)) { Occurrences(it) }.count++ }
+                    entity.transport?.let { transport ->
+                        candidatesKey(transport)?.let { candidates.getOrPut(it) { Occurrences(transport) }.count++ }
+                    }
+                }
+
+                val mediaIds = HashMap<String, String>()
+                val candidateIds = HashMap<String, String>()
+                val templates = Templates.getBuilder()
+                media.filterValues { it.count > 1 }.forEach { (key, occurrences) ->
+                    val id = "m${mediaIds.size}"
+                    mediaIds[key] = id
+                    templates.addMedia(id, copy(occurrences.first) { it })
+                }
+                candidates.filterValues { it.count > 1 }.forEach { (key, occurrences) ->
+                    val id = "t${candidateIds.size}"
+                    candidateIds[key] = id
+                    val iceUdp = IceUdpTransportPacketExtension().apply {
+                        occurrences.first.iceUdpTransport!!.candidateList.forEach { addCandidate(it) }
+                    }
+                    templates.addTransport(id, Transport.getBuilder().setIceUdpExtension(iceUdp).build())
+                }
+
+                if (mediaIds.isEmpty() && candidateIds.isEmpty()) {
+                    return null
+                }
+                return Compressor(mediaIds, candidateIds, templates.build())
+            }
+
+            private fun key(media: Media) = media.toXML().toString()
+
+            /** The XML of the candidates of the ICE-UDP transport of [transport], or null if it has none. */
+            private fun candidatesKey(transport: Transport): String? {
+                val candidates = transport.iceUdpTransport?.candidateList
+                if (candidates.isNullOrEmpty()) {
+                    return null
+                }
+                return candidates.joinToString("") { it.toXML().toString() }
+            }
+        }
+    }
+
+    private class Occurrences<T>(val first: T) {
+        var count = 0
+    }
+}
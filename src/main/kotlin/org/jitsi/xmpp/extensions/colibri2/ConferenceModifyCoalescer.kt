@@ -0,0 +1,289 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jitsi.utils.MediaType
+import org.jitsi.utils.logging2.createLogger
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import org.jxmpp.jid.Jid
+import java.time.Duration
+import java.util.UUID
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+
+/**
+ * Merges the [ConferenceModifyIQ]s submitted for the same conference within a time [window] into a single IQ, e.g. to
+ * send fewer and larger requests to a bridge during mass joins. Requests are only merged if they have the same meeting
+ * ID and the same `to` and `from` addresses: in a cascade every bridge has a conference with the same meeting ID.
+ *
+ * Endpoints and relays are merged by ID, with later updates overriding the fields (media, transport, sources, etc.) of
+ * earlier ones. An update which creates or expires an entity which is already pending, or which updates an entity
+ * pending expiration, can not be merged, so the pending batch is sent first. A request which expires the conference
+ * is sent on its own, after the pending batch.
+ *
+ * Each requester's future completes with a response to its own request: a [ConferenceModifiedIQ] with the requester's
+ * stanza ID, which only contains the endpoints and relays of its request (and the conference-level sources), or an
+ * error response. A batch with a single request is sent as is, and its response is passed through.
+ */
+class ConferenceModifyCoalescer @JvmOverloads constructor(
+    /** Sends a (merged) request, and returns a future for the response. */
+    private val sender: Function<ConferenceModifyIQ, CompletableFuture<IQ>>,
+    private val scheduler: ScheduledExecutorService,
+    private val window: Duration = Duration.ofMillis(20),
+    /** A batch is sent as soon as it contains this many endpoints and relays. */
+    private val maxEntities: Int = 50
+) {
+    private val logger = createLogger()
+
+    /** The pending batches by conference. Guarded by `this`. */
+    private val batches = HashMap<BatchKey, Batch>()
+
+    /** Submits a request, to be sent with the other requests for the same conference in the current window. */
+    fun submit(iq: ConferenceModifyIQ): CompletableFuture<IQ> {
+        val request = Request(iq)
+        val key = BatchKey(iq.to, iq.from, iq.meetingId)
+        val toSend = ArrayList<Batch>(2)
+        synchronized(this) {
+            var batch = batches[key]
+            if (batch != null && (iq.expire || !batch.canAdd(iq))) {
+                toSend.add(remove(batch))
+                batch = null
+            }
+            if (iq.expire) {
+                toSend.add(Batch(key).also { it.add(request) })
+            } else {
+                if (batch == null) {
+                    val newBatch = Batch(key)
+                    batches[key] = newBatch
+                    newBatch.timeout =
+                        scheduler.schedule({ flush(newBatch) }, window.toNanos(), TimeUnit.NANOSECONDS)
+                    batch = newBatch
+                }
+                batch.add(request)
+                if (batch.entityCount >= maxEntities) {
+                    toSend.add(remove(batch))
+                }
+            }
+        }
+        toSend.forEach { send(it) }
+        return request.future
+    }
+
+    /** Sends the pending batches for [meetingId] (one per bridge), if any, without waiting for the window to end. */
+    fun flush(meetingId: String) {
+        val toSend = synchronized(this) { batches.values.filter { it.key.meetingId == meetingId }.map { remove(it) } }
+        toSend.forEach { send(it) }
+    }
+
+    /** Sends [batch] when its window ends, unless it has already been sent. */
+    private fun flush(batch: Batch) {
+        val removed = synchronized(this) { if (batches[batch.key] === batch) remove(batch) else null } ?: return
+        send(removed)
+    }
+
+    /** Sends all pending batches. */
+    fun flushAll() {
+        val toSend = synchronized(this) { batches.values.toList().map { remove(it) } }
+        toSend.forEach { send(it) }
+    }
+
+    private fun remove(batch: Batch): Batch {
+        batches.remove(batch.key, batch)
+        batch.timeout?.cancel(false)
+        return batch
+    }
+
+    private fun send(batch: Batch) {
+        val requests = batch.requests
+        if (requests.size == 1) {
+            val request = requests[0]
+            sendAndComplete(request.iq) { response, throwable -> request.complete(response, throwable) }
+            return
+        }
+
+        val merged = batch.build(UUID.randomUUID().toString())
+        logger.debug { "Sending ${requests.size} requests for ${batch.key.meetingId} as ${merged.stanzaId}" }
+        sendAndComplete(merged) { response, throwable ->
+            requests.forEach { request ->
+                try {
+                    request.complete(response?.let { request.toResponse(it) }, throwable)
+                } catch (e: Exception) {
+                    request.complete(null, e)
+                }
+            }
+        }
+    }
+
+    private fun sendAndComplete(iq: ConferenceModifyIQ, onResponse: (IQ?, Throwable?) -> Unit) {
+        val future = try {
+            sender.apply(iq)
+        } catch (e: Exception) {
+            CompletableFuture.failedFuture(e)
+        }
+        future.whenComplete(onResponse)
+    }
+
+    private class Request(val iq: ConferenceModifyIQ) {
+        val future = CompletableFuture<IQ>()
+
+        fun complete(response: IQ?, throwable: Throwable?) {
+            if (throwable != null) {
+                future.completeExceptionally(throwable)
+            } else {
+                future.complete(response)
+            }
+        }
+
+        /** Creates the response to this request from the response to the merged request. */
+        fun toResponse(response: IQ): IQ {
+            if (response.type == IQ.Type.error) {
+                return IQ.createErrorResponse(iq, response.error)
+            }
+            if (response !is ConferenceModifiedIQ) {
+                return IQ.createResultIQ(iq)
+            }
+            val endpoints = iq.endpointIndex
+            val relays = iq.relayIndex
+            val iqData = StanzaBuilder.buildIqData(iq.stanzaId).ofType(IQ.Type.result).from(iq.to).to(iq.from)
+            val builder = ConferenceModifiedIQ.builder(iqData)
+            response.sources?.let { builder.setSources(it) }
+            return builder.apply {
+                response.endpointIndex.filter { endpoints.contains(it.id) }.forEach { addEndpoint(it) }
+                response.relayIndex.filter { relays.contains(it.id) }.forEach { addRelay(it) }
+            }.build()
+        }
+    }
+
+    /** Identifies a conference on a bridge: requests are only merged if they are sent to and from the same JIDs. */
+    private data class BatchKey(val to: Jid?, val from: Jid?, val meetingId: String)
+
+    /** The requests pending for a conference, and their merged contents. Guarded by the coalescer. */
+    private class Batch(val key: BatchKey) {
+        val requests = ArrayList<Request>()
+        private val endpoints = LinkedHashMap<String, Colibri2Endpoint>()
+        private val relays = LinkedHashMap<String, Colibri2Relay>()
+        var timeout: ScheduledFuture<*>? = null
+
+        val entityCount: Int
+            get() = endpoints.size + relays.size
+
+        fun canAdd(iq: ConferenceModifyIQ) = iq.endpoints.none { conflicts(endpoints[it.id], it) } &&
+            iq.relays.none { conflicts(relays[it.id], it) }
+
+        fun add(request: Request) {
+            requests.add(request)
+            request.iq.endpoints.forEach { endpoints[it.id] = merge(endpoints[it.id], it) }
+            request.iq.relays.forEach { relays[it.id] = merge(relays[it.id], it) }
+        }
+
+        fun build(stanzaId: String): ConferenceModifyIQ {
+            val iqData = StanzaBuilder.buildIqData(stanzaId).ofType(IQ.Type.set).from(key.from).to(key.to)
+            val builder = ConferenceModifyIQ.builder(iqData).setMeetingId(key.meetingId)
+            requests.forEach { request ->
+                val iq = request.iq
+                if (iq.create) {
+                    builder.setCreate(true).setRtcstatsEnabled(iq.isRtcstatsEnabled)
+                }
+                iq.conferenceName?.let { builder.setConferenceName(it) }
+                /* Connects replace the previous ones, so only the last ones matter. */
+                iq.connects?.let { connects ->
+                    builder.setEmptyConnects()
+                    connects.getConnects().forEach { builder.addConnect(it) }
+                }
+            }
+            return builder.apply {
+                endpoints.values.forEach { addEndpoint(it) }
+                relays.values.forEach { addRelay(it) }
+            }.build()
+        }
+
+        companion object {
+            /**
+             * Whether [update] can not be merged into [pending]: creating or expiring an entity which is already
+             * pending, or updating one which is pending expiration, must be sent separately.
+             */
+            private fun conflicts(pending: AbstractConferenceEntity?, update: AbstractConferenceEntity): Boolean {
+                if (pending == null) return false
+                if (pending.expire || update.create || update.expire) return true
+                if (pending is Colibri2Relay && update is Colibri2Relay) {
+                    val pendingEndpoints = pending.endpoints ?: return false
+                    return update.endpoints?.endpointIndex?.any { conflicts(pendingEndpoints.getEndpoint(it.id), it) }
+                        ?: false
+                }
+                return false
+            }
+
+            private fun merge(pending: Colibri2Endpoint?, update: Colibri2Endpoint): Colibri2Endpoint {
+                if (pending == null) return update
+                return Colibri2Endpoint.getBuilder().apply {
+                    mergeShared(pending, update)
+                    setStatsId(update.statsId ?: pending.statsId)
+                    setMucRole(update.mucRole ?: pending.mucRole)
+                    setForceMute(update.forceMute ?: pending.forceMute)
+                    setInitialLastN(update.initialLastN ?: pending.initialLastN)
+                    update.capabilities.ifEmpty { pending.capabilities }.forEach { addCapability(it.name) }
+                }.build()
+            }
+
+            private fun merge(pending: Colibri2Relay?, update: Colibri2Relay): Colibri2Relay {
+                if (pending == null) return update
+                return Colibri2Relay.getBuilder().apply {
+                    mergeShared(pending, update)
+                    setMeshId(update.meshId ?: pending.meshId)
+                    val pendingEndpoints = pending.endpoints
+                    val updateEndpoints = update.endpoints
+                    if (pendingEndpoints == null || updateEndpoints == null) {
+                        setEndpoints(updateEndpoints ?: pendingEndpoints)
+                    } else {
+                        val merged = LinkedHashMap<String, Colibri2Endpoint>()
+                        pendingEndpoints.endpoints.forEach { merged[it.id] = it }
+                        updateEndpoints.endpoints.forEach { merged[it.id] = merge(merged[it.id], it) }
+                        setEndpoints(Endpoints.getBuilder().apply { merged.values.forEach { addEndpoint(it) } }.build())
+                    }
+                }.build()
+            }
+
+            /** Merges the fields common to endpoints and relays. The update never creates or expires the entity. */
+            private fun AbstractConferenceEntity.Builder.mergeShared(
+                pending: AbstractConferenceEntity,
+                update: AbstractConferenceEntity
+            ) {
+                setId(update.id)
+                setCreate(pending.create)
+                mergeMedia(pending.media, update.media).forEach { addMedia(it) }
+                setTransport(update.transport ?: pending.transport)
+                setSources(update.sources ?: pending.sources)
+            }
+
+            /**
+             * Merges media by type, like the bridge applies them: the update's media of a type replaces the pending
+             * media of that type, and the pending media of other types are kept.
+             */
+            private fun mergeMedia(pending: List<Media>, update: List<Media>): Collection<Media> {
+                if (update.isEmpty()) return pending
+                if (pending.isEmpty()) return update
+                val merged = LinkedHashMap<MediaType, Media>()
+                pending.forEach { merged[it.type] = it }
+                update.forEach { merged[it.type] = it }
+                return merged.values
+            }
+        }
+    }
+}
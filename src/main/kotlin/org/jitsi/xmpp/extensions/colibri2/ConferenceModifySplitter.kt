@@ -0,0 +1,224 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jivesoftware.smack.packet.StanzaBuilder
+
+/**
+ * Splits a [ConferenceModifyIQ] which would exceed a maximum stanza size into a sequence of smaller IQs, to be sent in
+ * order.
+ *
+ * IQs are split between endpoints and relays. A relay which does not fit on its own is split between the endpoints
+ * in its `endpoints` element, and an endpoint which does not fit on its own is split between its media sources. The
+ * first part of a split entity has all of its fields, including `create`, and the following parts only its ID and the
+ * remaining endpoints or media sources. Note that the media sources of a split endpoint are spread over several
+ * `sources` elements, so they need to be applied per media source (see [SourcesDiff.applyTo]).
+ *
+ * The conference-level fields (`create`, name, `connects`) are in the first IQ, and the conference `expire` in the
+ * last. The first IQ has the original stanza ID, the following ones have a suffix added.
+ *
+ * Sizes are estimated in UTF-8 bytes by rendering each endpoint (and, if needed, each media source) once, and adding
+ * up the sizes of the parts. The estimate includes the namespace of each element, so it slightly exceeds the actual
+ * size.
+ */
+object ConferenceModifySplitter {
+    /** Splits [iq] into IQs of at most [maxSize] bytes, or returns it as is if it fits. */
+    @JvmStatic
+    fun split(iq: ConferenceModifyIQ, maxSize: Int): List<ConferenceModifyIQ> {
+        val firstEnvelope = size(envelope(iq, 0, first = true, last = true))
+        val envelope = size(envelope(iq, 1, first = false, last = true))
+        val budget = maxSize - maxOf(firstEnvelope, envelope)
+        require(budget > 0) { "maxSize $maxSize is too small for the IQ itself" }
+
+        val pieces = ArrayList<Piece>()
+        iq.endpoints.forEach { pieces.addAll(pieces(it, budget)) }
+        iq.relays.forEach { pieces.addAll(pieces(it, budget)) }
+        if (pieces.sumOf { it.size } <= budget) {
+            return listOf(iq)
+        }
+
+        val chunks = ArrayList<MutableList<AbstractConferenceEntity>>()
+        var current = ArrayList<AbstractConferenceEntity>()
+        var currentSize = 0
+        pieces.forEach { piece ->
+            /* A continuation is never in the same IQ as the previous part of its entity. */
+            if (current.isNotEmpty() && (currentSize + piece.size > budget || piece.continuation)) {
+                chunks.add(current)
+                current = ArrayList()
+                currentSize = 0
+            }
+            current.add(piece.entity)
+            currentSize += piece.size
+        }
+        chunks.add(current)
+
+        return chunks.mapIndexed { i, entities ->
+            envelope(iq, i, first = i == 0, last = i == chunks.size - 1).apply {
+                entities.forEach { addConferenceEntity(it) }
+            }.build()
+        }
+    }
+
+    private class Piece(val entity: AbstractConferenceEntity, val size: Int, val continuation: Boolean)
+
+    private fun envelope(
+        iq: ConferenceModifyIQ,
+        index: Int,
+        first: Boolean,
+        last: Boolean
+    ): ConferenceModifyIQ.Builder {
+        val stanzaId = if (index == 0) iq.stanzaId else "${iq.stanzaId}-$index"
+        val iqData = StanzaBuilder.buildIqData(stanzaId).ofType(iq.type).from(iq.from).to(iq.to)
+        return ConferenceModifyIQ.builder(iqData).apply {
+            setMeetingId(iq.meetingId)
+            setExpire(last && iq.expire)
+            if (first) {
+                setCreate(iq.create)
+                setRtcstatsEnabled(iq.isRtcstatsEnabled)
+                setConferenceName(iq.conferenceName)
+                iq.connects?.let { connects ->
+                    setEmptyConnects()
+                    connects.getConnects().forEach { addConnect(it) }
+                }
+            }
+        }
+    }
+
+    private fun size(builder: ConferenceModifyIQ.Builder) = utf8Length(builder.build().toXML())
+
+    private fun pieces(endpoint: Colibri2Endpoint, budget: Int): List<Piece> {
+        val size = utf8Length(endpoint.toXML())
+        val mediaSources = endpoint.sources?.mediaSources.orEmpty()
+        if (size <= budget || mediaSources.size < 2) {
+            return listOf(Piece(endpoint, size, false))
+        }
+
+        val withoutSources = copy(endpoint, full = true, sources = null)
+        val idOnly = copy(endpoint, full = false, sources = null)
+        val wrapperSize = utf8Length(Sources.getBuilder().build().toXML())
+        val pieces = ArrayList<Piece>()
+        var shellSize = utf8Length(withoutSources.toXML()) + wrapperSize
+        var part = ArrayList<MediaSource>()
+        var partSize = 0
+        fun addPiece() {
+            val sources = Sources.getBuilder().apply { part.forEach { addMediaSource(it) } }.build()
+            val first = pieces.isEmpty()
+            pieces.add(Piece(copy(endpoint, full = first, sources = sources), shellSize + partSize, !first))
+            shellSize = utf8Length(idOnly.toXML()) + wrapperSize
+            part = ArrayList()
+            partSize = 0
+        }
+        mediaSources.forEach { mediaSource ->
+            val mediaSourceSize = utf8Length(mediaSource.toXML())
+            if (part.isNotEmpty() && shellSize + partSize + mediaSourceSize > budget) {
+                addPiece()
+            }
+            part.add(mediaSource)
+            partSize += mediaSourceSize
+        }
+        addPiece()
+        return pieces
+    }
+
+    private fun pieces(relay: Colibri2Relay, budget: Int): List<Piece> {
+        val relayEndpoints = relay.endpoints?.endpoints.orEmpty()
+        val withoutEndpoints = copy(relay, full = true, endpoints = null)
+        val idOnly = copy(relay, full = false, endpoints = null)
+        val wrapperSize = utf8Length(Endpoints.getBuilder().build().toXML())
+        val endpointBudget = budget - wrapperSize - utf8Length(withoutEndpoints.toXML())
+
+        val endpointPieces = relayEndpoints.flatMap { pieces(it, endpointBudget) }
+        val size = utf8Length(withoutEndpoints.toXML()) + wrapperSize + endpointPieces.sumOf { it.size }
+        if (size <= budget || endpointPieces.size < 2) {
+            return listOf(Piece(relay, size, false))
+        }
+
+        val pieces = ArrayList<Piece>()
+        var shellSize = utf8Length(withoutEndpoints.toXML()) + wrapperSize
+        var part = ArrayList<Colibri2Endpoint>()
+        var partSize = 0
+        fun addPiece() {
+            val endpoints = Endpoints.getBuilder().apply { part.forEach { addEndpoint(it) } }.build()
+            val first = pieces.isEmpty()
+            pieces.add(Piece(copy(relay, full = first, endpoints = endpoints), shellSize + partSize, !first))
+            shellSize = utf8Length(idOnly.toXML()) + wrapperSize
+            part = ArrayList()
+            partSize = 0
+        }
+        endpointPieces.forEach { piece ->
+            if (part.isNotEmpty() && (shellSize + partSize + piece.size > budget || piece.continuation)) {
+                addPiece()
+            }
+            part.add(piece.entity as Colibri2Endpoint)
+            partSize += piece.size
+        }
+        addPiece()
+        return pieces
+    }
+
+    /** Copies [endpoint] with the given [sources], and either all of its other fields or only its ID. */
+    private fun copy(endpoint: Colibri2Endpoint, full: Boolean, sources: Sources?) =
+        Colibri2Endpoint.getBuilder().apply {
+            setId(endpoint.id)
+            setSources(sources)
+            if (full) {
+                copyShared(endpoint)
+                setStatsId(endpoint.statsId)
+                setMucRole(endpoint.mucRole)
+                setForceMute(endpoint.forceMute)
+                setInitialLastN(endpoint.initialLastN)
+                endpoint.capabilities.forEach { addCapability(it.name) }
+            }
+        }.build()
+
+    /** Copies [relay] with the given [endpoints], and either all of its other fields or only its ID. */
+    private fun copy(relay: Colibri2Relay, full: Boolean, endpoints: Endpoints?) =
+        Colibri2Relay.getBuilder().apply {
+            setId(relay.id)
+            setEndpoints(endpoints)
+            if (full) {
+                copyShared(relay)
+                setSources(relay.sources)
+                setMeshId(relay.meshId)
+            }
+        }.build()
+
+    private fun AbstractConferenceEntity.Builder.copyShared(entity: AbstractConferenceEntity) {
+        setCreate(entity.create)
+        setExpire(entity.expire)
+        entity.media.forEach { addMedia(it) }
+        setTransport(entity.transport)
+    }
+
+    private fun utf8Length(xml: CharSequence): Int {
+        var length = 0
+        var i = 0
+        while (i < xml.length) {
+            val c = xml[i]
+            length += when {
+                c.code < 0x80 -> 1
+                c.code < 0x800 -> 2
+                Character.isHighSurrogate(c) -> {
+                    i++
+                    4
+                }
+                else -> 3
+            }
+            i++
+        }
+        return length
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactSources
+
+/**
+ * An index of the sources in a conference, which maps each SSRC to the endpoint, media source and groups it belongs to,
+ * and each source name to its media source.
+ *
+ * The index is updated incrementally, with the sources of one endpoint at a time or with the endpoints of a
+ * [ConferenceModifyIQ] or [ConferenceModifiedIQ]. An endpoint's sources replace its previous ones, like they do in
+ * colibri2. An update that would give an SSRC or a source name to two endpoints, or to two media sources of the same
+ * endpoint, is rejected with a [SourceCollisionException] and leaves the index unchanged.
+ *
+ * Not thread safe.
+ */
+class ConferenceSourceIndex {
+    /** Maps SSRCs to their owner, without boxing. */
+    private val ssrcs = LongObjectMap<SsrcOwner>(256)
+
+    private val names = HashMap<String, MediaSourceOwner>()
+
+    private val endpoints = HashMap<String, IndexedSources>()
+
+    /** The IDs of the endpoints added with each relay, so that they can be removed when the relay expires. */
+    private val relayEndpoints = HashMap<String, MutableSet<String>>()
+
+    val ssrcCount: Int
+        get() = ssrcs.size
+
+    val endpointCount: Int
+        get() = endpoints.size
+
+    /** Returns the owner of [ssrc], or null if no endpoint has it. */
+    fun getSsrcOwner(ssrc: Long): SsrcOwner? = ssrcs[ssrc]
+
+    /** Returns the media source with a source named [name], or null if there is none. */
+    fun getMediaSource(name: String): MediaSourceOwner? = names[name]
+
+    /** Returns the SSRCs of the endpoint with the given ID. */
+    fun getSsrcs(endpointId: String): LongArray = endpoints[endpointId]?.ssrcs?.copyOf() ?: LongArray(0)
+
+    /**
+     * Sets the sources of an endpoint, replacing the ones it had. Null or empty sources remove the endpoint's sources.
+     * @throws SourceCollisionException if one of the SSRCs or source names belongs to another endpoint or media source.
+     */
+    fun setSources(endpointId: String, sources: Sources?) {
+        val mediaSources = sources?.mediaSources?.map { ms ->
+            val groups = ms.ssrcGroups.map { it.semantics to it.sources.map { s -> s.ssrc }.toLongArray() }
+            PendingMediaSource(
+                MediaSourceOwner(endpointId, ms.id, ms.type),
+                ms.sources.map { it.ssrc }.toLongArray(),
+                ms.sources.mapNotNull { it.name },
+                groups
+            )
+        }
+        set(endpointId, mediaSources ?: emptyList())
+    }
+
+    /** Sets the sources of an endpoint from the compact representation, see [setSources]. */
+    fun setSources(endpointId: String, sources: CompactSources?) {
+        val mediaSources = sources?.mediaSources?.map { ms ->
+            PendingMediaSource(
+                MediaSourceOwner(endpointId, ms.id, ms.type),
+                ms.ssrcs(),
+                (0 until ms.sourceCount).mapNotNull { ms.name(it) },
+                (0 until ms.groupCount).map { ms.groupSemantics(it) to ms.groupSsrcs(it) }
+            )
+        }
+        set(endpointId, mediaSources ?: emptyList())
+    }
+
+    /**
+     * Removes the sources of an endpoint, e.g. when it expires.
+     * @return whether the endpoint had any sources.
+     */
+    fun removeEndpoint(endpointId: String): Boolean {
+        val indexed = endpoints.remove(endpointId) ?: return false
+        indexed.ssrcs.forEach { ssrcs.remove(it) }
+        indexed.names.forEach { names.remove(it) }
+        return true
+    }
+
+    /**
+     * Applies the endpoints and relays of a conference-modify IQ: expired endpoints and relays are removed, and
+     * endpoints with sources have them replaced. The endpoints of a relay are indexed with their own IDs. Each
+     * endpoint is applied atomically, in order.
+     */
+    fun apply(iq: ConferenceModifyIQ) {
+        iq.endpoints.forEach { apply(it, null) }
+        iq.relays.forEach { relay ->
+            if (relay.expire) {
+                relayEndpoints.remove(relay.id)?.forEach { removeEndpoint(it) }
+                removeEndpoint(relay.id)
+                return@forEach
+            }
+            relay.sources?.let { setSources(relay.id, it) }
+            relay.endpoints?.endpoints?.forEach { apply(it, relay.id) }
+        }
+    }
+
+    /**
+     * Applies the sources in a conference-modified IQ: the sources of its endpoints, and the bridge's own sources,
+     * which are indexed as those of the endpoint [bridgeId].
+     */
+    @JvmOverloads
+    fun apply(iq: ConferenceModifiedIQ, bridgeId: String = BRIDGE_ID) {
+        iq.endpoints.forEach { apply(it, null) }
+        iq.sources?.let { setSources(bridgeId, it) }
+    }
+
+    private fun apply(endpoint: Colibri2Endpoint, relayId: String?) {
+        if (endpoint.expire) {
+            removeEndpoint(endpoint.id)
+            relayId?.let { relayEndpoints[it]?.remove(endpoint.id) }
+            return
+        }
+        val sources = endpoint.sources ?: return
+        setSources(endpoint.id, sources)
+        if (relayId != null) {
+            relayEndpoints.getOrPut(relayId) { HashSet() }.add(endpoint.id)
+        }
+    }
+
+    private fun set(endpointId: String, mediaSources: List<PendingMediaSource>) {
+        /* Check everything first, so that a collision leaves the index unchanged. */
+        val newSsrcs = LongObjectMap<SsrcOwner>(mediaSources.sumOf { it.ssrcs.size })
+        val newNames = HashMap<String, MediaSourceOwner>()
+        mediaSources.forEach { ms ->
+            ms.ssrcs.forEach { ssrc ->
+                if (ssrc == -1L) return@forEach
+                val semantics = ms.groups.filter { it.second.contains(ssrc) }.map { it.first }
+                val previous = newSsrcs.put(ssrc, SsrcOwner(ms.owner, semantics))
+                if (previous != null && previous.mediaSource != ms.owner) {
+                    throw SourceCollisionException("SSRC $ssrc", previous.mediaSource, ms.owner)
+                }
+                val existing = ssrcs[ssrc]
+                if (existing != null && existing.endpointId != endpointId) {
+                    throw SourceCollisionException("SSRC $ssrc", existing.mediaSource, ms.owner)
+                }
+            }
+            ms.names.forEach { name ->
+                val previous = newNames.put(name, ms.owner)
+                if (previous != null && previous != ms.owner) {
+                    throw SourceCollisionException("Source name $name", previous, ms.owner)
+                }
+                val existing = names[name]
+                if (existing != null && existing.endpointId != endpointId) {
+                    throw SourceCollisionException("Source name $name", existing, ms.owner)
+                }
+            }
+        }
+
+        removeEndpoint(endpointId)
+        if (newSsrcs.size == 0 && newNames.isEmpty()) {
+            return
+        }
+        val indexedSsrcs = LongArray(newSsrcs.size)
+        var i = 0
+        newSsrcs.forEach { ssrc, owner ->
+            ssrcs.put(ssrc, owner)
+            indexedSsrcs[i++] = ssrc
+        }
+        names.putAll(newNames)
+        endpoints[endpointId] = IndexedSources(indexedSsrcs, newNames.keys.toTypedArray())
+    }
+
+    /** The media source of an endpoint. */
+    data class MediaSourceOwner(val endpointId: String, val mediaSourceId: String, val type: MediaType)
+
+    /** The owner of an SSRC: its media source, and the semantics of the groups which contain it. */
+    class SsrcOwner(val mediaSource: MediaSourceOwner, val groupSemantics: List<String>) {
+        val endpointId: String
+            get() = mediaSource.endpointId
+
+        val mediaSourceId: String
+            get() = mediaSource.mediaSourceId
+
+        override fun toString() = "$mediaSource, groups=$groupSemantics"
+    }
+
+    /** Thrown when an SSRC or source name already belongs to another endpoint or media source. */
+    class SourceCollisionException(
+        source: String,
+        val existing: MediaSourceOwner,
+        val rejected: MediaSourceOwner
+    ) : IllegalArgumentException("$source of $rejected already belongs to $existing")
+
+    /** The SSRCs and names of an endpoint which are in the maps, so that they can be removed. */
+    private class IndexedSources(val ssrcs: LongArray, val names: Array<String>)
+
+    private class PendingMediaSource(
+        val owner: MediaSourceOwner,
+        val ssrcs: LongArray,
+        val names: List<String>,
+        val groups: List<Pair<String, LongArray>>
+    )
+
+    companion object {
+        /** The endpoint ID under which [apply] indexes the bridge's own sources by default. */
+        const val BRIDGE_ID = "jvb"
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactEndpoint
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactMedia
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactRelay
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactSources
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactTransport
+import org.jivesoftware.smack.packet.IqData
+import java.util.Collections
+
+/**
+ * The state of a colibri2 conference (which endpoints and relays exist, and their media, transport and sources),
+ * maintained by applying [ConferenceModifyIQ]s and the [ConferenceModifiedIQ]s which answer them as deltas.
+ *
+ * An entity with `create` is added and one with `expire` is removed. Any other entity is an update: its media,
+ * transport and sources, and its other fields when they are present, replace the previous ones. The endpoints of a
+ * relay are applied the same way. A conference `expire` removes everything.
+ *
+ * Entities are stored in their compact form ([CompactEndpoint], [CompactRelay]), so the memory used depends on the
+ * number of entities and sources, and not on the number of IQs applied. Lookups by ID are hash lookups, and
+ * [toConferenceModifyIQ] creates an IQ which creates the whole conference, e.g. to resynchronize a bridge.
+ *
+ * [snapshot] does not copy the endpoints: the snapshot is a read-only view of the map of endpoints, which the state
+ * copies on its first change of the endpoints after a snapshot was taken (copy on write). Applying any number of IQs
+ * between two snapshots therefore copies the map at most once, and applying IQs without taking snapshots never copies
+ * it. The relays, of which there are few, are copied when a snapshot is taken after a change.
+ *
+ * An IQ is checked before any of it is applied, and an IQ which creates an entity that exists, or updates one that
+ * does not, is rejected with an [IllegalArgumentException] and leaves the state unchanged. Expiring an entity which
+ * does not exist is allowed.
+ *
+ * Not thread safe.
+ */
+class ConferenceState {
+    var meetingId: String? = null
+        private set
+
+    var conferenceName: String? = null
+        private set
+
+    var rtcstatsEnabled = ConferenceModifyIQ.RTCSTATS_ENABLED_DEFAULT
+        private set
+
+    /** The last `connects` element, which replaces the previous ones. */
+    var connects: Connects? = null
+        private set
+
+    /** The bridge's own sources, from the last conference-modified which had them. */
+    var bridgeSources: CompactSources? = null
+        private set
+
+    /** The number of sources of all endpoints, relays and relay endpoints. */
+    var sourceCount = 0
+        private set
+
+    /** The endpoints by ID. Shared with the last snapshot if [endpointsShared], and then copied before a change. */
+    private var endpoints = LinkedHashMap<String, CompactEndpoint>()
+
+    private var endpointsShared = false
+
+    /** The number of times the map of endpoints was copied because it was shared with a snapshot. */
+    internal var endpointsCopyCount = 0
+        private set
+
+    private val relays = LinkedHashMap<String, RelayState>()
+
+    /** The snapshot of the current state, if one has been created since the last change. */
+    private var snapshot: Snapshot? = null
+
+    val endpointCount: Int
+        get() = endpoints.size
+
+    val relayCount: Int
+        get() = relays.size
+
+    fun getEndpoint(id: String): CompactEndpoint? = endpoints[id]
+
+    /** Returns the relay with the given ID, including its endpoints, or null. */
+    fun getRelay(id: String): CompactRelay? = relays[id]?.toRelay()
+
+    fun getRelayEndpoint(relayId: String, endpointId: String): CompactEndpoint? =
+        relays[relayId]?.endpoints?.get(endpointId)
+
+    /**
+     * Applies a conference-modify.
+     * @throws IllegalArgumentException if the IQ is for another meeting, or creates an entity which exists or updates
+     * one which does not.
+     */
+    fun apply(iq: ConferenceModifyIQ) {
+        meetingId?.let { require(it == iq.meetingId) { "Meeting ID ${iq.meetingId} does not match $it" } }
+        if (iq.expire) {
+            clear()
+            return
+        }
+        validate(iq)
+
+        meetingId = iq.meetingId
+        iq.conferenceName?.let { conferenceName = it }
+        if (iq.create) {
+            rtcstatsEnabled = iq.isRtcstatsEnabled
+        }
+        iq.connects?.let { connects = it }
+        applyEndpoints(iq)
+        iq.relays.forEach { apply(it) }
+        snapshot = null
+    }
+
+    /**
+     * Applies a conference-modified, which updates the transports and sources of existing entities.
+     * @throws IllegalArgumentException if the IQ updates an entity which does not exist.
+     */
+    fun apply(iq: ConferenceModifiedIQ) {
+        validate(iq)
+
+        applyEndpoints(iq)
+        iq.relays.forEach { apply(it) }
+        iq.sources?.let { bridgeSources = CompactSources.from(it) }
+        snapshot = null
+    }
+
+    /** Returns an immutable snapshot of the current state, which shares the endpoints with the state. */
+    fun snapshot(): Snapshot = snapshot ?: Snapshot(
+        meetingId,
+        conferenceName,
+        Collections.unmodifiableMap(endpoints).also { endpointsShared = true },
+        Collections.unmodifiableMap(relays.mapValuesTo(LinkedHashMap<String, CompactRelay>()) { it.value.toRelay() }),
+        bridgeSources,
+        sourceCount
+    ).also { snapshot = it }
+
+    /**
+     * Creates a conference-modify which creates the conference with all of its endpoints and relays.
+     * @throws IllegalStateException if no conference-modify has been applied since the conference was last expired.
+     */
+    fun toConferenceModifyIQ(iqData: IqData): ConferenceModifyIQ {
+        val meetingId = checkNotNull(meetingId) { "There is no conference" }
+        return ConferenceModifyIQ.builder(iqData).apply {
+            setMeetingId(meetingId)
+            setConferenceName(conferenceName)
+            setCreate(true)
+            setRtcstatsEnabled(rtcstatsEnabled)
+            setConnects(connects)
+            endpoints.values.forEach { addEndpoint(merge(null, it, create = true).toEndpoint()) }
+            relays.values.forEach { addRelay(it.toRelay(create = true).toRelay()) }
+        }.build()
+    }
+
+    private fun clear() {
+        meetingId = null
+        conferenceName = null
+        rtcstatsEnabled = ConferenceModifyIQ.RTCSTATS_ENABLED_DEFAULT
+        connects = null
+        bridgeSources = null
+        sourceCount = 0
+        if (endpointsShared) {
+            endpoints = LinkedHashMap()
+            endpointsShared = false
+        } else {
+            endpoints.clear()
+        }
+        relays.clear()
+        snapshot = null
+    }
+
+    private fun validate(iq: AbstractConferenceModificationIQ<*>) {
+        validate(iq.endpoints, "Endpoint") { endpoints.containsKey(it) }
+        validate(iq.relays, "Relay") { relays.containsKey(it) }
+        iq.relays.forEach { relay ->
+            val relayEndpoints = relay.endpoints?.endpoints ?: return@forEach
+            if (relay.expire) return@forEach
+            val existing = if (relay.create) null else relays[relay.id]?.endpoints
+            validate(relayEndpoints, "Endpoint of relay ${relay.id}") { existing?.containsKey(it) == true }
+        }
+    }
+
+    /** Checks the creates and updates of [entities], which are applied in order to the entities which [exist]. */
+    private fun validate(entities: List<AbstractConferenceEntity>, kind: String, exists: (String) -> Boolean) {
+        val changed = HashMap<String, Boolean>()
+        entities.forEach { entity ->
+            val present = changed[entity.id] ?: exists(entity.id)
+            when {
+                entity.expire -> changed[entity.id] = false
+                entity.create -> {
+                    require(!present) { "$kind ${entity.id} already exists" }
+                    changed[entity.id] = true
+                }
+                else -> require(present) { "$kind ${entity.id} does not exist" }
+            }
+        }
+    }
+
+    private fun applyEndpoints(iq: AbstractConferenceModificationIQ<*>) {
+        if (iq.endpoints.isEmpty()) {
+            return
+        }
+        if (endpointsShared) {
+            endpoints = LinkedHashMap(endpoints)
+            endpointsShared = false
+            endpointsCopyCount++
+        }
+        iq.endpoints.forEach { apply(it, endpoints) }
+    }
+
+    private fun apply(endpoint: Colibri2Endpoint, endpoints: MutableMap<String, CompactEndpoint>) {
+        if (endpoint.expire) {
+            endpoints.remove(endpoint.id)?.let { sourceCount -= countSources(it.sources) }
+            return
+        }
+        val existing = if (endpoint.create) null else endpoints[endpoint.id]
+        val merged = merge(existing, CompactEndpoint.from(endpoint))
+        endpoints.put(endpoint.id, merged)?.let { sourceCount -= countSources(it.sources) }
+        sourceCount += countSources(merged.sources)
+    }
+
+    private fun apply(relay: Colibri2Relay) {
+        if (relay.expire) {
+            relays.remove(relay.id)?.let { sourceCount -= it.sourceCount() }
+            return
+        }
+        val update = CompactRelay(
+            relay.id,
+            media = relay.media.map { CompactMedia.from(it) },
+            transport = relay.transport?.let { CompactTransport.from(it) },
+            sources = relay.sources?.let { CompactSources.from(it) },
+            meshId = relay.meshId
+        )
+        val existing = if (relay.create) null else relays[relay.id]
+        if (existing != null) {
+            sourceCount -= countSources(existing.relay.sources)
+            existing.update(merge(existing.relay, update))
+        }
+        val state = existing ?: RelayState(merge(null, update)).also { relays[relay.id] = it }
+        sourceCount += countSources(state.relay.sources)
+        relay.endpoints?.endpoints?.forEach { apply(it, state.endpoints) }
+        state.update(state.relay)
+    }
+
+    /** The state of a relay, with its endpoints by ID. */
+    private class RelayState(relay: CompactRelay) {
+        /** The relay, without its endpoints. */
+        var relay = relay
+            private set
+
+        /** The endpoints of the relay. [update] must be called after changing them. */
+        val endpoints = LinkedHashMap<String, CompactEndpoint>()
+
+        /** The relay with its endpoints, created when first needed after a change. */
+        private var materialized: CompactRelay? = null
+
+        fun update(relay: CompactRelay) {
+            this.relay = relay
+            materialized = null
+        }
+
+        fun sourceCount() = countSources(relay.sources) + endpoints.values.sumOf { countSources(it.sources) }
+
+        fun toRelay(create: Boolean = false): CompactRelay {
+            if (!create) {
+                materialized?.let { return it }
+            }
+            return merge(
+                null,
+                relay,
+                create,
+                endpoints.values.map { if (create) merge(null, it, create = true) else it }.ifEmpty { null }
+            ).also {
+                if (!create) materialized = it
+            }
+        }
+    }
+
+    /** An immutable snapshot of the state of a conference. */
+    class Snapshot internal constructor(
+        val meetingId: String?,
+        val conferenceName: String?,
+        /** The endpoints by ID, in the order in which they were created. */
+        val endpoints: Map<String, CompactEndpoint>,
+        /** The relays by ID, with their endpoints, in the order in which they were created. */
+        val relays: Map<String, CompactRelay>,
+        val bridgeSources: CompactSources?,
+        val sourceCount: Int
+    ) {
+        fun getEndpoint(id: String): CompactEndpoint? = endpoints[id]
+
+        fun getRelay(id: String): CompactRelay? = relays[id]
+
+        override fun toString() = "Conference[meetingId=$meetingId, endpoints=${endpoints.size}, " +
+            "relays=${relays.size}, sources=$sourceCount]"
+    }
+
+    private companion object {
+        fun countSources(sources: CompactSources?) = sources?.mediaSources?.sumOf { it.sourceCount } ?: 0
+
+        /** Applies [update] to [existing], or creates a new endpoint if [existing] is null. */
+        fun merge(existing: CompactEndpoint?, update: CompactEndpoint, create: Boolean = false): CompactEndpoint {
+            val forceMute = if (update.forceMute || existing == null) update else existing
+            return CompactEndpoint(
+                update.id,
+                create,
+                AbstractConferenceEntity.EXPIRE_DEFAULT,
+                update.media.ifEmpty { existing?.media.orEmpty() },
+                update.transport ?: existing?.transport,
+                update.sources ?: existing?.sources,
+                update.statsId ?: existing?.statsId,
+                update.mucRole ?: existing?.mucRole,
+                forceMute.forceMute,
+                forceMute.forceMuteAudio,
+                forceMute.forceMuteVideo,
+                if (update.initialLastN != CompactEndpoint.NO_INITIAL_LAST_N || existing == null) {
+                    update.initialLastN
+                } else {
+                    existing.initialLastN
+                },
+                update.capabilities.ifEmpty { existing?.capabilities.orEmpty() }
+            )
+        }
+
+        /** Applies [update] to [existing], or creates a new relay if [existing] is null. */
+        fun merge(
+            existing: CompactRelay?,
+            update: CompactRelay,
+            create: Boolean = false,
+            endpoints: List<CompactEndpoint>? = null
+        ) = CompactRelay(
+            update.id,
+            create,
+            AbstractConferenceEntity.EXPIRE_DEFAULT,
+            update.media.ifEmpty { existing?.media.orEmpty() },
+            update.transport ?: existing?.transport,
+            update.sources ?: existing?.sources,
+            update.meshId ?: existing?.meshId,
+            endpoints
+        )
+    }
+}
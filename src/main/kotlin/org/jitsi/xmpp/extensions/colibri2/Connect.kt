@@ -17,12 +17,15 @@ package org.jitsi.xmpp.extensions.colibri2
 
 import org.jitsi.xmpp.extensions.AbstractPacketExtension
 import org.jitsi.xmpp.extensions.DefaultPacketExtensionProvider
+import org.jitsi.xmpp.extensions.EnumDecoder
+import org.jivesoftware.smack.packet.ExtensionElement
 import org.jivesoftware.smack.packet.XmlEnvironment
 import org.jivesoftware.smack.parsing.SmackParsingException
 import org.jivesoftware.smack.xml.XmlPullParser
 import org.jivesoftware.smack.xml.XmlPullParserException
 import java.io.IOException
 import java.net.URI
+import java.util.Collections
 
 class Connect(
     val url: URI,
@@ -65,30 +68,73 @@ class Connect(
     }
     fun removePing() = getPing()?.let { removeChildExtension(it) }
 
-    fun getExports(): List<String> = getChildExtension(Exports::class.java)?.getNames() ?: emptyList()
-    fun addExport(name: String) {
+    /** The names of the exported sources, in the order in which they were added. A read-only view. */
+    fun getExportNames(): Set<String> = getChildExtension(Exports::class.java)?.getNameSet() ?: emptySet()
+
+    @Deprecated("Use getExportNames()", ReplaceWith("getExportNames().toList()"))
+    fun getExports(): List<String> = getExportNames().toList()
+
+    fun hasExport(name: String) = getChildExtension(Exports::class.java)?.contains(name) ?: false
+
+    /** Adds an export, and returns false if it was already present. */
+    fun addExport(name: String): Boolean {
         val exports = getChildExtension(Exports::class.java) ?: Exports().also { addChildExtension(it) }
-        exports.addExport(name)
+        return exports.add(name)
     }
-    fun setExports(names: List<String>) {
+
+    /** Removes an export, and returns false if it was not present. */
+    fun removeExport(name: String): Boolean = remove(getChildExtension(Exports::class.java), name)
+
+    fun setExports(names: Collection<String>) {
         getChildExtension(Exports::class.java)?.let { removeChildExtension(it) }
         if (names.isNotEmpty()) {
             addChildExtension(Exports(names))
         }
     }
 
-    fun getRequests(): List<String> = getChildExtension(Requests::class.java)?.getNames() ?: emptyList()
-    fun addRequest(name: String) {
+    /** Keeps binary compatibility with callers compiled against the List signature. */
+    @Deprecated("Use setExports(Collection)", level = DeprecationLevel.HIDDEN)
+    fun setExports(names: List<String>) = setExports(names as Collection<String>)
+
+    /** The names of the requested sources, in the order in which they were added. A read-only view. */
+    fun getRequestNames(): Set<String> = getChildExtension(Requests::class.java)?.getNameSet() ?: emptySet()
+
+    @Deprecated("Use getRequestNames()", ReplaceWith("getRequestNames().toList()"))
+    fun getRequests(): List<String> = getRequestNames().toList()
+
+    fun hasRequest(name: String) = getChildExtension(Requests::class.java)?.contains(name) ?: false
+
+    /** Adds a request, and returns false if it was already present. */
+    fun addRequest(name: String): Boolean {
         val requests = getChildExtension(Requests::class.java) ?: Requests().also { addChildExtension(it) }
-        requests.addRequest(name)
+        return requests.add(name)
     }
-    fun setRequests(names: List<String>) {
+
+    /** Removes a request, and returns false if it was not present. */
+    fun removeRequest(name: String): Boolean = remove(getChildExtension(Requests::class.java), name)
+
+    fun setRequests(names: Collection<String>) {
         getChildExtension(Requests::class.java)?.let { removeChildExtension(it) }
         if (names.isNotEmpty()) {
             addChildExtension(Requests(names))
         }
     }
 
+    /** Keeps binary compatibility with callers compiled against the List signature. */
+    @Deprecated("Use setRequests(Collection)", level = DeprecationLevel.HIDDEN)
+    fun setRequests(names: List<String>) = setRequests(names as Collection<String>)
+
+    /** Removes [name] from [container], and the container itself once it is empty, like [setExports]. */
+    private fun remove(container: SourceNames?, name: String): Boolean {
+        if (container == null || !container.remove(name)) {
+            return false
+        }
+        if (container.isEmpty()) {
+            removeChildExtension(container)
+        }
+        return true
+    }
+
     class HttpHeader(val name: String, val value: String) : AbstractPacketExtension(NAMESPACE, ELEMENT) {
         init {
             setAttribute(NAME_ATTR_NAME, name)
@@ -115,14 +161,81 @@ class Connect(
         }
     }
 
+    /**
+     * A container of source names. The names are kept as child elements, like those of any other extension, and
+     * indexed by name in an insertion-ordered map: each name occurs once, and lookups and additions take constant
+     * time.
+     *
+     * The index follows [addChildExtension] and [removeChildExtension], so the list returned by [getChildExtensions]
+     * must not be modified directly.
+     */
+    abstract class SourceNames(element: String) : AbstractPacketExtension(NAMESPACE, element) {
+        private val items = LinkedHashMap<String, ExtensionElement>()
+
+        private val namesView: Set<String> = Collections.unmodifiableSet(items.keys)
+
+        /** The names, in the order in which they were added. A read-only view. */
+        fun getNameSet(): Set<String> = namesView
+
+        @Deprecated("Use getNameSet()", ReplaceWith("getNameSet().toList()"))
+        fun getNames(): List<String> = namesView.toList()
+
+        operator fun contains(name: String) = items.containsKey(name)
+
+        /** Adds [name], and returns false if it was already present. */
+        fun add(name: String): Boolean {
+            if (contains(name)) {
+                return false
+            }
+            addChildExtension(createItem(name))
+            return true
+        }
+
+        /** Removes [name], and returns false if it was not present. */
+        fun remove(name: String): Boolean = items[name]?.let { removeChildExtension(it) } ?: false
+
+        fun isEmpty() = items.isEmpty()
+
+        /** Creates the child element for [name]. */
+        protected abstract fun createItem(name: String): ExtensionElement
+
+        /** Returns the name of [child] if it is an item of this container, or null. */
+        protected abstract fun getItemName(child: ExtensionElement): String?
+
+        /** Adds [childExtension], unless it is an item whose name is already present. */
+        override fun addChildExtension(childExtension: ExtensionElement) {
+            val name = getItemName(childExtension)
+            if (name != null && items.putIfAbsent(name, childExtension) != null) {
+                return
+            }
+            super.addChildExtension(childExtension)
+        }
+
+        override fun removeChildExtension(childExtension: ExtensionElement?): Boolean {
+            val removed = super.removeChildExtension(childExtension)
+            val name = childExtension?.let { getItemName(it) }
+            if (removed && name != null && items[name] === childExtension) {
+                items.remove(name)
+            }
+            return removed
+        }
+    }
+
     /** A container for the source names this connection should export (send out). */
-    class Exports() : AbstractPacketExtension(NAMESPACE, ELEMENT) {
-        constructor(names: List<String>) : this() {
-            names.forEach { addChildExtension(Export(it)) }
+    class Exports() : SourceNames(ELEMENT) {
+        constructor(names: Collection<String>) : this() {
+            names.forEach { add(it) }
         }
 
-        fun getNames(): List<String> = getChildExtensionsOfType(Export::class.java).map { it.name }
-        fun addExport(name: String) = addChildExtension(Export(name))
+        /** Keeps binary compatibility with callers compiled against the List signature. */
+        @Deprecated("Use the Collection constructor", level = DeprecationLevel.HIDDEN)
+        constructor(names: List<String>) : this(names as Collection<String>)
+
+        fun addExport(name: String) = add(name)
+
+        override fun createItem(name: String) = Export(name)
+
+        override fun getItemName(child: ExtensionElement) = (child as? Export)?.name
 
         companion object {
             const val ELEMENT = "exports"
@@ -145,13 +258,20 @@ class Connect(
     }
 
     /** A container for the source names this connection requests (wants to receive). */
-    class Requests() : AbstractPacketExtension(NAMESPACE, ELEMENT) {
-        constructor(names: List<String>) : this() {
-            names.forEach { addChildExtension(Request(it)) }
+    class Requests() : SourceNames(ELEMENT) {
+        constructor(names: Collection<String>) : this() {
+            names.forEach { add(it) }
         }
 
-        fun getNames(): List<String> = getChildExtensionsOfType(Request::class.java).map { it.name }
-        fun addRequest(name: String) = addChildExtension(Request(name))
+        /** Keeps binary compatibility with callers compiled against the List signature. */
+        @Deprecated("Use the Collection constructor", level = DeprecationLevel.HIDDEN)
+        constructor(names: List<String>) : this(names as Collection<String>)
+
+        fun addRequest(name: String) = add(name)
+
+        override fun createItem(name: String) = Request(name)
+
+        override fun getItemName(child: ExtensionElement) = (child as? Request)?.name
 
         companion object {
             const val ELEMENT = "requests"
@@ -174,13 +294,29 @@ class Connect(
     }
 
     enum class Protocols(val value: String) {
-        MEDIAJSON("mediajson")
+        MEDIAJSON("mediajson");
+
+        companion object {
+            private val decoder = EnumDecoder.of(Protocols::class.java, { it.value }, true)
+
+            /** Decodes a protocol, ignoring case. Throws [IllegalArgumentException] for unknown values. */
+            @JvmStatic
+            fun parse(s: String): Protocols = decoder.decodeOrThrow(s)
+        }
     }
 
     enum class Types(val value: String) {
         RECORDER("recorder"),
         TRANSCRIBER("transcriber"),
-        TRANSLATOR("translator")
+        TRANSLATOR("translator");
+
+        companion object {
+            private val decoder = EnumDecoder.of(Types::class.java, { it.value }, true)
+
+            /** Decodes a type, ignoring case. Throws [IllegalArgumentException] for unknown values. */
+            @JvmStatic
+            fun parse(s: String): Types = decoder.decodeOrThrow(s)
+        }
     }
 
     companion object {
@@ -212,14 +348,14 @@ class ConnectProvider : DefaultPacketExtensionProvider<Connect>(Connect::class.j
         val protocolStr = parser.getAttributeValue("", Connect.PROTOCOL_ATTR_NAME)
             ?: throw SmackParsingException.RequiredAttributeMissingException("Missing 'protocol' attribute")
         val protocol = try {
-            Connect.Protocols.valueOf(protocolStr.uppercase())
+            Connect.Protocols.parse(protocolStr)
         } catch (e: Exception) {
             throw SmackParsingException("Invalid 'protocol': $protocolStr")
         }
         val typeStr = parser.getAttributeValue("", Connect.TYPE_ATTR_NAME)
             ?: throw SmackParsingException.RequiredAttributeMissingException("Missing 'type' attribute")
         val type = try {
-            Connect.Types.valueOf(typeStr.uppercase())
+            Connect.Types.parse(typeStr)
         } catch (e: Exception) {
             throw SmackParsingException("Invalid 'type': $typeStr")
         }
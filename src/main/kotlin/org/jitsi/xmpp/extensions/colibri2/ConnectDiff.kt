@@ -0,0 +1,97 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import java.net.URI
+
+/**
+ * The difference between two snapshots of a [Connect]'s exports and requests: the source names which were added and
+ * removed. The exports and requests are sets, so the diff is computed with one lookup per name.
+ *
+ * The protocol has no incremental form for exports and requests, so a changed [Connect] is still sent in full. The
+ * diff lets the receiving side update its state (see [applyTo]) without replacing all of it.
+ */
+class ConnectDiff private constructor(
+    val addedExports: Set<String>,
+    val removedExports: Set<String>,
+    val addedRequests: Set<String>,
+    val removedRequests: Set<String>
+) {
+    val isEmpty: Boolean
+        get() = addedExports.isEmpty() && removedExports.isEmpty() && addedRequests.isEmpty() &&
+            removedRequests.isEmpty()
+
+    /** Applies this diff to [connect], which is expected to match the old snapshot. */
+    fun applyTo(connect: Connect) {
+        removedExports.forEach { connect.removeExport(it) }
+        addedExports.forEach { connect.addExport(it) }
+        removedRequests.forEach { connect.removeRequest(it) }
+        addedRequests.forEach { connect.addRequest(it) }
+    }
+
+    override fun toString() = "ConnectDiff[exports +$addedExports -$removedExports, " +
+        "requests +$addedRequests -$removedRequests]"
+
+    companion object {
+        /** Computes the difference from [old] to [new]. Null is treated as no exports and no requests. */
+        @JvmStatic
+        fun diff(old: Connect?, new: Connect?): ConnectDiff {
+            val oldExports = old?.getExportNames().orEmpty()
+            val newExports = new?.getExportNames().orEmpty()
+            val oldRequests = old?.getRequestNames().orEmpty()
+            val newRequests = new?.getRequestNames().orEmpty()
+
+            return ConnectDiff(
+                newExports.minusAll(oldExports),
+                oldExports.minusAll(newExports),
+                newRequests.minusAll(oldRequests),
+                oldRequests.minusAll(newRequests)
+            )
+        }
+
+        /**
+         * Computes the difference for each connect in [old] or [new], matched by URL. Connects whose exports and
+         * requests did not change are omitted.
+         */
+        @JvmStatic
+        fun diff(old: Connects?, new: Connects?): Map<URI, ConnectDiff> {
+            val oldByUrl = LinkedHashMap<URI, Connect>()
+            old?.getConnects()?.forEach { oldByUrl[it.url] = it }
+
+            val diffs = LinkedHashMap<URI, ConnectDiff>()
+            new?.getConnects()?.forEach { connect ->
+                val diff = diff(oldByUrl.remove(connect.url), connect)
+                if (!diff.isEmpty) diffs[connect.url] = diff
+            }
+            oldByUrl.forEach { (url, connect) ->
+                val diff = diff(connect, null)
+                if (!diff.isEmpty) diffs[url] = diff
+            }
+            return diffs
+        }
+
+        /**
+         * The elements of this set which are not in [other], in order, as a copy which does not follow later changes
+         * to the [Connect]. [Set.minus] would copy [other] first.
+         */
+        private fun Set<String>.minusAll(other: Set<String>): Set<String> {
+            if (other.isEmpty()) return LinkedHashSet(this)
+            val result = LinkedHashSet<String>()
+            forEach { if (it !in other) result.add(it) }
+            return result
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+/**
+ * A hash map with primitive `long` keys (e.g. SSRCs), using open addressing with linear probing, so that neither the
+ * keys nor the entries are boxed. Null values are not supported. Not thread safe.
+ */
+internal class LongObjectMap<V : Any>(expectedSize: Int = 16) {
+    private var keys: LongArray
+    private var values: Array<Any?>
+    private var mask: Int
+
+    var size = 0
+        private set
+
+    init {
+        val capacity = capacityFor(expectedSize)
+        keys = LongArray(capacity)
+        values = arrayOfNulls(capacity)
+        mask = capacity - 1
+    }
+
+    operator fun get(key: Long): V? {
+        var i = slot(key)
+        while (true) {
+            val value = values[i] ?: return null
+            if (keys[i] == key) {
+                @Suppress("UNCHECKED_CAST")
+                return value as V
+            }
+            i = (i + 1) and mask
+        }
+    }
+
+    fun containsKey(key: Long) = get(key) != null
+
+    /** Associates [value] with [key], and returns the previous value, if any. */
+    fun put(key: Long, value: V): V? {
+        var i = slot(key)
+        while (true) {
+            val existing = values[i]
+            if (existing == null) {
+                keys[i] = key
+                values[i] = value
+                if (++size > values.size * 3 / 4) {
+                    rehash(values.size * 2)
+                }
+                return null
+            }
+            if (keys[i] == key) {
+                values[i] = value
+                @Suppress("UNCHECKED_CAST")
+                return existing as V
+            }
+            i = (i + 1) and mask
+        }
+    }
+
+    /** Removes [key], and returns its value, if any. */
+    fun remove(key: Long): V? {
+        var i = slot(key)
+        while (true) {
+            val existing = values[i] ?: return null
+            if (keys[i] == key) {
+                shiftBack(i)
+                size--
+                @Suppress("UNCHECKED_CAST")
+                return existing as V
+            }
+            i = (i + 1) and mask
+        }
+    }
+
+    fun clear() {
+        values.fill(null)
+        size = 0
+    }
+
+    /** Calls [action] for each entry, in no particular order. */
+    fun forEach(action: (Long, V) -> Unit) {
+        for (i in values.indices) {
+            @Suppress("UNCHECKED_CAST")
+            val value = values[i] as V? ?: continue
+            action(keys[i], value)
+        }
+    }
+
+    /** Fills the gap left at [gap] by moving back entries which were displaced past it. */
+    private fun shiftBack(gap: Int) {
+        var free = gap
+        var i = (gap + 1) and mask
+        while (true) {
+            values[i] ?: break
+            val home = slot(keys[i])
+            /* Move the entry at i to the free slot unless its home slot lies cyclically in (free, i]. */
+            val moves = if (free <= i) home <= free || home > i else home <= free && home > i
+            if (moves) {
+                keys[free] = keys[i]
+                values[free] = values[i]
+                free = i
+            }
+            i = (i + 1) and mask
+        }
+        values[free] = null
+    }
+
+    private fun rehash(capacity: Int) {
+        val oldKeys = keys
+        val oldValues = values
+        keys = LongArray(capacity)
+        values = arrayOfNulls(capacity)
+        mask = capacity - 1
+        for (j in oldValues.indices) {
+            val value = oldValues[j] ?: continue
+            var i = slot(oldKeys[j])
+            while (values[i] != null) {
+                i = (i + 1) and mask
+            }
+            keys[i] = oldKeys[j]
+            values[i] = value
+        }
+    }
+
+    private fun slot(key: Long): Int {
+        val h = key * -0x61c8864680b583ebL
+        return (h xor (h ushr 32)).toInt() and mask
+    }
+
+    private companion object {
+        fun capacityFor(expectedSize: Int): Int {
+            var capacity = 16
+            while (capacity * 3 / 4 < expectedSize) {
+                capacity *= 2
+            }
+            return capacity
+        }
+    }
+}
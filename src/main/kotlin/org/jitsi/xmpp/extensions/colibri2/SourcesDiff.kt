@@ -0,0 +1,205 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import org.jitsi.xmpp.extensions.AbstractPacketExtension
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+
+/**
+ * The difference between two snapshots of an endpoint's [Sources]: the media sources which were added, removed or
+ * changed, matched by ID. Within a changed media source, sources are matched by SSRC (or by RID if they have no
+ * SSRC), and groups by their semantics and SSRCs.
+ *
+ * [toSources] creates the corresponding update, which only contains the media sources that changed. It is meant to
+ * be applied one media source at a time (see [applyTo]), unlike a full `sources` element, which replaces all of an
+ * endpoint's sources.
+ */
+class SourcesDiff private constructor(
+    /** The media sources which were added. */
+    val added: List<MediaSource>,
+    /** The media sources which were removed, as they were before. */
+    val removed: List<MediaSource>,
+    /** The media sources which exist in both snapshots and changed. */
+    val changed: List<MediaSourceDiff>
+) {
+    val isEmpty: Boolean
+        get() = added.isEmpty() && removed.isEmpty() && changed.isEmpty()
+
+    /**
+     * Creates the update for this diff: the new version of each added or changed media source, and an empty media
+     * source (without sources or groups) for each removed one.
+     */
+    fun toSources(): Sources = Sources.getBuilder().apply {
+        added.forEach { addMediaSource(it) }
+        changed.forEach { addMediaSource(it.new) }
+        removed.forEach { addMediaSource(MediaSource.getBuilder().setType(it.type).setId(it.id).build()) }
+    }.build()
+
+    override fun toString() = "SourcesDiff[added=${added.map { it.id }}, removed=${removed.map { it.id }}, " +
+        "changed=$changed]"
+
+    /** The difference between two versions of the media source with the same ID. */
+    class MediaSourceDiff internal constructor(
+        val old: MediaSource,
+        val new: MediaSource,
+        val addedSources: List<SourcePacketExtension>,
+        val removedSources: List<SourcePacketExtension>,
+        /** The new versions of the sources whose attributes or children changed. */
+        val changedSources: List<SourcePacketExtension>,
+        val addedGroups: List<SourceGroupPacketExtension>,
+        val removedGroups: List<SourceGroupPacketExtension>
+    ) {
+        /** Whether the type or the synthetic flag of the media source changed. */
+        val attributesChanged: Boolean
+            get() = old.type != new.type || old.isSynthetic != new.isSynthetic
+
+        internal val isEmpty: Boolean
+            get() = !attributesChanged && addedSources.isEmpty() && removedSources.isEmpty() &&
+                changedSources.isEmpty() && addedGroups.isEmpty() && removedGroups.isEmpty()
+
+        override fun toString() = "${new.id}[+${addedSources.size} -${removedSources.size} ~${changedSources.size} " +
+            "groups +${addedGroups.size} -${removedGroups.size}]"
+    }
+
+    companion object {
+        /** Computes the difference from [old] to [new]. Null is treated as no sources. */
+        @JvmStatic
+        fun diff(old: Sources?, new: Sources?): SourcesDiff {
+            val oldMediaSources = old?.mediaSources.orEmpty()
+            val newMediaSources = new?.mediaSources.orEmpty()
+            val oldById = HashMap<String, MediaSource>(oldMediaSources.size * 2)
+            oldMediaSources.forEach { oldById[it.id] = it }
+
+            val added = ArrayList<MediaSource>()
+            val changed = ArrayList<MediaSourceDiff>()
+            newMediaSources.forEach { newMediaSource ->
+                val oldMediaSource = oldById.remove(newMediaSource.id)
+                if (oldMediaSource == null) {
+                    added.add(newMediaSource)
+                } else {
+                    val mediaSourceDiff = diff(oldMediaSource, newMediaSource)
+                    if (!mediaSourceDiff.isEmpty) changed.add(mediaSourceDiff)
+                }
+            }
+            val removed = oldMediaSources.filter { oldById.containsKey(it.id) }
+
+            return SourcesDiff(added, removed, changed)
+        }
+
+        /**
+         * Computes the difference for each endpoint in [old] or [new]. Endpoints whose sources did not change are
+         * omitted.
+         */
+        @JvmStatic
+        fun diff(old: Map<String, Sources?>, new: Map<String, Sources?>): Map<String, SourcesDiff> {
+            val diffs = LinkedHashMap<String, SourcesDiff>()
+            new.forEach { (id, sources) ->
+                val diff = diff(old[id], sources)
+                if (!diff.isEmpty) diffs[id] = diff
+            }
+            old.forEach { (id, sources) ->
+                if (!new.containsKey(id)) {
+                    val diff = diff(sources, null)
+                    if (!diff.isEmpty) diffs[id] = diff
+                }
+            }
+            return diffs
+        }
+
+        /**
+         * Applies an [update] created by [toSources] to [base]: each media source in the update replaces the one
+         * with the same ID, or is added, and an empty one removes it.
+         */
+        @JvmStatic
+        fun applyTo(base: Sources?, update: Sources): Sources {
+            val updates = LinkedHashMap<String, MediaSource>()
+            update.mediaSources.forEach { updates[it.id] = it }
+
+            return Sources.getBuilder().apply {
+                base?.mediaSources?.forEach { mediaSource ->
+                    val replacement = updates.remove(mediaSource.id) ?: mediaSource
+                    if (!replacement.isEmpty()) addMediaSource(replacement)
+                }
+                updates.values.forEach { if (!it.isEmpty()) addMediaSource(it) }
+            }.build()
+        }
+
+        private fun MediaSource.isEmpty() = sources.isEmpty() && ssrcGroups.isEmpty()
+
+        private fun diff(old: MediaSource, new: MediaSource): MediaSourceDiff {
+            val oldSources = HashMap<Any, SourcePacketExtension>(old.sources.size * 2)
+            old.sources.forEach { oldSources[key(it)] = it }
+            val addedSources = ArrayList<SourcePacketExtension>()
+            val changedSources = ArrayList<SourcePacketExtension>()
+            new.sources.forEach { source ->
+                val oldSource = oldSources.remove(key(source))
+                when {
+                    oldSource == null -> addedSources.add(source)
+                    !sameContent(oldSource, source) -> changedSources.add(source)
+                }
+            }
+            val removedSources = oldSources.values.toList()
+
+            val oldGroups = HashMap<Pair<String?, List<Long>>, SourceGroupPacketExtension>()
+            old.ssrcGroups.forEach { oldGroups[key(it)] = it }
+            val addedGroups = new.ssrcGroups.filter { oldGroups.remove(key(it)) == null }
+            val removedGroups = oldGroups.values.toList()
+
+            return MediaSourceDiff(old, new, addedSources, removedSources, changedSources, addedGroups, removedGroups)
+        }
+
+        /** The identity of a source, like [SourcePacketExtension.sourceEquals]. */
+        private fun key(source: SourcePacketExtension): Any = when {
+            source.hasSSRC() -> source.ssrc
+            source.hasRid() -> "rid:" + source.rid
+            else -> "name:" + source.name
+        }
+
+        private fun key(group: SourceGroupPacketExtension) = group.semantics to group.sources.map { it.ssrc }
+
+        /** Compares the attributes and children of two sources with the same identity. */
+        private fun sameContent(a: SourcePacketExtension, b: SourcePacketExtension): Boolean {
+            val names = a.attributeNames
+            if (names.size != b.attributeNames.size ||
+                names.any { a.getAttributeAsString(it) != b.getAttributeAsString(it) }
+            ) {
+                return false
+            }
+            val aChildren = a.childExtensions
+            val bChildren = b.childExtensions
+            if (aChildren.size != bChildren.size) return false
+            for (i in aChildren.indices) {
+                val aChild = aChildren[i]
+                val bChild = bChildren[i]
+                if (aChild is AbstractPacketExtension && bChild is AbstractPacketExtension &&
+                    aChild.elementName == bChild.elementName && aChild.childExtensions.isEmpty() &&
+                    bChild.childExtensions.isEmpty()
+                ) {
+                    /* Parameters and similar leaf elements: compare without rendering them. */
+                    if (aChild.attributeNames.size != bChild.attributeNames.size || aChild.text != bChild.text ||
+                        aChild.attributeNames.any { aChild.getAttributeAsString(it) != bChild.getAttributeAsString(it) }
+                    ) {
+                        return false
+                    }
+                } else if (aChild.toXML().toString() != bChild.toXML().toString()) {
+                    return false
+                }
+            }
+            return true
+        }
+    }
+}
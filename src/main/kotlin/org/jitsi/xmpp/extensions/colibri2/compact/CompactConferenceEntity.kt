@@ -0,0 +1,47 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
+
+/**
+ * The fields shared by [CompactEndpoint] and [CompactRelay], see [AbstractConferenceEntity].
+ */
+abstract class CompactConferenceEntity internal constructor(
+    val id: String,
+    val create: Boolean,
+    val expire: Boolean,
+    media: List<CompactMedia>,
+    val transport: CompactTransport?,
+    val sources: CompactSources?
+) {
+    val media: List<CompactMedia> = media.toList()
+
+    /** Sets the shared fields of [builder]. */
+    protected fun toBuilder(builder: AbstractConferenceEntity.Builder) {
+        builder.setId(id)
+        builder.setCreate(create)
+        builder.setExpire(expire)
+        media.forEach { builder.addMedia(it.toMedia()) }
+        transport?.let { builder.setTransport(it.toTransport()) }
+        sources?.let { builder.setSources(it.toSources()) }
+    }
+
+    protected fun sharedFieldsEqual(other: CompactConferenceEntity) = id == other.id && create == other.create &&
+        expire == other.expire && media == other.media && transport == other.transport && sources == other.sources
+
+    override fun hashCode() = id.hashCode()
+}
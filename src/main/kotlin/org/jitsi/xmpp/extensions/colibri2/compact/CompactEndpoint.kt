@@ -0,0 +1,96 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.ForceMute
+import org.jivesoftware.smackx.muc.MUCRole
+
+/**
+ * An immutable colibri2 `endpoint` element.
+ */
+class CompactEndpoint @JvmOverloads constructor(
+    id: String,
+    create: Boolean = AbstractConferenceEntity.CREATE_DEFAULT,
+    expire: Boolean = AbstractConferenceEntity.EXPIRE_DEFAULT,
+    media: List<CompactMedia> = emptyList(),
+    transport: CompactTransport? = null,
+    sources: CompactSources? = null,
+    val statsId: String? = null,
+    val mucRole: MUCRole? = null,
+    /** Whether there is a `force-mute` element. */
+    val forceMute: Boolean = false,
+    val forceMuteAudio: Boolean = ForceMute.AUDIO_DEFAULT,
+    val forceMuteVideo: Boolean = ForceMute.VIDEO_DEFAULT,
+    /** The initial last-n, or [NO_INITIAL_LAST_N]. */
+    val initialLastN: Int = NO_INITIAL_LAST_N,
+    capabilities: List<String> = emptyList()
+) : CompactConferenceEntity(id, create, expire, media, transport, sources) {
+    private val capabilityNames: Array<String> = capabilities.toTypedArray()
+
+    val capabilities: List<String>
+        get() = capabilityNames.asList()
+
+    fun hasCapability(name: String) = capabilityNames.contains(name)
+
+    /** Creates the equivalent [Colibri2Endpoint]. */
+    fun toEndpoint(): Colibri2Endpoint = Colibri2Endpoint.getBuilder().apply {
+        toBuilder(this)
+        statsId?.let { setStatsId(it) }
+        mucRole?.let { setMucRole(it) }
+        if (forceMute) setForceMute(forceMuteAudio, forceMuteVideo)
+        if (initialLastN != NO_INITIAL_LAST_N) setInitialLastN(initialLastN)
+        capabilityNames.forEach { addCapability(it) }
+    }.build()
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        return other is CompactEndpoint && sharedFieldsEqual(other) && statsId == other.statsId &&
+            mucRole == other.mucRole && forceMute == other.forceMute && forceMuteAudio == other.forceMuteAudio &&
+            forceMuteVideo == other.forceMuteVideo && initialLastN == other.initialLastN &&
+            capabilityNames.contentEquals(other.capabilityNames)
+    }
+
+    override fun hashCode() = super.hashCode()
+
+    override fun toString() = "Endpoint[id=$id, media=$media, transport=$transport, sources=$sources]"
+
+    companion object {
+        const val NO_INITIAL_LAST_N = -1
+
+        /** Creates the compact representation of [endpoint]. */
+        @JvmStatic
+        fun from(endpoint: Colibri2Endpoint): CompactEndpoint {
+            val forceMute = endpoint.forceMute
+            return CompactEndpoint(
+                endpoint.id,
+                endpoint.create,
+                endpoint.expire,
+                endpoint.media.map { CompactMedia.from(it) },
+                endpoint.transport?.let { CompactTransport.from(it) },
+                endpoint.sources?.let { CompactSources.from(it) },
+                endpoint.statsId,
+                endpoint.mucRole,
+                forceMute != null,
+                forceMute?.audio ?: ForceMute.AUDIO_DEFAULT,
+                forceMute?.video ?: ForceMute.VIDEO_DEFAULT,
+                endpoint.initialLastN?.value ?: NO_INITIAL_LAST_N,
+                endpoint.capabilities.map { it.name }
+            )
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.ObjectNode
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.colibri.json.JSONDeserializer
+import org.jitsi.xmpp.extensions.colibri.json.JSONSerializer
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.ForceMute
+import org.jitsi.xmpp.extensions.colibri2.InitialLastN
+import org.jitsi.xmpp.extensions.colibri2.Media
+import org.jitsi.xmpp.extensions.colibri2.MediaSource
+import org.jitsi.xmpp.extensions.colibri2.Sctp
+import org.jitsi.xmpp.extensions.colibri2.Sources
+import org.jitsi.xmpp.extensions.colibri2.Transport
+import org.jitsi.xmpp.extensions.colibri2.json.Colibri2JSONSerializer
+import org.jitsi.xmpp.extensions.jingle.ExtmapAllowMixedPacketExtension
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jitsi.xmpp.extensions.jingle.ParameterPacketExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+import org.jivesoftware.smackx.muc.MUCRole
+
+/**
+ * Converts the compact colibri2 model to and from the colibri2 JSON format produced by [Colibri2JSONSerializer],
+ * without creating the [org.jitsi.xmpp.extensions.AbstractPacketExtension] tree for the sources.
+ */
+object CompactJson {
+    /** The name of the JSON pair with the parameters of a source. */
+    private const val PARAMETERS = ParameterPacketExtension.ELEMENT + "s"
+
+    private val factory = JsonNodeFactory.instance
+
+    @JvmStatic
+    fun serialize(sources: CompactSources): ArrayNode = factory.arrayNode().apply {
+        sources.mediaSources.forEach { add(serialize(it)) }
+    }
+
+    private fun serialize(mediaSource: CompactMediaSource): ObjectNode = factory.objectNode().apply {
+        put(MediaSource.TYPE_ATTR_NAME, mediaSource.type.toString())
+        put(MediaSource.ID_NAME, mediaSource.id)
+        if (mediaSource.synthetic) put(MediaSource.SYNTHETIC_ATTR_NAME, true)
+        if (mediaSource.sourceCount > 0) {
+            set<JsonNode>(
+                Colibri2JSONSerializer.SOURCES,
+                factory.arrayNode().apply {
+                    for (i in 0 until mediaSource.sourceCount) add(serializeSource(mediaSource, i))
+                }
+            )
+        }
+        if (mediaSource.groupCount > 0) {
+            set<JsonNode>(
+                Colibri2JSONSerializer.SOURCE_GROUPS,
+                factory.arrayNode().apply {
+                    for (g in 0 until mediaSource.groupCount) add(serializeGroup(mediaSource, g))
+                }
+            )
+        }
+    }
+
+    private fun serializeSource(mediaSource: CompactMediaSource, i: Int): JsonNode {
+        val name = mediaSource.name(i)
+        val rid = mediaSource.rid(i)
+        /* Like JSONSerializer.serializeSource, use the plain SSRC when there's nothing else to send. */
+        if (name == null && rid == null && mediaSource.parameterCount(i) == 0) {
+            return factory.numberNode(mediaSource.ssrc(i))
+        }
+        return factory.objectNode().apply {
+            put(SourcePacketExtension.SSRC_ATTR_NAME, mediaSource.ssrc(i))
+            name?.let { put(SourcePacketExtension.NAME_ATTR_NAME, it) }
+            mediaSource.videoType(i)?.let { put(SourcePacketExtension.VIDEO_TYPE_ATTR_NAME, it) }
+            rid?.let { put(SourcePacketExtension.RID_ATTR_NAME, it) }
+            if (mediaSource.parameterCount(i) > 0) {
+                set<JsonNode>(
+                    PARAMETERS,
+                    factory.objectNode().apply {
+                        for (j in 0 until mediaSource.parameterCount(i)) {
+                            val paramName = mediaSource.parameterName(i, j)
+                            val paramValue = mediaSource.parameterValue(i, j)
+                            if (paramName != null || paramValue != null) put(paramName ?: "null", paramValue)
+                        }
+                    }
+                )
+            }
+        }
+    }
+
+    private fun serializeGroup(mediaSource: CompactMediaSource, g: Int): JsonNode {
+        if (mediaSource.groupSemantics(g).isEmpty() || mediaSource.groupSize(g) == 0) {
+            return factory.nullNode()
+        }
+        return factory.objectNode().apply {
+            put(SourceGroupPacketExtension.SEMANTICS_ATTR_NAME, mediaSource.groupSemantics(g))
+            set<JsonNode>(
+                Colibri2JSONSerializer.SOURCES,
+                factory.arrayNode().apply {
+                    for (j in 0 until mediaSource.groupSize(g)) add(mediaSource.groupSsrc(g, j))
+                }
+            )
+        }
+    }
+
+    @JvmStatic
+    fun serialize(media: CompactMedia): ObjectNode = factory.objectNode().apply {
+        put(Media.TYPE_ATTR_NAME, media.type.toString())
+        if (media.payloadTypes.isNotEmpty()) {
+            set<JsonNode>(
+                Colibri2JSONSerializer.PAYLOAD_TYPES,
+                JSONSerializer.serializePayloadTypes(media.payloadTypes)
+            )
+        }
+        if (media.rtpHdrExts.isNotEmpty()) {
+            set<JsonNode>(
+                Colibri2JSONSerializer.RTP_HEADER_EXTS,
+                JSONSerializer.serializeRtpHdrExts(media.rtpHdrExts)
+            )
+        }
+        if (media.extmapAllowMixed) put(ExtmapAllowMixedPacketExtension.ELEMENT, true)
+    }
+
+    @JvmStatic
+    fun serialize(transport: CompactTransport): ObjectNode = factory.objectNode().apply {
+        if (transport.iceControlling != Transport.ICE_CONTROLLING_DEFAULT) {
+            put(Transport.ICE_CONTROLLING_ATTR_NAME, transport.iceControlling)
+        }
+        if (transport.useUniquePort != Transport.USE_UNIQUE_PORT_DEFAULT) {
+            put(Transport.USE_UNIQUE_PORT_ATTR_NAME, transport.useUniquePort)
+        }
+        transport.iceUdpTransport?.let {
+            set<JsonNode>(IceUdpTransportPacketExtension.ELEMENT, JSONSerializer.serializeTransport(it))
+        }
+        if (transport.sctp) {
+            set<JsonNode>(
+                Sctp.ELEMENT,
+                factory.objectNode().apply {
+                    if (transport.sctpPort != CompactTransport.NO_PORT) put(Sctp.PORT_ATTR_NAME, transport.sctpPort)
+                    transport.sctpRole?.let { put(Sctp.ROLE_ATTR_NAME, it.toString()) }
+                }
+            )
+        }
+    }
+
+    private fun serializeEntity(entity: CompactConferenceEntity): ObjectNode = factory.objectNode().apply {
+        put(AbstractConferenceEntity.ID_ATTR_NAME, entity.id)
+        if (entity.create != AbstractConferenceEntity.CREATE_DEFAULT) {
+            put(AbstractConferenceEntity.CREATE_ATTR_NAME, entity.create)
+        }
+        if (entity.expire != AbstractConferenceEntity.EXPIRE_DEFAULT) {
+            put(AbstractConferenceEntity.EXPIRE_ATTR_NAME, entity.expire)
+        }
+        if (entity.media.isNotEmpty()) {
+            set<JsonNode>(
+                Colibri2JSONSerializer.MEDIA_LIST,
+                factory.arrayNode().apply { entity.media.forEach { add(serialize(it)) } }
+            )
+        }
+        entity.transport?.let { set<JsonNode>(Transport.ELEMENT, serialize(it)) }
+        entity.sources?.let { set<JsonNode>(Sources.ELEMENT, serialize(it)) }
+    }
+
+    @JvmStatic
+    fun serialize(endpoint: CompactEndpoint): ObjectNode = serializeEntity(endpoint).apply {
+        endpoint.statsId?.let { put(Colibri2Endpoint.STATS_ID_ATTR_NAME, it) }
+        endpoint.mucRole?.let { put(Colibri2Endpoint.MUC_ROLE_ATTR_NAME, it.toString()) }
+        if (endpoint.forceMute) {
+            set<JsonNode>(
+                ForceMute.ELEMENT,
+                factory.objectNode().apply {
+                    put(ForceMute.AUDIO_ATTR_NAME, endpoint.forceMuteAudio)
+                    put(ForceMute.VIDEO_ATTR_NAME, endpoint.forceMuteVideo)
+                }
+            )
+        }
+        if (endpoint.initialLastN != CompactEndpoint.NO_INITIAL_LAST_N) {
+            set<JsonNode>(
+                InitialLastN.ELEMENT,
+                factory.objectNode().put(InitialLastN.VALUE_ATTR_NAME, endpoint.initialLastN)
+            )
+        }
+        if (endpoint.capabilities.isNotEmpty()) {
+            set<JsonNode>(
+                Colibri2JSONSerializer.CAPABILITIES_LIST,
+                factory.arrayNode().apply { endpoint.capabilities.forEach { add(it) } }
+            )
+        }
+    }
+
+    @JvmStatic
+    fun serialize(relay: CompactRelay): ObjectNode = serializeEntity(relay).apply {
+        relay.meshId?.let { put(Colibri2Relay.MESH_ID_ATTR_NAME, it) }
+        relay.endpoints?.let { endpoints ->
+            set<JsonNode>(
+                Colibri2JSONSerializer.ENDPOINTS,
+                factory.arrayNode().apply { endpoints.forEach { add(serialize(it)) } }
+            )
+        }
+    }
+
+    @JvmStatic
+    fun deserializeSources(sources: ArrayNode): CompactSources {
+        val builder = CompactSources.builder()
+        sources.forEach { mediaSource ->
+            require(mediaSource is ObjectNode) { "Expected object for source element, got ${mediaSource.nodeType}" }
+            deserializeMediaSource(mediaSource, builder)
+        }
+        return builder.build()
+    }
+
+    private fun deserializeMediaSource(mediaSource: ObjectNode, sources: CompactSources.Builder) {
+        val type = MediaType.parseString(requireText(mediaSource, MediaSource.TYPE_ATTR_NAME))
+        val id = requireText(mediaSource, MediaSource.ID_NAME)
+        val synthetic = mediaSource[MediaSource.SYNTHETIC_ATTR_NAME]?.let {
+            require(it.isBoolean) { "Expected boolean for ${MediaSource.SYNTHETIC_ATTR_NAME}, got ${it.nodeType}" }
+            it.asBoolean()
+        } ?: false
+        val builder = sources.addMediaSource(type, id, synthetic)
+
+        mediaSource[Colibri2JSONSerializer.SOURCES]?.let { list ->
+            require(list is ArrayNode) { "Expected array for sources, got ${list.nodeType}" }
+            list.forEach { deserializeSource(it, builder) }
+        }
+        mediaSource[Colibri2JSONSerializer.SOURCE_GROUPS]?.let { list ->
+            require(list is ArrayNode) { "Expected array for sourceGroups, got ${list.nodeType}" }
+            list.forEach { group ->
+                if (group.isNull) return@forEach
+                require(group is ObjectNode) { "Expected object for source group, got: ${group.nodeType}" }
+                val semantics = group[SourceGroupPacketExtension.SEMANTICS_ATTR_NAME]?.takeIf { it.isTextual }?.asText()
+                require(!semantics.isNullOrEmpty()) { "Missing semantics for source group" }
+                val ssrcs = group[Colibri2JSONSerializer.SOURCES]
+                if (ssrcs !is ArrayNode || ssrcs.size() == 0) return@forEach
+                builder.addGroup(semantics, LongArray(ssrcs.size()) { deserializeSsrc(ssrcs[it]) })
+            }
+        }
+    }
+
+    private fun deserializeSource(source: JsonNode, builder: CompactMediaSource.Builder) {
+        if (source.isNull) return
+        if (source.isNumber || source.isTextual) {
+            builder.addSource(deserializeSsrc(source))
+            return
+        }
+        require(source is ObjectNode) { "Unexpected source node type: ${source.nodeType}" }
+        val parameters = ArrayList<String?>()
+        source[PARAMETERS]?.takeUnless { it.isNull }?.let {
+            require(it is ObjectNode) { "Expected object for source parameters, got: ${it.nodeType}" }
+            it.properties().forEach { (name, value) ->
+                parameters.add(name)
+                parameters.add(if (value.isNull) null else value.asText())
+            }
+        }
+        builder.addSource(
+            deserializeSsrc(source[SourcePacketExtension.SSRC_ATTR_NAME]),
+            source[SourcePacketExtension.NAME_ATTR_NAME]?.takeIf { it.isTextual }?.asText(),
+            source[SourcePacketExtension.VIDEO_TYPE_ATTR_NAME]?.takeIf { it.isTextual }?.asText(),
+            source[SourcePacketExtension.RID_ATTR_NAME]?.takeIf { it.isTextual }?.asText(),
+            *parameters.toTypedArray()
+        )
+    }
+
+    /** Reads an SSRC the way [JSONDeserializer.deserializeSSRC] followed by [SourcePacketExtension.setSSRC] does. */
+    private fun deserializeSsrc(node: JsonNode?): Long {
+        val ssrc = JSONDeserializer.deserializeSSRC(node)
+        return if (ssrc == -1) -1 else ssrc.toLong() and 0xffffffffL
+    }
+
+    @JvmStatic
+    fun deserializeMedia(media: ObjectNode): CompactMedia {
+        val payloadTypes = media[Colibri2JSONSerializer.PAYLOAD_TYPES]?.let {
+            require(it is ArrayNode) { "Expected array for payloadTypes, got ${it.nodeType}" }
+            JSONDeserializer.deserializePayloadTypes(it).toList()
+        } ?: emptyList()
+        val rtpHdrExts = media[Colibri2JSONSerializer.RTP_HEADER_EXTS]?.let {
+            require(it is ArrayNode) { "Expected array for rtpHdrExts, got ${it.nodeType}" }
+            JSONDeserializer.deserializeHeaderExtensions(it).toList()
+        } ?: emptyList()
+        val extmapAllowMixed = media[ExtmapAllowMixedPacketExtension.ELEMENT]?.let {
+            require(it.isBoolean) {
+                "Expected boolean for ${ExtmapAllowMixedPacketExtension.ELEMENT}, got ${it.nodeType}"
+            }
+            true
+        } ?: false
+        return CompactMedia(
+            MediaType.parseString(requireText(media, Media.TYPE_ATTR_NAME)),
+            payloadTypes,
+            rtpHdrExts,
+            extmapAllowMixed
+        )
+    }
+
+    @JvmStatic
+    fun deserializeTransport(transport: ObjectNode): CompactTransport {
+        val sctp = transport[Sctp.ELEMENT]?.also {
+            require(it is ObjectNode) { "Expected object for ${Sctp.ELEMENT}, got ${it.nodeType}" }
+        }
+        return CompactTransport(
+            optBoolean(transport, Transport.ICE_CONTROLLING_ATTR_NAME) ?: Transport.ICE_CONTROLLING_DEFAULT,
+            optBoolean(transport, Transport.USE_UNIQUE_PORT_ATTR_NAME) ?: Transport.USE_UNIQUE_PORT_DEFAULT,
+            transport[IceUdpTransportPacketExtension.ELEMENT]?.let {
+                require(it is ObjectNode) {
+                    "Expected object for ${IceUdpTransportPacketExtension.ELEMENT}, got ${it.nodeType}"
+                }
+                JSONDeserializer.deserializeTransport(it)
+            },
+            sctp != null,
+            sctp?.get(Sctp.PORT_ATTR_NAME)?.let {
+                require(it.isNumber) { "Expected number for ${Sctp.PORT_ATTR_NAME}, got ${it.nodeType}" }
+                it.asInt()
+            } ?: CompactTransport.NO_PORT,
+            sctp?.get(Sctp.ROLE_ATTR_NAME)?.let {
+                require(it.isTextual) { "Expected string for ${Sctp.ROLE_ATTR_NAME}, got ${it.nodeType}" }
+                Sctp.Role.parseString(it.asText())
+            }
+        )
+    }
+
+    @JvmStatic
+    fun deserializeEndpoint(endpoint: ObjectNode): CompactEndpoint {
+        val forceMute = endpoint[ForceMute.ELEMENT]?.also {
+            require(it is ObjectNode) { "Expected object for ${ForceMute.ELEMENT}, got ${it.nodeType}" }
+        }
+        return CompactEndpoint(
+            requireText(endpoint, AbstractConferenceEntity.ID_ATTR_NAME),
+            optBoolean(endpoint, AbstractConferenceEntity.CREATE_ATTR_NAME) ?: AbstractConferenceEntity.CREATE_DEFAULT,
+            optBoolean(endpoint, AbstractConferenceEntity.EXPIRE_ATTR_NAME) ?: AbstractConferenceEntity.EXPIRE_DEFAULT,
+            deserializeMediaList(endpoint),
+            deserializeEntityTransport(endpoint),
+            deserializeEntitySources(endpoint),
+            optText(endpoint, Colibri2Endpoint.STATS_ID_ATTR_NAME),
+            optText(endpoint, Colibri2Endpoint.MUC_ROLE_ATTR_NAME)?.let { MUCRole.fromString(it) },
+            forceMute != null,
+            forceMute?.let { optBoolean(it, ForceMute.AUDIO_ATTR_NAME) } ?: ForceMute.AUDIO_DEFAULT,
+            forceMute?.let { optBoolean(it, ForceMute.VIDEO_ATTR_NAME) } ?: ForceMute.VIDEO_DEFAULT,
+            endpoint[InitialLastN.ELEMENT]?.let {
+                it[InitialLastN.VALUE_ATTR_NAME]?.takeIf { value -> value.isNumber }?.asInt()
+                    ?: throw IllegalArgumentException("Invalid 'value'")
+            } ?: CompactEndpoint.NO_INITIAL_LAST_N,
+            endpoint[Colibri2JSONSerializer.CAPABILITIES_LIST]?.let { capabilities ->
+                require(capabilities is ArrayNode) {
+                    "Expected array for capabilitiesList, got ${capabilities.nodeType}"
+                }
+                capabilities.map {
+                    require(it.isTextual) { "Expected string capability, got ${it.nodeType}" }
+                    it.asText()
+                }
+            } ?: emptyList()
+        )
+    }
+
+    @JvmStatic
+    fun deserializeRelay(relay: ObjectNode) = CompactRelay(
+        requireText(relay, AbstractConferenceEntity.ID_ATTR_NAME),
+        optBoolean(relay, AbstractConferenceEntity.CREATE_ATTR_NAME) ?: AbstractConferenceEntity.CREATE_DEFAULT,
+        optBoolean(relay, AbstractConferenceEntity.EXPIRE_ATTR_NAME) ?: AbstractConferenceEntity.EXPIRE_DEFAULT,
+        deserializeMediaList(relay),
+        deserializeEntityTransport(relay),
+        deserializeEntitySources(relay),
+        optText(relay, Colibri2Relay.MESH_ID_ATTR_NAME),
+        relay[Colibri2JSONSerializer.ENDPOINTS]?.let { endpoints ->
+            require(endpoints is ArrayNode) { "Expected array for endpoints, got ${endpoints.nodeType}" }
+            endpoints.map {
+                require(it is ObjectNode) { "Expected object for endpoint element, got ${it.nodeType}" }
+                deserializeEndpoint(it)
+            }
+        }
+    )
+
+    private fun deserializeMediaList(entity: ObjectNode): List<CompactMedia> =
+        entity[Colibri2JSONSerializer.MEDIA_LIST]?.let { medias ->
+            require(medias is ArrayNode) { "Expected array for mediaList, got ${medias.nodeType}" }
+            medias.map {
+                require(it is ObjectNode) { "Expected object for media element, got ${it.nodeType}" }
+                deserializeMedia(it)
+            }
+        } ?: emptyList()
+
+    private fun deserializeEntityTransport(entity: ObjectNode): CompactTransport? = entity[Transport.ELEMENT]?.let {
+        require(it is ObjectNode) { "Expected object for ${Transport.ELEMENT}, got ${it.nodeType}" }
+        deserializeTransport(it)
+    }
+
+    private fun deserializeEntitySources(entity: ObjectNode): CompactSources? = entity[Sources.ELEMENT]?.let {
+        require(it is ArrayNode) { "Expected array for ${Sources.ELEMENT}, got ${it.nodeType}" }
+        deserializeSources(it)
+    }
+
+    private fun requireText(node: JsonNode, name: String): String {
+        val value = node[name]
+        require(value != null && value.isTextual) { "Expected string for $name, got ${value?.nodeType}" }
+        return value.asText()
+    }
+
+    private fun optText(node: JsonNode, name: String): String? = node[name]?.let {
+        require(it.isTextual) { "Expected string for $name, got ${it.nodeType}" }
+        it.asText()
+    }
+
+    private fun optBoolean(node: JsonNode, name: String): Boolean? = node[name]?.let {
+        require(it.isBoolean) { "Expected boolean for $name, got ${it.nodeType}" }
+        it.asBoolean()
+    }
+}
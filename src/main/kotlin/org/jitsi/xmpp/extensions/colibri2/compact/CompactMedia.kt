@@ -0,0 +1,67 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri2.Media
+import org.jitsi.xmpp.extensions.jingle.ExtmapAllowMixedPacketExtension
+import org.jitsi.xmpp.extensions.jingle.PayloadTypePacketExtension
+import org.jitsi.xmpp.extensions.jingle.RTPHdrExtPacketExtension
+
+/**
+ * An immutable colibri2 `media` element.
+ *
+ * The payload types and RTP header extensions are the Jingle elements themselves. They are shared with the element
+ * this was created from, and must not be modified.
+ */
+class CompactMedia @JvmOverloads constructor(
+    val type: MediaType,
+    payloadTypes: List<PayloadTypePacketExtension> = emptyList(),
+    rtpHdrExts: List<RTPHdrExtPacketExtension> = emptyList(),
+    val extmapAllowMixed: Boolean = false
+) {
+    val payloadTypes: List<PayloadTypePacketExtension> = payloadTypes.toList()
+
+    val rtpHdrExts: List<RTPHdrExtPacketExtension> = rtpHdrExts.toList()
+
+    /** Creates the equivalent [Media]. */
+    fun toMedia(): Media = Media.getBuilder().apply {
+        setType(type)
+        payloadTypes.forEach { addPayloadType(it) }
+        rtpHdrExts.forEach { addRtpHdrExt(it) }
+        if (extmapAllowMixed) {
+            setExtmapAllowMixed(ExtmapAllowMixedPacketExtension())
+        }
+    }.build()
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        return other is CompactMedia && type == other.type && extmapAllowMixed == other.extmapAllowMixed &&
+            payloadTypes.map { it.toXML().toString() } == other.payloadTypes.map { it.toXML().toString() } &&
+            rtpHdrExts.map { it.toXML().toString() } == other.rtpHdrExts.map { it.toXML().toString() }
+    }
+
+    override fun hashCode() = type.hashCode() * 31 + payloadTypes.size
+
+    override fun toString() = "Media[type=$type, payloadTypes=${payloadTypes.size}, rtpHdrExts=${rtpHdrExts.size}]"
+
+    companion object {
+        /** Creates the compact representation of [media]. */
+        @JvmStatic
+        fun from(media: Media) =
+            CompactMedia(media.type, media.payloadTypes, media.rtpHdrExts, media.extmapAllowMixed != null)
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.colibri2.MediaSource
+import org.jitsi.xmpp.extensions.colibri2.compact.StringPool.Companion.NONE
+import org.jitsi.xmpp.extensions.jingle.ParameterPacketExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+
+/**
+ * An immutable colibri2 `media-source`. The sources are stored in parallel arrays indexed by source, with the SSRCs
+ * as a [LongArray] and the strings as indices into the string table of the enclosing [CompactSources].
+ *
+ * A source without an SSRC has an SSRC of -1, like [SourcePacketExtension.getSSRC]. Children of `source` elements
+ * other than `parameter` are not retained.
+ */
+class CompactMediaSource internal constructor(
+    private val strings: Array<String>,
+    val type: MediaType,
+    val id: String,
+    val synthetic: Boolean,
+    private val ssrcs: LongArray,
+    private val names: IntArray,
+    private val videoTypes: IntArray,
+    private val rids: IntArray,
+    /** The alternating name and value indices of the parameters of each source. */
+    private val parameters: Array<IntArray>,
+    private val groupSemantics: IntArray,
+    private val groupSsrcs: Array<LongArray>
+) {
+    val sourceCount: Int
+        get() = ssrcs.size
+
+    fun ssrc(i: Int): Long = ssrcs[i]
+
+    fun name(i: Int): String? = StringPool.get(strings, names[i])
+
+    fun videoType(i: Int): String? = StringPool.get(strings, videoTypes[i])
+
+    fun rid(i: Int): String? = StringPool.get(strings, rids[i])
+
+    fun parameterCount(i: Int): Int = parameters[i].size / 2
+
+    fun parameterName(i: Int, j: Int): String? = StringPool.get(strings, parameters[i][2 * j])
+
+    fun parameterValue(i: Int, j: Int): String? = StringPool.get(strings, parameters[i][2 * j + 1])
+
+    /** Returns the value of the parameter [name] of source [i], or null if it has none. */
+    fun parameter(i: Int, name: String): String? {
+        for (j in 0 until parameterCount(i)) {
+            if (name == parameterName(i, j)) return parameterValue(i, j)
+        }
+        return null
+    }
+
+    /** Returns a copy of the SSRCs of the sources. */
+    fun ssrcs(): LongArray = ssrcs.copyOf()
+
+    fun hasSsrc(ssrc: Long): Boolean = ssrcs.contains(ssrc)
+
+    /** Returns the index of the first source named [name], or -1. */
+    fun indexOfName(name: String): Int = names.indexOfFirst { it != NONE && strings[it] == name }
+
+    val groupCount: Int
+        get() = groupSsrcs.size
+
+    fun groupSemantics(g: Int): String = strings[groupSemantics[g]]
+
+    fun groupSize(g: Int): Int = groupSsrcs[g].size
+
+    fun groupSsrc(g: Int, j: Int): Long = groupSsrcs[g][j]
+
+    /** Returns a copy of the SSRCs of group [g]. */
+    fun groupSsrcs(g: Int): LongArray = groupSsrcs[g].copyOf()
+
+    /** Creates the equivalent [MediaSource]. */
+    fun toMediaSource(): MediaSource = MediaSource.getBuilder().apply {
+        setType(type)
+        setId(id)
+        setSynthetic(synthetic)
+        for (i in ssrcs.indices) {
+            addSource(toSourcePacketExtension(i))
+        }
+        for (g in groupSsrcs.indices) {
+            val group = SourceGroupPacketExtension()
+            group.semantics = groupSemantics(g)
+            group.addSources(groupSsrcs[g].map { SourcePacketExtension().apply { ssrc = it } })
+            addSsrcGroup(group)
+        }
+    }.build()
+
+    private fun toSourcePacketExtension(i: Int): SourcePacketExtension {
+        val source = SourcePacketExtension()
+        source.ssrc = ssrcs[i]
+        name(i)?.let { source.name = it }
+        videoType(i)?.let { source.videoType = it }
+        rid(i)?.let { source.rid = it }
+        for (j in 0 until parameterCount(i)) {
+            source.addParameter(ParameterPacketExtension(parameterName(i, j), parameterValue(i, j)))
+        }
+        return source
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is CompactMediaSource) return false
+        if (type != other.type || id != other.id || synthetic != other.synthetic ||
+            !ssrcs.contentEquals(other.ssrcs) || groupCount != other.groupCount
+        ) {
+            return false
+        }
+        for (i in ssrcs.indices) {
+            if (name(i) != other.name(i) || videoType(i) != other.videoType(i) || rid(i) != other.rid(i) ||
+                parameterCount(i) != other.parameterCount(i)
+            ) {
+                return false
+            }
+            for (j in 0 until parameterCount(i)) {
+                if (parameterName(i, j) != other.parameterName(i, j) ||
+                    parameterValue(i, j) != other.parameterValue(i, j)
+                ) {
+                    return false
+                }
+            }
+        }
+        for (g in groupSsrcs.indices) {
+            if (groupSemantics(g) != other.groupSemantics(g) || !groupSsrcs[g].contentEquals(other.groupSsrcs[g])) {
+                return false
+            }
+        }
+        return true
+    }
+
+    override fun hashCode(): Int = (id.hashCode() * 31 + type.hashCode()) * 31 + ssrcs.contentHashCode()
+
+    override fun toString(): String = "MediaSource[type=$type, id=$id, ssrcs=${ssrcs.contentToString()}]"
+
+    /**
+     * Builds a [CompactMediaSource] as part of a [CompactSources.Builder], which owns the string table.
+     */
+    class Builder internal constructor(
+        private val pool: StringPool,
+        private val type: MediaType,
+        private val id: String,
+        private val synthetic: Boolean
+    ) {
+        private var sourceCount = 0
+        private var ssrcs = LongArray(4)
+        private var names = IntArray(4)
+        private var videoTypes = IntArray(4)
+        private var rids = IntArray(4)
+        private var parameters = arrayOfNulls<IntArray>(4)
+        private val groupSemantics = ArrayList<Int>()
+        private val groupSsrcs = ArrayList<LongArray>()
+
+        /**
+         * Adds a source.
+         * @param parameters alternating parameter names and values.
+         */
+        @JvmOverloads
+        fun addSource(
+            ssrc: Long,
+            name: String? = null,
+            videoType: String? = null,
+            rid: String? = null,
+            vararg parameters: String?
+        ) = apply {
+            require(parameters.size % 2 == 0) { "Parameters must be name and value pairs" }
+            if (sourceCount == ssrcs.size) {
+                val size = sourceCount * 2
+                ssrcs = ssrcs.copyOf(size)
+                names = names.copyOf(size)
+                videoTypes = videoTypes.copyOf(size)
+                rids = rids.copyOf(size)
+                this.parameters = this.parameters.copyOf(size)
+            }
+            ssrcs[sourceCount] = ssrc
+            names[sourceCount] = pool.add(name)
+            videoTypes[sourceCount] = pool.add(videoType)
+            rids[sourceCount] = pool.add(rid)
+            this.parameters[sourceCount] =
+                if (parameters.isEmpty()) NO_PARAMETERS else IntArray(parameters.size) { pool.add(parameters[it]) }
+            sourceCount++
+        }
+
+        fun addSource(source: SourcePacketExtension) = addSource(
+            source.ssrc,
+            source.name,
+            source.videoType,
+            source.rid,
+            *source.parameters.flatMap { listOf(it.name, it.value) }.toTypedArray()
+        )
+
+        /** Adds a group. A group must have semantics, so [semantics] must not be empty. */
+        fun addGroup(semantics: String, ssrcs: LongArray) = apply {
+            require(semantics.isNotEmpty()) { "Missing semantics for source group" }
+            groupSemantics.add(pool.add(semantics))
+            groupSsrcs.add(ssrcs.copyOf())
+        }
+
+        /** Adds a group. Throws [IllegalArgumentException] if it has no semantics. */
+        fun addGroup(group: SourceGroupPacketExtension): Builder {
+            val semantics: String? = group.semantics
+            requireNotNull(semantics) { "Missing semantics for source group" }
+            return addGroup(semantics, group.sources.map { it.ssrc }.toLongArray())
+        }
+
+        internal fun build(strings: Array<String>) = CompactMediaSource(
+            strings,
+            type,
+            id,
+            synthetic,
+            ssrcs.copyOf(sourceCount),
+            names.copyOf(sourceCount),
+            videoTypes.copyOf(sourceCount),
+            rids.copyOf(sourceCount),
+            Array(sourceCount) { parameters[it]!! },
+            groupSemantics.toIntArray(),
+            groupSsrcs.toTypedArray()
+        )
+    }
+
+    companion object {
+        private val NO_PARAMETERS = IntArray(0)
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.Endpoints
+
+/**
+ * An immutable colibri2 `relay` element.
+ */
+class CompactRelay @JvmOverloads constructor(
+    id: String,
+    create: Boolean = AbstractConferenceEntity.CREATE_DEFAULT,
+    expire: Boolean = AbstractConferenceEntity.EXPIRE_DEFAULT,
+    media: List<CompactMedia> = emptyList(),
+    transport: CompactTransport? = null,
+    sources: CompactSources? = null,
+    val meshId: String? = null,
+    /** The endpoints in the `endpoints` element, or null if there is no such element. */
+    endpoints: List<CompactEndpoint>? = null
+) : CompactConferenceEntity(id, create, expire, media, transport, sources) {
+    val endpoints: List<CompactEndpoint>? = endpoints?.toList()
+
+    /** Creates the equivalent [Colibri2Relay]. */
+    fun toRelay(): Colibri2Relay = Colibri2Relay.getBuilder().apply {
+        toBuilder(this)
+        meshId?.let { setMeshId(it) }
+        endpoints?.let { list ->
+            setEndpoints(Endpoints.getBuilder().apply { list.forEach { addEndpoint(it.toEndpoint()) } }.build())
+        }
+    }.build()
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        return other is CompactRelay && sharedFieldsEqual(other) && meshId == other.meshId &&
+            endpoints == other.endpoints
+    }
+
+    override fun hashCode() = super.hashCode()
+
+    override fun toString() = "Relay[id=$id, meshId=$meshId, endpoints=${endpoints?.size}]"
+
+    companion object {
+        /** Creates the compact representation of [relay]. */
+        @JvmStatic
+        fun from(relay: Colibri2Relay) = CompactRelay(
+            relay.id,
+            relay.create,
+            relay.expire,
+            relay.media.map { CompactMedia.from(it) },
+            relay.transport?.let { CompactTransport.from(it) },
+            relay.sources?.let { CompactSources.from(it) },
+            relay.meshId,
+            relay.endpoints?.endpoints?.map { CompactEndpoint.from(it) }
+        )
+    }
+}
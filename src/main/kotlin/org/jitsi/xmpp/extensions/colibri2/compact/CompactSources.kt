@@ -0,0 +1,72 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri2.Sources
+
+/**
+ * An immutable colibri2 `sources` element. The source names, video types, RIDs, parameters and group semantics of all
+ * of its media sources are stored once, in a string table shared by the media sources.
+ */
+class CompactSources private constructor(
+    val mediaSources: List<CompactMediaSource>
+) {
+    /** Returns the media source with the given [id], or null. */
+    fun getMediaSource(id: String): CompactMediaSource? = mediaSources.find { it.id == id }
+
+    /** Creates the equivalent [Sources]. */
+    fun toSources(): Sources = Sources.getBuilder().apply {
+        mediaSources.forEach { addMediaSource(it.toMediaSource()) }
+    }.build()
+
+    override fun equals(other: Any?) = other is CompactSources && mediaSources == other.mediaSources
+
+    override fun hashCode() = mediaSources.hashCode()
+
+    override fun toString() = "Sources$mediaSources"
+
+    class Builder internal constructor() {
+        private val pool = StringPool()
+        private val mediaSources = ArrayList<CompactMediaSource.Builder>()
+
+        /** Adds a media source and returns its builder, which must be filled in before calling [build]. */
+        @JvmOverloads
+        fun addMediaSource(type: MediaType, id: String, synthetic: Boolean = false): CompactMediaSource.Builder =
+            CompactMediaSource.Builder(pool, type, id, synthetic).also { mediaSources.add(it) }
+
+        fun build(): CompactSources {
+            val strings = pool.toArray()
+            return CompactSources(mediaSources.map { it.build(strings) })
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        fun builder() = Builder()
+
+        /** Creates the compact representation of [sources]. */
+        @JvmStatic
+        fun from(sources: Sources): CompactSources = Builder().apply {
+            sources.mediaSources.forEach { mediaSource ->
+                addMediaSource(mediaSource.type, mediaSource.id, mediaSource.isSynthetic).apply {
+                    mediaSource.sources.forEach { addSource(it) }
+                    mediaSource.ssrcGroups.forEach { addGroup(it) }
+                }
+            }
+        }.build()
+    }
+}
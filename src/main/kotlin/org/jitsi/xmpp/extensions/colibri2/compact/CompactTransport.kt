@@ -0,0 +1,83 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.xmpp.extensions.colibri2.Sctp
+import org.jitsi.xmpp.extensions.colibri2.Transport
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+
+/**
+ * An immutable colibri2 `transport` element.
+ *
+ * The ICE-UDP transport is the Jingle element itself. It is shared with the element this was created from, and must
+ * not be modified.
+ */
+class CompactTransport @JvmOverloads constructor(
+    val iceControlling: Boolean = Transport.ICE_CONTROLLING_DEFAULT,
+    val useUniquePort: Boolean = Transport.USE_UNIQUE_PORT_DEFAULT,
+    val iceUdpTransport: IceUdpTransportPacketExtension? = null,
+    /** Whether there is an `sctp` element. */
+    val sctp: Boolean = false,
+    /** The SCTP port, or [NO_PORT]. */
+    val sctpPort: Int = NO_PORT,
+    val sctpRole: Sctp.Role? = null
+) {
+    /** Creates the equivalent [Transport]. */
+    fun toTransport(): Transport = Transport.getBuilder().apply {
+        setIceControlling(iceControlling)
+        setUseUniquePort(useUniquePort)
+        iceUdpTransport?.let { setIceUdpExtension(it) }
+        if (sctp) {
+            setSctp(
+                Sctp.Builder().apply {
+                    if (sctpPort != NO_PORT) setPort(sctpPort)
+                    sctpRole?.let { setRole(it) }
+                }.build()
+            )
+        }
+    }.build()
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        return other is CompactTransport && iceControlling == other.iceControlling &&
+            useUniquePort == other.useUniquePort && sctp == other.sctp && sctpPort == other.sctpPort &&
+            sctpRole == other.sctpRole &&
+            iceUdpTransport?.toXML()?.toString() == other.iceUdpTransport?.toXML()?.toString()
+    }
+
+    override fun hashCode() = (iceControlling.hashCode() * 31 + useUniquePort.hashCode()) * 31 + sctpPort
+
+    override fun toString() = "Transport[iceControlling=$iceControlling, useUniquePort=$useUniquePort, " +
+        "ice=${iceUdpTransport != null}, sctp=$sctp]"
+
+    companion object {
+        const val NO_PORT = -1
+
+        /** Creates the compact representation of [transport]. */
+        @JvmStatic
+        fun from(transport: Transport): CompactTransport {
+            val sctp = transport.sctp
+            return CompactTransport(
+                transport.iceControlling,
+                transport.useUniquePort,
+                transport.iceUdpTransport,
+                sctp != null,
+                sctp?.port ?: NO_PORT,
+                sctp?.role
+            )
+        }
+    }
+}
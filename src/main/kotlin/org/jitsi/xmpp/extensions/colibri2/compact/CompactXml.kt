@@ -0,0 +1,502 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
+import org.jitsi.xmpp.extensions.colibri2.Capability
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.Endpoints
+import org.jitsi.xmpp.extensions.colibri2.ForceMute
+import org.jitsi.xmpp.extensions.colibri2.InitialLastN
+import org.jitsi.xmpp.extensions.colibri2.Media
+import org.jitsi.xmpp.extensions.colibri2.MediaSource
+import org.jitsi.xmpp.extensions.colibri2.Sctp
+import org.jitsi.xmpp.extensions.colibri2.Sources
+import org.jitsi.xmpp.extensions.colibri2.Transport
+import org.jitsi.xmpp.extensions.jingle.ExtmapAllowMixedPacketExtension
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jitsi.xmpp.extensions.jingle.ParameterPacketExtension
+import org.jitsi.xmpp.extensions.jingle.PayloadTypePacketExtension
+import org.jitsi.xmpp.extensions.jingle.RTPHdrExtPacketExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+import org.jivesoftware.smack.packet.ExtensionElement
+import org.jivesoftware.smack.parsing.SmackParsingException
+import org.jivesoftware.smack.provider.ProviderManager
+import org.jivesoftware.smack.util.XmlStringBuilder
+import org.jivesoftware.smack.xml.XmlPullParser
+import org.jivesoftware.smack.xml.XmlPullParserException
+import org.jivesoftware.smackx.muc.MUCRole
+import java.io.IOException
+
+/**
+ * Parses the compact colibri2 model directly from XML, and serializes it to XML, without creating the
+ * [org.jitsi.xmpp.extensions.AbstractPacketExtension] tree. The output can be parsed by the regular providers.
+ *
+ * The parse functions expect the parser to be positioned at the start tag of the element, and leave it at its end
+ * tag. The Jingle elements which the compact model keeps as they are (payload types, RTP header extensions and
+ * ICE-UDP transports) are parsed with the providers registered with Smack's [ProviderManager], see
+ * [org.jitsi.xmpp.extensions.colibri2.IqProviderUtils.registerProviders].
+ */
+object CompactXml {
+    @JvmStatic
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun parseSources(parser: XmlPullParser): CompactSources {
+        val builder = CompactSources.builder()
+        forEachChild(parser) {
+            if (parser.name == MediaSource.ELEMENT) parseMediaSource(parser, builder) else skip(parser)
+        }
+        return builder.build()
+    }
+
+    private fun parseMediaSource(parser: XmlPullParser, sources: CompactSources.Builder) {
+        val type = parseMediaType(parser, MediaSource.TYPE_ATTR_NAME)
+        val id = requireAttribute(parser, MediaSource.ID_NAME)
+        val synthetic = parser.getAttributeValue("", MediaSource.SYNTHETIC_ATTR_NAME)?.toBoolean() ?: false
+        val builder = sources.addMediaSource(type, id, synthetic)
+
+        forEachChild(parser) {
+            when (parser.name) {
+                SourcePacketExtension.ELEMENT -> parseSource(parser, builder)
+                SourceGroupPacketExtension.ELEMENT -> {
+                    val semantics = parser.getAttributeValue("", SourceGroupPacketExtension.SEMANTICS_ATTR_NAME)
+                    if (semantics.isNullOrEmpty()) {
+                        throw SmackParsingException.RequiredAttributeMissingException(
+                            SourceGroupPacketExtension.SEMANTICS_ATTR_NAME
+                        )
+                    }
+                    val ssrcs = ArrayList<Long>()
+                    forEachChild(parser) {
+                        if (parser.name == SourcePacketExtension.ELEMENT) ssrcs.add(parseSsrc(parser))
+                        skip(parser)
+                    }
+                    builder.addGroup(semantics, ssrcs.toLongArray())
+                }
+                else -> skip(parser)
+            }
+        }
+    }
+
+    private fun parseSource(parser: XmlPullParser, builder: CompactMediaSource.Builder) {
+        val ssrc = parseSsrc(parser)
+        val name = parser.getAttributeValue("", SourcePacketExtension.NAME_ATTR_NAME)
+        val videoType = parser.getAttributeValue("", SourcePacketExtension.VIDEO_TYPE_ATTR_NAME)
+        val rid = parser.getAttributeValue("", SourcePacketExtension.RID_ATTR_NAME)
+        val parameters = ArrayList<String?>()
+        forEachChild(parser) {
+            if (parser.name == ParameterPacketExtension.ELEMENT) {
+                parameters.add(parser.getAttributeValue("", ParameterPacketExtension.NAME_ATTR_NAME))
+                parameters.add(parser.getAttributeValue("", ParameterPacketExtension.VALUE_ATTR_NAME))
+            }
+            skip(parser)
+        }
+        builder.addSource(ssrc, name, videoType, rid, *parameters.toTypedArray())
+    }
+
+    private fun parseSsrc(parser: XmlPullParser): Long {
+        val ssrc = parser.getAttributeValue("", SourcePacketExtension.SSRC_ATTR_NAME) ?: return -1
+        return ssrc.toLongOrNull() ?: throw SmackParsingException("Invalid SSRC: $ssrc")
+    }
+
+    @JvmStatic
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun parseMedia(parser: XmlPullParser): CompactMedia {
+        val type = parseMediaType(parser, Media.TYPE_ATTR_NAME)
+        val payloadTypes = ArrayList<PayloadTypePacketExtension>()
+        val rtpHdrExts = ArrayList<RTPHdrExtPacketExtension>()
+        var extmapAllowMixed = false
+        forEachChild(parser) {
+            when (val extension = parseExtension(parser)) {
+                is PayloadTypePacketExtension -> payloadTypes.add(extension)
+                is RTPHdrExtPacketExtension -> rtpHdrExts.add(extension)
+                is ExtmapAllowMixedPacketExtension -> extmapAllowMixed = true
+            }
+        }
+        return CompactMedia(type, payloadTypes, rtpHdrExts, extmapAllowMixed)
+    }
+
+    @JvmStatic
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun parseTransport(parser: XmlPullParser): CompactTransport {
+        val iceControlling = parser.getAttributeValue("", Transport.ICE_CONTROLLING_ATTR_NAME)?.toBoolean()
+            ?: Transport.ICE_CONTROLLING_DEFAULT
+        val useUniquePort = parser.getAttributeValue("", Transport.USE_UNIQUE_PORT_ATTR_NAME)?.toBoolean()
+            ?: Transport.USE_UNIQUE_PORT_DEFAULT
+        var iceUdpTransport: IceUdpTransportPacketExtension? = null
+        var sctp = false
+        var sctpPort = CompactTransport.NO_PORT
+        var sctpRole: Sctp.Role? = null
+        forEachChild(parser) {
+            if (parser.name == Sctp.ELEMENT && parser.namespace == Sctp.NAMESPACE) {
+                sctp = true
+                parser.getAttributeValue("", Sctp.PORT_ATTR_NAME)?.let {
+                    sctpPort = it.toIntOrNull() ?: throw SmackParsingException("Invalid SCTP port: $it")
+                }
+                parser.getAttributeValue("", Sctp.ROLE_ATTR_NAME)?.let {
+                    sctpRole = try {
+                        Sctp.Role.parseString(it)
+                    } catch (e: IllegalArgumentException) {
+                        throw SmackParsingException("Invalid SCTP role: $it")
+                    }
+                }
+                skip(parser)
+            } else {
+                parseExtension(parser)?.let { if (it is IceUdpTransportPacketExtension) iceUdpTransport = it }
+            }
+        }
+        return CompactTransport(iceControlling, useUniquePort, iceUdpTransport, sctp, sctpPort, sctpRole)
+    }
+
+    @JvmStatic
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun parseEndpoint(parser: XmlPullParser): CompactEndpoint {
+        val entity = EntityFields(parser)
+        val statsId = parser.getAttributeValue("", Colibri2Endpoint.STATS_ID_ATTR_NAME)
+        val mucRole = parser.getAttributeValue("", Colibri2Endpoint.MUC_ROLE_ATTR_NAME)?.let {
+            try {
+                MUCRole.fromString(it)
+            } catch (e: IllegalArgumentException) {
+                throw SmackParsingException(Colibri2Endpoint.MUC_ROLE_ATTR_NAME + ":" + e.message)
+            }
+        }
+        var forceMute = false
+        var forceMuteAudio = ForceMute.AUDIO_DEFAULT
+        var forceMuteVideo = ForceMute.VIDEO_DEFAULT
+        var initialLastN = CompactEndpoint.NO_INITIAL_LAST_N
+        val capabilities = ArrayList<String>()
+        forEachChild(parser) {
+            if (!entity.parseChild(parser)) {
+                when (parser.name) {
+                    ForceMute.ELEMENT -> {
+                        forceMute = true
+                        forceMuteAudio = parser.getAttributeValue("", ForceMute.AUDIO_ATTR_NAME)?.toBoolean()
+                            ?: ForceMute.AUDIO_DEFAULT
+                        forceMuteVideo = parser.getAttributeValue("", ForceMute.VIDEO_ATTR_NAME)?.toBoolean()
+                            ?: ForceMute.VIDEO_DEFAULT
+                    }
+                    InitialLastN.ELEMENT -> {
+                        val value = parser.getAttributeValue("", InitialLastN.VALUE_ATTR_NAME)
+                        initialLastN = value?.toIntOrNull()
+                            ?: throw SmackParsingException("Invalid ${InitialLastN.VALUE_ATTR_NAME}: $value")
+                    }
+                    Capability.ELEMENT -> parser.getAttributeValue("", Capability.NAME_ATTR_NAME)?.let {
+                        capabilities.add(it)
+                    }
+                }
+                skip(parser)
+            }
+        }
+        return CompactEndpoint(
+            entity.id,
+            entity.create,
+            entity.expire,
+            entity.media,
+            entity.transport,
+            entity.sources,
+            statsId,
+            mucRole,
+            forceMute,
+            forceMuteAudio,
+            forceMuteVideo,
+            initialLastN,
+            capabilities
+        )
+    }
+
+    @JvmStatic
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun parseRelay(parser: XmlPullParser): CompactRelay {
+        val entity = EntityFields(parser)
+        val meshId = parser.getAttributeValue("", Colibri2Relay.MESH_ID_ATTR_NAME)
+        var endpoints: MutableList<CompactEndpoint>? = null
+        forEachChild(parser) {
+            if (!entity.parseChild(parser)) {
+                if (parser.name == Endpoints.ELEMENT) {
+                    val list = endpoints ?: ArrayList<CompactEndpoint>().also { endpoints = it }
+                    forEachChild(parser) {
+                        if (parser.name == Colibri2Endpoint.ELEMENT) list.add(parseEndpoint(parser)) else skip(parser)
+                    }
+                } else {
+                    skip(parser)
+                }
+            }
+        }
+        return CompactRelay(
+            entity.id,
+            entity.create,
+            entity.expire,
+            entity.media,
+            entity.transport,
+            entity.sources,
+            meshId,
+            endpoints
+        )
+    }
+
+    /** Serializes [sources] as a colibri2 `sources` element. */
+    @JvmStatic
+    fun toXml(sources: CompactSources): String = XmlStringBuilder().also { appendSources(it, sources, true) }.toString()
+
+    @JvmStatic
+    fun toXml(media: CompactMedia): String = XmlStringBuilder().also { appendMedia(it, media, true) }.toString()
+
+    @JvmStatic
+    fun toXml(transport: CompactTransport): String =
+        XmlStringBuilder().also { appendTransport(it, transport, true) }.toString()
+
+    @JvmStatic
+    fun toXml(endpoint: CompactEndpoint): String =
+        XmlStringBuilder().also { appendEndpoint(it, endpoint, true) }.toString()
+
+    @JvmStatic
+    fun toXml(relay: CompactRelay): String = XmlStringBuilder().also { appendRelay(it, relay, true) }.toString()
+
+    private fun appendSources(xml: XmlStringBuilder, sources: CompactSources, xmlns: Boolean) {
+        openElement(xml, Sources.ELEMENT, xmlns)
+        if (sources.mediaSources.isEmpty()) {
+            xml.closeEmptyElement()
+            return
+        }
+        xml.rightAngleBracket()
+        sources.mediaSources.forEach { appendMediaSource(xml, it) }
+        xml.closeElement(Sources.ELEMENT)
+    }
+
+    private fun appendMediaSource(xml: XmlStringBuilder, mediaSource: CompactMediaSource) {
+        xml.halfOpenElement(MediaSource.ELEMENT)
+        xml.attribute(MediaSource.TYPE_ATTR_NAME, mediaSource.type.toString())
+        xml.attribute(MediaSource.ID_NAME, mediaSource.id)
+        if (mediaSource.synthetic) xml.attribute(MediaSource.SYNTHETIC_ATTR_NAME, "true")
+        if (mediaSource.sourceCount == 0 && mediaSource.groupCount == 0) {
+            xml.closeEmptyElement()
+            return
+        }
+        xml.rightAngleBracket()
+        for (i in 0 until mediaSource.sourceCount) {
+            xml.halfOpenElement(SourcePacketExtension.ELEMENT).xmlnsAttribute(SourcePacketExtension.NAMESPACE)
+            appendSsrc(xml, mediaSource.ssrc(i))
+            xml.optAttribute(SourcePacketExtension.NAME_ATTR_NAME, mediaSource.name(i))
+            xml.optAttribute(SourcePacketExtension.VIDEO_TYPE_ATTR_NAME, mediaSource.videoType(i))
+            xml.optAttribute(SourcePacketExtension.RID_ATTR_NAME, mediaSource.rid(i))
+            if (mediaSource.parameterCount(i) == 0) {
+                xml.closeEmptyElement()
+                continue
+            }
+            xml.rightAngleBracket()
+            for (j in 0 until mediaSource.parameterCount(i)) {
+                xml.halfOpenElement(ParameterPacketExtension.ELEMENT)
+                xml.optAttribute(ParameterPacketExtension.NAME_ATTR_NAME, mediaSource.parameterName(i, j))
+                xml.optAttribute(ParameterPacketExtension.VALUE_ATTR_NAME, mediaSource.parameterValue(i, j))
+                xml.closeEmptyElement()
+            }
+            xml.closeElement(SourcePacketExtension.ELEMENT)
+        }
+        for (g in 0 until mediaSource.groupCount) {
+            xml.halfOpenElement(SourceGroupPacketExtension.ELEMENT)
+                .xmlnsAttribute(SourceGroupPacketExtension.NAMESPACE)
+            xml.attribute(SourceGroupPacketExtension.SEMANTICS_ATTR_NAME, mediaSource.groupSemantics(g))
+            xml.rightAngleBracket()
+            for (j in 0 until mediaSource.groupSize(g)) {
+                xml.halfOpenElement(SourcePacketExtension.ELEMENT)
+                appendSsrc(xml, mediaSource.groupSsrc(g, j))
+                xml.closeEmptyElement()
+            }
+            xml.closeElement(SourceGroupPacketExtension.ELEMENT)
+        }
+        xml.closeElement(MediaSource.ELEMENT)
+    }
+
+    private fun appendSsrc(xml: XmlStringBuilder, ssrc: Long) {
+        if (ssrc != -1L) xml.attribute(SourcePacketExtension.SSRC_ATTR_NAME, (ssrc and 0xffffffffL).toString())
+    }
+
+    private fun appendMedia(xml: XmlStringBuilder, media: CompactMedia, xmlns: Boolean) {
+        openElement(xml, Media.ELEMENT, xmlns)
+        xml.attribute(Media.TYPE_ATTR_NAME, media.type.toString())
+        if (media.payloadTypes.isEmpty() && media.rtpHdrExts.isEmpty() && !media.extmapAllowMixed) {
+            xml.closeEmptyElement()
+            return
+        }
+        xml.rightAngleBracket()
+        media.payloadTypes.forEach { xml.append(it.toXML(null)) }
+        media.rtpHdrExts.forEach { xml.append(it.toXML(null)) }
+        if (media.extmapAllowMixed) xml.append(ExtmapAllowMixedPacketExtension().toXML(null))
+        xml.closeElement(Media.ELEMENT)
+    }
+
+    private fun appendTransport(xml: XmlStringBuilder, transport: CompactTransport, xmlns: Boolean) {
+        openElement(xml, Transport.ELEMENT, xmlns)
+        if (transport.iceControlling != Transport.ICE_CONTROLLING_DEFAULT) {
+            xml.attribute(Transport.ICE_CONTROLLING_ATTR_NAME, transport.iceControlling.toString())
+        }
+        if (transport.useUniquePort != Transport.USE_UNIQUE_PORT_DEFAULT) {
+            xml.attribute(Transport.USE_UNIQUE_PORT_ATTR_NAME, transport.useUniquePort.toString())
+        }
+        if (transport.iceUdpTransport == null && !transport.sctp) {
+            xml.closeEmptyElement()
+            return
+        }
+        xml.rightAngleBracket()
+        transport.iceUdpTransport?.let { xml.append(it.toXML(null)) }
+        if (transport.sctp) {
+            xml.halfOpenElement(Sctp.ELEMENT)
+            transport.sctpRole?.let { xml.attribute(Sctp.ROLE_ATTR_NAME, it.toString().lowercase()) }
+            if (transport.sctpPort != CompactTransport.NO_PORT) {
+                xml.attribute(Sctp.PORT_ATTR_NAME, transport.sctpPort.toString())
+            }
+            xml.closeEmptyElement()
+        }
+        xml.closeElement(Transport.ELEMENT)
+    }
+
+    private fun appendEntityAttributes(xml: XmlStringBuilder, entity: CompactConferenceEntity) {
+        xml.attribute(AbstractConferenceEntity.ID_ATTR_NAME, entity.id)
+        if (entity.create != AbstractConferenceEntity.CREATE_DEFAULT) {
+            xml.attribute(AbstractConferenceEntity.CREATE_ATTR_NAME, entity.create.toString())
+        }
+        if (entity.expire != AbstractConferenceEntity.EXPIRE_DEFAULT) {
+            xml.attribute(AbstractConferenceEntity.EXPIRE_ATTR_NAME, entity.expire.toString())
+        }
+    }
+
+    private fun appendEntityChildren(xml: XmlStringBuilder, entity: CompactConferenceEntity) {
+        entity.media.forEach { appendMedia(xml, it, false) }
+        entity.transport?.let { appendTransport(xml, it, false) }
+        entity.sources?.let { appendSources(xml, it, false) }
+    }
+
+    private fun appendEndpoint(xml: XmlStringBuilder, endpoint: CompactEndpoint, xmlns: Boolean) {
+        openElement(xml, Colibri2Endpoint.ELEMENT, xmlns)
+        appendEntityAttributes(xml, endpoint)
+        xml.optAttribute(Colibri2Endpoint.STATS_ID_ATTR_NAME, endpoint.statsId)
+        xml.optAttribute(Colibri2Endpoint.MUC_ROLE_ATTR_NAME, endpoint.mucRole?.toString())
+        xml.rightAngleBracket()
+        appendEntityChildren(xml, endpoint)
+        if (endpoint.forceMute) {
+            xml.halfOpenElement(ForceMute.ELEMENT)
+            if (endpoint.forceMuteAudio != ForceMute.AUDIO_DEFAULT) {
+                xml.attribute(ForceMute.AUDIO_ATTR_NAME, endpoint.forceMuteAudio.toString())
+            }
+            if (endpoint.forceMuteVideo != ForceMute.VIDEO_DEFAULT) {
+                xml.attribute(ForceMute.VIDEO_ATTR_NAME, endpoint.forceMuteVideo.toString())
+            }
+            xml.closeEmptyElement()
+        }
+        endpoint.capabilities.forEach {
+            xml.halfOpenElement(Capability.ELEMENT).attribute(Capability.NAME_ATTR_NAME, it).closeEmptyElement()
+        }
+        if (endpoint.initialLastN != CompactEndpoint.NO_INITIAL_LAST_N) {
+            xml.halfOpenElement(InitialLastN.ELEMENT)
+                .attribute(InitialLastN.VALUE_ATTR_NAME, endpoint.initialLastN.toString())
+                .closeEmptyElement()
+        }
+        xml.closeElement(Colibri2Endpoint.ELEMENT)
+    }
+
+    private fun appendRelay(xml: XmlStringBuilder, relay: CompactRelay, xmlns: Boolean) {
+        openElement(xml, Colibri2Relay.ELEMENT, xmlns)
+        appendEntityAttributes(xml, relay)
+        xml.optAttribute(Colibri2Relay.MESH_ID_ATTR_NAME, relay.meshId)
+        xml.rightAngleBracket()
+        appendEntityChildren(xml, relay)
+        relay.endpoints?.let { endpoints ->
+            xml.openElement(Endpoints.ELEMENT)
+            endpoints.forEach { appendEndpoint(xml, it, false) }
+            xml.closeElement(Endpoints.ELEMENT)
+        }
+        xml.closeElement(Colibri2Relay.ELEMENT)
+    }
+
+    /** Opens [name], declaring the colibri2 namespace if [xmlns] is set, i.e. if it is the outermost element. */
+    private fun openElement(xml: XmlStringBuilder, name: String, xmlns: Boolean) {
+        xml.halfOpenElement(name)
+        if (xmlns) xml.xmlnsAttribute(ConferenceModifyIQ.NAMESPACE)
+    }
+
+    /** The attributes and children which endpoints and relays have in common. */
+    private class EntityFields(parser: XmlPullParser) {
+        val id = CompactXml.requireAttribute(parser, AbstractConferenceEntity.ID_ATTR_NAME)
+        val create = parser.getAttributeValue("", AbstractConferenceEntity.CREATE_ATTR_NAME)?.toBoolean()
+            ?: AbstractConferenceEntity.CREATE_DEFAULT
+        val expire = parser.getAttributeValue("", AbstractConferenceEntity.EXPIRE_ATTR_NAME)?.toBoolean()
+            ?: AbstractConferenceEntity.EXPIRE_DEFAULT
+        val media = ArrayList<CompactMedia>()
+        var transport: CompactTransport? = null
+        var sources: CompactSources? = null
+
+        /** Parses the child at the parser if it's one of the shared ones, and returns whether it was. */
+        fun parseChild(parser: XmlPullParser): Boolean {
+            if (parser.namespace != ConferenceModifyIQ.NAMESPACE) return false
+            when (parser.name) {
+                Media.ELEMENT -> media.add(CompactXml.parseMedia(parser))
+                Transport.ELEMENT -> transport = CompactXml.parseTransport(parser)
+                Sources.ELEMENT -> sources = CompactXml.parseSources(parser)
+                else -> return false
+            }
+            return true
+        }
+    }
+
+    private fun parseMediaType(parser: XmlPullParser, attribute: String): MediaType {
+        val type = requireAttribute(parser, attribute)
+        return try {
+            MediaType.parseString(type)
+        } catch (e: IllegalArgumentException) {
+            throw SmackParsingException(attribute + ":" + e.message)
+        }
+    }
+
+    private fun requireAttribute(parser: XmlPullParser, name: String): String =
+        parser.getAttributeValue("", name) ?: throw SmackParsingException.RequiredAttributeMissingException(name)
+
+    /** Parses the element at the parser with its registered provider, or skips it if there is none. */
+    private fun parseExtension(parser: XmlPullParser): ExtensionElement? {
+        val provider = ProviderManager.getExtensionProvider(parser.name, parser.namespace)
+        if (provider == null) {
+            skip(parser)
+            return null
+        }
+        return provider.parse(parser)
+    }
+
+    /**
+     * Calls [block] with the parser at the start tag of each child of the current element. [block] must leave the
+     * parser at the child's end tag.
+     */
+    private inline fun forEachChild(parser: XmlPullParser, block: () -> Unit) {
+        val depth = parser.depth
+        while (true) {
+            when (parser.next()) {
+                XmlPullParser.Event.START_ELEMENT -> block()
+                XmlPullParser.Event.END_ELEMENT -> if (parser.depth == depth) return
+                XmlPullParser.Event.END_DOCUMENT -> throw IOException("Unexpected end of document")
+                else -> {}
+            }
+        }
+    }
+
+    /** Skips to the end tag of the element at the parser, if it is at a start tag. */
+    private fun skip(parser: XmlPullParser) {
+        if (parser.eventType != XmlPullParser.Event.START_ELEMENT) return
+        val depth = parser.depth
+        while (parser.next() != XmlPullParser.Event.END_ELEMENT || parser.depth != depth) {
+            if (parser.eventType == XmlPullParser.Event.END_DOCUMENT) throw IOException("Unexpected end of document")
+        }
+    }
+}
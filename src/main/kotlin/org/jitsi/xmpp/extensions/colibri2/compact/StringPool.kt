@@ -0,0 +1,43 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+/**
+ * Assigns each distinct string an index, so that repeated strings (source names, video types, group semantics) are
+ * stored once and referenced by an [Int].
+ */
+internal class StringPool {
+    private val indices = HashMap<String, Int>()
+    private val strings = ArrayList<String>()
+
+    /** Returns the index of [s], or [NONE] if it is null. */
+    fun add(s: String?): Int {
+        if (s == null) return NONE
+        return indices.getOrPut(s) {
+            strings.add(s)
+            strings.size - 1
+        }
+    }
+
+    fun toArray(): Array<String> = strings.toTypedArray()
+
+    companion object {
+        /** The index used for absent strings. */
+        const val NONE = -1
+
+        fun get(strings: Array<String>, index: Int): String? = if (index == NONE) null else strings[index]
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonGenerator
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jivesoftware.smack.packet.IqData
+import org.jivesoftware.smack.parsing.SmackParsingException
+import org.jivesoftware.smack.xml.XmlPullParser
+import org.jivesoftware.smack.xml.XmlPullParserException
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+
+/**
+ * Encodes and decodes colibri2 IQs with the structure of their JSON form, in the format of a Jackson [JsonFactory].
+ *
+ * With the default factory this is the JSON text produced by [Colibri2JSONSerializer]. With a binary factory, e.g. a
+ * `SmileFactory` from jackson-dataformat-smile (which refers back to repeated field names instead of writing them
+ * again), it is a compact encoding for traffic which stays between our own components. Since the structure is the
+ * same, the encoded form converts to and from XML without loss, see [xmlToBytes] and [conferenceModifyToXml].
+ */
+class Colibri2JSONCodec @JvmOverloads constructor(
+    private val factory: JsonFactory = JsonFactory()
+) {
+    @Throws(IOException::class)
+    fun encode(iq: ConferenceModifyIQ): ByteArray = write { Colibri2JSONSerializer.serializeConferenceModify(iq, it) }
+
+    @Throws(IOException::class)
+    fun encode(iq: ConferenceModifiedIQ): ByteArray =
+        write { Colibri2JSONSerializer.serializeConferenceModified(iq, it) }
+
+    @Throws(IOException::class)
+    fun decodeConferenceModify(data: ByteArray): ConferenceModifyIQ.Builder =
+        factory.createParser(data).use { Colibri2JSONDeserializer.deserializeConferenceModify(it) }
+
+    @Throws(IOException::class)
+    fun decodeConferenceModified(data: ByteArray): ConferenceModifiedIQ.Builder =
+        factory.createParser(data).use { Colibri2JSONDeserializer.deserializeConferenceModified(it) }
+
+    /**
+     * Encodes the `conference-modify` or `conference-modified` element at [parser] without parsing the whole IQ, see
+     * [Colibri2Transcoder.xmlToJson].
+     */
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun xmlToBytes(parser: XmlPullParser): ByteArray = write { Colibri2Transcoder.xmlToJson(parser, it) }
+
+    /** Returns the XML of the encoded `conference-modify` [data], as an IQ with [iqData]. */
+    @Throws(IOException::class)
+    fun conferenceModifyToXml(data: ByteArray, iqData: IqData): String =
+        factory.createParser(data).use { Colibri2Transcoder.conferenceModifyJsonToXml(it, iqData) }
+
+    /** Returns the XML of the encoded `conference-modified` [data], as an IQ with [iqData]. */
+    @Throws(IOException::class)
+    fun conferenceModifiedToXml(data: ByteArray, iqData: IqData): String =
+        factory.createParser(data).use { Colibri2Transcoder.conferenceModifiedJsonToXml(it, iqData) }
+
+    private inline fun write(block: (JsonGenerator) -> Unit): ByteArray {
+        val out = ByteArrayOutputStream()
+        factory.createGenerator(out).use(block)
+        return out.toByteArray()
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.jitsi.xmpp.extensions.colibri2.json
 
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.node.ArrayNode
 import com.fasterxml.jackson.databind.node.ObjectNode
 import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
 import org.jitsi.xmpp.extensions.colibri.json.JSONDeserializer
 import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
 import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceModificationIQ
@@ -37,10 +41,16 @@ import org.jitsi.xmpp.extensions.colibri2.Sources
 import org.jitsi.xmpp.extensions.colibri2.Transport
 import org.jitsi.xmpp.extensions.jingle.ExtmapAllowMixedPacketExtension
 import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
 import org.jivesoftware.smackx.muc.MUCRole
 import java.lang.IllegalArgumentException
 import java.net.URI
 
+/**
+ * Deserializes colibri2 IQs from JSON, either from a [JsonNode] tree or straight from a [JsonParser] (which can read
+ * a `Reader`, an `InputStream` or a `Byte[]`). Both paths produce the same builders and reject invalid input with the
+ * same messages, but the streaming path does not build a tree for the whole document.
+ */
 object Colibri2JSONDeserializer {
     private fun deserializeMedia(media: ObjectNode): Media {
         return Media.getBuilder().apply {
@@ -282,22 +292,28 @@ object Colibri2JSONDeserializer {
 
     private fun deserializeEndpoints(endpoints: ArrayNode): Collection<Colibri2Endpoint> {
         return ArrayList<Colibri2Endpoint>().apply {
-            endpoints.forEach {
-                require(it is ObjectNode) { "Expected object for endpoint element, got ${it.nodeType}" }
-                add(deserializeEndpoint(it))
-            }
+            endpoints.forEach { add(deserializeEndpointElement(it)) }
         }
     }
 
     private fun deserializeRelays(relays: ArrayNode): Collection<Colibri2Relay> {
         return ArrayList<Colibri2Relay>().apply {
-            relays.forEach {
-                require(it is ObjectNode) { "Expected object for relay element, got ${it.nodeType}" }
-                add(deserializeRelay(it))
-            }
+            relays.forEach { add(deserializeRelayElement(it)) }
         }
     }
 
+    /** Deserializes an element of an `endpoints` array. */
+    internal fun deserializeEndpointElement(endpoint: JsonNode): Colibri2Endpoint {
+        require(endpoint is ObjectNode) { "Expected object for endpoint element, got ${endpoint.nodeType}" }
+        return deserializeEndpoint(endpoint)
+    }
+
+    /** Deserializes an element of a `relays` array. */
+    internal fun deserializeRelayElement(relay: JsonNode): Colibri2Relay {
+        require(relay is ObjectNode) { "Expected object for relay element, got ${relay.nodeType}" }
+        return deserializeRelay(relay)
+    }
+
     private fun deserializeAbstractConferenceModificationToBuilder(
         modification: ObjectNode,
         builder: AbstractConferenceModificationIQ.Builder<*>
@@ -313,6 +329,84 @@ object Colibri2JSONDeserializer {
         }
     }
 
+    internal fun deserializeConnects(connects: JsonNode): Connects {
+        require(connects is ArrayNode) { "Expected array for ${Connects.ELEMENT}, got ${connects.nodeType}" }
+        // An empty array is distinct from no value specified.
+        val result = Connects()
+        connects.forEach { connect ->
+            require(connect is ObjectNode) { "Expected object for connect element, got ${connect.nodeType}" }
+            val connectObj = Connect(
+                URI(connect[Connect.URL_ATTR_NAME]!!.asText()),
+                protocol = Connect.Protocols.parse(connect[Connect.PROTOCOL_ATTR_NAME]!!.asText()),
+                type = Connect.Types.parse(connect[Connect.TYPE_ATTR_NAME]!!.asText()),
+                audio = connect[Connect.AUDIO_ATTR_NAME]?.asBoolean() ?: false,
+                video = connect[Connect.VIDEO_ATTR_NAME]?.asBoolean() ?: false
+            )
+
+            // Deserialize HTTP headers
+            connect["headers"]?.let { headers ->
+                require(headers is ObjectNode) { "Expected object for headers, got ${headers.nodeType}" }
+                headers.properties().forEach { e ->
+                    require(e.value.isTextual) {
+                        "Expected string header value for ${e.key}, got ${e.value.nodeType}"
+                    }
+                    connectObj.addHttpHeader(e.key, e.value.asText())
+                }
+            }
+
+            // Deserialize ping
+            connect["ping"]?.let { ping ->
+                require(ping is ObjectNode) { "Expected object for ping, got ${ping.nodeType}" }
+                val interval = ping[Connect.Ping.INTERVAL_ATTR_NAME]
+                    ?.also {
+                        require(it.isNumber) {
+                            "Expected number for ${Connect.Ping.INTERVAL_ATTR_NAME}, got ${it.nodeType}"
+                        }
+                    }
+                    ?.asInt()
+                val timeout = ping[Connect.Ping.TIMEOUT_ATTR_NAME]
+                    ?.also {
+                        require(it.isNumber) {
+                            "Expected number for ${Connect.Ping.TIMEOUT_ATTR_NAME}, got ${it.nodeType}"
+                        }
+                    }
+                    ?.asInt()
+                if (interval != null && timeout != null) {
+                    connectObj.setPing(interval, timeout)
+                }
+            }
+
+            // Deserialize exports
+            connect[Connect.Exports.ELEMENT]?.let { exports ->
+                require(exports is ArrayNode) {
+                    "Expected array for ${Connect.Exports.ELEMENT}, got ${exports.nodeType}"
+                }
+                exports.forEach { export ->
+                    require(export.isTextual) {
+                        "Expected string for ${Connect.Export.ELEMENT}, got ${export.nodeType}"
+                    }
+                    connectObj.addExport(export.asText())
+                }
+            }
+
+            // Deserialize requests
+            connect[Connect.Requests.ELEMENT]?.let { requests ->
+                require(requests is ArrayNode) {
+                    "Expected array for ${Connect.Requests.ELEMENT}, got ${requests.nodeType}"
+                }
+                requests.forEach { request ->
+                    require(request.isTextual) {
+                        "Expected string for ${Connect.Request.ELEMENT}, got ${request.nodeType}"
+                    }
+                    connectObj.addRequest(request.asText())
+                }
+            }
+
+            result.addConnect(connectObj)
+        }
+        return result
+    }
+
     @JvmStatic
     fun deserializeConferenceModify(conferenceModify: ObjectNode): ConferenceModifyIQ.Builder {
         return ConferenceModifyIQ.builder("id").apply {
@@ -351,88 +445,7 @@ object Colibri2JSONDeserializer {
                 setRtcstatsEnabled(it.asBoolean())
             }
 
-            conferenceModify[Connects.ELEMENT]?.let {
-                require(it is ArrayNode) { "Expected array for ${Connects.ELEMENT}, got ${it.nodeType}" }
-                var added = false
-                it.forEach { connect ->
-                    require(connect is ObjectNode) { "Expected object for connect element, got ${connect.nodeType}" }
-                    val connectObj = Connect(
-                        URI(connect[Connect.URL_ATTR_NAME]!!.asText()),
-                        protocol = Connect.Protocols.valueOf(
-                            connect[Connect.PROTOCOL_ATTR_NAME]!!.asText().uppercase()
-                        ),
-                        type = Connect.Types.valueOf(
-                            connect[Connect.TYPE_ATTR_NAME]!!.asText().uppercase()
-                        ),
-                        audio = connect[Connect.AUDIO_ATTR_NAME]?.asBoolean() ?: false,
-                        video = connect[Connect.VIDEO_ATTR_NAME]?.asBoolean() ?: false
-                    )
-
-                    // Deserialize HTTP headers
-                    connect["headers"]?.let { headers ->
-                        require(headers is ObjectNode) { "Expected object for headers, got ${headers.nodeType}" }
-                        headers.properties().forEach { e ->
-                            require(e.value.isTextual) {
-                                "Expected string header value for ${e.key}, got ${e.value.nodeType}"
-                            }
-                            connectObj.addHttpHeader(e.key, e.value.asText())
-                        }
-                    }
-
-                    // Deserialize ping
-                    connect["ping"]?.let { ping ->
-                        require(ping is ObjectNode) { "Expected object for ping, got ${ping.nodeType}" }
-                        val interval = ping[Connect.Ping.INTERVAL_ATTR_NAME]
-                            ?.also {
-                                require(it.isNumber) {
-                                    "Expected number for ${Connect.Ping.INTERVAL_ATTR_NAME}, got ${it.nodeType}"
-                                }
-                            }
-                            ?.asInt()
-                        val timeout = ping[Connect.Ping.TIMEOUT_ATTR_NAME]
-                            ?.also {
-                                require(it.isNumber) {
-                                    "Expected number for ${Connect.Ping.TIMEOUT_ATTR_NAME}, got ${it.nodeType}"
-                                }
-                            }
-                            ?.asInt()
-                        if (interval != null && timeout != null) {
-                            connectObj.setPing(interval, timeout)
-                        }
-                    }
-
-                    // Deserialize exports
-                    connect[Connect.Exports.ELEMENT]?.let { exports ->
-                        require(exports is ArrayNode) {
-                            "Expected array for ${Connect.Exports.ELEMENT}, got ${exports.nodeType}"
-                        }
-                        exports.forEach { export ->
-                            require(export.isTextual) {
-                                "Expected string for ${Connect.Export.ELEMENT}, got ${export.nodeType}"
-                            }
-                            connectObj.addExport(export.asText())
-                        }
-                    }
-
-                    // Deserialize requests
-                    connect[Connect.Requests.ELEMENT]?.let { requests ->
-                        require(requests is ArrayNode) {
-                            "Expected array for ${Connect.Requests.ELEMENT}, got ${requests.nodeType}"
-                        }
-                        requests.forEach { request ->
-                            require(request.isTextual) {
-                                "Expected string for ${Connect.Request.ELEMENT}, got ${request.nodeType}"
-                            }
-                            connectObj.addRequest(request.asText())
-                        }
-                    }
-
-                    addConnect(connectObj)
-                    added = true
-                }
-                // An empty array is distinct from no value specified.
-                if (!added) setEmptyConnects()
-            }
+            conferenceModify[Connects.ELEMENT]?.let { setConnects(deserializeConnects(it)) }
         }
     }
 
@@ -446,4 +459,188 @@ object Colibri2JSONDeserializer {
             }
         }
     }
+
+    /**
+     * Reads a `conference-modify` from [parser], which is positioned either before or at the start of the object. The
+     * validation errors are the same as those of [deserializeConferenceModify] for an [ObjectNode], but when a
+     * document has more than one error, the first one in document order is reported.
+     */
+    @JvmStatic
+    fun deserializeConferenceModify(parser: JsonParser): ConferenceModifyIQ.Builder {
+        return ConferenceModifyIQ.builder("id").apply {
+            readModification(parser, this) { name ->
+                if (name == Connects.ELEMENT) {
+                    setConnects(deserializeConnects(parser.readNode()))
+                    true
+                } else {
+                    readConferenceModifyAttribute(parser, name, this)
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the field [name] of a `conference-modify` into [builder] if it is one of its attributes, and returns
+     * whether it was.
+     */
+    internal fun readConferenceModifyAttribute(
+        parser: JsonParser,
+        name: String,
+        builder: ConferenceModifyIQ.Builder
+    ): Boolean {
+        when (name) {
+            ConferenceModifyIQ.MEETING_ID_ATTR_NAME -> builder.setMeetingId(parser.readText(name))
+            ConferenceModifyIQ.NAME_ATTR_NAME -> builder.setConferenceName(parser.readText(name))
+            ConferenceModifyIQ.CREATE_ATTR_NAME -> builder.setCreate(parser.readBoolean(name))
+            ConferenceModifyIQ.EXPIRE_ATTR_NAME -> builder.setExpire(parser.readBoolean(name))
+            ConferenceModifyIQ.RTCSTATS_ENABLED_ATTR_NAME -> builder.setRtcstatsEnabled(parser.readBoolean(name))
+            else -> return false
+        }
+        return true
+    }
+
+    /**
+     * Reads a `conference-modified` from [parser], which is positioned either before or at the start of the object.
+     */
+    @JvmStatic
+    fun deserializeConferenceModified(parser: JsonParser): ConferenceModifiedIQ.Builder {
+        return ConferenceModifiedIQ.builder("id").apply {
+            readModification(parser, this) { name ->
+                if (name == Sources.ELEMENT) {
+                    setSources(readSources(parser))
+                    true
+                } else {
+                    false
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the fields of a `conference-modify` or `conference-modified`, passing those other than the endpoints and
+     * relays to [readField], which returns false for fields it does not know.
+     */
+    private inline fun readModification(
+        parser: JsonParser,
+        builder: AbstractConferenceModificationIQ.Builder<*>,
+        readField: (String) -> Boolean
+    ) {
+        parser.startObject("conference")
+
+        // Buffered so that a repeated field replaces the previous value, and endpoints are added before relays.
+        var endpoints: List<Colibri2Endpoint>? = null
+        var relays: List<Colibri2Relay>? = null
+        parser.forEachField { name ->
+            when (name) {
+                Colibri2JSONSerializer.ENDPOINTS -> endpoints = readEndpoints(parser)
+                Colibri2JSONSerializer.RELAYS -> relays = readRelays(parser)
+                else -> if (!readField(name)) parser.skipChildren()
+            }
+        }
+        endpoints?.forEach { builder.addConferenceEntity(it) }
+        relays?.forEach { builder.addConferenceEntity(it) }
+    }
+
+    private fun readEndpoints(parser: JsonParser): List<Colibri2Endpoint> = parser.readList("endpoints") {
+        parser.requireObject("endpoint element")
+        readEndpoint(parser)
+    }
+
+    internal fun readRelays(parser: JsonParser): List<Colibri2Relay> = parser.readList("relays") {
+        parser.requireObject("relay element")
+        readRelay(parser)
+    }
+
+    /** Reads an endpoint, with the parser at the start of the object. */
+    internal fun readEndpoint(parser: JsonParser): Colibri2Endpoint {
+        return Colibri2Endpoint.getBuilder().apply {
+            var medias: List<Media>? = null
+            var capabilities: List<String>? = null
+            parser.forEachField { name ->
+                when (name) {
+                    Colibri2JSONSerializer.MEDIA_LIST -> medias = readMedias(parser)
+                    Colibri2Endpoint.STATS_ID_ATTR_NAME -> setStatsId(parser.readText(name))
+                    Colibri2Endpoint.MUC_ROLE_ATTR_NAME -> setMucRole(MUCRole.fromString(parser.readText(name)))
+                    ForceMute.ELEMENT -> setForceMute(deserializeForceMute(parser.readObject(name)))
+                    InitialLastN.ELEMENT -> setInitialLastN(deserializeInitialLastN(parser.readObject(name)))
+                    Colibri2JSONSerializer.CAPABILITIES_LIST -> capabilities = parser.readList("capabilitiesList") {
+                        require(parser.currentToken() == JsonToken.VALUE_STRING) {
+                            "Expected string capability, got ${parser.nodeType()}"
+                        }
+                        parser.text
+                    }
+                    else -> readEntityField(parser, name, this)
+                }
+            }
+            medias?.forEach { addMedia(it) }
+            capabilities?.forEach { addCapability(it) }
+        }.build()
+    }
+
+    private fun readRelay(parser: JsonParser): Colibri2Relay {
+        return Colibri2Relay.getBuilder().apply {
+            var medias: List<Media>? = null
+            var endpoints: List<Colibri2Endpoint>? = null
+            parser.forEachField { name ->
+                when (name) {
+                    Colibri2JSONSerializer.MEDIA_LIST -> medias = readMedias(parser)
+                    Colibri2Relay.MESH_ID_ATTR_NAME -> setMeshId(parser.readText(name))
+                    Colibri2JSONSerializer.ENDPOINTS -> endpoints = readEndpoints(parser)
+                    else -> readEntityField(parser, name, this)
+                }
+            }
+            medias?.forEach { addMedia(it) }
+            endpoints?.let {
+                setEndpoints(Endpoints.getBuilder().apply { it.forEach { endpoint -> addEndpoint(endpoint) } }.build())
+            }
+        }.build()
+    }
+
+    /** Reads a field common to endpoints and relays (other than the media list), or skips an unknown one. */
+    private fun readEntityField(parser: JsonParser, name: String, builder: AbstractConferenceEntity.Builder) {
+        when (name) {
+            AbstractConferenceEntity.ID_ATTR_NAME -> builder.setId(parser.readText(name))
+            AbstractConferenceEntity.CREATE_ATTR_NAME -> builder.setCreate(parser.readBoolean(name))
+            AbstractConferenceEntity.EXPIRE_ATTR_NAME -> builder.setExpire(parser.readBoolean(name))
+            Transport.ELEMENT -> builder.setTransport(deserializeTransport(parser.readObject(name)))
+            Sources.ELEMENT -> builder.setSources(readSources(parser))
+            else -> parser.skipChildren()
+        }
+    }
+
+    private fun readMedias(parser: JsonParser): List<Media> = parser.readList("mediaList") {
+        deserializeMedia(parser.readObject("media element"))
+    }
+
+    internal fun readSources(parser: JsonParser): Sources {
+        return Sources.getBuilder().apply {
+            parser.forEachElement(Sources.ELEMENT) {
+                parser.requireObject("source element")
+                addMediaSource(readMediaSource(parser))
+            }
+        }.build()
+    }
+
+    private fun readMediaSource(parser: JsonParser): MediaSource {
+        return MediaSource.getBuilder().apply {
+            var sources: List<SourcePacketExtension>? = null
+            var sourceGroups: List<SourceGroupPacketExtension>? = null
+            parser.forEachField { name ->
+                when (name) {
+                    MediaSource.TYPE_ATTR_NAME -> setType(MediaType.parseString(parser.readText(name)))
+                    MediaSource.ID_NAME -> setId(parser.readText(name))
+                    MediaSource.SYNTHETIC_ATTR_NAME -> setSynthetic(parser.readBoolean(name))
+                    Colibri2JSONSerializer.SOURCES -> sources = parser.readList("sources") {
+                        JSONDeserializer.deserializeSource(parser)
+                    }
+                    Colibri2JSONSerializer.SOURCE_GROUPS -> sourceGroups = parser.readList("sourceGroups") {
+                        JSONDeserializer.deserializeSourceGroup(parser)
+                    }
+                    else -> parser.skipChildren()
+                }
+            }
+            sources?.forEach { addSource(it) }
+            sourceGroups?.forEach { addSsrcGroup(it) }
+        }.build()
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.jitsi.xmpp.extensions.colibri2.json
 
+import com.fasterxml.jackson.core.JsonGenerator
 import com.fasterxml.jackson.databind.node.ArrayNode
 import com.fasterxml.jackson.databind.node.JsonNodeFactory
 import com.fasterxml.jackson.databind.node.ObjectNode
@@ -25,6 +26,7 @@ import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceModificationIQ
 import org.jitsi.xmpp.extensions.colibri2.Capability
 import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
 import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Templates
 import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
 import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
 import org.jitsi.xmpp.extensions.colibri2.Connect
@@ -41,7 +43,12 @@ import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
 import org.jitsi.xmpp.extensions.jingle.PayloadTypePacketExtension
 import org.jitsi.xmpp.extensions.jingle.RTPHdrExtPacketExtension
 import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+import java.io.IOException
 
+/**
+ * Serializes colibri2 IQs to JSON, either as a tree of [ObjectNode]s or straight to a [JsonGenerator]. Both produce
+ * the same JSON, but writing to a generator does not build the intermediate tree.
+ */
 object Colibri2JSONSerializer {
     /**
      * The name of the JSON item which specifies the value of the
@@ -227,10 +234,10 @@ object Colibri2JSONSerializer {
     private fun serializeAbstractConferenceModificationIQ(iq: AbstractConferenceModificationIQ<*>): ObjectNode {
         return JsonNodeFactory.instance.objectNode().apply {
             if (iq.endpoints.isNotEmpty()) {
-                set<ObjectNode>(ENDPOINTS, serializeEndpoints(iq.endpoints))
+                set<ObjectNode>(ENDPOINTS, serializeEndpoints(expandedEndpoints(iq)))
             }
             if (iq.relays.isNotEmpty()) {
-                set<ObjectNode>(RELAYS, serializeRelays(iq.relays))
+                set<ObjectNode>(RELAYS, serializeRelays(expandedRelays(iq)))
             }
         }
     }
@@ -261,7 +268,7 @@ object Colibri2JSONSerializer {
         }
 
         // Serialize exports
-        val exports = connect.getExports()
+        val exports = connect.getExportNames()
         if (exports.isNotEmpty()) {
             val exportsArray = JsonNodeFactory.instance.arrayNode()
             exports.forEach { exportsArray.add(it) }
@@ -269,7 +276,7 @@ object Colibri2JSONSerializer {
         }
 
         // Serialize requests
-        val requests = connect.getRequests()
+        val requests = connect.getRequestNames()
         if (requests.isNotEmpty()) {
             val requestsArray = JsonNodeFactory.instance.arrayNode()
             requests.forEach { requestsArray.add(it) }
@@ -312,4 +319,236 @@ object Colibri2JSONSerializer {
             iq.sources?.let { set<ObjectNode>(Sources.ELEMENT, serializeSources(it)) }
         }
     }
+
+    /** Writes the JSON for [iq] to [generator], like [serializeConferenceModify] without building the tree. */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun serializeConferenceModify(iq: ConferenceModifyIQ, generator: JsonGenerator) {
+        generator.writeStartObject()
+        writeAbstractConferenceModificationIQ(iq, generator)
+        writeConferenceModifyFields(iq, generator)
+        generator.writeEndObject()
+    }
+
+    /** Writes the JSON for [iq] to [generator], like [serializeConferenceModified] without building the tree. */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun serializeConferenceModified(iq: ConferenceModifiedIQ, generator: JsonGenerator) {
+        generator.writeStartObject()
+        writeAbstractConferenceModificationIQ(iq, generator)
+        writeConferenceModifiedFields(iq, generator)
+        generator.writeEndObject()
+    }
+
+    private fun writeAbstractConferenceModificationIQ(
+        iq: AbstractConferenceModificationIQ<*>,
+        generator: JsonGenerator
+    ) {
+        if (iq.endpoints.isNotEmpty()) {
+            generator.writeFieldName(ENDPOINTS)
+            writeEndpoints(expandedEndpoints(iq), generator)
+        }
+        writeRelays(expandedRelays(iq), generator)
+    }
+
+    /* The JSON format has no templates, so the references of a compressed IQ are written out in full. */
+    internal fun expandedEndpoints(iq: AbstractConferenceModificationIQ<*>): List<Colibri2Endpoint> =
+        iq.templates?.let { templates -> iq.endpoints.map { Colibri2Templates.expand(it, templates) } } ?: iq.endpoints
+
+    internal fun expandedRelays(iq: AbstractConferenceModificationIQ<*>): List<Colibri2Relay> =
+        iq.templates?.let { templates -> iq.relays.map { Colibri2Templates.expand(it, templates) } } ?: iq.relays
+
+    internal fun writeRelays(relays: Collection<Colibri2Relay>, generator: JsonGenerator) {
+        if (relays.isNotEmpty()) {
+            generator.writeArrayFieldStart(RELAYS)
+            relays.forEach { writeRelay(it, generator) }
+            generator.writeEndArray()
+        }
+    }
+
+    /** Writes the fields of a `conference-modify` which follow the endpoints and relays. */
+    internal fun writeConferenceModifyFields(iq: ConferenceModifyIQ, generator: JsonGenerator) {
+        if (iq.create != ConferenceModifyIQ.CREATE_DEFAULT) {
+            generator.writeBooleanField(ConferenceModifyIQ.CREATE_ATTR_NAME, iq.create)
+        }
+        if (iq.expire != ConferenceModifyIQ.EXPIRE_DEFAULT) {
+            generator.writeBooleanField(ConferenceModifyIQ.EXPIRE_ATTR_NAME, iq.expire)
+        }
+        if (iq.isRtcstatsEnabled != ConferenceModifyIQ.RTCSTATS_ENABLED_DEFAULT) {
+            generator.writeBooleanField(ConferenceModifyIQ.RTCSTATS_ENABLED_ATTR_NAME, iq.isRtcstatsEnabled)
+        }
+        iq.connects?.let {
+            generator.writeArrayFieldStart(Connects.ELEMENT)
+            it.getConnects().forEach { connect -> writeConnect(connect, generator) }
+            generator.writeEndArray()
+        }
+        generator.writeStringField(ConferenceModifyIQ.MEETING_ID_ATTR_NAME, iq.meetingId)
+        iq.conferenceName?.let { generator.writeStringField(ConferenceModifyIQ.NAME_ATTR_NAME, it) }
+    }
+
+    /** Writes the fields of a `conference-modified` which follow the endpoints and relays. */
+    internal fun writeConferenceModifiedFields(iq: ConferenceModifiedIQ, generator: JsonGenerator) {
+        iq.sources?.let {
+            generator.writeFieldName(Sources.ELEMENT)
+            writeSources(it, generator)
+        }
+    }
+
+    private fun writeEndpoints(endpoints: Collection<Colibri2Endpoint>, generator: JsonGenerator) {
+        generator.writeStartArray()
+        endpoints.forEach { writeEndpoint(it, generator) }
+        generator.writeEndArray()
+    }
+
+    internal fun writeEndpoint(endpoint: Colibri2Endpoint, generator: JsonGenerator) {
+        generator.writeStartObject()
+        writeAbstractConferenceEntityFields(endpoint, generator)
+        endpoint.statsId?.let { generator.writeStringField(Colibri2Endpoint.STATS_ID_ATTR_NAME, it) }
+        endpoint.mucRole?.let { generator.writeStringField(Colibri2Endpoint.MUC_ROLE_ATTR_NAME, it.toString()) }
+        endpoint.forceMute?.let {
+            generator.writeObjectFieldStart(ForceMute.ELEMENT)
+            generator.writeBooleanField(ForceMute.AUDIO_ATTR_NAME, it.audio)
+            generator.writeBooleanField(ForceMute.VIDEO_ATTR_NAME, it.video)
+            generator.writeEndObject()
+        }
+        endpoint.initialLastN?.let {
+            generator.writeObjectFieldStart(InitialLastN.ELEMENT)
+            generator.writeNumberField(InitialLastN.VALUE_ATTR_NAME, it.value)
+            generator.writeEndObject()
+        }
+        if (endpoint.capabilities.isNotEmpty()) {
+            generator.writeArrayFieldStart(CAPABILITIES_LIST)
+            endpoint.capabilities.forEach { generator.writeString(it.name) }
+            generator.writeEndArray()
+        }
+        generator.writeEndObject()
+    }
+
+    internal fun writeRelay(relay: Colibri2Relay, generator: JsonGenerator) {
+        generator.writeStartObject()
+        writeAbstractConferenceEntityFields(relay, generator)
+        relay.meshId?.let { generator.writeStringField(Colibri2Relay.MESH_ID_ATTR_NAME, it) }
+        relay.endpoints?.let {
+            generator.writeFieldName(ENDPOINTS)
+            writeEndpoints(it.endpoints, generator)
+        }
+        generator.writeEndObject()
+    }
+
+    private fun writeAbstractConferenceEntityFields(entity: AbstractConferenceEntity, generator: JsonGenerator) {
+        generator.writeStringField(AbstractConferenceEntity.ID_ATTR_NAME, entity.id)
+        if (entity.create != AbstractConferenceEntity.CREATE_DEFAULT) {
+            generator.writeBooleanField(AbstractConferenceEntity.CREATE_ATTR_NAME, entity.create)
+        }
+        if (entity.expire != AbstractConferenceEntity.EXPIRE_DEFAULT) {
+            generator.writeBooleanField(AbstractConferenceEntity.EXPIRE_ATTR_NAME, entity.expire)
+        }
+        if (entity.media.isNotEmpty()) {
+            generator.writeArrayFieldStart(MEDIA_LIST)
+            entity.media.forEach { writeMedia(it, generator) }
+            generator.writeEndArray()
+        }
+        entity.transport?.let {
+            generator.writeFieldName(Transport.ELEMENT)
+            writeTransport(it, generator)
+        }
+        entity.sources?.let {
+            generator.writeFieldName(Sources.ELEMENT)
+            writeSources(it, generator)
+        }
+    }
+
+    private fun writeMedia(media: Media, generator: JsonGenerator) {
+        generator.writeStartObject()
+        generator.writeStringField(Media.TYPE_ATTR_NAME, media.type.toString())
+        if (media.payloadTypes.isNotEmpty()) {
+            generator.writeFieldName(PAYLOAD_TYPES)
+            JSONSerializer.serializePayloadTypes(media.payloadTypes, generator)
+        }
+        if (media.rtpHdrExts.isNotEmpty()) {
+            generator.writeFieldName(RTP_HEADER_EXTS)
+            JSONSerializer.serializeRtpHdrExts(media.rtpHdrExts, generator)
+        }
+        media.extmapAllowMixed?.let { generator.writeBooleanField(ExtmapAllowMixedPacketExtension.ELEMENT, true) }
+        generator.writeEndObject()
+    }
+
+    private fun writeTransport(transport: Transport, generator: JsonGenerator) {
+        generator.writeStartObject()
+        if (transport.iceControlling != Transport.ICE_CONTROLLING_DEFAULT) {
+            generator.writeBooleanField(Transport.ICE_CONTROLLING_ATTR_NAME, transport.iceControlling)
+        }
+        if (transport.useUniquePort != Transport.USE_UNIQUE_PORT_DEFAULT) {
+            generator.writeBooleanField(Transport.USE_UNIQUE_PORT_ATTR_NAME, transport.useUniquePort)
+        }
+        transport.iceUdpTransport?.let {
+            generator.writeFieldName(IceUdpTransportPacketExtension.ELEMENT)
+            JSONSerializer.serializeTransport(it, generator)
+        }
+        transport.sctp?.let { sctp ->
+            generator.writeObjectFieldStart(Sctp.ELEMENT)
+            sctp.port?.let { generator.writeNumberField(Sctp.PORT_ATTR_NAME, it) }
+            sctp.role?.let { generator.writeStringField(Sctp.ROLE_ATTR_NAME, it.toString()) }
+            generator.writeEndObject()
+        }
+        generator.writeEndObject()
+    }
+
+    private fun writeSources(sources: Sources, generator: JsonGenerator) {
+        generator.writeStartArray()
+        sources.mediaSources.forEach { source ->
+            generator.writeStartObject()
+            generator.writeStringField(MediaSource.TYPE_ATTR_NAME, source.type.toString())
+            generator.writeStringField(MediaSource.ID_NAME, source.id)
+            if (source.isSynthetic) generator.writeBooleanField(MediaSource.SYNTHETIC_ATTR_NAME, true)
+            if (source.sources.isNotEmpty()) {
+                generator.writeFieldName(SOURCES)
+                JSONSerializer.serializeSources(source.sources, generator)
+            }
+            if (source.ssrcGroups.isNotEmpty()) {
+                generator.writeFieldName(SOURCE_GROUPS)
+                JSONSerializer.serializeSourceGroups(source.ssrcGroups, generator)
+            }
+            generator.writeEndObject()
+        }
+        generator.writeEndArray()
+    }
+
+    private fun writeConnect(connect: Connect, generator: JsonGenerator) {
+        generator.writeStartObject()
+        generator.writeStringField(Connect.URL_ATTR_NAME, connect.url.toString())
+        generator.writeStringField(Connect.PROTOCOL_ATTR_NAME, connect.protocol.toString().lowercase())
+        generator.writeStringField(Connect.TYPE_ATTR_NAME, connect.type.toString().lowercase())
+        if (connect.audio) generator.writeBooleanField(Connect.AUDIO_ATTR_NAME, true)
+        if (connect.video) generator.writeBooleanField(Connect.VIDEO_ATTR_NAME, true)
+
+        val headers = connect.getHttpHeaders()
+        if (headers.isNotEmpty()) {
+            generator.writeObjectFieldStart("headers")
+            /* Like an ObjectNode, a repeated header is written once, at its first position with its last value. */
+            val values = LinkedHashMap<String, String>()
+            headers.forEach { values[it.name] = it.value }
+            values.forEach { (name, value) -> generator.writeStringField(name, value) }
+            generator.writeEndObject()
+        }
+
+        connect.getPing()?.let { ping ->
+            generator.writeObjectFieldStart("ping")
+            generator.writeNumberField(Connect.Ping.INTERVAL_ATTR_NAME, ping.interval)
+            generator.writeNumberField(Connect.Ping.TIMEOUT_ATTR_NAME, ping.timeout)
+            generator.writeEndObject()
+        }
+
+        writeStrings(Connect.Exports.ELEMENT, connect.getExportNames(), generator)
+        writeStrings(Connect.Requests.ELEMENT, connect.getRequestNames(), generator)
+        generator.writeEndObject()
+    }
+
+    private fun writeStrings(name: String, values: Collection<String>, generator: JsonGenerator) {
+        if (values.isNotEmpty()) {
+            generator.writeArrayFieldStart(name)
+            values.forEach { generator.writeString(it) }
+            generator.writeEndArray()
+        }
+    }
 }
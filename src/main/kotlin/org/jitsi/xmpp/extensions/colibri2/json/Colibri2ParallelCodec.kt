@@ -0,0 +1,255 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.fasterxml.jackson.databind.node.ObjectNode
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceEntity
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceModificationIQ
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.json.Colibri2Transcoder.SerializedElements
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import java.io.IOException
+import java.io.StringWriter
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
+
+/**
+ * Serializes colibri2 IQs to XML and JSON, and deserializes them from JSON, with the endpoints and relays split
+ * across a [ForkJoinPool]. Each entity is serialized or deserialized on its own, and the results are put together in
+ * order, so the output is the same as that of [IQ.toXML], [Colibri2JSONSerializer] and [Colibri2JSONDeserializer].
+ *
+ * IQs with fewer than [threshold] endpoints and relays are handled sequentially, since splitting them costs more than
+ * it saves. When more than one entity is invalid, the error reported is that of the first one, as in the sequential
+ * path.
+ *
+ * JSON is only written in parallel to a textual generator without a pretty printer, which can take the entities as
+ * raw values. Other generators (e.g. Smile) are written to sequentially.
+ */
+class Colibri2ParallelCodec @JvmOverloads constructor(
+    private val pool: ForkJoinPool = ForkJoinPool.commonPool(),
+    /** The minimum number of endpoints and relays for which the work is split. */
+    private val threshold: Int = DEFAULT_THRESHOLD
+) {
+    /** Returns the XML of [iq], like `iq.toXML().toString()`. */
+    fun toXml(iq: AbstractConferenceModificationIQ<*>): String {
+        val extensions = iq.extensions
+        val entities = extensions.filterIsInstance<AbstractConferenceEntity>()
+        if (entities.size < threshold || iq.type == IQ.Type.error) {
+            return iq.toXML().toString()
+        }
+        val iqData = StanzaBuilder.buildIqData(iq.stanzaId).ofType(iq.type).from(iq.from).to(iq.to)
+        val shell: IQ = when (iq) {
+            is ConferenceModifyIQ -> ConferenceModifyIQ.builder(iqData).apply {
+                setMeetingId(iq.meetingId)
+                setConferenceName(iq.conferenceName)
+                setCreate(iq.create)
+                setExpire(iq.expire)
+                setRtcstatsEnabled(iq.isRtcstatsEnabled)
+            }.build()
+            is ConferenceModifiedIQ -> ConferenceModifiedIQ.builder(iqData).build()
+            else -> return iq.toXML().toString()
+        }
+
+        val xml = map(entities) { it.toXML(Colibri2Transcoder.XML_ENVIRONMENT).toString() }
+        var next = 0
+        var runs = 0
+        val run = StringBuilder()
+        fun endRun() {
+            if (run.isNotEmpty()) {
+                shell.addExtension(SerializedElements(run.toString(), "${SerializedElements.ELEMENT}-${runs++}"))
+                run.setLength(0)
+            }
+        }
+        extensions.forEach { extension ->
+            if (extension is AbstractConferenceEntity) {
+                run.append(xml[next++])
+            } else {
+                endRun()
+                shell.addExtension(extension)
+            }
+        }
+        endRun()
+        return shell.toXML().toString()
+    }
+
+    /** Writes the JSON for [iq] to [generator], like [Colibri2JSONSerializer.serializeConferenceModify]. */
+    @Throws(IOException::class)
+    fun serializeConferenceModify(iq: ConferenceModifyIQ, generator: JsonGenerator) {
+        if (!writeInParallel(iq, generator)) {
+            Colibri2JSONSerializer.serializeConferenceModify(iq, generator)
+            return
+        }
+        generator.writeStartObject()
+        writeEntities(iq, generator)
+        Colibri2JSONSerializer.writeConferenceModifyFields(iq, generator)
+        generator.writeEndObject()
+    }
+
+    /** Writes the JSON for [iq] to [generator], like [Colibri2JSONSerializer.serializeConferenceModified]. */
+    @Throws(IOException::class)
+    fun serializeConferenceModified(iq: ConferenceModifiedIQ, generator: JsonGenerator) {
+        if (!writeInParallel(iq, generator)) {
+            Colibri2JSONSerializer.serializeConferenceModified(iq, generator)
+            return
+        }
+        generator.writeStartObject()
+        writeEntities(iq, generator)
+        Colibri2JSONSerializer.writeConferenceModifiedFields(iq, generator)
+        generator.writeEndObject()
+    }
+
+    /** Deserializes a `conference-modify`, like [Colibri2JSONDeserializer.deserializeConferenceModify]. */
+    fun deserializeConferenceModify(conferenceModify: ObjectNode): ConferenceModifyIQ.Builder {
+        val entities = readEntities(conferenceModify)
+            ?: return Colibri2JSONDeserializer.deserializeConferenceModify(conferenceModify)
+        return Colibri2JSONDeserializer.deserializeConferenceModify(withoutEntities(conferenceModify)).apply {
+            entities.forEach { addConferenceEntity(it) }
+        }
+    }
+
+    /** Deserializes a `conference-modified`, like [Colibri2JSONDeserializer.deserializeConferenceModified]. */
+    fun deserializeConferenceModified(conferenceModified: ObjectNode): ConferenceModifiedIQ.Builder {
+        val entities = readEntities(conferenceModified)
+            ?: return Colibri2JSONDeserializer.deserializeConferenceModified(conferenceModified)
+        return Colibri2JSONDeserializer.deserializeConferenceModified(withoutEntities(conferenceModified)).apply {
+            entities.forEach { addConferenceEntity(it) }
+        }
+    }
+
+    private fun writeInParallel(iq: AbstractConferenceModificationIQ<*>, generator: JsonGenerator) =
+        iq.endpoints.size + iq.relays.size >= threshold &&
+            generator is JsonGeneratorImpl && generator.prettyPrinter == null
+
+    /** Writes the endpoints and relays of [iq], which are serialized in parallel, to [generator]. */
+    private fun writeEntities(iq: AbstractConferenceModificationIQ<*>, generator: JsonGenerator) {
+        val endpoints = Colibri2JSONSerializer.expandedEndpoints(iq)
+        val relays = Colibri2JSONSerializer.expandedRelays(iq)
+        val json = map(endpoints + relays) { entity ->
+            val writer = StringWriter()
+            JSON_FACTORY.createGenerator(writer).use { entityGenerator ->
+                /* Use the same escaping as the enclosing generator. */
+                entityGenerator.overrideStdFeatures(generator.featureMask, -1)
+                entityGenerator.setHighestNonEscapedChar(generator.highestEscapedChar)
+                generator.characterEscapes?.let { entityGenerator.setCharacterEscapes(it) }
+                when (entity) {
+                    is Colibri2Endpoint -> Colibri2JSONSerializer.writeEndpoint(entity, entityGenerator)
+                    is Colibri2Relay -> Colibri2JSONSerializer.writeRelay(entity, entityGenerator)
+                }
+            }
+            writer.toString()
+        }
+        if (endpoints.isNotEmpty()) {
+            generator.writeArrayFieldStart(Colibri2JSONSerializer.ENDPOINTS)
+            json.subList(0, endpoints.size).forEach { generator.writeRawValue(it) }
+            generator.writeEndArray()
+        }
+        if (relays.isNotEmpty()) {
+            generator.writeArrayFieldStart(Colibri2JSONSerializer.RELAYS)
+            json.subList(endpoints.size, json.size).forEach { generator.writeRawValue(it) }
+            generator.writeEndArray()
+        }
+    }
+
+    /**
+     * Deserializes the endpoints and relays of [modification] in parallel, or returns null if it should be
+     * deserialized sequentially (because it is small, or because its endpoints or relays are not arrays).
+     */
+    private fun readEntities(modification: ObjectNode): List<AbstractConferenceEntity>? {
+        val endpoints = modification[Colibri2JSONSerializer.ENDPOINTS]
+        val relays = modification[Colibri2JSONSerializer.RELAYS]
+        if ((endpoints != null && endpoints !is ArrayNode) || (relays != null && relays !is ArrayNode) ||
+            (endpoints?.size() ?: 0) + (relays?.size() ?: 0) < threshold
+        ) {
+            return null
+        }
+        val endpointCount = endpoints?.size() ?: 0
+        val elements = ArrayList<JsonNode>(endpointCount + (relays?.size() ?: 0))
+        endpoints?.forEach { elements.add(it) }
+        relays?.forEach { elements.add(it) }
+        return map(elements.withIndex().toList()) { (i, element) ->
+            if (i < endpointCount) {
+                Colibri2JSONDeserializer.deserializeEndpointElement(element)
+            } else {
+                Colibri2JSONDeserializer.deserializeRelayElement(element)
+            }
+        }
+    }
+
+    /** Applies [transform] to [items] in [pool], and returns the results in order, or throws the first failure. */
+    private fun <T, R> map(items: List<T>, transform: (T) -> R): List<R> {
+        val results = arrayOfNulls<Any>(items.size)
+        pool.invoke(MapTask(items, results, 0, items.size, transform))
+        results.forEach { if (it is Failure) throw it.exception }
+        @Suppress("UNCHECKED_CAST")
+        return results.asList() as List<R>
+    }
+
+    private class Failure(val exception: Exception)
+
+    /** Stores the results of [transform] for the [items] from [from] to [to], or the exceptions it throws. */
+    private class MapTask<T, R>(
+        private val items: List<T>,
+        private val results: Array<Any?>,
+        private val from: Int,
+        private val to: Int,
+        private val transform: (T) -> R
+    ) : RecursiveAction() {
+        override fun compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (i in from until to) {
+                    results[i] = try {
+                        transform(items[i])
+                    } catch (e: Exception) {
+                        Failure(e)
+                    }
+                }
+            } else {
+                val middle = (from + to) ushr 1
+                invokeAll(
+                    MapTask(items, results, from, middle, transform),
+                    MapTask(items, results, middle, to, transform)
+                )
+            }
+        }
+    }
+
+    companion object {
+        /** The default minimum number of endpoints and relays for which the work is split. */
+        const val DEFAULT_THRESHOLD = 64
+
+        /** The number of entities below which a task is not split further. */
+        private const val LEAF_SIZE = 8
+
+        private val JSON_FACTORY = JsonFactory()
+
+        /** Returns a shallow copy of [modification] without the endpoints and relays. */
+        private fun withoutEntities(modification: ObjectNode): ObjectNode =
+            JsonNodeFactory.instance.objectNode().apply {
+                setAll<JsonNode>(modification)
+                remove(listOf(Colibri2JSONSerializer.ENDPOINTS, Colibri2JSONSerializer.RELAYS))
+            }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.JsonParser
+import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceModificationIQ
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQProvider
+import org.jitsi.xmpp.extensions.colibri2.Connects
+import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
+import org.jitsi.xmpp.extensions.colibri2.Sources
+import org.jivesoftware.smack.packet.ExtensionElement
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.IqData
+import org.jivesoftware.smack.packet.StanzaBuilder
+import org.jivesoftware.smack.packet.XmlEnvironment
+import org.jivesoftware.smack.parsing.SmackParsingException
+import org.jivesoftware.smack.xml.XmlPullParser
+import org.jivesoftware.smack.xml.XmlPullParserException
+import java.io.IOException
+
+/**
+ * Converts colibri2 `conference-modify` and `conference-modified` IQs between XML and JSON without building the whole
+ * IQ, with the same mapping as [Colibri2JSONSerializer] and [Colibri2JSONDeserializer].
+ *
+ * Endpoints, which make up most of a large IQ, are converted one at a time: each one is written out as soon as it has
+ * been read, and is not retained. The other children (relays, connects and the conference-wide sources) are few, and
+ * are kept until the end, because the JSON form has them after the endpoints, and the XML form has the attributes of
+ * the conference element (which the JSON form may have last) before them.
+ */
+object Colibri2Transcoder {
+    /**
+     * Reads a `conference-modify` or `conference-modified` element from [parser], which is positioned at its start
+     * tag, and writes its JSON form to [generator]. When this returns the parser is positioned at the end tag.
+     */
+    @JvmStatic
+    @Throws(XmlPullParserException::class, IOException::class, SmackParsingException::class)
+    fun xmlToJson(parser: XmlPullParser, generator: JsonGenerator) {
+        val iqData = StanzaBuilder.buildIqData(STANZA_ID)
+        val iq: AbstractConferenceModificationIQ<*> = when (parser.name) {
+            ConferenceModifyIQ.ELEMENT -> ConferenceModifyIQProvider.parseAttributes(parser, iqData).build()
+            ConferenceModifiedIQ.ELEMENT -> ConferenceModifiedIQ.builder(iqData).build()
+            else -> throw SmackParsingException("Expected a colibri2 IQ element, found ${parser.name}")
+        }
+
+        generator.writeStartObject()
+        var endpoints = false
+        IqProviderUtils.parseExtensions(parser, parser.depth) { extension ->
+            if (extension is Colibri2Endpoint) {
+                if (!endpoints) {
+                    generator.writeArrayFieldStart(Colibri2JSONSerializer.ENDPOINTS)
+                    endpoints = true
+                }
+                Colibri2JSONSerializer.writeEndpoint(extension, generator)
+            } else {
+                iq.addExtension(extension)
+            }
+        }
+        if (endpoints) {
+            generator.writeEndArray()
+        }
+        Colibri2JSONSerializer.writeRelays(iq.relays, generator)
+        when (iq) {
+            is ConferenceModifyIQ -> Colibri2JSONSerializer.writeConferenceModifyFields(iq, generator)
+            is ConferenceModifiedIQ -> Colibri2JSONSerializer.writeConferenceModifiedFields(iq, generator)
+        }
+        generator.writeEndObject()
+    }
+
+    /**
+     * Reads the JSON form of a `conference-modify` from [parser], which is positioned either before or at the start of
+     * the object, and returns the XML of the IQ with [iqData]. Invalid JSON is rejected like
+     * [Colibri2JSONDeserializer.deserializeConferenceModify] rejects it.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun conferenceModifyJsonToXml(parser: JsonParser, iqData: IqData): String {
+        val builder = ConferenceModifyIQ.builder(iqData)
+        var connects: Connects? = null
+        val children = readChildren(parser) { name ->
+            if (name == Connects.ELEMENT) {
+                connects = Colibri2JSONDeserializer.deserializeConnects(parser.readNode())
+                true
+            } else {
+                Colibri2JSONDeserializer.readConferenceModifyAttribute(parser, name, builder)
+            }
+        }
+        return children.toXml(builder.build(), connects)
+    }
+
+    /**
+     * Reads the JSON form of a `conference-modified` from [parser], which is positioned either before or at the start
+     * of the object, and returns the XML of the IQ with [iqData].
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun conferenceModifiedJsonToXml(parser: JsonParser, iqData: IqData): String {
+        var sources: Sources? = null
+        val children = readChildren(parser) { name ->
+            if (name == Sources.ELEMENT) {
+                sources = Colibri2JSONDeserializer.readSources(parser)
+                true
+            } else {
+                false
+            }
+        }
+        return children.toXml(ConferenceModifiedIQ.builder(iqData).build(), sources)
+    }
+
+    /**
+     * Reads the fields of a `conference-modify` or `conference-modified`, serializing each endpoint as soon as it has
+     * been read, and passing the fields other than the endpoints and relays to [readField], which returns false for
+     * fields it does not know.
+     */
+    private inline fun readChildren(parser: JsonParser, readField: (String) -> Boolean): Children {
+        parser.startObject("conference")
+
+        val endpoints = StringBuilder()
+        var relays: List<Colibri2Relay> = emptyList()
+        parser.forEachField { name ->
+            when (name) {
+                Colibri2JSONSerializer.ENDPOINTS -> {
+                    // Like a repeated field in a tree, a repeated endpoints field replaces the previous one.
+                    endpoints.setLength(0)
+                    parser.forEachElement("endpoints") {
+                        parser.requireObject("endpoint element")
+                        endpoints.append(Colibri2JSONDeserializer.readEndpoint(parser).toXML(XML_ENVIRONMENT))
+                    }
+                }
+                Colibri2JSONSerializer.RELAYS -> relays = Colibri2JSONDeserializer.readRelays(parser)
+                else -> if (!readField(name)) parser.skipChildren()
+            }
+        }
+        return Children(endpoints, relays)
+    }
+
+    /** The already serialized endpoints and the relays of a `conference-modify` or `conference-modified`. */
+    private class Children(private val endpoints: CharSequence, private val relays: List<Colibri2Relay>) {
+        /**
+         * Returns the XML of [iq], which has no children yet, with the endpoints, the relays and then [last] (the
+         * connects or the sources) as its children, in the order in which the IQ builders add them.
+         */
+        fun toXml(iq: IQ, last: ExtensionElement?): String {
+            if (endpoints.isNotEmpty()) {
+                iq.addExtension(SerializedElements(endpoints))
+            }
+            relays.forEach { iq.addExtension(it) }
+            last?.let { iq.addExtension(it) }
+            return iq.toXML().toString()
+        }
+    }
+
+    /**
+     * Child elements which have already been serialized in the colibri2 namespace. Since a stanza groups its
+     * extensions by name, separate runs of serialized elements need distinct [elementName]s to keep their positions.
+     */
+    internal class SerializedElements(
+        private val xml: CharSequence,
+        private val elementName: String = ELEMENT
+    ) : ExtensionElement {
+        override fun getElementName() = elementName
+
+        override fun getNamespace() = AbstractConferenceModificationIQ.NAMESPACE
+
+        override fun toXML(xmlEnvironment: XmlEnvironment?) = xml
+
+        companion object {
+            const val ELEMENT = "serialized-elements"
+        }
+    }
+
+    /** The stanza ID of the IQs which only hold the attributes of the element being converted to JSON. */
+    private const val STANZA_ID = "id"
+
+    /** The environment in which the endpoints are serialized, that of the enclosing colibri2 element. */
+    internal val XML_ENVIRONMENT = XmlEnvironment(AbstractConferenceModificationIQ.NAMESPACE)
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.JsonNodeType
+import com.fasterxml.jackson.databind.node.ObjectNode
+import org.jitsi.xmpp.extensions.colibri.json.JSONDeserializer
+
+/*
+ * Helpers for reading colibri2 JSON from a [JsonParser], with the same validation messages as the [JsonNode] based
+ * code in [Colibri2JSONDeserializer].
+ */
+
+/** Used to read the small subtrees (media, transport, connects) which the streaming code delegates to. */
+private val mapper = ObjectMapper()
+
+/** Advances the parser to the first token if it has not been advanced yet, and requires it to start an object. */
+internal fun JsonParser.startObject(name: String) {
+    if (currentToken() == null) {
+        nextToken()
+    }
+    requireObject(name)
+}
+
+/**
+ * Calls [block] with the name of each field of the current object, with the parser at the start of its value.
+ *
+ * An [ObjectNode] keeps only the last value of a repeated field, so an invalid value which is followed by another
+ * value for the same field must not fail the object. When [block] throws an [IllegalArgumentException], the rest of
+ * the value is skipped and the error is kept until the end of the object, unless a later value for the field is read
+ * successfully. The first remaining error in document order is thrown once the whole object has been read.
+ */
+internal inline fun JsonParser.forEachField(block: (String) -> Unit) {
+    val context = parsingContext
+    var errors: MutableMap<String, IllegalArgumentException>? = null
+    while (nextToken() == JsonToken.FIELD_NAME) {
+        val name = currentName()
+        nextToken()
+        try {
+            block(name)
+            errors?.remove(name)
+        } catch (e: IllegalArgumentException) {
+            while (parsingContext !== context && nextToken() != null) {
+                // Skip to the end of the value.
+            }
+            val fieldErrors = errors ?: LinkedHashMap<String, IllegalArgumentException>().also { errors = it }
+            fieldErrors[name] = e
+        }
+    }
+    errors?.values?.firstOrNull()?.let { throw it }
+}
+
+/** Calls [block] with the parser at the start of each element of the current array. */
+internal inline fun JsonParser.forEachElement(name: String, block: () -> Unit) {
+    requireArray(name)
+    while (nextToken() != JsonToken.END_ARRAY) {
+        block()
+    }
+}
+
+/** Reads the current array, calling [readElement] with the parser at the start of each element. */
+internal inline fun <T> JsonParser.readList(name: String, readElement: () -> T): List<T> =
+    ArrayList<T>().also { list -> forEachElement(name) { list.add(readElement()) } }
+
+/** Reads the current value as a tree. */
+internal fun JsonParser.readNode(): JsonNode = mapper.readTree(this)
+
+internal fun JsonParser.readObject(name: String): ObjectNode {
+    requireObject(name)
+    return readNode() as ObjectNode
+}
+
+internal fun JsonParser.readText(name: String): String {
+    require(currentToken() == JsonToken.VALUE_STRING) { "Expected string for $name, got ${nodeType()}" }
+    return text
+}
+
+internal fun JsonParser.readBoolean(name: String): Boolean {
+    require(currentToken().isBoolean) { "Expected boolean for $name, got ${nodeType()}" }
+    return currentToken() == JsonToken.VALUE_TRUE
+}
+
+internal fun JsonParser.requireObject(name: String) =
+    require(currentToken() == JsonToken.START_OBJECT) { "Expected object for $name, got ${nodeType()}" }
+
+internal fun JsonParser.requireArray(name: String) =
+    require(currentToken() == JsonToken.START_ARRAY) { "Expected array for $name, got ${nodeType()}" }
+
+internal fun JsonParser.nodeType(): JsonNodeType = JSONDeserializer.nodeType(currentToken())
@@ -16,124 +16,216 @@
 package org.jitsi.xmpp.util
 
 import java.io.StringReader
-import java.io.StringWriter
-import javax.xml.XMLConstants
-import javax.xml.transform.Templates
-import javax.xml.transform.TransformerFactory
-import javax.xml.transform.stream.StreamResult
-import javax.xml.transform.stream.StreamSource
+import javax.xml.stream.XMLInputFactory
+import javax.xml.stream.XMLStreamConstants
+import javax.xml.stream.XMLStreamException
+import javax.xml.stream.XMLStreamReader
 
+/**
+ * Redacts sensitive values from colibri2 IQs before they are logged. The input is streamed through a StAX reader and
+ * written out in a single pass, copying everything except the redacted attribute values. The output omits the XML
+ * declaration and is equivalent, but not necessarily textually identical, to the input.
+ */
 class RedactColibri {
     companion object {
-        private val redactHttpHeaderValuesXslt =
-            """
-<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
-                xmlns:j="jabber:client"
-                xmlns:c="jitsi:colibri2"
-                >
-  <xsl:output method="xml" omit-xml-declaration="yes"/>
-
-  <xsl:template match="node()|@*">
-    <xsl:copy>
-      <xsl:apply-templates select="node()|@*"/>
-    </xsl:copy>
-  </xsl:template>
-
-  <xsl:template match='j:iq/c:conference-modify/c:connects/c:connect/c:http-header/@value'>
-    <xsl:attribute name="value">
-      <xsl:value-of select='"[redacted]"'/>
-    </xsl:attribute>
-  </xsl:template>
-</xsl:stylesheet>
-            """
-
-        private val httpHeaderTemplates: Templates by lazy {
-            factory.newTemplates(
-                StreamSource(StringReader(redactHttpHeaderValuesXslt))
-            )
+        private const val JABBER_CLIENT = "jabber:client"
+        private const val COLIBRI2 = "jitsi:colibri2"
+        private const val ICE_UDP = "urn:xmpp:jingle:transports:ice-udp:1"
+
+        /* Codes for the elements on the redacted paths, so that the path is matched without comparing strings. */
+        private const val OTHER = 0
+        private const val IQ = 1
+        private const val CONFERENCE_MODIFY = 2
+        private const val ENDPOINT = 3
+        private const val COLIBRI2_TRANSPORT = 4
+        private const val ICE_UDP_TRANSPORT = 5
+        private const val CANDIDATE = 6
+        private const val CONNECTS = 7
+        private const val CONNECT = 8
+        private const val HTTP_HEADER = 9
+
+        private const val REDACTED = "[redacted]"
+
+        /** Thread-safe once configured, so it is shared by all calls. */
+        private val factory: XMLInputFactory by lazy {
+            XMLInputFactory.newInstance().apply {
+                setProperty(XMLInputFactory.SUPPORT_DTD, false)
+                setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false)
+                setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true)
+            }
+        }
+
+        /**
+         * Replaces the values of the `http-header` elements of `connect`s with "[redacted]".
+         * @throws XMLStreamException if [input] is not well-formed.
+         */
+        fun redactHttpHeaderValues(input: String): String = redact(input, Rule.HTTP_HEADER_VALUES)
+
+        /**
+         * Redacts the IP addresses of endpoint candidates, except relay candidates, and their related addresses.
+         * Loopback and unspecified addresses are kept, see [redactIpAddress].
+         * @throws XMLStreamException if [input] is not well-formed.
+         */
+        fun redactIp(input: String): String = redact(input, Rule.IP_ADDRESSES)
+
+        /**
+         * Redacts a single address: a globally-routable IPv6 address becomes "2xxx::xxx", other IPv6 addresses keep
+         * their first group, and IPv4 addresses become "xx.xx.xx.xx".
+         */
+        private fun redactIpAddress(ip: String): String = when {
+            ip == "0.0.0.0" || ip == "::" || ip == "::1" || ip.startsWith("127.") -> ip
+            ip.contains(':') && (ip.startsWith('2') || ip.startsWith('3')) -> "2xxx::xxx"
+            ip.contains(':') -> ip.substringBefore(':') + "::xxx"
+            ip.contains('.') -> "xx.xx.xx.xx"
+            else -> ip
+        }
+
+        private fun code(namespace: String?, name: String): Int = when (namespace) {
+            JABBER_CLIENT -> if (name == "iq") IQ else OTHER
+            COLIBRI2 -> when (name) {
+                "conference-modify" -> CONFERENCE_MODIFY
+                "endpoint" -> ENDPOINT
+                "transport" -> COLIBRI2_TRANSPORT
+                "connects" -> CONNECTS
+                "connect" -> CONNECT
+                "http-header" -> HTTP_HEADER
+                else -> OTHER
+            }
+            ICE_UDP -> when (name) {
+                "transport" -> ICE_UDP_TRANSPORT
+                "candidate" -> CANDIDATE
+                else -> OTHER
+            }
+            else -> OTHER
+        }
+
+        /** Whether the element path [stack] (of which [depth] entries are used) ends with [path]. */
+        private fun endsWith(stack: IntArray, depth: Int, path: IntArray): Boolean {
+            if (depth < path.size) return false
+            val offset = depth - path.size
+            for (i in path.indices) {
+                if (stack[offset + i] != path[i]) return false
+            }
+            return true
         }
 
-        fun redactHttpHeaderValues(input: String): String {
-            val source = StreamSource(StringReader(input))
-            val writer = StringWriter()
-            val result = StreamResult(writer)
-            val transformer = httpHeaderTemplates.newTransformer()
-            transformer.transform(source, result)
-            return writer.toString()
+        private fun redact(input: String, rule: Rule): String {
+            val reader = factory.createXMLStreamReader(StringReader(input))
+            val out = StringBuilder(input.length)
+            var stack = IntArray(16)
+            var depth = 0
+            /* Whether the last start tag is still open, so that it can be closed as an empty element. */
+            var startTagOpen = false
+
+            try {
+                while (reader.hasNext()) {
+                    val event = reader.next()
+                    if (startTagOpen && event != XMLStreamConstants.END_ELEMENT) {
+                        out.append('>')
+                        startTagOpen = false
+                    }
+                    when (event) {
+                        XMLStreamConstants.START_ELEMENT -> {
+                            if (depth == stack.size) stack = stack.copyOf(depth * 2)
+                            stack[depth++] = code(reader.namespaceURI, reader.localName)
+                            writeStartTag(reader, out, if (endsWith(stack, depth, rule.path)) rule else null)
+                            startTagOpen = true
+                        }
+                        XMLStreamConstants.END_ELEMENT -> {
+                            depth--
+                            if (startTagOpen) {
+                                out.append("/>")
+                                startTagOpen = false
+                            } else {
+                                out.append("</").appendName(reader.prefix, reader.localName).append('>')
+                            }
+                        }
+                        XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                            /* Whitespace outside of the root element is not part of the output, as with XSLT. */
+                            if (depth > 0) {
+                                val chars = reader.textCharacters
+                                for (i in reader.textStart until reader.textStart + reader.textLength) {
+                                    out.appendEscaped(chars[i], false)
+                                }
+                            }
+                        XMLStreamConstants.COMMENT -> out.append("<!--").append(reader.text).append("-->")
+                        XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+                            out.append("<?").append(reader.piTarget)
+                            reader.piData?.takeIf { it.isNotEmpty() }?.let { out.append(' ').append(it) }
+                            out.append("?>")
+                        }
+                        else -> { /* The document start and end, and the DTD, are not copied. */ }
+                    }
+                }
+            } finally {
+                reader.close()
+            }
+            return out.toString()
+        }
+
+        /**
+         * Writes the start tag the reader is positioned on, without the closing '>'. If the element is the last one
+         * on the path of [rule], its attributes are redacted.
+         */
+        private fun writeStartTag(reader: XMLStreamReader, out: StringBuilder, rule: Rule?) {
+            out.append('<').appendName(reader.prefix, reader.localName)
+            for (i in 0 until reader.namespaceCount) {
+                val prefix = reader.getNamespacePrefix(i)
+                out.append(" xmlns")
+                if (!prefix.isNullOrEmpty()) out.append(':').append(prefix)
+                out.append("=\"").appendEscaped(reader.getNamespaceURI(i) ?: "").append('"')
+            }
+            for (i in 0 until reader.attributeCount) {
+                val name = reader.getAttributeLocalName(i)
+                var value = reader.getAttributeValue(i)
+                if (rule != null && reader.getAttributeNamespace(i).isNullOrEmpty()) {
+                    value = redactAttribute(reader, rule, name, value)
+                }
+                out.append(' ').appendName(reader.getAttributePrefix(i), name)
+                out.append("=\"").appendEscaped(value).append('"')
+            }
         }
 
-        private val redactXslt =
-            """
-<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
-                xmlns:j="jabber:client"
-                xmlns:c="jitsi:colibri2"
-                xmlns:i="urn:xmpp:jingle:transports:ice-udp:1"
-                >
-  <xsl:output method="xml" omit-xml-declaration="yes"/>
-
-  <xsl:template name="redactIp">
-    <xsl:choose>
-      <!-- Unspecified address or loopback -->
-      <xsl:when test='. = "0.0.0.0" or . = "::" or . = "::1" or starts-with(., "127.")'>
-        <xsl:value-of select='.'/>
-      </xsl:when>
-      <!-- Globally-routable IPv6 -->
-      <xsl:when test='contains(., ":") and (starts-with(., "2") or starts-with(., "3"))'>
-        <xsl:value-of select='"2xxx::xxx"'/>
-      </xsl:when>
-      <!-- Other IPv6 -->
-      <xsl:when test='contains(., ":")'>
-        <xsl:value-of select='concat(substring-before(., ":"), "::xxx")'/>
-      </xsl:when>
-      <!-- IPv4 -->
-      <xsl:when test='contains(., ".")'>
-        <xsl:value-of select='"xx.xx.xx.xx"'/>
-      </xsl:when>
-      <!-- Unrecognized format -->
-      <xsl:otherwise>
-        <xsl:value-of select='.'/>
-      </xsl:otherwise>
-    </xsl:choose>
-  </xsl:template>
-
-  <xsl:template match="node()|@*">
-    <xsl:copy>
-      <xsl:apply-templates select="node()|@*"/>
-    </xsl:copy>
-  </xsl:template>
-
-  <xsl:template match='j:iq/c:conference-modify/c:endpoint/c:transport/i:transport/i:candidate[not(@type) or @type != "relay"]/@ip'>
-    <xsl:attribute name="ip">
-      <xsl:call-template name="redactIp"/>
-    </xsl:attribute>
-  </xsl:template>
-
-  <xsl:template match='j:iq/c:conference-modify/c:endpoint/c:transport/i:transport/i:candidate/@rel-addr'>
-    <xsl:attribute name="rel-addr">
-      <xsl:call-template name="redactIp"/>
-    </xsl:attribute>
-  </xsl:template>
-</xsl:stylesheet>
-            """
-
-        private val factory: TransformerFactory by lazy {
-            TransformerFactory.newInstance().also {
-                it.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true)
+        private fun redactAttribute(reader: XMLStreamReader, rule: Rule, name: String, value: String): String =
+            when (rule) {
+                Rule.HTTP_HEADER_VALUES -> if (name == "value") REDACTED else value
+                Rule.IP_ADDRESSES -> when {
+                    name == "rel-addr" -> redactIpAddress(value)
+                    name == "ip" && reader.getAttributeValue(null, "type") != "relay" -> redactIpAddress(value)
+                    else -> value
+                }
             }
+
+        private fun StringBuilder.appendName(prefix: String?, localName: String): StringBuilder {
+            if (!prefix.isNullOrEmpty()) append(prefix).append(':')
+            return append(localName)
         }
-        private val templates: Templates by lazy {
-            factory.newTemplates(
-                StreamSource(StringReader(redactXslt))
-            )
+
+        private fun StringBuilder.appendEscaped(s: String): StringBuilder {
+            for (c in s) appendEscaped(c, true)
+            return this
         }
 
-        fun redactIp(input: String): String {
-            val source = StreamSource(StringReader(input))
-            val writer = StringWriter()
-            val result = StreamResult(writer)
-            val transformer = templates.newTransformer()
-            transformer.transform(source, result)
-            return writer.toString()
+        private fun StringBuilder.appendEscaped(c: Char, attribute: Boolean) {
+            when (c) {
+                '&' -> append("&amp;")
+                '<' -> append("&lt;")
+                '>' -> append("&gt;")
+                '"' -> if (attribute) append("&quot;") else append(c)
+                '\n' -> if (attribute) append("&#10;") else append(c)
+                '\t' -> if (attribute) append("&#9;") else append(c)
+                '\r' -> append("&#13;")
+                else -> append(c)
+            }
         }
     }
+
+    /** The attributes which are redacted, and the path of the element which has them. */
+    private enum class Rule(val path: IntArray) {
+        /** iq/conference-modify/endpoint/transport/transport/candidate, whose `ip` and `rel-addr` are redacted. */
+        IP_ADDRESSES(intArrayOf(IQ, CONFERENCE_MODIFY, ENDPOINT, COLIBRI2_TRANSPORT, ICE_UDP_TRANSPORT, CANDIDATE)),
+
+        /** iq/conference-modify/connects/connect/http-header, whose `value` is redacted. */
+        HTTP_HEADER_VALUES(intArrayOf(IQ, CONFERENCE_MODIFY, CONNECTS, CONNECT, HTTP_HEADER))
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import javax.xml.namespace.*;
+
+import org.jitsi.xmpp.extensions.coin.*;
+import org.jitsi.xmpp.extensions.colibri2.*;
+import org.jitsi.xmpp.extensions.jingle.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.provider.*;
+import org.jivesoftware.smack.util.*;
+
+import org.junit.jupiter.api.*;
+import org.reflections.*;
+import org.reflections.scanners.*;
+import org.reflections.util.*;
+
+/**
+ * Verify that parsing an IQ does not allocate any providers: no provider is
+ * constructed by code that runs while parsing, and the providers registered
+ * with the {@link ProviderManager}, and the sub-providers they delegate to for
+ * child elements, are the same objects before and after parsing.
+ */
+public class ProviderAllocationTest
+{
+    private static final String JINGLE_XML = "<iq xmlns='jabber:client' id='j' type='set'>"
+        + "<jingle xmlns='urn:xmpp:jingle:1' action='session-initiate' sid='sid'>"
+        + "<content name='audio' creator='initiator'>"
+        + "<description xmlns='urn:xmpp:jingle:apps:rtp:1' media='audio'>"
+        + "<payload-type id='111' name='opus' clockrate='48000' channels='2'>"
+        + "<parameter name='minptime' value='10'/>"
+        + "</payload-type>"
+        + "<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='1' name='e-a0'/>"
+        + "</description>"
+        + "<transport xmlns='urn:xmpp:jingle:transports:ice-udp:1' ufrag='u' pwd='p'>"
+        + "<candidate id='c' ip='192.0.2.1' port='10000' type='host' protocol='udp' component='1'/>"
+        + "</transport>"
+        + "</content>"
+        + "<reason><success/></reason>"
+        + "</jingle>"
+        + "</iq>";
+
+    private static final String CONFERENCE_MODIFY_XML = "<iq xmlns='jabber:client' id='c' type='set'>"
+        + "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'>"
+        + "<endpoint id='e' create='true'>"
+        + "<media type='audio'>"
+        + "<payload-type xmlns='urn:xmpp:jingle:apps:rtp:1' id='111' name='opus' clockrate='48000' channels='2'/>"
+        + "</media>"
+        + "<transport/>"
+        + "<sources><media-source type='audio' id='e-a0'>"
+        + "<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='1'/>"
+        + "</media-source></sources>"
+        + "</endpoint>"
+        + "</conference-modify>"
+        + "</iq>";
+
+    private static final Set<String> PARSE_METHODS = Set.of("parse", "doParse");
+
+    /**
+     * Scans the compiled classes for calls of provider constructors from the
+     * parsing code of a provider.
+     */
+    @Test
+    public void noProviderConstructorCallsWhileParsing()
+    {
+        Reflections reflections = new Reflections(
+            new ConfigurationBuilder()
+                .setUrls(ClasspathHelper.forClass(SafeParseIqProvider.class))
+                .setScanners(new SubTypesScanner(), new MemberUsageScanner()));
+
+        Set<Class<?>> providerClasses = new HashSet<>();
+        providerClasses.addAll(reflections.getSubTypesOf(ExtensionElementProvider.class));
+        providerClasses.addAll(reflections.getSubTypesOf(IqProvider.class));
+        assertTrue(providerClasses.contains(JingleIQProvider.class));
+        assertTrue(providerClasses.contains(UserProvider.class));
+
+        List<String> violations = new ArrayList<>();
+        for (Class<?> providerClass : providerClasses)
+        {
+            for (Constructor<?> constructor : providerClass.getDeclaredConstructors())
+            {
+                for (Member usage : reflections.getConstructorUsage(constructor))
+                {
+                    if (isParsing(usage, providerClasses))
+                    {
+                        violations.add(providerClass.getName() + " is instantiated in "
+                            + usage.getDeclaringClass().getName() + "." + usage.getName());
+                    }
+                }
+            }
+        }
+
+        assertTrue(violations.isEmpty(), "Providers allocated while parsing: " + violations);
+    }
+
+    /**
+     * Whether {@code usage} runs while parsing: a parse method, a Java or
+     * Kotlin lambda in one, or any other instance method of a provider. Registration is done
+     * in static methods and initializers, which are not reported as usages.
+     */
+    private static boolean isParsing(Member usage, Set<Class<?>> providerClasses)
+    {
+        if (!(usage instanceof Method))
+        {
+            return false;
+        }
+        String name = usage.getName();
+        return PARSE_METHODS.contains(name)
+            || PARSE_METHODS.stream().anyMatch(parse ->
+                name.startsWith("lambda$" + parse + "$") || name.startsWith(parse + "$lambda"))
+            || (!Modifier.isStatic(usage.getModifiers()) && providerClasses.contains(usage.getDeclaringClass()));
+    }
+
+    /**
+     * Parses several IQs and checks that the registered providers and the
+     * sub-providers they delegate to are still the same objects.
+     */
+    @Test
+    public void noProvidersReplacedWhileParsing()
+        throws Exception
+    {
+        JingleIQProvider.registerProviders();
+        IqProviderUtils.registerProviders();
+        /* Parse once first, so that any lazily registered providers have been replaced. */
+        parseAll();
+
+        Map<QName, Object> iqProviders = getProviders("iqProviders");
+        Map<QName, Object> extensionProviders = getProviders("extensionProviders");
+        Map<Field, Object> subProviders = getSubProviders(iqProviders.values(), extensionProviders.values());
+        assertFalse(subProviders.isEmpty());
+
+        for (int i = 0; i < 3; i++)
+        {
+            parseAll();
+        }
+
+        assertUnchanged(iqProviders, getProviders("iqProviders"), "Registered IQ providers");
+        assertUnchanged(extensionProviders, getProviders("extensionProviders"), "Registered extension providers");
+        subProviders.forEach((field, provider) ->
+        {
+            try
+            {
+                assertSame(provider, field.get(null), field.toString());
+            }
+            catch (IllegalAccessException e)
+            {
+                fail(e);
+            }
+        });
+    }
+
+    private static void parseAll()
+        throws Exception
+    {
+        assertInstanceOf(JingleIQ.class, PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(JINGLE_XML)));
+        assertInstanceOf(
+            ConferenceModifyIQ.class,
+            PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(CONFERENCE_MODIFY_XML)));
+    }
+
+    /** Asserts that every provider in {@code expected} is still registered as the same object. */
+    private static void assertUnchanged(Map<QName, Object> expected, Map<QName, Object> actual, String what)
+    {
+        assertEquals(expected.keySet(), actual.keySet(), what);
+        expected.forEach((qName, provider) ->
+            assertSame(provider, actual.get(qName), what + ": " + qName + " was replaced"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<QName, Object> getProviders(String fieldName)
+        throws ReflectiveOperationException
+    {
+        Field field = ProviderManager.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return new HashMap<>((Map<QName, Object>) field.get(null));
+    }
+
+    /**
+     * Returns the static provider fields of the classes of the given
+     * providers, with their current values.
+     */
+    @SafeVarargs
+    private static Map<Field, Object> getSubProviders(Collection<Object>... providers)
+        throws IllegalAccessException
+    {
+        Map<Field, Object> subProviders = new HashMap<>();
+        for (Collection<Object> collection : providers)
+        {
+            for (Object provider : collection)
+            {
+                for (Field field : provider.getClass().getDeclaredFields())
+                {
+                    if (Modifier.isStatic(field.getModifiers())
+                        && (ExtensionElementProvider.class.isAssignableFrom(field.getType())
+                            || IqProvider.class.isAssignableFrom(field.getType())))
+                    {
+                        field.setAccessible(true);
+                        subProviders.put(field, field.get(null));
+                    }
+                }
+            }
+        }
+        return subProviders;
+    }
+}
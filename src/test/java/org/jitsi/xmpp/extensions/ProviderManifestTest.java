@@ -0,0 +1,296 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import javax.xml.namespace.*;
+
+import org.jitsi.utils.*;
+import org.jitsi.xmpp.extensions.colibri2.*;
+import org.jitsi.xmpp.extensions.jingle.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.provider.*;
+import org.jivesoftware.smack.util.*;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.function.*;
+import org.xmlunit.builder.*;
+import org.xmlunit.diff.*;
+
+/**
+ * Verifies that the provider manifest used for lazy registration is in sync
+ * with the eager registration, and that lazily registered providers work.
+ */
+public class ProviderManifestTest
+{
+    private static final String JINGLE_XML = "<iq xmlns='jabber:client' id='id' type='set'>"
+        + "<jingle xmlns='urn:xmpp:jingle:1' action='session-initiate' sid='sid'>"
+        + "<content name='audio' creator='initiator'>"
+        + "<description xmlns='urn:xmpp:jingle:apps:rtp:1' media='audio'>"
+        + "<payload-type id='111' name='opus' clockrate='48000' channels='2'/>"
+        + "</description>"
+        + "</content>"
+        + "</jingle>"
+        + "</iq>";
+
+    /**
+     * The manifest is generated in a new JVM from the providers which
+     * {@link LazyProviderRegistration#registerEagerly()} actually registers.
+     */
+    @Test
+    public void manifestMatchesEagerRegistration()
+        throws Exception
+    {
+        List<String> generated = runInNewJvm(ProviderManifestTest.class).stream()
+            .filter(line -> line.startsWith(ProviderManifest.Kind.IQ + " ")
+                || line.startsWith(ProviderManifest.Kind.EXTENSION + " "))
+            .collect(Collectors.toList());
+
+        Set<String> manifest = ProviderManifest.getEntries().stream()
+            .map(ProviderManifest.Entry::toString)
+            .collect(Collectors.toSet());
+
+        assertFalse(generated.isEmpty());
+        assertEquals(new HashSet<>(generated), manifest,
+            "The provider manifest is out of date. Expected entries:\n" + String.join("\n", generated));
+    }
+
+    @Test
+    public void lazyProvidersAreReplacedOnFirstUse()
+        throws Throwable
+    {
+        withLazyProviders(() ->
+        {
+            assertFalse(
+                ProviderManager.getIQProvider(JingleIQ.ELEMENT, JingleIQ.NAMESPACE) instanceof JingleIQProvider);
+
+            IQ iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(JINGLE_XML));
+
+            assertInstanceOf(JingleIQ.class, iq);
+            ContentPacketExtension content = ((JingleIQ) iq).getContentList().get(0);
+            RtpDescriptionPacketExtension description
+                = content.getFirstChildOfType(RtpDescriptionPacketExtension.class);
+            assertNotNull(description);
+            assertEquals("opus", description.getPayloadTypes().get(0).getName());
+
+            assertInstanceOf(
+                JingleIQProvider.class,
+                ProviderManager.getIQProvider(JingleIQ.ELEMENT, JingleIQ.NAMESPACE));
+            assertInstanceOf(
+                DefaultPacketExtensionProvider.class,
+                ProviderManager.getExtensionProvider(
+                    RtpDescriptionPacketExtension.ELEMENT,
+                    RtpDescriptionPacketExtension.NAMESPACE));
+        });
+    }
+
+    /**
+     * The templates of a compressed IQ are only parsed into {@link Templates}, and so only expanded, if the
+     * manifest has an entry for them.
+     */
+    @Test
+    public void lazyProvidersExpandTemplates()
+        throws Throwable
+    {
+        ConferenceModifyIQ.Builder iqBuilder = ConferenceModifyIQ.builder("id");
+        iqBuilder.setMeetingId("88ff288c-5eeb-4ea9-bc2f-93ea38c43b78");
+        for (int i = 0; i < 3; i++)
+        {
+            PayloadTypePacketExtension opus = new PayloadTypePacketExtension();
+            opus.setId(111);
+            opus.setName("opus");
+            opus.setClockrate(48000);
+            opus.setChannels(2);
+
+            Media.Builder mediaBuilder = Media.getBuilder();
+            mediaBuilder.setType(MediaType.AUDIO);
+            mediaBuilder.addPayloadType(opus);
+
+            Colibri2Endpoint.Builder endpointBuilder = Colibri2Endpoint.getBuilder();
+            endpointBuilder.setId("endpoint-" + i);
+            endpointBuilder.setCreate(true);
+            endpointBuilder.addMedia(mediaBuilder.build());
+            iqBuilder.addEndpoint(endpointBuilder.build());
+        }
+        ConferenceModifyIQ iq = iqBuilder.build();
+        ConferenceModifyIQ compressed = Colibri2Templates.compress(iq);
+        assertNotNull(compressed.getTemplates());
+        String compressedXml = compressed.toXML().toString();
+
+        withLazyProviders(() ->
+        {
+            IQ parsed = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(compressedXml));
+
+            assertInstanceOf(ConferenceModifyIQ.class, parsed);
+            assertNull(((ConferenceModifyIQ) parsed).getTemplates());
+            Diff diff = DiffBuilder.compare(iq.toXML().toString())
+                .withTest(parsed.toXML().toString())
+                .ignoreWhitespace()
+                .checkForIdentical()
+                .build();
+            assertFalse(diff.hasDifferences(), diff.toString());
+        });
+    }
+
+    /**
+     * Registers the providers lazily and runs {@code test}. Registering lazily changes global state, so afterwards
+     * the providers registered before are restored, and checked to be.
+     */
+    private static void withLazyProviders(Executable test)
+        throws Throwable
+    {
+        Map<QName, Object> iqProviders = getProviders("iqProviders");
+        Map<QName, Object> extensionProviders = getProviders("extensionProviders");
+        try
+        {
+            LazyProviderRegistration.registerLazily();
+            test.execute();
+        }
+        finally
+        {
+            restoreProviders(iqProviders, extensionProviders);
+        }
+
+        assertRestored(iqProviders, getProviders("iqProviders"));
+        assertRestored(extensionProviders, getProviders("extensionProviders"));
+    }
+
+    /** Registers exactly the given providers again, removing any which were added since. */
+    private static void restoreProviders(Map<QName, Object> iqProviders, Map<QName, Object> extensionProviders)
+        throws ReflectiveOperationException
+    {
+        for (QName qName : getProviders("iqProviders").keySet())
+        {
+            if (!iqProviders.containsKey(qName))
+            {
+                ProviderManager.removeIQProvider(qName.getLocalPart(), qName.getNamespaceURI());
+            }
+        }
+        iqProviders.forEach((qName, provider) ->
+            ProviderManager.addIQProvider(qName.getLocalPart(), qName.getNamespaceURI(), provider));
+
+        for (QName qName : getProviders("extensionProviders").keySet())
+        {
+            if (!extensionProviders.containsKey(qName))
+            {
+                ProviderManager.removeExtensionProvider(qName.getLocalPart(), qName.getNamespaceURI());
+            }
+        }
+        extensionProviders.forEach((qName, provider) ->
+            ProviderManager.addExtensionProvider(qName.getLocalPart(), qName.getNamespaceURI(), provider));
+    }
+
+    private static void assertRestored(Map<QName, Object> expected, Map<QName, Object> actual)
+    {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((qName, provider) -> assertSame(provider, actual.get(qName), qName + " was not restored"));
+    }
+
+    @Test
+    public void everyManifestEntryCanBeInstantiated()
+    {
+        for (ProviderManifest.Entry entry : ProviderManifest.getEntries())
+        {
+            Object provider = LazyProviderRegistration.createProvider(entry);
+            assertEquals(entry.getProviderClassName(), provider.getClass().getName());
+        }
+    }
+
+    /**
+     * Registers the providers eagerly and prints the resulting manifest entries.
+     * Runs in a new JVM, so that only the registrations made here are seen.
+     */
+    public static void main(String[] args)
+        throws Exception
+    {
+        Map<QName, Object> iqProvidersBefore = getProviders("iqProviders");
+        Map<QName, Object> extensionProvidersBefore = getProviders("extensionProviders");
+
+        LazyProviderRegistration.registerEagerly();
+
+        List<String> entries = new ArrayList<>();
+        addEntries(entries, ProviderManifest.Kind.IQ, iqProvidersBefore, getProviders("iqProviders"));
+        addEntries(
+            entries, ProviderManifest.Kind.EXTENSION, extensionProvidersBefore, getProviders("extensionProviders"));
+        Collections.sort(entries);
+
+        entries.forEach(System.out::println);
+    }
+
+    private static void addEntries(
+        List<String> entries,
+        ProviderManifest.Kind kind,
+        Map<QName, Object> before,
+        Map<QName, Object> after)
+    {
+        after.forEach((qName, provider) ->
+        {
+            if (before.get(qName) != provider)
+            {
+                String elementClassName = provider.getClass() == DefaultPacketExtensionProvider.class
+                    ? ((DefaultPacketExtensionProvider<?>) provider).getPacketClass().getName()
+                    : null;
+                entries.add(new ProviderManifest.Entry(
+                    kind,
+                    qName.getLocalPart(),
+                    qName.getNamespaceURI(),
+                    provider.getClass().getName(),
+                    elementClassName).toString());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<QName, Object> getProviders(String fieldName)
+        throws ReflectiveOperationException
+    {
+        Field field = ProviderManager.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return new HashMap<>((Map<QName, Object>) field.get(null));
+    }
+
+    /**
+     * Runs the main method of {@code mainClass} in a new JVM with the same
+     * class path and returns its standard output.
+     */
+    static List<String> runInNewJvm(Class<?> mainClass, String... args)
+        throws IOException, InterruptedException
+    {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<String> output;
+        try (BufferedReader reader
+                 = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            output = reader.lines().collect(Collectors.toList());
+        }
+        assertEquals(0, process.waitFor(), "The child JVM failed");
+        return output;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2;
+
+import org.jitsi.utils.*;
+import org.jitsi.xmpp.extensions.colibri.*;
+import org.jitsi.xmpp.extensions.jingle.*;
+import org.jivesoftware.smack.packet.*;
+import org.jivesoftware.smack.util.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalIqParserTest
+{
+    private static final String MEETING_ID = "88ff288c-5eeb-4ea9-bc2f-93ea38c43b78";
+
+    @BeforeAll
+    static void registerProviders()
+    {
+        IqProviderUtils.registerProviders();
+    }
+
+    /**
+     * Creates a conference-modify IQ similar to the ones sent during mass joins.
+     */
+    static String createConferenceModifyXml(int numEndpoints)
+    {
+        ConferenceModifyIQ.Builder iqBuilder = ConferenceModifyIQ.builder("id");
+        iqBuilder.setMeetingId(MEETING_ID);
+        iqBuilder.setConferenceName("conférence@conference.example.com");
+
+        for (int i = 0; i < numEndpoints; i++)
+        {
+            String id = String.format("%08x", i);
+            Colibri2Endpoint.Builder endpointBuilder = Colibri2Endpoint.getBuilder();
+            endpointBuilder.setId(id);
+            endpointBuilder.setCreate(true);
+            endpointBuilder.setStatsId("Jürgen-" + i);
+
+            Media.Builder mediaBuilder = Media.getBuilder();
+            mediaBuilder.setType(MediaType.AUDIO);
+            PayloadTypePacketExtension pt = new PayloadTypePacketExtension();
+            pt.setId(111);
+            pt.setName("opus");
+            pt.setClockrate(48000);
+            pt.setChannels(2);
+            mediaBuilder.addPayloadType(pt);
+            endpointBuilder.addMedia(mediaBuilder.build());
+
+            Sources.Builder sourcesBuilder = Sources.getBuilder();
+            SourcePacketExtension ssrc = new SourcePacketExtension();
+            ssrc.setSSRC(1000L + i);
+            sourcesBuilder.addMediaSource(
+                MediaSource.getBuilder().setType(MediaType.AUDIO).setId(id + "-a0").addSource(ssrc).build());
+            endpointBuilder.setSources(sourcesBuilder.build());
+
+            endpointBuilder.addCapability(Capability.CAP_SOURCE_NAME_SUPPORT);
+            iqBuilder.addEndpoint(endpointBuilder.build());
+        }
+
+        return iqBuilder.build().toXML().toString();
+    }
+
+    @Test
+    public void randomChunksMatchBlockingParse()
+        throws Exception
+    {
+        String xml = createConferenceModifyXml(50);
+        String expected = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)).toXML().toString();
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 20; iteration++)
+        {
+            IncrementalIqParser parser = new IncrementalIqParser();
+            List<IQ> parsed = new ArrayList<>();
+
+            int offset = 0;
+            while (offset < bytes.length)
+            {
+                int length = Math.min(bytes.length - offset, 1 + random.nextInt(512));
+                parsed.addAll(parser.feed(bytes, offset, length));
+                offset += length;
+                if (offset < bytes.length)
+                {
+                    assertTrue(parsed.isEmpty(), "No IQ should be emitted before the stanza is complete");
+                }
+            }
+
+            assertEquals(1, parsed.size());
+            assertInstanceOf(ConferenceModifyIQ.class, parsed.get(0));
+            assertEquals(expected, parsed.get(0).toXML().toString());
+            assertFalse(parser.hasPartialStanza());
+        }
+    }
+
+    @Test
+    public void multipleStanzasInOneFeed()
+        throws Exception
+    {
+        String xml = createConferenceModifyXml(2);
+        IncrementalIqParser parser = new IncrementalIqParser();
+
+        List<IQ> parsed = parser.feed("<?xml version='1.0'?>\n" + xml + " \n" + xml.substring(0, 10));
+        assertEquals(1, parsed.size());
+        assertTrue(parser.hasPartialStanza());
+
+        parsed = parser.feed(xml.substring(10) + "<!-- keepalive -->" + xml);
+        assertEquals(2, parsed.size());
+        assertEquals(MEETING_ID, ((ConferenceModifyIQ) parsed.get(1)).getMeetingId());
+        assertFalse(parser.hasPartialStanza());
+    }
+
+    @Test
+    public void emptyIq()
+        throws Exception
+    {
+        IncrementalIqParser parser = new IncrementalIqParser();
+        String xml = "<iq xmlns='jabber:client' id='id' type='get'>"
+            + "<conference-modify xmlns='jitsi:colibri2' meeting-id='" + MEETING_ID + "' expire='true'/>"
+            + "</iq>";
+
+        assertTrue(parser.feed(xml.substring(0, xml.length() - 3)).isEmpty());
+        List<IQ> parsed = parser.feed(xml.substring(xml.length() - 3));
+        assertEquals(1, parsed.size());
+        assertTrue(((ConferenceModifyIQ) parsed.get(0)).getExpire());
+    }
+
+    @Test
+    public void stanzaSizeLimit()
+    {
+        IncrementalIqParser parser = new IncrementalIqParser(100);
+        assertThrows(Exception.class, () -> parser.feed(createConferenceModifyXml(5)));
+        assertFalse(parser.hasPartialStanza());
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
+import org.jivesoftware.smack.packet.Stanza
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+class ParallelStanzaDecoderTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        beforeSpec {
+            IqProviderUtils.registerProviders()
+        }
+
+        context("Ordering") {
+            should("deliver stanzas in order for each key, regardless of the order in which tasks run") {
+                val executor = ManualExecutor()
+                val listener = RecordingListener()
+                val decoder = ParallelStanzaDecoder(listener, executor)
+
+                repeat(20) { i ->
+                    repeat(5) { m -> decoder.submit(conferenceModify("m$m", "$m-$i")) }
+                }
+                executor.runAll(Random(1))
+
+                listener.failures.size shouldBe 0
+                listener.parsed.size shouldBe 100
+                repeat(5) { m ->
+                    listener.parsed.filter { it.meetingId == "m$m" }.map { it.stanzaId } shouldBe
+                        (0 until 20).map { "$m-$it" }
+                }
+                decoder.pendingKeys shouldBe 0
+            }
+            should("not hold back other keys") {
+                val executor = ManualExecutor()
+                val listener = RecordingListener()
+                val decoder = ParallelStanzaDecoder(listener, executor)
+
+                decoder.submit(conferenceModify("a", "a1"))
+                decoder.submit(conferenceModify("b", "b1"))
+                decoder.submit(conferenceModify("a", "a2"))
+                // The first task parses a1. Run everything else.
+                val blocked = executor.tasks.removeAt(0)
+                executor.runAll(Random(2))
+                listener.parsed.map { it.stanzaId } shouldBe listOf("b1")
+
+                executor.tasks.add(blocked)
+                executor.runAll(Random(3))
+                listener.parsed.map { it.stanzaId } shouldBe listOf("b1", "a1", "a2")
+            }
+            should("deliver failures in order") {
+                val executor = ManualExecutor()
+                val listener = RecordingListener()
+                val decoder = ParallelStanzaDecoder(listener, executor)
+                val truncated = "<iq xmlns='jabber:client' id='bad' type='get'>" +
+                    "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'><endpoint id='x'>"
+
+                decoder.submit(conferenceModify("m", "1"))
+                decoder.submit(truncated)
+                decoder.submit(conferenceModify("m", "3"))
+                executor.runAll(Random(4))
+
+                listener.events shouldBe listOf("1", "failed", "3")
+            }
+        }
+        context("Ordering keys") {
+            should("use the meeting-id of conference-modify IQs") {
+                ParallelStanzaDecoder.orderingKey(conferenceModify("meeting", "id")) shouldBe "meeting"
+            }
+            should("use the room of conference IQs") {
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='set'>" +
+                        "<conference xmlns='http://jitsi.org/protocol/focus' room='room@example.com'/></iq>"
+                ) shouldBe "room@example.com"
+            }
+            should("use the room of visitors IQs") {
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='set'>" +
+                        "<visitors xmlns='jitsi:visitors' room='room@example.com'/></iq>"
+                ) shouldBe "room@example.com"
+            }
+            should("be null for other stanzas") {
+                ParallelStanzaDecoder.orderingKey("<presence xmlns='jabber:client'/>") shouldBe null
+                ParallelStanzaDecoder.orderingKey("<presence xmlns='jabber:client'><x/></presence>") shouldBe null
+                ParallelStanzaDecoder.orderingKey("not xml") shouldBe null
+            }
+            should("read stanzas which the scan does not handle with a parser") {
+                val child = "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'/>"
+                ParallelStanzaDecoder.orderingKey(
+                    "<?xml version='1.0'?><iq xmlns='jabber:client' id='id' type='get'>$child</iq>"
+                ) shouldBe "m"
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='get'><!-- comment -->$child</iq>"
+                ) shouldBe "m"
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='get'>" +
+                        "<c:conference-modify xmlns:c='jitsi:colibri2' meeting-id='m'/></iq>"
+                ) shouldBe "m"
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='set'>" +
+                        "<conference xmlns='http://jitsi.org/protocol/focus' room='a&amp;b@example.com'/></iq>"
+                ) shouldBe "a&b@example.com"
+            }
+            should("scan the first child element") {
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xml:lang='en' xmlns='jabber:client' id='id' type=\"get\">\n  " +
+                        "<conference-modify meeting-id=\"m\" xmlns=\"jitsi:colibri2\"><endpoint id='e'/>" +
+                        "</conference-modify></iq>"
+                ) shouldBe "m"
+                /* The child inherits the namespace of the stanza. */
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jitsi:colibri2' id='id' type='get'><conference-modify meeting-id='m'/></iq>"
+                ) shouldBe "m"
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='get'><conference-modify meeting-id='m'/></iq>"
+                ) shouldBe null
+                ParallelStanzaDecoder.orderingKey(
+                    "<iq xmlns='jabber:client' id='id' type='get'>" +
+                        "<conference-modify xmlns='jitsi:colibri2'/></iq>"
+                ) shouldBe null
+            }
+        }
+        xcontext("Throughput scaling") {
+            val meetings = 200
+            val stanzas = (0 until 20_000).map { conferenceModify("m${it % meetings}", "$it", endpoints = 5) }
+            listOf(1, 2, 4, 8, 16).forEach { cores ->
+                should("parse with $cores threads") {
+                    val pool = ForkJoinPool(cores)
+                    val counts = ConcurrentHashMap<String, Int>()
+                    val decoder = ParallelStanzaDecoder(
+                        object : ParallelStanzaDecoder.Listener {
+                            override fun stanzaParsed(stanza: Stanza) {
+                                counts.merge((stanza as ConferenceModifyIQ).meetingId, 1, Int::plus)
+                            }
+                            override fun parsingFailed(content: String, e: Exception) {
+                                throw e
+                            }
+                        },
+                        pool
+                    )
+                    // Warm up.
+                    stanzas.take(2000).forEach { decoder.submit(it) }
+                    decoder.allDelivered().get(1, TimeUnit.MINUTES)
+
+                    val start = System.nanoTime()
+                    stanzas.forEach { decoder.submit(it) }
+                    decoder.allDelivered().get(1, TimeUnit.MINUTES)
+                    val seconds = (System.nanoTime() - start) / 1e9
+                    pool.shutdown()
+
+                    logger.info("$cores threads: ${(stanzas.size / seconds).toInt()} stanzas/s")
+                    counts.values.sum() shouldBe stanzas.size + 2000
+                }
+            }
+        }
+    }
+
+    private fun conferenceModify(meetingId: String, id: String, endpoints: Int = 1): String =
+        ConferenceModifyIQ.builder(id).apply {
+            setMeetingId(meetingId)
+            repeat(endpoints) {
+                addEndpoint(Colibri2Endpoint.getBuilder().apply { setId("$id-$it") }.build())
+            }
+        }.build().toXML().toString()
+
+    /** An executor which only runs tasks when asked to, in a random order. */
+    private class ManualExecutor : Executor {
+        val tasks = mutableListOf<Runnable>()
+
+        override fun execute(command: Runnable) {
+            synchronized(tasks) { tasks.add(command) }
+        }
+
+        fun runAll(random: Random) {
+            while (true) {
+                val task = synchronized(tasks) {
+                    if (tasks.isEmpty()) null else tasks.removeAt(random.nextInt(tasks.size))
+                } ?: return
+                task.run()
+            }
+        }
+    }
+
+    private class RecordingListener : ParallelStanzaDecoder.Listener {
+        val parsed = CopyOnWriteArrayList<ConferenceModifyIQ>()
+        val failures = CopyOnWriteArrayList<String>()
+        val events = CopyOnWriteArrayList<String>()
+
+        override fun stanzaParsed(stanza: Stanza) {
+            parsed.add(stanza as ConferenceModifyIQ)
+            events.add(stanza.stanzaId)
+        }
+
+        override fun parsingFailed(content: String, e: Exception) {
+            failures.add(content)
+            events.add("failed")
+        }
+    }
+}
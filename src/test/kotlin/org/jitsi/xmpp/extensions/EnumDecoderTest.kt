@@ -0,0 +1,159 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.coin.StateType
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Error
+import org.jitsi.xmpp.extensions.colibri2.Connect
+import org.jitsi.xmpp.extensions.colibri2.Sctp
+import org.jitsi.xmpp.extensions.health.HealthStatusPacketExt
+import org.jitsi.xmpp.extensions.jibri.JibriIq
+import org.jitsi.xmpp.extensions.jingle.CandidateType
+import org.jitsi.xmpp.extensions.jingle.ContentPacketExtension
+import org.jitsi.xmpp.extensions.jingle.JingleAction
+import org.jitsi.xmpp.extensions.jingle.Reason
+import org.jitsi.xmpp.extensions.jingle.SessionInfoType
+
+class EnumDecoderTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        context("Decoding") {
+            should("match the string used in the XML") {
+                JingleAction.values().forEach { JingleAction.parseString(it.toString()) shouldBe it }
+                Reason.values().forEach { Reason.parseString(it.toString()) shouldBe it }
+                StateType.values().forEach { StateType.parseString(it.toString()) shouldBe it }
+                SessionInfoType.values().forEach { SessionInfoType.parseString(it.name) shouldBe it }
+                CandidateType.values().forEach { CandidateType.parseString(it.name) shouldBe it }
+                ContentPacketExtension.SendersEnum.values().forEach {
+                    ContentPacketExtension.SendersEnum.parseString(it.name) shouldBe it
+                }
+                Sctp.Role.values().forEach { Sctp.Role.parseString(it.name.lowercase()) shouldBe it }
+                Colibri2Error.Reason.values().forEach {
+                    Colibri2Error.Reason.parseString(it.name.lowercase()) shouldBe it
+                }
+                JibriIq.Status.values().forEach { JibriIq.Status.parse(it.toString()) shouldBe it }
+                Connect.Types.values().forEach { Connect.Types.parse(it.value) shouldBe it }
+            }
+            should("respect the case sensitivity of each enum") {
+                JingleAction.parseString("SESSION-INITIATE") shouldBe null
+                shouldThrow<IllegalArgumentException> { CandidateType.parseString("HOST") }
+                Sctp.Role.parseString("Server") shouldBe Sctp.Role.SERVER
+                Colibri2Error.Reason.parseString("CONFERENCE_NOT_FOUND") shouldBe
+                    Colibri2Error.Reason.CONFERENCE_NOT_FOUND
+                JibriIq.Action.parse("StArT") shouldBe JibriIq.Action.START
+                HealthStatusPacketExt.Health.parse("HEALTHY") shouldBe HealthStatusPacketExt.Health.HEALTHY
+                Connect.Protocols.parse("MediaJson") shouldBe Connect.Protocols.MEDIAJSON
+            }
+            should("handle unknown values like before") {
+                JingleAction.parseString("invalid") shouldBe null
+                JingleAction.parseString(null) shouldBe null
+                Reason.parseString("invalid") shouldBe Reason.UNDEFINED
+                JibriIq.Status.parse("invalid") shouldBe JibriIq.Status.UNDEFINED
+                JibriIq.Status.parse("") shouldBe JibriIq.Status.UNDEFINED
+                JibriIq.Status.parse(null) shouldBe JibriIq.Status.UNDEFINED
+                Colibri2Error.Reason.parseString(null) shouldBe Colibri2Error.Reason.UNSPECIFIED
+                shouldThrow<IllegalArgumentException> { Colibri2Error.Reason.parseString("invalid") }
+                shouldThrow<IllegalArgumentException> { StateType.parseString("invalid") }
+                shouldThrow<IllegalArgumentException> { SessionInfoType.parseString("invalid") }
+                shouldThrow<IllegalArgumentException> { Connect.Types.parse("invalid") }
+            }
+            should("reject enums with duplicate keys") {
+                shouldThrow<IllegalArgumentException> {
+                    EnumDecoder.of(JingleAction::class.java, { "same" }, false)
+                }
+            }
+        }
+        xcontext("Decoding performance") {
+            val iterations = 10_000_000
+            fun benchmark(name: String, valid: List<String>, decode: (String) -> Any?) {
+                val invalid = valid.map { "x$it" }
+                listOf("valid" to valid, "invalid" to invalid).forEach { (kind, input) ->
+                    // Warm up.
+                    repeat(iterations / 10) { decode(input[it % input.size]) }
+                    val start = System.nanoTime()
+                    var decoded = 0
+                    repeat(iterations) { if (decode(input[it % input.size]) != null) decoded++ }
+                    val ns = (System.nanoTime() - start).toDouble() / iterations
+                    logger.info("$name ($kind): ${"%.1f".format(ns)} ns/op, decoded=$decoded")
+                }
+            }
+            fun orNull(block: () -> Any?): Any? = try {
+                block()
+            } catch (e: IllegalArgumentException) {
+                null
+            }
+
+            should("decode each enum") {
+                benchmark("JingleAction", JingleAction.values().map { it.toString() }) {
+                    JingleAction.parseString(it)
+                }
+                benchmark("SessionInfoType", SessionInfoType.values().map { it.name }) {
+                    orNull { SessionInfoType.parseString(it) }
+                }
+                benchmark(
+                    "Colibri2Error.Reason",
+                    Colibri2Error.Reason.values().map { it.name.lowercase() }
+                ) {
+                    orNull { Colibri2Error.Reason.parseString(it) }
+                }
+                benchmark("JibriIq.Action", JibriIq.Action.values().map { it.toString() }) {
+                    JibriIq.Action.parse(it)
+                }
+                benchmark("JibriIq.Status", JibriIq.Status.values().map { it.toString() }) {
+                    JibriIq.Status.parse(it)
+                }
+                benchmark(
+                    "JibriIq.FailureReason",
+                    JibriIq.FailureReason.values().map { it.toString() }
+                ) {
+                    JibriIq.FailureReason.parse(it)
+                }
+                benchmark(
+                    "JibriIq.RecordingMode",
+                    JibriIq.RecordingMode.values().map { it.toString() }
+                ) {
+                    JibriIq.RecordingMode.parse(it)
+                }
+                benchmark("StateType", StateType.values().map { it.toString() }) {
+                    orNull { StateType.parseString(it) }
+                }
+                benchmark("CandidateType", CandidateType.values().map { it.name }) {
+                    orNull { CandidateType.parseString(it) }
+                }
+                benchmark("Sctp.Role", Sctp.Role.values().map { it.name.lowercase() }) {
+                    orNull { Sctp.Role.parseString(it) }
+                }
+                benchmark(
+                    "ContentPacketExtension.CreatorEnum",
+                    ContentPacketExtension.CreatorEnum.values().map { it.name }
+                ) {
+                    orNull { ContentPacketExtension.CreatorEnum.parseString(it) }
+                }
+                benchmark(
+                    "ContentPacketExtension.SendersEnum",
+                    ContentPacketExtension.SendersEnum.values().map { it.name }
+                ) {
+                    orNull { ContentPacketExtension.SendersEnum.parseString(it) }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.string.shouldNotContain
+import io.kotest.matchers.types.shouldBeInstanceOf
+import org.jitsi.xmpp.extensions.colibri.ColibriStatsIQ
+import org.jitsi.xmpp.extensions.colibri.ColibriStatsIqProvider
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
+import org.jitsi.xmpp.extensions.visitors.VisitorsIq
+import org.jivesoftware.smack.util.PacketParserUtils
+
+class ParsingProjectionTest : ShouldSpec() {
+    init {
+        beforeSpec {
+            IqProviderUtils.registerProviders()
+            ColibriStatsIqProvider.registerProviders()
+            VisitorsIq.registerProviders()
+        }
+
+        context("conference-modified") {
+            val xml = "<iq xmlns='jabber:client' id='id' type='result'>" +
+                "<conference-modified xmlns='jitsi:colibri2' meeting-id='m'>" +
+                "<endpoint id='e1' stats-id='s1'>" +
+                "<media type='audio'>" +
+                "<payload-type xmlns='urn:xmpp:jingle:apps:rtp:1' id='111' name='opus' clockrate='48000'/>" +
+                "</media>" +
+                "<transport><fingerprint xmlns='urn:xmpp:jingle:apps:dtls:0' hash='sha-256'>AB:CD</fingerprint>" +
+                "</transport>" +
+                "<sources><media-source type='audio' id='e1-a0'>" +
+                "<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='1' name='e1-a0'/>" +
+                "</media-source></sources>" +
+                "</endpoint>" +
+                "<relay id='r1'><transport/></relay>" +
+                "</conference-modified>" +
+                "</iq>"
+
+            should("only build the endpoint transports and sources") {
+                val iq = ParsingProjection.of("endpoint/transport", "endpoint/sources").parseIQ(xml)
+
+                iq.shouldBeInstanceOf<ConferenceModifiedIQ>()
+                iq.relays.size shouldBe 0
+                iq.endpoints.size shouldBe 1
+                val endpoint = iq.endpoints[0]
+                endpoint.id shouldBe "e1"
+                endpoint.statsId shouldBe "s1"
+                endpoint.media.size shouldBe 0
+                endpoint.transport shouldNotBe null
+                endpoint.transport!!.toXML().toString() shouldContain "AB:CD"
+                endpoint.sources!!.mediaSources.size shouldBe 1
+                endpoint.sources!!.mediaSources[0].sources[0].ssrc shouldBe 1L
+            }
+            should("match namespaces when given") {
+                val iq = ParsingProjection.of("{jitsi:colibri2}relay", "{other}endpoint").parseIQ(xml)
+                    as ConferenceModifiedIQ
+
+                iq.endpoints.size shouldBe 0
+                iq.relays.size shouldBe 1
+            }
+            should("not affect parsing without a projection") {
+                ParsingProjection.of().parseIQ(xml)
+                val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)) as ConferenceModifiedIQ
+
+                iq.endpoints[0].media.size shouldBe 1
+                iq.relays.size shouldBe 1
+            }
+        }
+        context("stats") {
+            val xml = "<iq xmlns='jabber:client' id='id' type='result'>" +
+                "<stats xmlns='http://jitsi.org/protocol/colibri'>" +
+                "<stat name='stress_level' value='0.1'/>" +
+                "<stat name='conferences' value='5'/>" +
+                "<stat name='participants' value='10'/>" +
+                "</stats>" +
+                "</iq>"
+
+            should("only keep the selected stats") {
+                val iq = ParsingProjection.of("stat[@name='stress_level']", "stat[@name=\"participants\"]")
+                    .parseIQ(xml)
+
+                iq.shouldBeInstanceOf<ColibriStatsIQ>()
+                val stats = iq.toXML().toString()
+                stats shouldContain "stress_level"
+                stats shouldContain "participants"
+                stats shouldNotContain "conferences"
+            }
+        }
+        context("visitors") {
+            should("only parse the room") {
+                val iq = ParsingProjection.of().parseIQ(
+                    "<iq xmlns='jabber:client' id='id' type='set'>" +
+                        "<visitors xmlns='jitsi:visitors' room='room@example.com'>" +
+                        "<connect-vnode xmlns='jitsi:visitors' vnode='v1'/>" +
+                        "<broadcast xmlns='jitsi:visitors' enabled='true'/>" +
+                        "</visitors></iq>"
+                )
+
+                iq.shouldBeInstanceOf<VisitorsIq>()
+                iq.room.toString() shouldBe "room@example.com"
+                iq.getConnectVnodeExtensions().size shouldBe 0
+                iq.getBroadcastExtension() shouldBe null
+            }
+        }
+        context("Invalid paths") {
+            should("be rejected") {
+                listOf("", "a//b", "{ns", "a[@b]", "a[b='c']", "a[@b=c]").forEach {
+                    shouldThrow<IllegalArgumentException> { ParsingProjection.of(it) }
+                }
+            }
+        }
+    }
+}
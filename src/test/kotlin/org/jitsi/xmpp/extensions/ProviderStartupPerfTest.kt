@@ -0,0 +1,83 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions
+
+import io.kotest.core.spec.style.ShouldSpec
+import org.jitsi.utils.logging2.createLogger
+import org.jivesoftware.smack.provider.ProviderManager
+import org.jivesoftware.smack.util.PacketParserUtils
+import java.lang.management.ManagementFactory
+
+/**
+ * Measures the number of classes loaded and the time until the first stanza is parsed, with eager and with lazy
+ * provider registration. Each run uses a new JVM.
+ */
+class ProviderStartupPerfTest : ShouldSpec() {
+    private val logger = createLogger()
+    private val runs = 5
+
+    init {
+        xcontext("Provider registration startup cost") {
+            listOf(false, true).forEach { lazy ->
+                should("measure lazy=$lazy") {
+                    repeat(runs) {
+                        ProviderManifestTest.runInNewJvm(ProviderStartupBenchmark::class.java, lazy.toString())
+                            .filter { it.startsWith("lazy=") }
+                            .forEach { logger.info(it) }
+                    }
+                }
+            }
+        }
+    }
+}
+
+object ProviderStartupBenchmark {
+    private const val XML = "<iq xmlns='jabber:client' id='id' type='get'>" +
+        "<conference-modify xmlns='jitsi:colibri2' meeting-id='88ff288c-5eeb-4ea9-bc2f-93ea38c43b78'>" +
+        "<endpoint id='abcd' create='true' stats-id='stats'>" +
+        "<media type='audio'>" +
+        "<payload-type xmlns='urn:xmpp:jingle:apps:rtp:1' id='111' name='opus' clockrate='48000' channels='2'/>" +
+        "</media>" +
+        "<transport ice-controlling='true'/>" +
+        "</endpoint>" +
+        "</conference-modify>" +
+        "</iq>"
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val lazy = args[0].toBoolean()
+        val classLoading = ManagementFactory.getClassLoadingMXBean()
+        // Initialize Smack and the parser before starting the clock, they are needed in both modes.
+        ProviderManager.getIQProvider(XML, XML)
+        val parser = PacketParserUtils.getParserFor(XML)
+
+        val classesBefore = classLoading.totalLoadedClassCount
+        val start = System.nanoTime()
+        LazyProviderRegistration.registerProviders(lazy)
+        val registered = System.nanoTime()
+        val classesAfterRegistration = classLoading.totalLoadedClassCount
+        PacketParserUtils.parseIQ(parser)
+        val parsed = System.nanoTime()
+        val classesAfterFirstParse = classLoading.totalLoadedClassCount
+
+        println(
+            "lazy=$lazy registration=${(registered - start) / 1000}us " +
+                "timeToFirstParse=${(parsed - start) / 1000}us " +
+                "classesLoadedByRegistration=${classesAfterRegistration - classesBefore} " +
+                "classesLoadedByFirstParse=${classesAfterFirstParse - classesBefore}"
+        )
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import org.jitsi.xmpp.RateLimitedExceptionLoggingCallback
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQProvider
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import javax.xml.namespace.QName
+
+class SafeParseIqProviderTest : ShouldSpec() {
+    private val provider = ConferenceModifyIQProvider()
+    private val iqType = QName(ConferenceModifyIQ.NAMESPACE, ConferenceModifyIQ.ELEMENT)
+
+    // A blank meeting-id passes the provider's own checks, but is rejected by the builder.
+    private val invalidIq = """
+        <iq type='get' from='example.com' to='example.com'>
+            <conference-modify xmlns='jitsi:colibri2' meeting-id='  '/>
+        </iq>
+    """.trimIndent()
+
+    /** The global stackless mode before each test, restored after it. */
+    private var stackless = false
+
+    init {
+        /* The error counts are global too, so the tests check how much they grow instead of resetting them. */
+        beforeEach {
+            stackless = SafeParseIqProvider.isStacklessExceptions()
+            SafeParseIqProvider.setStacklessExceptions(false)
+        }
+        afterEach {
+            SafeParseIqProvider.setStacklessExceptions(stackless)
+        }
+
+        context("Unexpected failures") {
+            should("be wrapped and counted per IQ type") {
+                val errors = SafeParseIqProvider.getErrorCount(iqType)
+                val e = shouldThrow<SafeParseIqProvider.OtherSmackParsingException> {
+                    IQUtils.parse(invalidIq, provider)
+                }
+                e.iqType shouldBe iqType
+                e.cause.shouldBeInstanceOf<IllegalArgumentException>()
+                e.stackTrace.isEmpty() shouldBe false
+
+                shouldThrow<SafeParseIqProvider.OtherSmackParsingException> { IQUtils.parse(invalidIq, provider) }
+                SafeParseIqProvider.getErrorCount(iqType) shouldBe errors + 2
+                SafeParseIqProvider.getErrorCounts()[iqType] shouldBe errors + 2
+            }
+            should("not capture a stack trace for the wrapper in stackless mode") {
+                val errors = SafeParseIqProvider.getErrorCount(iqType)
+                SafeParseIqProvider.setStacklessExceptions(true)
+                val e = shouldThrow<SafeParseIqProvider.OtherSmackParsingException> {
+                    IQUtils.parse(invalidIq, provider)
+                }
+                e.stackTrace.size shouldBe 0
+                /* The wrapped exception already captured its trace when it was thrown. */
+                e.cause!!.stackTrace.isEmpty() shouldBe false
+                e.iqType shouldBe iqType
+                SafeParseIqProvider.getErrorCount(iqType) shouldBe errors + 1
+            }
+        }
+        context("Rate limited logging") {
+            should("log at most the limit of traces per interval") {
+                val clock = FakeClock()
+                val callback = RateLimitedExceptionLoggingCallback(3, Duration.ofSeconds(10), clock)
+                SafeParseIqProvider.setStacklessExceptions(true)
+                val e = shouldThrow<SafeParseIqProvider.OtherSmackParsingException> {
+                    IQUtils.parse(invalidIq, provider)
+                }
+
+                repeat(10) { callback.handle(invalidIq, e) }
+                callback.tracesLogged(iqType) shouldBe 3
+
+                val other = IllegalStateException()
+                callback.handle(invalidIq, other)
+                callback.tracesLogged(other.javaClass.name) shouldBe 1
+
+                clock.now = clock.now.plusSeconds(11)
+                callback.handle(invalidIq, e)
+                callback.tracesLogged(iqType) shouldBe 1
+            }
+        }
+    }
+
+    private class FakeClock(var now: Instant = Instant.ofEpochSecond(1_000_000)) : Clock() {
+        override fun instant() = now
+        override fun getZone() = ZoneOffset.UTC
+        override fun withZone(zone: java.time.ZoneId?) = this
+    }
+}
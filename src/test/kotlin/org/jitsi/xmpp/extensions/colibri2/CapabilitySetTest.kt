@@ -0,0 +1,72 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import org.jivesoftware.smack.util.PacketParserUtils
+
+class CapabilitySetTest : ShouldSpec() {
+    init {
+        IqProviderUtils.registerProviders()
+
+        context("An endpoint's capabilities") {
+            val endpoint = Colibri2Endpoint.getBuilder().apply {
+                setId("e")
+                addCapability(Capability.CAP_SOURCE_NAME_SUPPORT)
+                addCapability("custom")
+            }.build()
+
+            should("Contain the known and unknown names") {
+                endpoint.hasCapability(Capability.CAP_SOURCE_NAME_SUPPORT) shouldBe true
+                endpoint.hasCapability("custom") shouldBe true
+                endpoint.hasCapability(Capability.CAP_SSRC_REWRITING_SUPPORT) shouldBe false
+                endpoint.hasCapability("other") shouldBe false
+                endpoint.capabilitySet shouldBe
+                    CapabilitySet.of(listOf(Capability("custom"), Capability(Capability.CAP_SOURCE_NAME_SUPPORT)))
+            }
+            should("Follow changes to the children") {
+                val capability = Capability(Capability.CAP_PRIVATE_ADDRESS_CONNECTIVITY)
+                endpoint.addChildExtension(capability)
+                endpoint.hasCapability(Capability.CAP_PRIVATE_ADDRESS_CONNECTIVITY) shouldBe true
+
+                endpoint.removeChildExtension(capability)
+                endpoint.hasCapability(Capability.CAP_PRIVATE_ADDRESS_CONNECTIVITY) shouldBe false
+            }
+            should("Be read from parsed XML, which is unchanged") {
+                val xml = "<iq xmlns='jabber:client' id='id' type='get'>" +
+                    "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'>" +
+                    "<endpoint id='e'><capability name='ssrc-rewriting'/><capability name='custom'/></endpoint>" +
+                    "</conference-modify></iq>"
+                val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)) as ConferenceModifyIQ
+                val parsed = iq.endpoints[0]
+
+                parsed.hasCapability(Capability.CAP_SSRC_REWRITING_SUPPORT) shouldBe true
+                parsed.hasCapability("custom") shouldBe true
+                parsed.hasCapability(Capability.CAP_SOURCE_NAME_SUPPORT) shouldBe false
+                parsed.capabilities.map { it.name } shouldBe listOf("ssrc-rewriting", "custom")
+                parsed.capabilitySet.toString() shouldBe "[ssrc-rewriting, custom]"
+            }
+        }
+        context("The empty set") {
+            should("Be returned for no capabilities") {
+                CapabilitySet.of(emptyList()) shouldBe CapabilitySet.EMPTY
+                CapabilitySet.EMPTY.isEmpty shouldBe true
+                CapabilitySet.EMPTY.contains(Capability.CAP_SOURCE_NAME_SUPPORT) shouldBe false
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.jitsi.utils.MediaType
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.jingle.ContentPacketExtension
+import org.jitsi.xmpp.extensions.jingle.ContentPacketExtension.CreatorEnum
+import org.jitsi.xmpp.extensions.jingle.IceRtcpmuxPacketExtension
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jitsi.xmpp.extensions.jingle.JingleAction
+import org.jitsi.xmpp.extensions.jingle.JingleIQ
+import org.jitsi.xmpp.extensions.jingle.JingleUtils
+import org.jitsi.xmpp.extensions.jingle.PayloadTypePacketExtension
+import org.jitsi.xmpp.extensions.jingle.RTPHdrExtPacketExtension
+import org.jitsi.xmpp.extensions.jingle.RtpDescriptionPacketExtension
+import org.jitsi.xmpp.extensions.jingle.SctpMapExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+import java.net.URI
+
+class Colibri2JingleConverterTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        context("Converting a session-accept") {
+            val converter = Colibri2JingleConverter()
+            val endpoint = converter.toEndpoint("p0", sessionAccept(0)).build()
+
+            should("Convert the media") {
+                endpoint.media.map { it.type } shouldBe listOf(MediaType.AUDIO, MediaType.VIDEO)
+                endpoint.media[1].payloadTypes.map { it.name } shouldBe listOf("VP8")
+                endpoint.media[0].rtpHdrExts.size shouldBe 1
+            }
+            should("Convert the bundled transport") {
+                endpoint.transport.shouldNotBeNull().apply {
+                    iceUdpTransport?.ufrag shouldBe "ufrag-0"
+                    sctp.shouldNotBeNull()
+                }
+            }
+            should("Group the sources by name") {
+                endpoint.sources.shouldNotBeNull().mediaSources.apply {
+                    map { it.id } shouldBe listOf("p0-a0", "p0-v0")
+                    this[0].type shouldBe MediaType.AUDIO
+                    this[1].sources.map { it.ssrc } shouldBe listOf(2L, 3L)
+                    this[1].ssrcGroups.map { it.semantics } shouldBe listOf("FID")
+                }
+            }
+            should("Use the default media source for sources without a name") {
+                val content = content("audio", listOf(opus())).apply {
+                    JingleUtils.getRtpDescription(this).addChildExtension(SourcePacketExtension().apply { ssrc = 7 })
+                }
+                converter.toSources("x", listOf(content)).shouldNotBeNull().mediaSources.map { it.id } shouldBe
+                    listOf("x-a0")
+            }
+        }
+        context("Converting the session-accepts of many participants") {
+            val converter = Colibri2JingleConverter()
+            val endpoints = List(10) { converter.toEndpoint("p$it", sessionAccept(it)).build() }
+
+            should("Share the media of identical offers") {
+                endpoints.forEach {
+                    it.media[0] shouldBeSameInstanceAs endpoints[0].media[0]
+                    it.media[1] shouldBeSameInstanceAs endpoints[0].media[1]
+                }
+                converter.cachedMediaCount shouldBe 2
+            }
+            should("Not share the media of different offers") {
+                val vp9 = converter.toEndpoint("vp9", sessionAccept(10, videoCodec = "VP9")).build()
+                vp9.media[0] shouldBeSameInstanceAs endpoints[0].media[0]
+                vp9.media[1] shouldNotBe endpoints[0].media[1]
+                vp9.media[1].payloadTypes.map { it.name } shouldBe listOf("VP9")
+                converter.cachedMediaCount shouldBe 3
+            }
+            should("Limit the size of the cache") {
+                val small = Colibri2JingleConverter(1)
+                repeat(3) { small.toEndpoint("p$it", sessionAccept(it)) }
+                small.cachedMediaCount shouldBe 1
+            }
+        }
+        context("Converting an endpoint to Jingle contents") {
+            val converter = Colibri2JingleConverter()
+            val jingle = sessionAccept(0)
+            val endpoint = converter.toEndpoint("p0", jingle).build()
+            val contents = converter.toContents(endpoint, CreatorEnum.responder)
+
+            should("Create a content for each media and the data channel") {
+                contents.map { it.name } shouldBe listOf("audio", "video", "data")
+                contents.map { it.creator }.toSet() shouldBe setOf(CreatorEnum.responder)
+            }
+            should("Reuse the payload types, transport and sources") {
+                val video = JingleUtils.getRtpDescription(contents[1])
+                video.payloadTypes[0] shouldBeSameInstanceAs
+                    JingleUtils.getRtpDescription(jingle.contentList[1]).payloadTypes[0]
+                video.getChildExtensionsOfType(SourcePacketExtension::class.java).size shouldBe 2
+                video.getChildExtensionsOfType(SourceGroupPacketExtension::class.java).size shouldBe 1
+                contents[0].getFirstChildOfType(IceUdpTransportPacketExtension::class.java) shouldBeSameInstanceAs
+                    endpoint.transport?.iceUdpTransport
+            }
+            should("Add an sctpmap to the data content") {
+                contents[2].getFirstChildOfType(IceUdpTransportPacketExtension::class.java)
+                    .getFirstChildOfType(SctpMapExtension::class.java).shouldNotBeNull().port shouldBe 5000
+            }
+            should("Convert back to the same endpoint") {
+                converter.toEndpoint("p0", contents).build().toXML().toString() shouldBe endpoint.toXML().toString()
+            }
+        }
+        context("A conference-modify for 500 participants") {
+            val converter = Colibri2JingleConverter()
+            val iq = conferenceModify(converter, 500)
+
+            should("Have an endpoint for each participant with shared media") {
+                iq.endpoints.size shouldBe 500
+                iq.endpoints.forEach { it.media[1] shouldBeSameInstanceAs iq.endpoints[0].media[1] }
+                iq.endpoints[499].sources?.mediaSources?.map { it.id } shouldBe listOf("p499-a0", "p499-v0")
+            }
+        }
+        xcontext("Performance") {
+            val sessionAccepts = List(500) { sessionAccept(it) }
+            val iterations = 200
+
+            should("convert 500 session-accepts") {
+                val time = Benchmark(logger, iterations)
+                val cached = Colibri2JingleConverter()
+                time("Convert with cache") { conferenceModify(cached, sessionAccepts).endpoints.size }
+                time("Convert without cache") {
+                    conferenceModify(Colibri2JingleConverter(0), sessionAccepts).endpoints.size
+                }
+                time("Convert and serialize") { conferenceModify(cached, sessionAccepts).toXML().length }
+            }
+        }
+    }
+
+    private fun conferenceModify(converter: Colibri2JingleConverter, size: Int) =
+        conferenceModify(converter, List(size) { sessionAccept(it) })
+
+    private fun conferenceModify(converter: Colibri2JingleConverter, sessionAccepts: List<JingleIQ>) =
+        ConferenceModifyIQ.builder("id").apply {
+            setMeetingId("88ff288c-5eeb-4ea9-bc2f-93ea38c43b78")
+            sessionAccepts.forEachIndexed { i, jingle ->
+                addEndpoint(converter.toEndpoint("p$i", jingle).apply { setCreate(true) }.build())
+            }
+        }.build()
+
+    /** A session-accept with an audio source, a video source with RTX, and a data channel. */
+    private fun sessionAccept(i: Int, videoCodec: String = "VP8") =
+        JingleIQ(JingleAction.SESSION_ACCEPT, "sid-$i").apply {
+            val transport = IceUdpTransportPacketExtension().apply {
+                ufrag = "ufrag-$i"
+                password = "pwd-$i"
+                addChildExtension(IceRtcpmuxPacketExtension())
+            }
+            addContent(
+                content("audio", listOf(opus()), transport).apply {
+                    JingleUtils.getRtpDescription(this).apply {
+                        addExtmap(
+                            RTPHdrExtPacketExtension().apply {
+                                setID("1")
+                                setURI(URI.create("urn:ietf:params:rtp-hdrext:ssrc-audio-level"))
+                            }
+                        )
+                        addChildExtension(source(1000L * i + 1, "p$i-a0"))
+                    }
+                }
+            )
+            addContent(
+                content("video", listOf(payloadType(100, videoCodec, 90000)), transport).apply {
+                    JingleUtils.getRtpDescription(this).apply {
+                        val ssrcs = listOf(1000L * i + 2, 1000L * i + 3)
+                        ssrcs.forEach { addChildExtension(source(it, "p$i-v0")) }
+                        addChildExtension(
+                            SourceGroupPacketExtension().apply {
+                                semantics = "FID"
+                                addSources(ssrcs.map { SourcePacketExtension().apply { ssrc = it } })
+                            }
+                        )
+                    }
+                }
+            )
+            addContent(
+                ContentPacketExtension(CreatorEnum.initiator, "data").apply {
+                    addChildExtension(
+                        IceUdpTransportPacketExtension().apply {
+                            ufrag = "ufrag-$i"
+                            password = "pwd-$i"
+                            addChildExtension(
+                                SctpMapExtension().apply {
+                                    port = 5000
+                                    setProtocol(SctpMapExtension.Protocol.WEBRTC_CHANNEL)
+                                    streams = 1024
+                                }
+                            )
+                        }
+                    )
+                }
+            )
+        }
+
+    private fun content(
+        name: String,
+        payloadTypes: List<PayloadTypePacketExtension>,
+        transport: IceUdpTransportPacketExtension? = null
+    ) = ContentPacketExtension(CreatorEnum.initiator, name).apply {
+        addChildExtension(
+            RtpDescriptionPacketExtension().apply {
+                media = name
+                payloadTypes.forEach { addPayloadType(it) }
+            }
+        )
+        transport?.let { addChildExtension(it) }
+    }
+
+    private fun opus() = payloadType(111, "opus", 48000, 2)
+
+    private fun source(ssrc: Long, name: String) = SourcePacketExtension().apply {
+        this.ssrc = ssrc
+        this.name = name
+    }
+}
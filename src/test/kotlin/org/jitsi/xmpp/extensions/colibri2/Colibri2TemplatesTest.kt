@@ -0,0 +1,258 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.ints.shouldBeLessThan
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.jitsi.utils.MediaType
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.colibri2.json.Colibri2JSONSerializer
+import org.jitsi.xmpp.extensions.jingle.CandidatePacketExtension
+import org.jitsi.xmpp.extensions.jingle.CandidateType
+import org.jitsi.xmpp.extensions.jingle.DtlsFingerprintPacketExtension
+import org.jitsi.xmpp.extensions.jingle.IceRtcpmuxPacketExtension
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jitsi.xmpp.extensions.jingle.ParameterPacketExtension
+import org.jitsi.xmpp.extensions.jingle.RTPHdrExtPacketExtension
+import org.jitsi.xmpp.extensions.jingle.RtcpFbPacketExtension
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import org.jivesoftware.smack.parsing.SmackParsingException
+import org.jivesoftware.smack.util.PacketParserUtils
+import java.net.URI
+
+class Colibri2TemplatesTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        IqProviderUtils.registerProviders()
+
+        context("A conference-modify with 200 endpoints") {
+            val iq = conferenceModify(200)
+            val compressed = Colibri2Templates.compress(iq)
+            val xml = iq.toXML().toString()
+            val compressedXml = compressed.toXML().toString()
+
+            should("Define each media once") {
+                compressed.templates.shouldNotBeNull().apply {
+                    media.map { it.type } shouldBe listOf(MediaType.AUDIO, MediaType.VIDEO)
+                    transports shouldBe emptyList()
+                }
+                compressed.endpoints.forEach { endpoint ->
+                    endpoint.media.map { Templates.getTemplateId(it) } shouldBe listOf("m0", "m1")
+                }
+            }
+            should("Be much smaller") {
+                logger.info("conference-modify: ${xml.length} bytes, compressed ${compressedXml.length} bytes")
+                compressedXml.length shouldBeLessThan xml.length / 2
+            }
+            should("Be expanded when parsed") {
+                val parsed = parse(compressedXml) as ConferenceModifyIQ
+
+                parsed.templates.shouldBeNull()
+                parsed.toXML().toString().shouldBeIdenticalTo(xml)
+            }
+            should("Be expanded when streamed") {
+                var endpoints = 0
+                ConferenceModifyStreamParser.parse(compressedXml, { endpoints++ }, true)
+                    .toXML().toString().shouldBeIdenticalTo(xml)
+                endpoints shouldBe 200
+            }
+            should("Serialize to the same JSON") {
+                Colibri2JSONSerializer.serializeConferenceModify(compressed) shouldBe
+                    Colibri2JSONSerializer.serializeConferenceModify(iq)
+            }
+        }
+        context("A conference-modified with 200 endpoints") {
+            val iq = conferenceModified(200)
+            val compressed = Colibri2Templates.compress(iq)
+            val xml = iq.toXML().toString()
+            val compressedXml = compressed.toXML().toString()
+
+            should("Define the candidates once") {
+                compressed.templates.shouldNotBeNull().apply {
+                    media shouldBe emptyList()
+                    transports.size shouldBe 1
+                }
+                compressed.endpoints.forEach { endpoint ->
+                    endpoint.transport.shouldNotBeNull().let { transport ->
+                        Templates.getTemplateId(transport) shouldBe "t0"
+                        transport.iceUdpTransport.shouldNotBeNull().candidateList shouldBe emptyList()
+                    }
+                }
+            }
+            should("Be much smaller") {
+                logger.info("conference-modified: ${xml.length} bytes, compressed ${compressedXml.length} bytes")
+                compressedXml.length shouldBeLessThan xml.length * 2 / 3
+            }
+            should("Be expanded when parsed") {
+                parse(compressedXml).toXML().toString().shouldBeIdenticalTo(xml)
+            }
+        }
+        context("An IQ without repeated blocks") {
+            val iq = conferenceModify(1)
+
+            should("Not be changed") {
+                Colibri2Templates.compress(iq) shouldBeSameInstanceAs iq
+            }
+        }
+        context("A reference to an unknown template") {
+            val xml = "<iq xmlns='jabber:client' id='id' type='get'>" +
+                "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'>" +
+                "<templates><media id='m0' type='audio'/></templates>" +
+                "<endpoint id='e'><media type='audio' template='m1'/></endpoint>" +
+                "</conference-modify></iq>"
+
+            should("Fail to parse") {
+                shouldThrow<SmackParsingException> { parse(xml) }
+            }
+        }
+        context("A reference to a template of another media type") {
+            val xml = "<iq xmlns='jabber:client' id='id' type='get'>" +
+                "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'>" +
+                "<templates><media id='m0' type='audio'/></templates>" +
+                "<endpoint id='e'><media type='video' template='m0'/></endpoint>" +
+                "</conference-modify></iq>"
+
+            should("Fail to parse") {
+                shouldThrow<SmackParsingException> { parse(xml) }
+            }
+        }
+    }
+
+    private fun parse(xml: String): IQ = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml))
+
+    /** A conference-modify which creates [size] endpoints with the same audio and video media. */
+    private fun conferenceModify(size: Int) = ConferenceModifyIQ.builder("id").apply {
+        setMeetingId("88ff288c-5eeb-4ea9-bc2f-93ea38c43b78")
+        repeat(size) { i ->
+            addEndpoint(
+                Colibri2Endpoint.getBuilder().apply {
+                    setId("endpoint-$i")
+                    setCreate(true)
+                    setStatsId("stats-$i")
+                    addMedia(audioMedia())
+                    addMedia(videoMedia())
+                    setTransport(Transport.getBuilder().setIceControlling(true).build())
+                    setSources(
+                        Sources.getBuilder().addMediaSource(
+                            MediaSource.getBuilder().setType(MediaType.AUDIO).setId("endpoint-$i-a0").addSource(
+                                SourcePacketExtension().apply {
+                                    ssrc = 1000L + i
+                                    name = "endpoint-$i-a0"
+                                }
+                            ).build()
+                        ).build()
+                    )
+                }.build()
+            )
+        }
+    }.build()
+
+    private fun audioMedia() = Media.getBuilder().apply {
+        setType(MediaType.AUDIO)
+        addPayloadType(
+            payloadType(111, "opus", 48000, 2).apply {
+                addParameter(ParameterPacketExtension("minptime", "10"))
+                addParameter(ParameterPacketExtension("useinbandfec", "1"))
+                addRtcpFeedbackType(rtcpFb("transport-cc"))
+            }
+        )
+        addPayloadType(payloadType(126, "telephone-event", 8000, 1))
+        addRtpHdrExt(hdrExt("1", "urn:ietf:params:rtp-hdrext:ssrc-audio-level"))
+        addRtpHdrExt(hdrExt("5", "http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01"))
+    }.build()
+
+    private fun videoMedia() = Media.getBuilder().apply {
+        setType(MediaType.VIDEO)
+        listOf(100 to "VP8", 101 to "VP9", 107 to "H264").forEach { (id, name) ->
+            addPayloadType(
+                payloadType(id, name, 90000).apply {
+                    addRtcpFeedbackType(rtcpFb("ccm", "fir"))
+                    addRtcpFeedbackType(rtcpFb("nack"))
+                    addRtcpFeedbackType(rtcpFb("nack", "pli"))
+                    addRtcpFeedbackType(rtcpFb("transport-cc"))
+                }
+            )
+            addPayloadType(
+                payloadType(id + 10, "rtx", 90000).apply {
+                    addParameter(ParameterPacketExtension("apt", id.toString()))
+                }
+            )
+        }
+        addRtpHdrExt(hdrExt("3", "http://www.webrtc.org/experiments/rtp-hdrext/abs-send-time"))
+        addRtpHdrExt(hdrExt("5", "http://www.ietf.org/id/draft-holmer-rmcat-transport-wide-cc-extensions-01"))
+    }.build()
+
+    private fun rtcpFb(type: String, subtype: String? = null) = RtcpFbPacketExtension().apply {
+        feedbackType = type
+        subtype?.let { feedbackSubtype = it }
+    }
+
+    private fun hdrExt(id: String, uri: String) = RTPHdrExtPacketExtension().apply {
+        setID(id)
+        setURI(URI.create(uri))
+    }
+
+    /** A conference-modified which allocates [size] endpoints with the same candidates. */
+    private fun conferenceModified(size: Int) =
+        ConferenceModifiedIQ.builder(StanzaBuilder.buildIqData("id").ofType(IQ.Type.result)).apply {
+            repeat(size) { i ->
+                addEndpoint(
+                    Colibri2Endpoint.getBuilder().apply {
+                        setId("endpoint-$i")
+                        setTransport(Transport.getBuilder().setIceUdpExtension(iceUdpTransport(i)).build())
+                    }.build()
+                )
+            }
+        }.build()
+
+    private fun iceUdpTransport(i: Int) = IceUdpTransportPacketExtension().apply {
+        ufrag = "ufrag$i"
+        password = "password$i"
+        addChildExtension(
+            DtlsFingerprintPacketExtension().apply {
+                hash = "sha-256"
+                fingerprint = "3B:C3:6A:1E:D5:F6:9E:4D:8B:53:4E:7A:90:E4:66:0C:F1:25:B7:29"
+                setup = "actpass"
+            }
+        )
+        addChildExtension(IceRtcpmuxPacketExtension())
+        addCandidate(candidate("1", "10.0.0.1", 10000, CandidateType.host))
+        addCandidate(candidate("2", "192.0.2.1", 10000, CandidateType.srflx))
+        addCandidate(candidate("3", "2001:db8::1", 10000, CandidateType.host))
+    }
+
+    private fun candidate(foundation: String, ip: String, port: Int, type: CandidateType) =
+        CandidatePacketExtension().apply {
+            component = 1
+            this.foundation = foundation
+            generation = 0
+            setID("653aa1ba295b62480ffffffff$foundation")
+            network = 0
+            setPriority(2130706431)
+            protocol = "udp"
+            setIP(ip)
+            this.port = port
+            this.type = type
+        }
+}
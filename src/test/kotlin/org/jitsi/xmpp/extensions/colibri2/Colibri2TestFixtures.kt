@@ -0,0 +1,118 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.assertions.asClue
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.MediaType
+import org.jitsi.utils.logging2.Logger
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.jingle.ParameterPacketExtension
+import org.jitsi.xmpp.extensions.jingle.PayloadTypePacketExtension
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+import org.xmlunit.builder.DiffBuilder
+
+/** Asserts that this XML is identical to [expected], ignoring whitespace. */
+internal fun String.shouldBeIdenticalTo(expected: String) {
+    val diff = DiffBuilder.compare(this).withTest(expected).ignoreWhitespace().checkForIdentical().build()
+    diff.asClue {
+        diff.hasDifferences() shouldBe false
+    }
+}
+
+internal fun payloadType(id: Int, name: String, clockrate: Int, channels: Int? = null) =
+    PayloadTypePacketExtension().apply {
+        setId(id)
+        this.name = name
+        this.clockrate = clockrate
+        channels?.let { this.channels = it }
+    }
+
+/** An audio [Media] with opus. */
+internal fun audio() =
+    Media.getBuilder().setType(MediaType.AUDIO).addPayloadType(payloadType(111, "opus", 48000, 2)).build()
+
+/**
+ * The [Sources] of endpoint [id]: an audio source with [audioSsrc], if any, and a video source with [videoSsrcs] and
+ * their RTX [rtxSsrcs], if any, grouped as simulcast if [simulcast] is set (see [videoSource]).
+ */
+internal fun sources(
+    id: String,
+    audioSsrc: Long? = null,
+    videoSsrcs: List<Long> = emptyList(),
+    simulcast: Boolean = false,
+    rtxSsrcs: List<Long> = emptyList()
+) = Sources.getBuilder().apply {
+    audioSsrc?.let { ssrc ->
+        addMediaSource(
+            MediaSource.getBuilder().setType(MediaType.AUDIO).setId("$id-a0").addSource(source(ssrc, "$id-a0")).build()
+        )
+    }
+    if (videoSsrcs.isNotEmpty()) {
+        addMediaSource(videoSource("$id-v0", videoSsrcs, rtxSsrcs, if (simulcast) videoSsrcs.size else 0))
+    }
+}.build()
+
+/**
+ * A camera [MediaSource] whose ID and sources are named [name]. Each of the [ssrcs] is followed by its RTX SSRC from
+ * [rtxSsrcs], if any, in an FID group. The first [simulcastLayers] of the [ssrcs] are grouped as simulcast, and
+ * [msid] gives the msid parameter of the source of each layer, if any.
+ */
+internal fun videoSource(
+    name: String,
+    ssrcs: List<Long>,
+    rtxSsrcs: List<Long> = emptyList(),
+    simulcastLayers: Int = 0,
+    msid: (Int) -> String? = { null }
+): MediaSource = MediaSource.getBuilder().setType(MediaType.VIDEO).setId(name).apply {
+    ssrcs.forEachIndexed { layer, ssrc ->
+        addSource(
+            source(ssrc, name).apply {
+                videoType = "camera"
+                msid(layer)?.let { addParameter(ParameterPacketExtension("msid", it)) }
+            }
+        )
+        rtxSsrcs.getOrNull(layer)?.let { rtx ->
+            addSource(source(rtx, name).apply { videoType = "camera" })
+            addSsrcGroup(group(SourceGroupPacketExtension.SEMANTICS_FID, ssrc, rtx))
+        }
+    }
+    if (simulcastLayers > 0) {
+        addSsrcGroup(group(SourceGroupPacketExtension.SEMANTICS_SIMULCAST, *ssrcs.take(simulcastLayers).toLongArray()))
+    }
+}.build()
+
+private fun source(ssrc: Long, name: String? = null) = SourcePacketExtension().apply {
+    this.ssrc = ssrc
+    name?.let { this.name = it }
+}
+
+private fun group(semantics: String, vararg ssrcs: Long) = SourceGroupPacketExtension().apply {
+    this.semantics = semantics
+    addSources(ssrcs.map { source(it) })
+}
+
+/** Logs the average time of [iterations] runs of a benchmark, after a warm-up of a tenth as many. */
+internal class Benchmark(private val logger: Logger, private val iterations: Int) {
+    /** Times [block], whose results are summed and logged so that the JIT cannot drop them. */
+    operator fun invoke(name: String, block: () -> Number) {
+        repeat(iterations / 10) { block() }
+        val start = System.nanoTime()
+        var sum = 0L
+        repeat(iterations) { sum += block().toLong() }
+        logger.info("$name: ${(System.nanoTime() - start) / iterations / 1000} us/op ($sum)")
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.jingle.PayloadTypePacketExtension
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import org.jivesoftware.smack.packet.StanzaError
+import org.jxmpp.jid.impl.JidCreate
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+
+class ConferenceModifyCoalescerTest : ShouldSpec() {
+    private val scheduler = Executors.newSingleThreadScheduledExecutor()
+    private val sent = ArrayList<Pair<ConferenceModifyIQ, CompletableFuture<IQ>>>()
+    private val sender = Function<ConferenceModifyIQ, CompletableFuture<IQ>> { iq ->
+        CompletableFuture<IQ>().also { synchronized(sent) { sent.add(iq to it) } }
+    }
+
+    init {
+        afterSpec { scheduler.shutdownNow() }
+        beforeEach { synchronized(sent) { sent.clear() } }
+
+        context("Merging requests") {
+            should("merge endpoints and map the response back") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1))
+                val f1 = coalescer.submit(iq("1", create = true, endpoint("e1", create = true)))
+                val f2 = coalescer.submit(iq("2", endpoint = endpoint("e2", create = true)))
+                val f3 = coalescer.submit(iq("3", endpoint = endpoint("e1", transport = true)))
+                sent.size shouldBe 0
+
+                coalescer.flush("m")
+                sent.size shouldBe 1
+                val merged = sent[0].first
+                merged.create shouldBe true
+                merged.meetingId shouldBe "m"
+                merged.endpoints.map { it.id } shouldBe listOf("e1", "e2")
+                merged.endpoints[0].create shouldBe true
+                merged.endpoints[0].transport shouldNotBe null
+                merged.endpoints[0].media.size shouldBe 1
+
+                sent[0].second.complete(
+                    ConferenceModifiedIQ.builder(merged.stanzaId)
+                        .addEndpoint(Colibri2Endpoint.getBuilder().apply { setId("e1") }.build())
+                        .addEndpoint(Colibri2Endpoint.getBuilder().apply { setId("e2") }.build())
+                        .build()
+                )
+                val r1 = f1.get()
+                r1.shouldBeInstanceOf<ConferenceModifiedIQ>()
+                r1.stanzaId shouldBe "1"
+                r1.type shouldBe IQ.Type.result
+                r1.endpoints.map { it.id } shouldBe listOf("e1")
+                (f2.get() as ConferenceModifiedIQ).endpoints.map { it.id } shouldBe listOf("e2")
+                f3.get().stanzaId shouldBe "3"
+            }
+            should("send an expired endpoint which is pending separately") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1))
+                coalescer.submit(iq("1", endpoint = endpoint("e1", create = true)))
+                coalescer.submit(iq("2", endpoint = endpoint("e2", create = true)))
+                coalescer.submit(iq("3", endpoint = endpoint("e1", expire = true)))
+
+                sent.size shouldBe 1
+                sent[0].first.endpoints.map { it.id } shouldBe listOf("e1", "e2")
+                coalescer.flush("m")
+                sent.size shouldBe 2
+                sent[1].first.stanzaId shouldBe "3"
+                sent[1].first.endpoints[0].expire shouldBe true
+            }
+            should("send a conference expire on its own") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1))
+                coalescer.submit(iq("1", endpoint = endpoint("e1", create = true)))
+                coalescer.submit(ConferenceModifyIQ.builder("2").setMeetingId("m").setExpire(true).build())
+
+                sent.size shouldBe 2
+                sent[1].first.expire shouldBe true
+            }
+            should("keep meetings separate and send when the size threshold is reached") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1), maxEntities = 3)
+                coalescer.submit(iq("1", endpoint = endpoint("e1", create = true)))
+                coalescer.submit(iq("2", endpoint = endpoint("e1", create = true), meetingId = "other"))
+                coalescer.submit(iq("3", endpoint = endpoint("e2", create = true)))
+                sent.size shouldBe 0
+                coalescer.submit(iq("4", endpoint = endpoint("e3", create = true)))
+                sent.size shouldBe 1
+                sent[0].first.endpoints.size shouldBe 3
+                coalescer.flushAll()
+                sent.size shouldBe 2
+                sent[1].first.stanzaId shouldBe "2"
+            }
+        }
+        context("Cascades") {
+            should("not merge requests for different bridges with the same meeting ID") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1))
+                coalescer.submit(iq("1", endpoint = endpoint("e1", create = true), to = "jvb1@example.com"))
+                coalescer.submit(iq("2", endpoint = endpoint("e2", create = true), to = "jvb2@example.com"))
+                coalescer.submit(iq("3", endpoint = endpoint("e3", create = true), to = "jvb1@example.com"))
+                coalescer.submit(iq("4", endpoint = endpoint("e4", create = true), to = "jvb2@example.com"))
+                sent.size shouldBe 0
+
+                coalescer.flush("m")
+                sent.size shouldBe 2
+                val byBridge = sent.associate { it.first.to.toString() to it.first.endpoints.map { e -> e.id } }
+                byBridge shouldBe mapOf(
+                    "jvb1@example.com" to listOf("e1", "e3"),
+                    "jvb2@example.com" to listOf("e2", "e4")
+                )
+            }
+        }
+        context("Merging media") {
+            should("keep the pending media of types which the update does not touch") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1))
+                val opus = PayloadTypePacketExtension().apply {
+                    setId(111)
+                    name = "opus"
+                }
+                val create = Colibri2Endpoint.getBuilder().apply {
+                    setId("e1")
+                    setCreate(true)
+                    addMedia(Media.getBuilder().setType(MediaType.AUDIO).build())
+                    addMedia(Media.getBuilder().setType(MediaType.VIDEO).build())
+                }.build()
+                val update = Colibri2Endpoint.getBuilder().apply {
+                    setId("e1")
+                    addMedia(Media.getBuilder().setType(MediaType.AUDIO).addPayloadType(opus).build())
+                }.build()
+                coalescer.submit(iq("1", endpoint = create))
+                coalescer.submit(iq("2", endpoint = update))
+                coalescer.flush("m")
+
+                val media = sent[0].first.endpoints[0].media
+                media.map { it.type } shouldBe listOf(MediaType.AUDIO, MediaType.VIDEO)
+                media[0].payloadTypes.map { it.name } shouldBe listOf("opus")
+            }
+        }
+        context("Responses") {
+            should("pass through the response to a single request") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofMillis(10))
+                val request = iq("1", endpoint = endpoint("e1", create = true))
+                val future = coalescer.submit(request)
+                while (synchronized(sent) { sent.isEmpty() }) Thread.sleep(5)
+
+                sent[0].first shouldBe request
+                val response = IQ.createResultIQ(request)
+                sent[0].second.complete(response)
+                future.get(5, TimeUnit.SECONDS) shouldBe response
+            }
+            should("forward errors to each requester") {
+                val coalescer = ConferenceModifyCoalescer(sender, scheduler, Duration.ofHours(1))
+                val f1 = coalescer.submit(iq("1", endpoint = endpoint("e1", create = true)))
+                val f2 = coalescer.submit(iq("2", endpoint = endpoint("e2", create = true)))
+                coalescer.flush("m")
+
+                val error = StanzaError.getBuilder(StanzaError.Condition.conflict).build()
+                sent[0].second.complete(IQ.createErrorResponse(sent[0].first, error))
+                f1.get().type shouldBe IQ.Type.error
+                f1.get().stanzaId shouldBe "1"
+                f2.get().error.condition shouldBe StanzaError.Condition.conflict
+            }
+        }
+    }
+
+    private fun iq(
+        id: String,
+        create: Boolean = false,
+        endpoint: Colibri2Endpoint,
+        meetingId: String = "m",
+        to: String? = null
+    ): ConferenceModifyIQ {
+        val iqData = StanzaBuilder.buildIqData(id).ofType(IQ.Type.set).to(to?.let { JidCreate.from(it) })
+        return ConferenceModifyIQ.builder(iqData).setMeetingId(meetingId).setCreate(create).addEndpoint(endpoint)
+            .build()
+    }
+
+    private fun endpoint(id: String, create: Boolean = false, expire: Boolean = false, transport: Boolean = false) =
+        Colibri2Endpoint.getBuilder().apply {
+            setId(id)
+            setCreate(create)
+            setExpire(expire)
+            if (create) addMedia(Media.getBuilder().setType(MediaType.AUDIO).build())
+            if (transport) setTransport(Transport.getBuilder().build())
+        }.build()
+}
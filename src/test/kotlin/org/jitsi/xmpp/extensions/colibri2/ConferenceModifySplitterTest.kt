@@ -0,0 +1,121 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.ints.shouldBeGreaterThan
+import io.kotest.matchers.ints.shouldBeLessThanOrEqual
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+
+class ConferenceModifySplitterTest : ShouldSpec() {
+    init {
+        context("A small IQ") {
+            should("not be split") {
+                val iq = ConferenceModifyIQ.builder("id").setMeetingId("m")
+                    .addEndpoint(endpoint("e1", 2))
+                    .build()
+                ConferenceModifySplitter.split(iq, 10_000) shouldBe listOf(iq)
+            }
+        }
+        context("A relay with many endpoints") {
+            val iq = ConferenceModifyIQ.builder("id").setMeetingId("m").setCreate(true)
+                .addRelay(
+                    Colibri2Relay.getBuilder().apply {
+                        setId("r1")
+                        setCreate(true)
+                        setMeshId("mesh")
+                        setEndpoints(
+                            Endpoints.getBuilder().apply {
+                                repeat(300) { addEndpoint(endpoint("e$it", 4)) }
+                            }.build()
+                        )
+                    }.build()
+                )
+                .build()
+            val parts = ConferenceModifySplitter.split(iq, 16_000)
+
+            should("be split into IQs below the maximum size") {
+                iq.toXML().length shouldBeGreaterThan 16_000
+                parts.size shouldBeGreaterThan 1
+                parts.forEach { it.toXML().toString().toByteArray().size shouldBeLessThanOrEqual 16_000 }
+            }
+            should("keep every endpoint exactly once") {
+                parts.flatMap { it.relays.flatMap { r -> r.endpoints!!.endpoints.map { e -> e.id } } } shouldBe
+                    List(300) { "e$it" }
+            }
+            should("keep create and the other fields in the first part") {
+                parts.map { it.stanzaId } shouldBe List(parts.size) { if (it == 0) "id" else "id-$it" }
+                parts[0].create shouldBe true
+                parts[0].relays[0].create shouldBe true
+                parts[0].relays[0].meshId shouldBe "mesh"
+                parts.drop(1).forEach {
+                    it.create shouldBe false
+                    it.relays.size shouldBe 1
+                    it.relays[0].id shouldBe "r1"
+                    it.relays[0].create shouldBe false
+                    it.relays[0].meshId shouldBe null
+                }
+            }
+        }
+        context("An endpoint which does not fit on its own") {
+            val iq = ConferenceModifyIQ.builder("id").setMeetingId("m")
+                .addEndpoint(endpoint("small", 1))
+                .addEndpoint(endpoint("big", 200, create = true))
+                .build()
+            val parts = ConferenceModifySplitter.split(iq, 8_000)
+
+            should("be split between its media sources") {
+                parts.forEach { it.toXML().length shouldBeLessThanOrEqual 8_000 }
+                val bigParts = parts.flatMap { it.endpoints }.filter { it.id == "big" }
+                bigParts.size shouldBeGreaterThan 1
+                bigParts[0].create shouldBe true
+                bigParts[0].statsId shouldBe "big-stats"
+                bigParts.drop(1).forEach {
+                    it.create shouldBe false
+                    it.statsId shouldBe null
+                }
+                bigParts.flatMap { it.sources!!.mediaSources.map { ms -> ms.id } } shouldBe List(200) { "big-v$it" }
+            }
+        }
+    }
+
+    private fun endpoint(id: String, mediaSources: Int, create: Boolean = true) = Colibri2Endpoint.getBuilder().apply {
+        setId(id)
+        setCreate(create)
+        setStatsId("$id-stats")
+        setSources(
+            Sources.getBuilder().apply {
+                repeat(mediaSources) { i ->
+                    addMediaSource(
+                        MediaSource.getBuilder().setType(MediaType.VIDEO).setId("$id-v$i").apply {
+                            repeat(3) { layer ->
+                                addSource(
+                                    SourcePacketExtension().apply {
+                                        ssrc = 1000L * i + layer
+                                        name = "$id-v$i"
+                                        videoType = "camera"
+                                    }
+                                )
+                            }
+                        }.build()
+                    )
+                }
+            }.build()
+        )
+    }.build()
+}
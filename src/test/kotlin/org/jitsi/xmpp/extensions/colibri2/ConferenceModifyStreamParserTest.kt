@@ -0,0 +1,156 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.assertions.throwables.shouldThrowAny
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.longs.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.logging2.createLogger
+import org.jivesoftware.smack.packet.ExtensionElement
+import org.jivesoftware.smack.util.PacketParserUtils
+import java.lang.management.ManagementFactory
+
+class ConferenceModifyStreamParserTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        beforeSpec {
+            IqProviderUtils.registerProviders()
+        }
+
+        context("Streaming the children of a conference-modify IQ") {
+            val xml = conferenceModify(endpoints = 10, relays = 2)
+            val blocking = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)) as ConferenceModifyIQ
+
+            should("pass every child to the consumer in document order") {
+                val streamed = mutableListOf<ExtensionElement>()
+                ConferenceModifyStreamParser.parse(xml, { streamed.add(it) }, false)
+
+                streamed.map { it.toXML().toString() } shouldBe blocking.extensions.map { it.toXML().toString() }
+                streamed.filterIsInstance<Colibri2Endpoint>().size shouldBe 10
+                streamed.filterIsInstance<Colibri2Relay>().size shouldBe 2
+            }
+            should("build the same IQ as the provider when retaining the children") {
+                val iq = ConferenceModifyStreamParser.parse(xml, { }, true)
+
+                iq.toXML().toString() shouldBe blocking.toXML().toString()
+                iq.endpoints.size shouldBe 10
+            }
+            should("only keep the attributes when not retaining the children") {
+                val iq = ConferenceModifyStreamParser.parse(xml, { }, false)
+
+                iq.meetingId shouldBe blocking.meetingId
+                iq.stanzaId shouldBe blocking.stanzaId
+                iq.type shouldBe blocking.type
+                iq.endpoints.size shouldBe 0
+                iq.relays.size shouldBe 0
+            }
+            should("pass children to the consumer before the rest of the IQ has been parsed") {
+                val truncated = xml.substring(0, xml.indexOf("<endpoint id='endpoint-2'"))
+                val streamed = mutableListOf<ExtensionElement>()
+
+                shouldThrowAny {
+                    ConferenceModifyStreamParser.parse(truncated, { streamed.add(it) }, false)
+                }
+                streamed.map { (it as Colibri2Endpoint).id } shouldBe listOf("endpoint-0", "endpoint-1")
+            }
+            should("parse the media of each endpoint") {
+                ConferenceModifyStreamParser.parse(
+                    xml,
+                    {
+                        if (it is Colibri2Endpoint) {
+                            it.media.first().payloadTypes.first().name shouldBe "opus"
+                        }
+                    },
+                    false
+                )
+            }
+            should("reject other IQs") {
+                shouldThrowAny {
+                    ConferenceModifyStreamParser.parse(
+                        "<iq xmlns='jabber:client' id='id' type='get'><ping xmlns='urn:xmpp:ping'/></iq>",
+                        { },
+                        false
+                    )
+                }
+            }
+        }
+        // Sampling the live heap depends on when the JVM collects, so this only runs when enabled by hand. That the
+        // streamed children are not retained is checked above.
+        xcontext("Performance") {
+            val xml = conferenceModify(endpoints = 1000, relays = 0)
+            val memory = ManagementFactory.getMemoryMXBean()
+            fun liveHeap(): Long {
+                System.gc()
+                return memory.heapMemoryUsage.used
+            }
+
+            should("need less live memory for 1000 endpoints when streaming than when building the whole IQ") {
+                // Warm up, so that class loading doesn't count.
+                PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml))
+
+                val blockingBaseline = liveHeap()
+                val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)) as ConferenceModifyIQ
+                val blockingPeak = liveHeap() - blockingBaseline
+                iq.endpoints.size shouldBe 1000
+
+                val streamingBaseline = liveHeap()
+                var streamingPeak = 0L
+                var count = 0
+                ConferenceModifyStreamParser.parse(
+                    xml,
+                    {
+                        count++
+                        if (count % 100 == 0) {
+                            streamingPeak = maxOf(streamingPeak, liveHeap() - streamingBaseline)
+                        }
+                    },
+                    false
+                )
+                count shouldBe 1000
+
+                logger.info(
+                    "Live heap for ${xml.length} chars of XML with 1000 endpoints: " +
+                        "blocking=${blockingPeak / 1024}KB streaming=${streamingPeak / 1024}KB"
+                )
+                streamingPeak shouldBeLessThan blockingPeak
+            }
+        }
+    }
+
+    private fun conferenceModify(endpoints: Int, relays: Int): String = buildString {
+        append("<iq xmlns='jabber:client' id='id' type='set' from='focus@example.com' to='jvb@example.com'>")
+        append("<conference-modify xmlns='jitsi:colibri2' meeting-id='88ff288c-5eeb-4ea9-bc2f-93ea38c43b78'>")
+        repeat(endpoints) {
+            append("<endpoint id='endpoint-$it' create='true' stats-id='stats-$it'>")
+            append("<media type='audio'>")
+            append("<payload-type xmlns='urn:xmpp:jingle:apps:rtp:1' id='111' name='opus' clockrate='48000'")
+            append(" channels='2'/>")
+            append("</media>")
+            append("<transport ice-controlling='true'/>")
+            append("<sources><media-source type='audio' id='endpoint-$it-a0'>")
+            append("<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='${1000 + it}' name='endpoint-$it-a0'/>")
+            append("</media-source></sources>")
+            append("</endpoint>")
+        }
+        repeat(relays) {
+            append("<relay id='relay-$it'><transport/></relay>")
+        }
+        append("</conference-modify>")
+        append("</iq>")
+    }
+}
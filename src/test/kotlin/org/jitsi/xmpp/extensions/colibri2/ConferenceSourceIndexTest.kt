@@ -0,0 +1,177 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.colibri2.compact.CompactSources
+
+class ConferenceSourceIndexTest : ShouldSpec() {
+    init {
+        context("Setting the sources of endpoints") {
+            val index = ConferenceSourceIndex()
+            index.setSources("e1", sources("e1", 1, listOf(2L), rtxSsrcs = listOf(3L)))
+            index.setSources("e2", sources("e2", 11, listOf(12L), rtxSsrcs = listOf(13L)))
+
+            should("index SSRCs and names") {
+                index.ssrcCount shouldBe 6
+                index.endpointCount shouldBe 2
+
+                val owner = index.getSsrcOwner(2)!!
+                owner.endpointId shouldBe "e1"
+                owner.mediaSourceId shouldBe "e1-v0"
+                owner.mediaSource.type shouldBe MediaType.VIDEO
+                owner.groupSemantics shouldBe listOf("FID")
+                index.getSsrcOwner(1)!!.mediaSourceId shouldBe "e1-a0"
+                index.getSsrcOwner(1)!!.groupSemantics shouldBe emptyList<String>()
+                index.getSsrcOwner(4) shouldBe null
+
+                index.getMediaSource("e2-v0") shouldBe
+                    ConferenceSourceIndex.MediaSourceOwner("e2", "e2-v0", MediaType.VIDEO)
+                index.getSsrcs("e2").sorted() shouldBe listOf(11L, 12L, 13L)
+            }
+            should("replace the previous sources of an endpoint") {
+                index.setSources("e1", sources("e1", 21, listOf(22L), rtxSsrcs = listOf(23L)))
+
+                index.getSsrcOwner(1) shouldBe null
+                index.getSsrcOwner(21)!!.endpointId shouldBe "e1"
+                index.ssrcCount shouldBe 6
+            }
+            should("reject SSRCs of another endpoint and leave the index unchanged") {
+                val e = shouldThrow<ConferenceSourceIndex.SourceCollisionException> {
+                    index.setSources("e3", sources("e3", 31, listOf(12L), rtxSsrcs = listOf(33L)))
+                }
+                e.existing.endpointId shouldBe "e2"
+                e.rejected.endpointId shouldBe "e3"
+                index.getSsrcOwner(31) shouldBe null
+                index.endpointCount shouldBe 2
+            }
+            should("reject names of another endpoint") {
+                shouldThrow<ConferenceSourceIndex.SourceCollisionException> {
+                    index.setSources("e3", sources("e2", 31, listOf(32L), rtxSsrcs = listOf(33L)))
+                }
+            }
+            should("reject an SSRC in two media sources of the same endpoint") {
+                shouldThrow<ConferenceSourceIndex.SourceCollisionException> {
+                    index.setSources("e3", sources("e3", 31, listOf(31L), rtxSsrcs = listOf(33L)))
+                }
+                index.getSsrcs("e3").size shouldBe 0
+            }
+            should("accept compact sources") {
+                index.setSources("e3", CompactSources.from(sources("e3", 31, listOf(32L), rtxSsrcs = listOf(33L))))
+
+                index.getSsrcOwner(33)!!.groupSemantics shouldBe listOf("FID")
+                index.getMediaSource("e3-a0")!!.endpointId shouldBe "e3"
+            }
+            should("remove the sources of an endpoint") {
+                index.removeEndpoint("e2") shouldBe true
+                index.removeEndpoint("e2") shouldBe false
+
+                index.getSsrcOwner(11) shouldBe null
+                index.getMediaSource("e2-a0") shouldBe null
+                index.setSources("e4", sources("e2", 11, listOf(12L), rtxSsrcs = listOf(13L)))
+                index.getSsrcOwner(11)!!.endpointId shouldBe "e4"
+            }
+        }
+        context("Applying IQs") {
+            val index = ConferenceSourceIndex()
+
+            should("index the endpoints and relays of a conference-modify") {
+                val iq = ConferenceModifyIQ.builder("id").setMeetingId("m")
+                    .addEndpoint(endpoint("e1", sources("e1", 1, listOf(2L), rtxSsrcs = listOf(3L))))
+                    .addRelay(
+                        Colibri2Relay.getBuilder().apply {
+                            setId("r1")
+                            setEndpoints(
+                                Endpoints.getBuilder()
+                                    .addEndpoint(endpoint("e2", sources("e2", 11, listOf(12L), rtxSsrcs = listOf(13L))))
+                                    .addEndpoint(endpoint("e3", sources("e3", 21, listOf(22L), rtxSsrcs = listOf(23L))))
+                                    .build()
+                            )
+                        }.build()
+                    )
+                    .build()
+                index.apply(iq)
+
+                index.endpointCount shouldBe 3
+                index.getSsrcOwner(22)!!.endpointId shouldBe "e3"
+            }
+            should("remove expired endpoints and relays") {
+                index.apply(
+                    ConferenceModifyIQ.builder("id").setMeetingId("m")
+                        .addEndpoint(endpoint("e1", null, expire = true))
+                        .build()
+                )
+                index.getSsrcOwner(1) shouldBe null
+                index.endpointCount shouldBe 2
+
+                index.apply(
+                    ConferenceModifyIQ.builder("id").setMeetingId("m")
+                        .addRelay(Colibri2Relay.getBuilder().apply { setId("r1").setExpire(true) }.build())
+                        .build()
+                )
+                index.endpointCount shouldBe 0
+                index.ssrcCount shouldBe 0
+            }
+            should("index the bridge sources of a conference-modified") {
+                val sources = sources("jvb", 100, listOf(101L), rtxSsrcs = listOf(102L))
+                index.apply(ConferenceModifiedIQ.builder("id").setSources(sources).build())
+
+                index.getSsrcOwner(100)!!.endpointId shouldBe ConferenceSourceIndex.BRIDGE_ID
+                index.getSsrcs(ConferenceSourceIndex.BRIDGE_ID).size shouldBe 3
+            }
+        }
+        context("LongObjectMap") {
+            should("behave like a map") {
+                val map = LongObjectMap<String>()
+                val reference = HashMap<Long, String>()
+                val random = java.util.Random(1)
+
+                repeat(100_000) {
+                    val key = random.nextInt(5000).toLong() * 0x1_0000_0001L
+                    if (random.nextBoolean()) {
+                        map.put(key, "v$it") shouldBe reference.put(key, "v$it")
+                    } else {
+                        map.remove(key) shouldBe reference.remove(key)
+                    }
+                }
+                map.size shouldBe reference.size
+                reference.forEach { (k, v) -> map[k] shouldBe v }
+                var count = 0
+                map.forEach { k, v ->
+                    reference[k] shouldBe v
+                    count++
+                }
+                count shouldBe reference.size
+                map.containsKey(-1) shouldBe false
+                map.put(-1, "x") shouldBe null
+                map[-1] shouldNotBe null
+                map.clear()
+                map.size shouldBe 0
+                map[-1] shouldBe null
+            }
+        }
+    }
+
+    private fun endpoint(id: String, sources: Sources?, expire: Boolean = false) = Colibri2Endpoint.getBuilder().apply {
+        setId(id)
+        setExpire(expire)
+        sources?.let { setSources(it) }
+    }.build()
+}
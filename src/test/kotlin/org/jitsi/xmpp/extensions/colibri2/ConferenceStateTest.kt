@@ -0,0 +1,286 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.jitsi.utils.MediaType
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+
+class ConferenceStateTest : ShouldSpec() {
+    init {
+        context("Applying conference-modify IQs") {
+            val state = ConferenceState()
+            state.apply(
+                modify(create = true) {
+                    addEndpoint(
+                        endpoint("e1", create = true, ssrcs = listOf(1L, 2L)).apply { addMedia(audio()) }.build()
+                    )
+                    addEndpoint(endpoint("e2", create = true, ssrcs = listOf(11L)).build())
+                }
+            )
+
+            should("Create the endpoints") {
+                state.meetingId shouldBe "m"
+                state.endpointCount shouldBe 2
+                state.sourceCount shouldBe 3
+                state.getEndpoint("e1").shouldNotBeNull().apply {
+                    create shouldBe false
+                    media.map { it.type } shouldBe listOf(MediaType.AUDIO)
+                    statsId shouldBe "stats-e1"
+                }
+            }
+            should("Replace the sources and keep the other fields of an update") {
+                state.apply(modify { addEndpoint(endpoint("e1", ssrcs = listOf(3L, 4L, 5L)).setStatsId(null).build()) })
+
+                state.sourceCount shouldBe 4
+                state.getEndpoint("e1").shouldNotBeNull().apply {
+                    sources.shouldNotBeNull().mediaSources[0].ssrcs().toList() shouldBe listOf(3L, 4L, 5L)
+                    media.map { it.type } shouldBe listOf(MediaType.AUDIO)
+                    statsId shouldBe "stats-e1"
+                }
+            }
+            should("Reject an update of an unknown endpoint and stay unchanged") {
+                val snapshot = state.snapshot()
+                shouldThrow<IllegalArgumentException> {
+                    state.apply(
+                        modify {
+                            addEndpoint(endpoint("e3", create = true).build())
+                            addEndpoint(endpoint("e4").build())
+                        }
+                    )
+                }
+                state.getEndpoint("e3").shouldBeNull()
+                state.snapshot() shouldBeSameInstanceAs snapshot
+            }
+            should("Reject creating an existing endpoint") {
+                shouldThrow<IllegalArgumentException> {
+                    state.apply(modify { addEndpoint(endpoint("e2", create = true).build()) })
+                }
+            }
+            should("Reject another meeting") {
+                shouldThrow<IllegalArgumentException> {
+                    state.apply(
+                        ConferenceModifyIQ.builder("id").setMeetingId("other").build()
+                    )
+                }
+            }
+            should("Allow an endpoint to be expired and created again in one IQ") {
+                state.apply(
+                    modify {
+                        addEndpoint(expired("e2"))
+                        addEndpoint(endpoint("e2", create = true, ssrcs = listOf(21L, 22L)).build())
+                    }
+                )
+                state.sourceCount shouldBe 5
+            }
+            should("Keep snapshots unchanged") {
+                val snapshot = state.snapshot()
+                state.snapshot() shouldBeSameInstanceAs snapshot
+
+                state.apply(modify { addEndpoint(expired("e1")) })
+                state.getEndpoint("e1").shouldBeNull()
+                state.sourceCount shouldBe 2
+                snapshot.getEndpoint("e1").shouldNotBeNull()
+                snapshot.sourceCount shouldBe 5
+                state.snapshot() shouldNotBe snapshot
+            }
+            should("Expire the whole conference") {
+                state.apply(ConferenceModifyIQ.builder("id").setMeetingId("m").setExpire(true).build())
+                state.endpointCount shouldBe 0
+                state.sourceCount shouldBe 0
+                state.meetingId.shouldBeNull()
+            }
+        }
+        context("Applying relays") {
+            val state = ConferenceState()
+            state.apply(
+                modify(create = true) {
+                    addRelay(relay("r", create = true, endpoint("r-e1", create = true, ssrcs = listOf(1L))))
+                }
+            )
+            state.apply(
+                modify {
+                    addRelay(
+                        relay(
+                            "r",
+                            create = false,
+                            endpoint("r-e2", create = true, ssrcs = listOf(2L, 3L)),
+                            Colibri2Endpoint.getBuilder().apply { setId("r-e1"); setExpire(true) }
+                        )
+                    )
+                }
+            )
+
+            should("Apply the endpoints of the relay") {
+                state.relayCount shouldBe 1
+                state.getRelayEndpoint("r", "r-e1").shouldBeNull()
+                state.getRelayEndpoint("r", "r-e2").shouldNotBeNull()
+                state.getRelay("r").shouldNotBeNull().apply {
+                    meshId shouldBe "mesh"
+                    endpoints.shouldNotBeNull().map { it.id } shouldBe listOf("r-e2")
+                }
+                state.sourceCount shouldBe 2
+            }
+            should("Reject an update of an unknown relay endpoint") {
+                shouldThrow<IllegalArgumentException> {
+                    state.apply(modify { addRelay(relay("r", create = false, endpoint("r-e3"))) })
+                }
+            }
+            should("Remove the endpoints of an expired relay") {
+                state.apply(
+                    modify { addRelay(Colibri2Relay.getBuilder().apply { setId("r"); setExpire(true) }.build()) }
+                )
+                state.relayCount shouldBe 0
+                state.sourceCount shouldBe 0
+            }
+        }
+        context("Applying a conference-modified") {
+            val state = ConferenceState()
+            state.apply(modify(create = true) { addEndpoint(endpoint("e1", create = true).build()) })
+            state.apply(
+                ConferenceModifiedIQ.builder(StanzaBuilder.buildIqData("id").ofType(IQ.Type.result)).apply {
+                    addEndpoint(
+                        Colibri2Endpoint.getBuilder().apply {
+                            setId("e1")
+                            setTransport(
+                                Transport.getBuilder().setIceUdpExtension(
+                                    IceUdpTransportPacketExtension().apply { ufrag = "ufrag" }
+                                ).build()
+                            )
+                        }.build()
+                    )
+                    setSources(sources("jvb", videoSsrcs = listOf(100L)))
+                }.build()
+            )
+
+            should("Update the transport and the bridge's sources") {
+                state.getEndpoint("e1")?.transport?.iceUdpTransport?.ufrag shouldBe "ufrag"
+                state.getEndpoint("e1")?.statsId shouldBe "stats-e1"
+                state.bridgeSources.shouldNotBeNull().mediaSources.size shouldBe 1
+            }
+        }
+        context("The full state IQ") {
+            val state = ConferenceState()
+            state.apply(
+                modify(create = true) {
+                    setConferenceName("name")
+                    addEndpoint(endpoint("e1", create = true, ssrcs = listOf(1L)).apply { addMedia(audio()) }.build())
+                    addRelay(relay("r", create = true, endpoint("r-e1", create = true, ssrcs = listOf(2L))))
+                }
+            )
+            state.apply(modify { addEndpoint(endpoint("e1", ssrcs = listOf(3L)).build()) })
+
+            should("Recreate the same state") {
+                val iq = state.toConferenceModifyIQ(StanzaBuilder.buildIqData("resync"))
+                iq.create shouldBe true
+                iq.endpoints.all { it.create } shouldBe true
+
+                val copy = ConferenceState().apply { apply(iq) }
+                copy.snapshot().endpoints shouldBe state.snapshot().endpoints
+                copy.snapshot().relays shouldBe state.snapshot().relays
+                copy.conferenceName shouldBe "name"
+                copy.sourceCount shouldBe state.sourceCount
+            }
+        }
+        context("A large conference") {
+            val state = ConferenceState()
+            val size = 10_000
+
+            should("Hold 10,000 endpoints with 100,000 sources") {
+                state.apply(
+                    modify(create = true) {
+                        repeat(size) { i ->
+                            addEndpoint(endpoint("e$i", create = true, ssrcs = List(10) { 10L * i + it }).build())
+                        }
+                    }
+                )
+                state.endpointCount shouldBe size
+                state.sourceCount shouldBe 100_000
+
+                /* Replacing the sources does not grow the state. */
+                state.apply(
+                    modify {
+                        repeat(size) { i ->
+                            addEndpoint(endpoint("e$i", ssrcs = List(10) { 200_000L + 10L * i + it }).build())
+                        }
+                    }
+                )
+                state.sourceCount shouldBe 100_000
+                state.getEndpoint("e9999")?.sources?.mediaSources?.get(0)?.ssrc(0) shouldBe 299_990L
+            }
+            should("Not copy the endpoints on each update") {
+                val snapshot = state.snapshot()
+                val copies = state.endpointsCopyCount
+
+                /* One IQ per update: the map shared with the snapshot is copied once, not once per IQ. */
+                repeat(size) { i ->
+                    state.apply(modify { addEndpoint(endpoint("e$i", ssrcs = List(10) { 10L * i + it }).build()) })
+                }
+                state.endpointsCopyCount shouldBe copies + 1
+                state.getEndpoint("e9999")?.sources?.mediaSources?.get(0)?.ssrc(0) shouldBe 99_990L
+                snapshot.getEndpoint("e9999")?.sources?.mediaSources?.get(0)?.ssrc(0) shouldBe 299_990L
+
+                /* The next snapshot is shared again: only the first update after it copies. */
+                state.snapshot()
+                state.apply(modify { addEndpoint(expired("e0")) })
+                repeat(size - 1) { i ->
+                    state.apply(modify { addEndpoint(endpoint("e${i + 1}", ssrcs = listOf(i + 1L)).build()) })
+                }
+                state.endpointsCopyCount shouldBe copies + 2
+                state.endpointCount shouldBe size - 1
+                state.sourceCount shouldBe size - 1
+                snapshot.endpoints.size shouldBe size
+                snapshot.sourceCount shouldBe 100_000
+            }
+        }
+    }
+
+    private fun modify(create: Boolean = false, block: ConferenceModifyIQ.Builder.() -> Unit) =
+        ConferenceModifyIQ.builder("id").apply {
+            setMeetingId("m")
+            setCreate(create)
+            block()
+        }.build()
+
+    private fun endpoint(id: String, create: Boolean = false, ssrcs: List<Long>? = null) =
+        Colibri2Endpoint.getBuilder().apply {
+            setId(id)
+            setCreate(create)
+            setStatsId("stats-$id")
+            ssrcs?.let { setSources(sources(id, videoSsrcs = it)) }
+        }
+
+    private fun expired(id: String) = Colibri2Endpoint.getBuilder().apply {
+        setId(id)
+        setExpire(true)
+    }.build()
+
+    private fun relay(id: String, create: Boolean, vararg endpoints: Colibri2Endpoint.Builder) =
+        Colibri2Relay.getBuilder().apply {
+            setId(id)
+            setCreate(create)
+            setMeshId("mesh")
+            setEndpoints(Endpoints.getBuilder().apply { endpoints.forEach { addEndpoint(it.build()) } }.build())
+        }.build()
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import java.net.URI
+
+class ConnectDiffTest : ShouldSpec() {
+    init {
+        context("Diffing two connects") {
+            val old = connect(exports = listOf("a-a0", "b-a0"), requests = listOf("a-a0.en"))
+            val new = connect(exports = listOf("b-a0", "c-a0"), requests = listOf("a-a0.en", "b-a0.hi"))
+            val diff = ConnectDiff.diff(old, new)
+
+            should("find the added and removed names") {
+                diff.isEmpty shouldBe false
+                diff.addedExports shouldBe setOf("c-a0")
+                diff.removedExports shouldBe setOf("a-a0")
+                diff.addedRequests shouldBe setOf("b-a0.hi")
+                diff.removedRequests shouldBe emptySet()
+            }
+            should("turn the old connect into the new one") {
+                val updated = connect(exports = listOf("a-a0", "b-a0"), requests = listOf("a-a0.en"))
+                diff.applyTo(updated)
+                updated.getExportNames() shouldBe new.getExportNames()
+                updated.getRequestNames() shouldBe new.getRequestNames()
+            }
+            should("be empty for equal connects") {
+                val copy = connect(exports = new.getExportNames(), requests = new.getRequestNames())
+                ConnectDiff.diff(new, copy).isEmpty shouldBe true
+            }
+            should("treat null as no exports and requests") {
+                ConnectDiff.diff(null, old).addedExports shouldBe setOf("a-a0", "b-a0")
+                ConnectDiff.diff(old, null).removedRequests shouldBe setOf("a-a0.en")
+            }
+            should("not follow later changes to the connects") {
+                val source = connect(exports = listOf("a-a0"))
+                val added = ConnectDiff.diff(null, source)
+                source.addExport("b-a0")
+                added.addedExports shouldBe setOf("a-a0")
+            }
+        }
+        context("Removing all names") {
+            val updated = connect(exports = listOf("a-a0"), requests = listOf("a-a0.en"))
+            ConnectDiff.diff(updated, connect()).applyTo(updated)
+
+            updated.getExportNames() shouldBe emptySet()
+            updated.getRequestNames() shouldBe emptySet()
+            updated.toXML().toString().contains("exports") shouldBe false
+        }
+        context("Diffing connects elements") {
+            val unchanged = connect("ws://unchanged", listOf("a-a0"))
+            val old = Connects().apply {
+                addConnect(unchanged)
+                addConnect(connect("ws://changed", listOf("a-a0")))
+                addConnect(connect("ws://removed", listOf("a-a0")))
+            }
+            val new = Connects().apply {
+                addConnect(connect("ws://unchanged", listOf("a-a0")))
+                addConnect(connect("ws://changed", listOf("b-a0")))
+                addConnect(connect("ws://added", requests = listOf("a-a0.en")))
+            }
+            val diffs = ConnectDiff.diff(old, new)
+
+            diffs.keys shouldBe setOf(URI("ws://changed"), URI("ws://added"), URI("ws://removed"))
+            diffs[URI("ws://changed")]!!.addedExports shouldBe setOf("b-a0")
+            diffs[URI("ws://changed")]!!.removedExports shouldBe setOf("a-a0")
+            diffs[URI("ws://added")]!!.addedRequests shouldBe setOf("a-a0.en")
+            diffs[URI("ws://removed")]!!.removedExports shouldBe setOf("a-a0")
+            ConnectDiff.diff(null, null) shouldBe emptyMap()
+        }
+        context("Large sets") {
+            val names = (0 until 20_000).map { "endpoint$it-a0" }
+            val old = connect(exports = names)
+            val new = connect(exports = names.drop(1) + "endpoint-new-a0")
+            val diff = ConnectDiff.diff(old, new)
+
+            diff.addedExports shouldBe setOf("endpoint-new-a0")
+            diff.removedExports shouldBe setOf("endpoint0-a0")
+            diff.applyTo(old)
+            old.getExportNames() shouldBe new.getExportNames()
+        }
+    }
+
+    private fun connect(
+        url: String = "ws://example.com",
+        exports: Collection<String> = emptyList(),
+        requests: Collection<String> = emptyList()
+    ) = Connect(URI(url), Connect.Protocols.MEDIAJSON, Connect.Types.TRANSLATOR).apply {
+        setExports(exports)
+        setRequests(requests)
+    }
+}
@@ -381,8 +381,8 @@ class ConnectTest : ShouldSpec() {
                     )
                 )
                 connect.type shouldBe Connect.Types.TRANSLATOR
-                connect.getExports() shouldBe listOf("523834112-a0", "2394a3432-a0")
-                connect.getRequests() shouldBe listOf("523834112-a0.en", "2394a3432-a0.hi")
+                connect.getExportNames().toList() shouldBe listOf("523834112-a0", "2394a3432-a0")
+                connect.getRequestNames().toList() shouldBe listOf("523834112-a0.en", "2394a3432-a0.hi")
             }
 
             context("With empty containers") {
@@ -394,16 +394,16 @@ class ConnectTest : ShouldSpec() {
                         </connect>"""
                     )
                 )
-                connect.getExports() shouldBe emptyList()
-                connect.getRequests() shouldBe emptyList()
+                connect.getExportNames() shouldBe emptySet()
+                connect.getRequestNames() shouldBe emptySet()
             }
 
             context("Without exports or requests") {
                 val connect = provider.parse(
                     PacketParserUtils.getParserFor("<connect url='$url' protocol='mediajson' type='translator'/>")
                 )
-                connect.getExports() shouldBe emptyList()
-                connect.getRequests() shouldBe emptyList()
+                connect.getExportNames() shouldBe emptySet()
+                connect.getRequestNames() shouldBe emptySet()
             }
 
             context("Export missing name attribute") {
@@ -438,8 +438,8 @@ class ConnectTest : ShouldSpec() {
                 connect.setExports(listOf("523834112-a0", "2394a3432-a0"))
                 connect.setRequests(listOf("523834112-a0.en"))
 
-                connect.getExports() shouldBe listOf("523834112-a0", "2394a3432-a0")
-                connect.getRequests() shouldBe listOf("523834112-a0.en")
+                connect.getExportNames().toList() shouldBe listOf("523834112-a0", "2394a3432-a0")
+                connect.getRequestNames().toList() shouldBe listOf("523834112-a0.en")
             }
 
             context("Adding exports and requests") {
@@ -449,8 +449,8 @@ class ConnectTest : ShouldSpec() {
                 connect.addExport("2394a3432-a0")
                 connect.addRequest("523834112-a0.en")
 
-                connect.getExports() shouldBe listOf("523834112-a0", "2394a3432-a0")
-                connect.getRequests() shouldBe listOf("523834112-a0.en")
+                connect.getExportNames().toList() shouldBe listOf("523834112-a0", "2394a3432-a0")
+                connect.getRequestNames().toList() shouldBe listOf("523834112-a0.en")
             }
 
             context("Replacing exports") {
@@ -459,7 +459,69 @@ class ConnectTest : ShouldSpec() {
                 connect.setExports(listOf("523834112-a0"))
                 connect.setExports(listOf("2394a3432-a0"))
 
-                connect.getExports() shouldBe listOf("2394a3432-a0")
+                connect.getExportNames().toList() shouldBe listOf("2394a3432-a0")
+            }
+
+            context("Duplicate names") {
+                val connect = Connect(URI(url), Connect.Protocols.MEDIAJSON, Connect.Types.TRANSLATOR)
+
+                connect.setExports(listOf("523834112-a0", "2394a3432-a0", "523834112-a0"))
+                connect.addExport("2394a3432-a0") shouldBe false
+                connect.addRequest("523834112-a0.en") shouldBe true
+                connect.addRequest("523834112-a0.en") shouldBe false
+
+                connect.getExportNames().toList() shouldBe listOf("523834112-a0", "2394a3432-a0")
+                connect.getRequestNames().toList() shouldBe listOf("523834112-a0.en")
+                connect.toXML().toString().split("<export ").size shouldBe 3
+            }
+
+            context("Removing exports and requests") {
+                val connect = Connect(URI(url), Connect.Protocols.MEDIAJSON, Connect.Types.TRANSLATOR)
+                connect.setExports(listOf("523834112-a0", "2394a3432-a0"))
+                connect.addRequest("523834112-a0.en")
+
+                connect.hasExport("523834112-a0") shouldBe true
+                connect.removeExport("523834112-a0") shouldBe true
+                connect.removeExport("523834112-a0") shouldBe false
+                connect.hasExport("523834112-a0") shouldBe false
+                connect.getExportNames().toList() shouldBe listOf("2394a3432-a0")
+
+                connect.removeRequest("523834112-a0.en") shouldBe true
+                connect.hasRequest("523834112-a0.en") shouldBe false
+                connect.getRequestNames() shouldBe emptySet()
+                connect.getChildExtension(Connect.Requests::class.java) shouldBe null
+                connect.toXML().toString().contains("requests") shouldBe false
+            }
+
+            context("Changing the child elements directly") {
+                val connect = Connect(URI(url), Connect.Protocols.MEDIAJSON, Connect.Types.TRANSLATOR)
+                connect.setExports(listOf("523834112-a0", "2394a3432-a0"))
+                val exports = connect.getChildExtension(Connect.Exports::class.java)!!
+
+                val export = exports.getChildExtensionsOfType(Connect.Export::class.java).first()
+                exports.getChildExtensions().size shouldBe 2
+                exports.removeChildExtension(export) shouldBe true
+                exports.addChildExtension(Connect.Export("4b5c7b7e-v0"))
+                exports.addChildExtension(Connect.Export("2394a3432-a0"))
+
+                connect.hasExport("523834112-a0") shouldBe false
+                connect.getExportNames().toList() shouldBe listOf("2394a3432-a0", "4b5c7b7e-v0")
+                exports.getChildExtensionsOfType(Connect.Export::class.java).map { it.name } shouldBe
+                    listOf("2394a3432-a0", "4b5c7b7e-v0")
+            }
+
+            context("Deprecated list accessors") {
+                val connect = Connect(URI(url), Connect.Protocols.MEDIAJSON, Connect.Types.TRANSLATOR)
+                connect.setExports(listOf("523834112-a0", "2394a3432-a0"))
+
+                @Suppress("DEPRECATION")
+                val exports: List<String> = connect.getExports()
+
+                @Suppress("DEPRECATION")
+                val requests: List<String> = connect.getRequests()
+
+                exports shouldBe listOf("523834112-a0", "2394a3432-a0")
+                requests shouldBe emptyList()
             }
 
             context("Round-trip through XML") {
@@ -468,8 +530,8 @@ class ConnectTest : ShouldSpec() {
                 connect.setRequests(listOf("523834112-a0.en", "2394a3432-a0.hi"))
 
                 val parsed = provider.parse(PacketParserUtils.getParserFor(connect.toXML().toString()))
-                parsed.getExports() shouldBe listOf("523834112-a0", "2394a3432-a0")
-                parsed.getRequests() shouldBe listOf("523834112-a0.en", "2394a3432-a0.hi")
+                parsed.getExportNames().toList() shouldBe listOf("523834112-a0", "2394a3432-a0")
+                parsed.getRequestNames().toList() shouldBe listOf("523834112-a0.en", "2394a3432-a0.hi")
             }
         }
     }
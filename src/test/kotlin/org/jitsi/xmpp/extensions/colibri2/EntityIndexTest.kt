@@ -0,0 +1,88 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import org.jivesoftware.smack.util.PacketParserUtils
+
+class EntityIndexTest : ShouldSpec() {
+    init {
+        IqProviderUtils.registerProviders()
+
+        context("A built IQ") {
+            val endpoints = List(3) { endpoint("e$it") }
+            val relayEndpoint = endpoint("r0-e0")
+            val relay = Colibri2Relay.getBuilder().apply {
+                setId("r0")
+                setEndpoints(Endpoints.getBuilder().addEndpoint(relayEndpoint).build())
+            }.build()
+            val iq = ConferenceModifyIQ.builder("id").apply {
+                setMeetingId("m")
+                endpoints.forEach { addEndpoint(it) }
+                addRelay(relay)
+            }.build()
+
+            should("Find the entities by ID") {
+                iq.getEndpoint("e1") shouldBeSameInstanceAs endpoints[1]
+                iq.getEndpoint("e3").shouldBeNull()
+                iq.getEndpoint("r0").shouldBeNull()
+                iq.getRelay("r0") shouldBeSameInstanceAs relay
+                iq.getRelay("r0")?.endpoints?.getEndpoint("r0-e0") shouldBeSameInstanceAs relayEndpoint
+            }
+            should("Iterate in order without copying") {
+                iq.endpointIndex.map { it.id } shouldBe listOf("e0", "e1", "e2")
+                iq.endpointIndex.list shouldBeSameInstanceAs iq.endpointIndex.list
+                shouldThrow<UnsupportedOperationException> { iq.endpointIndex.list.removeAt(0) }
+            }
+        }
+        context("A parsed IQ") {
+            val xml = "<iq xmlns='jabber:client' id='id' type='get'>" +
+                "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'>" +
+                "<endpoint id='a' stats-id='first'/><endpoint id='b'/><endpoint id='a' stats-id='second'/>" +
+                "<relay id='r'><endpoints><endpoint id='c'/></endpoints></relay>" +
+                "</conference-modify></iq>"
+            val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)) as ConferenceModifyIQ
+
+            should("Find the entities by ID") {
+                iq.endpointIndex.size() shouldBe 3
+                iq.getEndpoint("b")?.id shouldBe "b"
+                iq.getRelay("r")?.endpoints?.getEndpoint("c")?.id shouldBe "c"
+            }
+            should("Return the first entity with a duplicate ID") {
+                iq.getEndpoint("a")?.statsId shouldBe "first"
+            }
+        }
+        context("An endpoints element") {
+            val endpoints = Endpoints.getBuilder().addEndpoint(endpoint("a")).build()
+
+            should("Follow changes to its children") {
+                endpoints.getEndpoint("a")?.id shouldBe "a"
+                val added = endpoint("b")
+                endpoints.addChildExtension(added)
+                endpoints.getEndpoint("b") shouldBeSameInstanceAs added
+
+                endpoints.removeChildExtension(added)
+                endpoints.getEndpoint("b").shouldBeNull()
+            }
+        }
+    }
+
+    private fun endpoint(id: String) = Colibri2Endpoint.getBuilder().apply { setId(id) }.build()
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2
+
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.ints.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+
+class SourcesDiffTest : ShouldSpec() {
+    init {
+        val old = videoSources(List(17) { it }, 0)
+
+        context("Identical sources") {
+            should("produce an empty diff") {
+                val diff = SourcesDiff.diff(old, videoSources(List(17) { it }, 0))
+                diff.isEmpty shouldBe true
+                diff.toSources().mediaSources.size shouldBe 0
+            }
+        }
+        context("A changed simulcast layer") {
+            val new = videoSources(List(17) { it }, 0, changedLayer = 5)
+            val diff = SourcesDiff.diff(old, new)
+
+            should("only report the changed source") {
+                diff.added.size shouldBe 0
+                diff.removed.size shouldBe 0
+                diff.changed.size shouldBe 1
+                val mediaSourceDiff = diff.changed[0]
+                mediaSourceDiff.new.id shouldBe "e-v5"
+                mediaSourceDiff.changedSources.map { it.ssrc } shouldContainExactly listOf(501L)
+                mediaSourceDiff.addedSources.size shouldBe 0
+                mediaSourceDiff.removedSources.size shouldBe 0
+                mediaSourceDiff.addedGroups.size shouldBe 0
+            }
+            should("produce a small update") {
+                val full = new.toXML().length
+                val update = diff.toSources().toXML().length
+                update shouldBeLessThan full / 10
+            }
+            should("reconstruct the new sources when applied") {
+                SourcesDiff.applyTo(old, diff.toSources()).toXML().toString() shouldBe new.toXML().toString()
+            }
+        }
+        context("Added and removed media sources and sources") {
+            val new = videoSources(List(16) { it + 1 }, 2)
+            val diff = SourcesDiff.diff(old, new)
+
+            should("report them") {
+                diff.added.map { it.id } shouldContainExactly listOf("e-v16")
+                diff.removed.map { it.id } shouldContainExactly listOf("e-v0")
+                diff.changed.size shouldBe 1
+                diff.changed[0].new.id shouldBe "e-v1"
+                diff.changed[0].addedSources.map { it.ssrc } shouldContainExactly listOf(107L, 108L)
+                diff.changed[0].removedSources.size shouldBe 0
+                diff.changed[0].addedGroups.size shouldBe 1
+                diff.changed[0].removedGroups.size shouldBe 0
+            }
+            should("reconstruct the new sources when applied") {
+                val applied = SourcesDiff.applyTo(old, diff.toSources())
+                applied.mediaSources.map { it.id }.sorted() shouldBe new.mediaSources.map { it.id }.sorted()
+                applied.mediaSources.find { it.id == "e-v16" }!!.sources.size shouldBe 6
+            }
+        }
+        context("Per-endpoint diffs") {
+            should("omit unchanged endpoints and include removed ones") {
+                val diffs = SourcesDiff.diff(
+                    mapOf("a" to old, "b" to old),
+                    mapOf("a" to old, "c" to old)
+                )
+                diffs.keys shouldBe setOf("b", "c")
+                diffs["b"]!!.removed.size shouldBe 17
+                diffs["c"]!!.added.size shouldBe 17
+            }
+        }
+    }
+
+    /**
+     * Video media sources with three simulcast layers and RTX each. Media sources with an index below [extraLayers]
+     * have an additional SSRC and FID group. [changedLayer] gets a different msid on its first layer.
+     */
+    private fun videoSources(indices: List<Int>, extraLayers: Int, changedLayer: Int = -1): Sources =
+        Sources.getBuilder().apply {
+            indices.forEach { i ->
+                val ssrcs = List(if (i < extraLayers) 4 else 3) { i * 100L + 1 + it * 2 }
+                val msid = { layer: Int -> if (i == changedLayer && layer == 0) "new" else "old" }
+                addMediaSource(videoSource("e-v$i", ssrcs, ssrcs.map { it + 1 }, simulcastLayers = 3, msid = msid))
+            }
+        }.build()
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.compact
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.ArrayNode
+import io.kotest.assertions.json.shouldEqualJson
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.MediaType
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri.SourcePacketExtension
+import org.jitsi.xmpp.extensions.colibri2.Benchmark
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
+import org.jitsi.xmpp.extensions.colibri2.MediaSource
+import org.jitsi.xmpp.extensions.colibri2.Sctp
+import org.jitsi.xmpp.extensions.colibri2.Sources
+import org.jitsi.xmpp.extensions.colibri2.json.Colibri2JSONSerializer
+import org.jitsi.xmpp.extensions.jingle.SourceGroupPacketExtension
+import org.jivesoftware.smack.parsing.SmackParsingException
+import org.jivesoftware.smack.provider.ProviderManager
+import org.jivesoftware.smack.util.PacketParserUtils
+import org.jivesoftware.smackx.muc.MUCRole
+
+class CompactModelTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    private val endpointXml = """
+        <endpoint xmlns='jitsi:colibri2' id='e1' create='true' stats-id='stats-e1' muc-role='participant'>
+          <media type='audio'>
+            <payload-type xmlns='urn:xmpp:jingle:apps:rtp:1' id='111' name='opus' clockrate='48000' channels='2'>
+              <parameter name='useinbandfec' value='1'/>
+              <rtcp-fb xmlns='urn:xmpp:jingle:apps:rtp:rtcp-fb:0' type='transport-cc'/>
+            </payload-type>
+            <rtp-hdrext xmlns='urn:xmpp:jingle:apps:rtp:rtp-hdrext:0' id='1' uri='urn:ietf:params:rtp-hdrext:ssrc-audio-level'/>
+            <extmap-allow-mixed xmlns='urn:xmpp:jingle:apps:rtp:rtp-hdrext:0'/>
+          </media>
+          <media type='video'>
+            <payload-type xmlns='urn:xmpp:jingle:apps:rtp:1' id='100' name='VP8' clockrate='90000'/>
+          </media>
+          <transport ice-controlling='true'>
+            <transport xmlns='urn:xmpp:jingle:transports:ice-udp:1' ufrag='ufrag' pwd='pwd'>
+              <fingerprint xmlns='urn:xmpp:jingle:apps:dtls:0' hash='sha-256' setup='actpass'>AB:CD</fingerprint>
+              <candidate component='1' foundation='1' generation='0' id='c1' network='0' priority='1' protocol='udp' type='host' ip='192.0.2.1' port='10000'/>
+            </transport>
+            <sctp port='5000' role='server'/>
+          </transport>
+          <sources>
+            <media-source type='audio' id='e1-a0' synthetic='true'>
+              <source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='100' name='e1-a0'/>
+            </media-source>
+            <media-source type='video' id='e1-v0'>
+              <source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='1' name='e1-v0' videoType='camera'>
+                <parameter name='msid' value='stream track'/>
+              </source>
+              <source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='2'/>
+              <source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='3'/>
+              <source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='4'/>
+              <source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='4294967294'/>
+              <ssrc-group xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' semantics='SIM'>
+                <source ssrc='1'/><source ssrc='2'/><source ssrc='3'/>
+              </ssrc-group>
+              <ssrc-group xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' semantics='FID'>
+                <source ssrc='1'/><source ssrc='4'/>
+              </ssrc-group>
+              <ssrc-group xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' semantics='FID'>
+                <source ssrc='2'/><source ssrc='4294967294'/>
+              </ssrc-group>
+            </media-source>
+          </sources>
+          <force-mute audio='true'/>
+          <capability name='source-names'/>
+          <capability name='ssrc-rewriting'/>
+          <initial-last-n value='5'/>
+        </endpoint>
+    """.trimIndent()
+
+    init {
+        beforeSpec {
+            IqProviderUtils.registerProviders()
+        }
+
+        context("An endpoint") {
+            val extension = Colibri2Endpoint.Provider().parse(PacketParserUtils.getParserFor(endpointXml))
+            val endpoint = CompactXml.parseEndpoint(PacketParserUtils.getParserFor(endpointXml))
+
+            should("be parsed directly with the same content as the extension") {
+                endpoint shouldBe CompactEndpoint.from(extension)
+
+                endpoint.id shouldBe "e1"
+                endpoint.create shouldBe true
+                endpoint.statsId shouldBe "stats-e1"
+                endpoint.mucRole shouldBe MUCRole.participant
+                endpoint.forceMute shouldBe true
+                endpoint.forceMuteAudio shouldBe true
+                endpoint.forceMuteVideo shouldBe false
+                endpoint.initialLastN shouldBe 5
+                endpoint.capabilities shouldBe listOf("source-names", "ssrc-rewriting")
+                endpoint.media.map { it.type } shouldBe listOf(MediaType.AUDIO, MediaType.VIDEO)
+                endpoint.media[0].payloadTypes[0].name shouldBe "opus"
+                endpoint.media[0].extmapAllowMixed shouldBe true
+                endpoint.transport!!.iceControlling shouldBe true
+                endpoint.transport!!.iceUdpTransport!!.ufrag shouldBe "ufrag"
+                endpoint.transport!!.sctp shouldBe true
+                endpoint.transport!!.sctpPort shouldBe 5000
+                endpoint.transport!!.sctpRole shouldBe Sctp.Role.SERVER
+            }
+            should("store the sources in arrays") {
+                val video = endpoint.sources!!.getMediaSource("e1-v0")!!
+
+                video.type shouldBe MediaType.VIDEO
+                video.ssrcs().toList() shouldBe listOf(1L, 2L, 3L, 4L, 4294967294L)
+                video.name(0) shouldBe "e1-v0"
+                video.videoType(0) shouldBe "camera"
+                video.parameter(0, "msid") shouldBe "stream track"
+                video.name(1) shouldBe null
+                video.indexOfName("e1-v0") shouldBe 0
+                video.hasSsrc(3L) shouldBe true
+                video.groupCount shouldBe 3
+                video.groupSemantics(0) shouldBe "SIM"
+                video.groupSsrcs(0).toList() shouldBe listOf(1L, 2L, 3L)
+                video.groupSsrcs(1).toList() shouldBe listOf(1L, 4L)
+                endpoint.sources!!.getMediaSource("e1-a0")!!.synthetic shouldBe true
+            }
+            should("survive an XML round trip") {
+                val xml = CompactXml.toXml(endpoint)
+
+                CompactXml.parseEndpoint(PacketParserUtils.getParserFor(xml)) shouldBe endpoint
+                CompactEndpoint.from(Colibri2Endpoint.Provider().parse(PacketParserUtils.getParserFor(xml))) shouldBe
+                    endpoint
+            }
+            should("survive a conversion round trip") {
+                CompactEndpoint.from(endpoint.toEndpoint()) shouldBe endpoint
+            }
+            should("be serialized to the same JSON as the extension") {
+                val iq = ConferenceModifyIQ.builder("id").setMeetingId("m").addEndpoint(extension).build()
+                val expected = Colibri2JSONSerializer.serializeConferenceModify(iq)[Colibri2JSONSerializer.ENDPOINTS][0]
+                val json = CompactJson.serialize(endpoint).toString()
+
+                json.shouldEqualJson(expected.toString())
+                CompactJson.serialize(CompactJson.deserializeEndpoint(CompactJson.serialize(endpoint))).toString()
+                    .shouldEqualJson(json)
+                CompactJson.deserializeEndpoint(CompactJson.serialize(endpoint)).sources shouldBe endpoint.sources
+            }
+        }
+        context("A relay") {
+            val xml = "<relay xmlns='jitsi:colibri2' id='r1' mesh-id='m1' expire='true'>" +
+                "<transport use-unique-port='true'/>" +
+                "<endpoints>" +
+                "<endpoint id='e2'><sources><media-source type='audio' id='e2-a0'>" +
+                "<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='10' name='e2-a0'/>" +
+                "</media-source></sources></endpoint>" +
+                "</endpoints>" +
+                "</relay>"
+
+            should("be parsed, serialized and converted") {
+                val relay = CompactXml.parseRelay(PacketParserUtils.getParserFor(xml))
+
+                relay shouldBe CompactRelay.from(Colibri2Relay.Provider().parse(PacketParserUtils.getParserFor(xml)))
+                relay.meshId shouldBe "m1"
+                relay.expire shouldBe true
+                relay.transport!!.useUniquePort shouldBe true
+                relay.endpoints!!.single().sources!!.mediaSources.single().ssrc(0) shouldBe 10L
+                CompactXml.parseRelay(PacketParserUtils.getParserFor(CompactXml.toXml(relay))) shouldBe relay
+                CompactRelay.from(relay.toRelay()) shouldBe relay
+                CompactJson.deserializeRelay(CompactJson.serialize(relay)).endpoints shouldBe relay.endpoints
+            }
+        }
+        context("Invalid XML") {
+            should("be rejected") {
+                listOf(
+                    "<endpoint xmlns='jitsi:colibri2'/>",
+                    "<endpoint xmlns='jitsi:colibri2' id='e' muc-role='invalid'/>",
+                    "<sources xmlns='jitsi:colibri2'><media-source id='x' type='invalid'/></sources>",
+                    "<sources xmlns='jitsi:colibri2'><media-source type='audio'/></sources>",
+                ).forEach {
+                    shouldThrow<SmackParsingException> {
+                        val parser = PacketParserUtils.getParserFor(it)
+                        if (parser.name == "endpoint") {
+                            CompactXml.parseEndpoint(parser)
+                        } else {
+                            CompactXml.parseSources(parser)
+                        }
+                    }
+                }
+            }
+        }
+        context("A source group without semantics") {
+            val group = SourceGroupPacketExtension().apply {
+                addSources(listOf(1L, 2L).map { SourcePacketExtension().apply { ssrc = it } })
+            }
+
+            should("be rejected when converting") {
+                val mediaSource =
+                    MediaSource.getBuilder().setType(MediaType.VIDEO).setId("x").addSsrcGroup(group).build()
+                shouldThrow<IllegalArgumentException> {
+                    CompactSources.from(Sources.getBuilder().addMediaSource(mediaSource).build())
+                }
+            }
+            should("be rejected when parsing XML") {
+                shouldThrow<SmackParsingException> {
+                    CompactXml.parseSources(
+                        PacketParserUtils.getParserFor(
+                            "<sources xmlns='jitsi:colibri2'><media-source id='x' type='video'>" +
+                                "<ssrc-group xmlns='urn:xmpp:jingle:apps:rtp:ssma:0'><source ssrc='1'/></ssrc-group>" +
+                                "</media-source></sources>"
+                        )
+                    )
+                }
+            }
+            should("be rejected when parsing JSON") {
+                val json = ObjectMapper().readTree(
+                    """[{"type": "video", "id": "x", "ssrc-groups": [{"sources": [1, 2]}]}]"""
+                ) as ArrayNode
+                shouldThrow<IllegalArgumentException> {
+                    CompactJson.deserializeSources(json)
+                }
+            }
+        }
+        xcontext("Performance") {
+            val xml = buildString {
+                append("<sources xmlns='jitsi:colibri2'>")
+                repeat(500) {
+                    append("<media-source type='video' id='e$it-v0'>")
+                    repeat(3) { layer ->
+                        append("<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' ssrc='${it * 10 + layer}'")
+                        append(" name='e$it-v0' videoType='camera'/>")
+                    }
+                    append("<ssrc-group xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' semantics='SIM'>")
+                    repeat(3) { layer -> append("<source ssrc='${it * 10 + layer}'/>") }
+                    append("</ssrc-group></media-source>")
+                }
+                append("</sources>")
+            }
+            val iterations = 1000
+
+            should("parse and read sources faster than the extension") {
+                val time = Benchmark(logger, iterations)
+                time("Extension") {
+                    val sources = ProviderManager.getExtensionProvider(Sources.ELEMENT, Sources.NAMESPACE)
+                        .parse(PacketParserUtils.getParserFor(xml)) as Sources
+                    sources.mediaSources.sumOf { ms -> ms.sources.sumOf { it.ssrc } }
+                }
+                time("Compact") {
+                    val sources = CompactXml.parseSources(PacketParserUtils.getParserFor(xml))
+                    sources.mediaSources.sumOf { ms -> (0 until ms.sourceCount).sumOf { ms.ssrc(it) } }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.ints.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri2.Benchmark
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
+import org.jitsi.xmpp.extensions.colibri2.Transport
+import org.jitsi.xmpp.extensions.colibri2.audio
+import org.jitsi.xmpp.extensions.colibri2.shouldBeIdenticalTo
+import org.jitsi.xmpp.extensions.colibri2.sources
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import org.jivesoftware.smack.util.PacketParserUtils
+import org.jivesoftware.smack.xml.XmlPullParser
+
+class Colibri2JSONCodecTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        IqProviderUtils.registerProviders()
+
+        val smile = Colibri2JSONCodec(
+            SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()
+        )
+        val json = Colibri2JSONCodec()
+
+        context("Encoding with Smile") {
+            expectedMappings.forEach {
+                val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(it.xml))
+
+                should("Decode to the same IQ: ${it.name}") {
+                    val decoded = when (iq) {
+                        is ConferenceModifyIQ -> smile.decodeConferenceModify(smile.encode(iq))
+                        is ConferenceModifiedIQ ->
+                            smile.decodeConferenceModified(smile.encode(iq)).also { b -> b.ofType(IQ.Type.result) }
+                        else -> throw IllegalStateException("Bad type in test")
+                    }.build()
+
+                    decoded.toXML().toString().shouldBeIdenticalTo(it.xml)
+                }
+                should("Convert to and from XML without loss: ${it.name}") {
+                    val data = smile.xmlToBytes(colibri2Parser(it.xml))
+                    val xml = when (iq) {
+                        is ConferenceModifyIQ -> smile.conferenceModifyToXml(data, StanzaBuilder.buildIqData("id"))
+                        is ConferenceModifiedIQ -> smile.conferenceModifiedToXml(
+                            data,
+                            StanzaBuilder.buildIqData("id").ofType(IQ.Type.result)
+                        )
+                        else -> throw IllegalStateException("Bad type in test")
+                    }
+
+                    xml.shouldBeIdenticalTo(it.xml)
+                }
+            }
+        }
+        context("The default factory") {
+            should("Encode the JSON text of the serializer") {
+                val iq = conference(2)
+
+                String(json.encode(iq)) shouldBe Colibri2JSONSerializer.serializeConferenceModify(iq).toString()
+            }
+        }
+        context("A large conference") {
+            val iq = conference(500)
+
+            should("Be smaller with Smile than as JSON text") {
+                smile.encode(iq).size shouldBeLessThan json.encode(iq).size
+            }
+        }
+
+        xcontext("Performance") {
+            val iq = conference(500)
+            val xml = iq.toXML().toString()
+            val jsonData = json.encode(iq)
+            val smileData = smile.encode(iq)
+            val iterations = 200
+
+            should("compare the encodings") {
+                val time = Benchmark(logger, iterations)
+                logger.info("Size: XML ${xml.length}, JSON ${jsonData.size}, Smile ${smileData.size} bytes")
+                time("Encode XML") { iq.toXML().length }
+                time("Encode JSON") { json.encode(iq).size }
+                time("Encode Smile") { smile.encode(iq).size }
+                time("Decode XML") { PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)).hashCode() }
+                time("Decode JSON") { json.decodeConferenceModify(jsonData).build().endpoints.size }
+                time("Decode Smile") { smile.decodeConferenceModify(smileData).build().endpoints.size }
+            }
+        }
+    }
+
+    /** A synthetic conference with [size] endpoints, each with an audio and a simulcast video source. */
+    private fun conference(size: Int) = ConferenceModifyIQ.builder("id").apply {
+        setMeetingId("88ff288c-5eeb-4ea9-bc2f-93ea38c43b78")
+        repeat(size) { i ->
+            addEndpoint(
+                Colibri2Endpoint.getBuilder().apply {
+                    setId("endpoint-$i")
+                    setCreate(true)
+                    setStatsId("stats-$i")
+                    addMedia(audio())
+                    setTransport(Transport.getBuilder().setIceControlling(true).build())
+                    val ssrc = 10_000L * i
+                    setSources(sources("endpoint-$i", ssrc, List(3) { ssrc + 1 + it }, simulcast = true))
+                }.build()
+            )
+        }
+    }.build()
+}
+
+/** Returns a parser positioned at the start tag of the colibri2 element of the IQ [xml]. */
+private fun colibri2Parser(xml: String) = PacketParserUtils.getParserFor(xml).apply {
+    while (next() != XmlPullParser.Event.START_ELEMENT) {
+        // Skip the whitespace between the iq and colibri2 elements.
+    }
+}
@@ -15,26 +15,32 @@
  */
 package org.jitsi.xmpp.extensions.colibri2.json
 
+import com.fasterxml.jackson.core.JsonFactory
 import com.fasterxml.jackson.databind.node.ObjectNode
 import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
 import io.kotest.assertions.asClue
 import io.kotest.assertions.json.shouldEqualJson
+import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.ShouldSpec
 import io.kotest.matchers.should
 import io.kotest.matchers.shouldBe
 import io.kotest.matchers.types.beInstanceOf
 import io.kotest.matchers.types.shouldBeInstanceOf
+import org.jitsi.utils.logging2.createLogger
 import org.jitsi.xmpp.extensions.colibri2.AbstractConferenceModificationIQ
+import org.jitsi.xmpp.extensions.colibri2.Benchmark
 import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
 import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
 import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
 import org.jivesoftware.smack.packet.IQ
 import org.jivesoftware.smack.util.PacketParserUtils
 import org.xmlunit.builder.DiffBuilder
+import java.io.StringWriter
 import java.lang.IllegalStateException
 import kotlin.reflect.KClass
 
 class Colibri2JSONSerializerTest : ShouldSpec() {
+    private val logger = createLogger()
 
     init {
         IqProviderUtils.registerProviders()
@@ -58,6 +64,30 @@ class Colibri2JSONSerializerTest : ShouldSpec() {
             }
         }
 
+        context("serializing an IQ to a JsonGenerator") {
+            expectedMappings.forEach {
+                val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(it.xml))
+
+                should("Produce the same JSON as the tree: ${it.name}") {
+                    streamingJson(iq) shouldBe treeJson(iq)
+                }
+            }
+        }
+
+        xcontext("Performance") {
+            val xml = expectedMappings.first().xml.replace(
+                Regex("<endpoint .*</endpoint>", RegexOption.DOT_MATCHES_ALL)
+            ) { match -> List(500) { match.value.replace("bd9b6765", "e$it") }.joinToString("") }
+            val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml))
+            val iterations = 1000
+
+            should("serialize faster without building the tree") {
+                val time = Benchmark(logger, iterations)
+                time("Tree") { treeJson(iq).length }
+                time("Generator") { streamingJson(iq).length }
+            }
+        }
+
         context("deserializing JSON") {
             expectedMappings.forEach {
                 val json = jacksonObjectMapper().readTree(it.json)
@@ -86,17 +116,100 @@ class Colibri2JSONSerializerTest : ShouldSpec() {
                 }
             }
         }
+
+        context("deserializing JSON from a JsonParser") {
+            expectedMappings.forEach {
+                should("Produce the same IQ as the tree: ${it.name}") {
+                    streamingXml(it.json, it.clazz) shouldBe treeXml(it.json, it.clazz)
+                }
+            }
+            should("Read sources in all their forms like the tree") {
+                val json = """
+                    {"meeting-id": "m", "endpoints": [{"id": "e", "sources": [{"type": "video", "id": "e-v0",
+                      "sources": [{"ssrc": "4294967295", "name": "e-v0", "rid": "1", "ignored": [1, {}],
+                        "parameters": {"msid": "a b", "n": 2}}, 5, "-7", {"ssrc": 3.0}],
+                      "sourceGroups": [{"semantics": "SIM", "sources": [1, "2", {"ssrc": 3}]}]}]}]}
+                """.trimIndent()
+
+                streamingXml(json, ConferenceModifyIQ::class) shouldBe treeXml(json, ConferenceModifyIQ::class)
+            }
+            should("Reject invalid JSON with the same errors as the tree") {
+                listOf(
+                    """{"endpoints": {}}""",
+                    """{"endpoints": [{"id": 1}]}""",
+                    """{"endpoints": [{"id": "e", "medias": [1]}]}""",
+                    """{"endpoints": [{"id": "e", "force-mute": {"audio": 1}}]}""",
+                    """{"endpoints": [{"id": "e", "sources": [{"sources": [true]}]}]}""",
+                    """{"endpoints": [{"id": "e", "sources": [{"sources": [{"ssrc": 1, "parameters": []}]}]}]}""",
+                    """{"endpoints": [{"id": "e", "sources": [{"sourceGroups": [{"semantics": 1}]}]}]}""",
+                    """{"endpoints": [{"sources": [{"sourceGroups": [{"semantics": "FID", "sources": 1}]}]}]}""",
+                    """{"relays": [{"id": "r", "endpoints": [{"capabilities": [1]}]}]}""",
+                    """{"connects": [1]}"""
+                ).forEach { json ->
+                    val treeError = shouldThrow<IllegalArgumentException> {
+                        treeXml(json, ConferenceModifyIQ::class)
+                    }
+                    shouldThrow<IllegalArgumentException> {
+                        streamingXml(json, ConferenceModifyIQ::class)
+                    }.message shouldBe treeError.message
+                }
+            }
+            should("Keep the last value of a repeated field like the tree") {
+                listOf(
+                    """{"meeting-id": 1, "meeting-id": "m"}""",
+                    """{"endpoints": {}, "endpoints": [{"id": "e"}]}""",
+                    """{"endpoints": [{"id": "e", "stats-id": 1, "stats-id": "s"}]}""",
+                    """{"endpoints": [{"id": "e", "sources": [{"sources": [true]}], "sources": []}]}""",
+                    """{"endpoints": [{"id": "e", "force-mute": {"audio": 1}, "force-mute": {"audio": true}}]}""",
+                    """{"relays": [{"id": "r", "endpoints": [{"capabilities": [1]}], "endpoints": []}]}"""
+                ).forEach { json ->
+                    json.asClue {
+                        streamingXml(json, ConferenceModifyIQ::class) shouldBe treeXml(json, ConferenceModifyIQ::class)
+                    }
+                }
+                listOf(
+                    """{"meeting-id": "m", "meeting-id": 1}""",
+                    """{"endpoints": [{"id": "e", "stats-id": 1, "stats-id": "s", "id": 2}]}""",
+                    """{"endpoints": [{"id": "e"}], "endpoints": {}}"""
+                ).forEach { json ->
+                    val treeError = shouldThrow<IllegalArgumentException> {
+                        treeXml(json, ConferenceModifyIQ::class)
+                    }
+                    shouldThrow<IllegalArgumentException> {
+                        streamingXml(json, ConferenceModifyIQ::class)
+                    }.message shouldBe treeError.message
+                }
+            }
+        }
     }
 }
 
-private data class Mapping(
+private val jsonFactory = JsonFactory()
+
+private fun treeJson(iq: IQ) = when (iq) {
+    is ConferenceModifyIQ -> Colibri2JSONSerializer.serializeConferenceModify(iq)
+    is ConferenceModifiedIQ -> Colibri2JSONSerializer.serializeConferenceModified(iq)
+    else -> throw IllegalStateException("Bad type in test")
+}.toString()
+
+private fun streamingJson(iq: IQ) = StringWriter().also { writer ->
+    jsonFactory.createGenerator(writer).use {
+        when (iq) {
+            is ConferenceModifyIQ -> Colibri2JSONSerializer.serializeConferenceModify(iq, it)
+            is ConferenceModifiedIQ -> Colibri2JSONSerializer.serializeConferenceModified(iq, it)
+            else -> throw IllegalStateException("Bad type in test")
+        }
+    }
+}.toString()
+
+internal data class Mapping(
     val xml: String,
     val json: String,
     val clazz: KClass<out AbstractConferenceModificationIQ<*>>,
     val name: String
 )
 
-private val expectedMappings = listOf(
+internal val expectedMappings = listOf(
     Mapping(
         name = "Endpoint with sources (same as Colibri2IQTest)",
         xml = """
@@ -719,3 +832,23 @@ private val expectedMappings = listOf(
         clazz = ConferenceModifyIQ::class
     )
 )
+
+private fun treeXml(json: String, clazz: KClass<out AbstractConferenceModificationIQ<*>>): String {
+    val node = jacksonObjectMapper().readTree(json) as ObjectNode
+    return when (clazz) {
+        ConferenceModifyIQ::class -> Colibri2JSONDeserializer.deserializeConferenceModify(node)
+        ConferenceModifiedIQ::class ->
+            Colibri2JSONDeserializer.deserializeConferenceModified(node).also { it.ofType(IQ.Type.result) }
+        else -> throw IllegalStateException("Bad type in test")
+    }.build().toXML().toString()
+}
+
+private fun streamingXml(json: String, clazz: KClass<out AbstractConferenceModificationIQ<*>>): String =
+    jsonFactory.createParser(json).use { parser ->
+        when (clazz) {
+            ConferenceModifyIQ::class -> Colibri2JSONDeserializer.deserializeConferenceModify(parser)
+            ConferenceModifiedIQ::class ->
+                Colibri2JSONDeserializer.deserializeConferenceModified(parser).also { it.ofType(IQ.Type.result) }
+            else -> throw IllegalStateException("Bad type in test")
+        }.build().toXML().toString()
+    }
@@ -0,0 +1,208 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import org.jitsi.utils.logging2.createLogger
+import org.jitsi.xmpp.extensions.colibri2.Benchmark
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Endpoint
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Relay
+import org.jitsi.xmpp.extensions.colibri2.Colibri2Templates
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.Endpoints
+import org.jitsi.xmpp.extensions.colibri2.Transport
+import org.jitsi.xmpp.extensions.colibri2.audio
+import org.jitsi.xmpp.extensions.colibri2.sources
+import org.jitsi.xmpp.extensions.jingle.IceUdpTransportPacketExtension
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import java.io.ByteArrayOutputStream
+import java.io.StringWriter
+import java.util.concurrent.ForkJoinPool
+
+class Colibri2ParallelCodecTest : ShouldSpec() {
+    private val logger = createLogger()
+
+    init {
+        val pool = ForkJoinPool(4)
+        val codec = Colibri2ParallelCodec(pool)
+
+        context("Serializing a large conference-modify") {
+            val iq = conferenceModify(300, relays = 3)
+
+            should("Produce the same XML") {
+                codec.toXml(iq) shouldBe iq.toXML().toString()
+            }
+            should("Produce the same XML for a compressed IQ") {
+                val compressed = Colibri2Templates.compress(iq)
+                codec.toXml(compressed) shouldBe compressed.toXML().toString()
+            }
+            should("Produce the same JSON text") {
+                json { codec.serializeConferenceModify(iq, it) } shouldBe
+                    json { Colibri2JSONSerializer.serializeConferenceModify(iq, it) }
+            }
+            should("Produce the same UTF-8 bytes") {
+                utf8 { codec.serializeConferenceModify(iq, it) } shouldBe
+                    utf8 { Colibri2JSONSerializer.serializeConferenceModify(iq, it) }
+            }
+            should("Produce the same pretty printed JSON") {
+                json { codec.serializeConferenceModify(iq, it.useDefaultPrettyPrinter()) } shouldBe
+                    json { Colibri2JSONSerializer.serializeConferenceModify(iq, it.useDefaultPrettyPrinter()) }
+            }
+        }
+        context("Serializing a large conference-modified") {
+            val iq = conferenceModified(300)
+
+            should("Produce the same XML") {
+                codec.toXml(iq) shouldBe iq.toXML().toString()
+            }
+            should("Produce the same JSON") {
+                json { codec.serializeConferenceModified(iq, it) } shouldBe
+                    json { Colibri2JSONSerializer.serializeConferenceModified(iq, it) }
+            }
+        }
+        context("Serializing a small IQ") {
+            val iq = conferenceModify(3, relays = 1)
+
+            should("Produce the same XML and JSON") {
+                codec.toXml(iq) shouldBe iq.toXML().toString()
+                json { codec.serializeConferenceModify(iq, it) } shouldBe
+                    json { Colibri2JSONSerializer.serializeConferenceModify(iq, it) }
+            }
+        }
+        context("Deserializing") {
+            should("Produce the same conference-modify") {
+                val node = Colibri2JSONSerializer.serializeConferenceModify(conferenceModify(300, relays = 3))
+                codec.deserializeConferenceModify(node).build().toXML().toString() shouldBe
+                    Colibri2JSONDeserializer.deserializeConferenceModify(node).build().toXML().toString()
+            }
+            should("Produce the same conference-modified") {
+                val node = Colibri2JSONSerializer.serializeConferenceModified(conferenceModified(300))
+                codec.deserializeConferenceModified(node).build().toXML().toString() shouldBe
+                    Colibri2JSONDeserializer.deserializeConferenceModified(node).build().toXML().toString()
+            }
+            should("Report the first invalid endpoint") {
+                val node = Colibri2JSONSerializer.serializeConferenceModify(conferenceModify(300))
+                (node[Colibri2JSONSerializer.ENDPOINTS] as ArrayNode).apply {
+                    set(250, JsonNodeFactory.instance.textNode("endpoint"))
+                    set(20, JsonNodeFactory.instance.numberNode(20))
+                }
+                val sequential = shouldThrow<IllegalArgumentException> {
+                    Colibri2JSONDeserializer.deserializeConferenceModify(node)
+                }
+                shouldThrow<IllegalArgumentException> {
+                    codec.deserializeConferenceModify(node)
+                }.message shouldBe sequential.message
+                sequential.message shouldBe "Expected object for endpoint element, got NUMBER"
+            }
+        }
+
+        xcontext("Performance") {
+            val iq = conferenceModify(1000, relays = 10)
+            val node = Colibri2JSONSerializer.serializeConferenceModify(iq)
+            val iterations = 100
+
+            should("scale with the number of cores") {
+                val time = Benchmark(logger, iterations)
+                time("XML, sequential") { iq.toXML().length }
+                time("JSON, sequential") { json { Colibri2JSONSerializer.serializeConferenceModify(iq, it) }.length }
+                time("Deserialize, sequential") {
+                    Colibri2JSONDeserializer.deserializeConferenceModify(node).build().endpoints.size
+                }
+                listOf(1, 2, 4, 8, 16).forEach { cores ->
+                    val coresPool = ForkJoinPool(cores)
+                    val parallel = Colibri2ParallelCodec(coresPool)
+                    time("XML, $cores cores") { parallel.toXml(iq).length }
+                    time("JSON, $cores cores") { json { parallel.serializeConferenceModify(iq, it) }.length }
+                    time("Deserialize, $cores cores") {
+                        parallel.deserializeConferenceModify(node).build().endpoints.size
+                    }
+                    coresPool.shutdown()
+                }
+            }
+        }
+    }
+
+    private fun json(block: (JsonGenerator) -> Unit): String {
+        val writer = StringWriter()
+        JsonFactory().createGenerator(writer).use(block)
+        return writer.toString()
+    }
+
+    private fun utf8(block: (JsonGenerator) -> Unit): List<Byte> {
+        val out = ByteArrayOutputStream()
+        JsonFactory().createGenerator(out).use(block)
+        return out.toByteArray().toList()
+    }
+
+    /** A conference-modify with [size] endpoints, and [relays] relays with an endpoint each. */
+    private fun conferenceModify(size: Int, relays: Int = 0) = ConferenceModifyIQ.builder("id").apply {
+        setMeetingId("88ff288c-5eeb-4ea9-bc2f-93ea38c43b78")
+        setConferenceName("conférence@conference.example.com")
+        setCreate(true)
+        setEmptyConnects()
+        repeat(size) { i -> addEndpoint(endpoint("endpoint-$i", 10_000L * i)) }
+        repeat(relays) { i ->
+            addRelay(
+                Colibri2Relay.getBuilder().apply {
+                    setId("relay-$i")
+                    setCreate(true)
+                    setMeshId("mesh")
+                    addMedia(audio())
+                    setEndpoints(
+                        Endpoints.getBuilder().addEndpoint(endpoint("relay-$i-endpoint", 100_000_000L + i)).build()
+                    )
+                }.build()
+            )
+        }
+    }.build()
+
+    private fun conferenceModified(size: Int) =
+        ConferenceModifiedIQ.builder(StanzaBuilder.buildIqData("id").ofType(IQ.Type.result)).apply {
+            repeat(size) { i ->
+                addEndpoint(
+                    Colibri2Endpoint.getBuilder().apply {
+                        setId("endpoint-$i")
+                        setTransport(
+                            Transport.getBuilder().setIceUdpExtension(
+                                IceUdpTransportPacketExtension().apply {
+                                    ufrag = "ufrag-$i"
+                                    password = "pwd-$i"
+                                }
+                            ).build()
+                        )
+                    }.build()
+                )
+            }
+            setSources(sources("jvb", 1))
+        }.build()
+
+    private fun endpoint(id: String, ssrc: Long) = Colibri2Endpoint.getBuilder().apply {
+        setId(id)
+        setCreate(true)
+        setStatsId("Stätš-$id")
+        addMedia(audio())
+        setTransport(Transport.getBuilder().setIceControlling(true).build())
+        setSources(sources(id, ssrc))
+    }.build()
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright @ 2025 - present 8x8, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jitsi.xmpp.extensions.colibri2.json
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.ShouldSpec
+import io.kotest.matchers.shouldBe
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifiedIQ
+import org.jitsi.xmpp.extensions.colibri2.ConferenceModifyIQ
+import org.jitsi.xmpp.extensions.colibri2.IqProviderUtils
+import org.jitsi.xmpp.extensions.colibri2.shouldBeIdenticalTo
+import org.jivesoftware.smack.packet.IQ
+import org.jivesoftware.smack.packet.StanzaBuilder
+import org.jivesoftware.smack.util.PacketParserUtils
+import org.jivesoftware.smack.xml.XmlPullParser
+import java.io.StringWriter
+import kotlin.reflect.KClass
+
+class Colibri2TranscoderTest : ShouldSpec() {
+    init {
+        IqProviderUtils.registerProviders()
+
+        context("Converting XML to JSON") {
+            expectedMappings.forEach {
+                should("Produce the same JSON as the serializer: ${it.name}") {
+                    val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(it.xml))
+                    val expected = when (iq) {
+                        is ConferenceModifyIQ -> Colibri2JSONSerializer.serializeConferenceModify(iq)
+                        is ConferenceModifiedIQ -> Colibri2JSONSerializer.serializeConferenceModified(iq)
+                        else -> throw IllegalStateException("Bad type in test")
+                    }.toString()
+
+                    xmlToJson(it.xml) shouldBe expected
+                }
+            }
+            should("Group the endpoints when they are not all before the relays") {
+                val xml = "<iq xmlns='jabber:client' id='id' type='get'>" +
+                    "<conference-modify xmlns='jitsi:colibri2' meeting-id='m'>" +
+                    "<endpoint id='e1'/><relay id='r1'/><endpoint id='e2' stats-id='s2'/>" +
+                    "<connects/>" +
+                    "</conference-modify></iq>"
+                val iq = PacketParserUtils.parseIQ(PacketParserUtils.getParserFor(xml)) as ConferenceModifyIQ
+
+                xmlToJson(xml) shouldBe Colibri2JSONSerializer.serializeConferenceModify(iq).toString()
+            }
+        }
+        context("Converting JSON to XML") {
+            expectedMappings.forEach {
+                should("Produce the same XML as the deserializer: ${it.name}") {
+                    jsonToXml(it.json, it.clazz).shouldBeIdenticalTo(deserializeToXml(it.json, it.clazz))
+                }
+            }
+            should("Reject invalid JSON like the deserializer") {
+                listOf(
+                    """{"endpoints": [{"id": 1}], "meeting-id": "m"}""",
+                    """{"relays": [1], "meeting-id": "m"}""",
+                    """{"connects": {}, "meeting-id": "m"}""",
+                    """{"endpoints": [{"id": "e"}]}"""
+                ).forEach { json ->
+                    val expected = shouldThrow<IllegalArgumentException> {
+                        deserializeToXml(json, ConferenceModifyIQ::class)
+                    }
+                    shouldThrow<IllegalArgumentException> {
+                        jsonToXml(json, ConferenceModifyIQ::class)
+                    }.message shouldBe expected.message
+                }
+            }
+        }
+        context("Round trips") {
+            expectedMappings.forEach {
+                should("Convert XML to JSON and back: ${it.name}") {
+                    jsonToXml(xmlToJson(it.xml), it.clazz).shouldBeIdenticalTo(it.xml)
+                }
+            }
+        }
+    }
+}
+
+private val jsonFactory = JsonFactory()
+
+/** Converts the colibri2 element of the IQ [xml] to JSON with the transcoder. */
+private fun xmlToJson(xml: String): String {
+    val parser = PacketParserUtils.getParserFor(xml)
+    while (parser.next() != XmlPullParser.Event.START_ELEMENT) {
+        // Skip the whitespace between the iq and colibri2 elements.
+    }
+    return StringWriter().also { writer ->
+        jsonFactory.createGenerator(writer).use { Colibri2Transcoder.xmlToJson(parser, it) }
+    }.toString()
+}
+
+private fun jsonToXml(json: String, clazz: KClass<*>): String = jsonFactory.createParser(json).use {
+    when (clazz) {
+        ConferenceModifyIQ::class ->
+            Colibri2Transcoder.conferenceModifyJsonToXml(it, StanzaBuilder.buildIqData("id"))
+        ConferenceModifiedIQ::class ->
+            Colibri2Transcoder.conferenceModifiedJsonToXml(it, StanzaBuilder.buildIqData("id").ofType(IQ.Type.result))
+        else -> throw IllegalStateException("Bad type in test")
+    }
+}
+
+private fun deserializeToXml(json: String, clazz: KClass<*>): String {
+    val node = jacksonObjectMapper().readTree(json) as ObjectNode
+    return when (clazz) {
+        ConferenceModifyIQ::class -> Colibri2JSONDeserializer.deserializeConferenceModify(node)
+        ConferenceModifiedIQ::class ->
+            Colibri2JSONDeserializer.deserializeConferenceModified(node).also { it.ofType(IQ.Type.result) }
+        else -> throw IllegalStateException("Bad type in test")
+    }.build().toXML().toString()
+}
@@ -18,11 +18,22 @@ package org.jitsi.xmpp.util
 import io.kotest.assertions.asClue
 import io.kotest.core.spec.style.ShouldSpec
 import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.jitsi.utils.logging2.createLogger
 import org.jitsi.xmpp.util.RedactColibri.Companion.redactHttpHeaderValues
 import org.jitsi.xmpp.util.RedactColibri.Companion.redactIp
 import org.xmlunit.builder.DiffBuilder
+import java.io.StringReader
+import java.io.StringWriter
+import javax.xml.XMLConstants
+import javax.xml.transform.Templates
+import javax.xml.transform.TransformerFactory
+import javax.xml.transform.stream.StreamResult
+import javax.xml.transform.stream.StreamSource
 
 class RedactColibriTest : ShouldSpec() {
+    private val logger = createLogger()
+
     init {
         context("Redacting an IPv4 address from a Colibri message") {
             val sourceXml =
@@ -293,5 +304,187 @@ class RedactColibriTest : ShouldSpec() {
                 }
             }
         }
+
+        context("Matching the XSLT implementation") {
+            val xml = conference(50)
+
+            should("Redact IPs the same way") {
+                val diff = DiffBuilder.compare(XsltRedactor.redactIp(xml)).withTest(redactIp(xml))
+                    .checkForIdentical().build()
+
+                diff.asClue {
+                    diff.hasDifferences() shouldBe false
+                }
+            }
+            should("Redact http-header values the same way") {
+                val diff = DiffBuilder.compare(XsltRedactor.redactHttpHeaderValues(xml))
+                    .withTest(redactHttpHeaderValues(xml))
+                    .checkForIdentical().build()
+
+                diff.asClue {
+                    diff.hasDifferences() shouldBe false
+                }
+            }
+        }
+
+        context("Escaping") {
+            val sourceXml = """
+<iq xmlns="jabber:client"><conference-modify xmlns="jitsi:colibri2" xmlns:x="urn:example"><endpoint x:id="a&amp;b">
+   <!-- comment -->
+   <x:text a="&quot;&lt;&#10;">1 &lt; 2 &amp;&amp; <![CDATA[3 > 2]]></x:text>
+   <empty/>
+</endpoint></conference-modify></iq>
+            """
+            val redacted = redactIp(sourceXml)
+
+            should("Preserve the content") {
+                val diff = DiffBuilder.compare(sourceXml).withTest(redacted)
+                    .ignoreWhitespace()
+                    .checkForSimilar().build()
+
+                diff.asClue {
+                    diff.hasDifferences() shouldBe false
+                }
+                redacted shouldContain "<empty/>"
+                redacted shouldContain "<!-- comment -->"
+            }
+        }
+
+        xcontext("Performance") {
+            val xml = conference(500)
+            val iterations = 200
+
+            should("compare with the XSLT implementation") {
+                fun time(name: String, block: () -> Int) {
+                    repeat(iterations / 10) { block() }
+                    val start = System.nanoTime()
+                    var sum = 0L
+                    repeat(iterations) { sum += block() }
+                    logger.info("$name: ${(System.nanoTime() - start) / iterations / 1000} us/op ($sum)")
+                }
+                logger.info("Size: ${xml.length} chars")
+                time("XSLT redactIp") { XsltRedactor.redactIp(xml).length }
+                time("Streaming redactIp") { redactIp(xml).length }
+                time("XSLT redactHttpHeaderValues") { XsltRedactor.redactHttpHeaderValues(xml).length }
+                time("Streaming redactHttpHeaderValues") { redactHttpHeaderValues(xml).length }
+            }
+        }
+    }
+
+    /**
+     * A conference-modify with [size] endpoints, each with host, srflx and relay candidates in IPv4 and IPv6, and a
+     * connect with http-headers.
+     */
+    private fun conference(size: Int) = buildString {
+        append("<iq xmlns='jabber:client' id='id1' type='get'>")
+        append("<conference-modify xmlns='jitsi:colibri2' meeting-id='meeting1'>")
+        repeat(size) { i ->
+            append("<endpoint id='endpoint-$i' stats-id='stats-$i'><transport>")
+            append("<transport xmlns='urn:xmpp:jingle:transports:ice-udp:1' ufrag='u$i' pwd='p$i'>")
+            append("<fingerprint xmlns='urn:xmpp:jingle:apps:dtls:0' hash='sha-256' setup='active'>")
+            append("31:D8:D0:A2:E8:2F:A6:43</fingerprint><rtcp-mux/>")
+            append("<candidate id='c1' type='host' ip='10.0.${i / 256}.${i % 256}' port='10000'/>")
+            append("<candidate id='c2' type='srflx' ip='192.0.2.${i % 256}' rel-addr='10.0.0.1' rel-port='9'/>")
+            append("<candidate id='c3' type='relay' ip='198.51.100.1' rel-addr='192.0.2.1'/>")
+            append("<candidate id='c4' ip='2001:db8::$i'/><candidate id='c5' ip='fe80::$i'/>")
+            append("<candidate id='c6' ip='127.0.0.1'/><candidate id='c7' ip='::1'/>")
+            append("</transport></transport>")
+            append("<sources><media-source id='endpoint-$i-a0' type='audio'>")
+            append("<source xmlns='urn:xmpp:jingle:apps:rtp:ssma:0' name='endpoint-$i-a0' ssrc='$i'/>")
+            append("</media-source></sources></endpoint>")
+        }
+        append("<relay id='relay1'><transport><transport xmlns='urn:xmpp:jingle:transports:ice-udp:1'>")
+        append("<candidate id='r1' type='host' ip='10.1.1.1'/></transport></transport></relay>")
+        append("<connects><connect url='wss://example.com/t' protocol='mediajson' type='transcriber'>")
+        append("<http-header name='Authorization' value='Bearer &amp; secret'/></connect></connects>")
+        append("</conference-modify></iq>")
+    }
+
+    /** The previous, XSLT-based implementation, which the streaming one is checked and benchmarked against. */
+    private object XsltRedactor {
+        private const val HTTP_HEADER_XSLT = """
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                xmlns:j="jabber:client"
+                xmlns:c="jitsi:colibri2"
+                >
+  <xsl:output method="xml" omit-xml-declaration="yes"/>
+
+  <xsl:template match="node()|@*">
+    <xsl:copy>
+      <xsl:apply-templates select="node()|@*"/>
+    </xsl:copy>
+  </xsl:template>
+
+  <xsl:template match='j:iq/c:conference-modify/c:connects/c:connect/c:http-header/@value'>
+    <xsl:attribute name="value">
+      <xsl:value-of select='"[redacted]"'/>
+    </xsl:attribute>
+  </xsl:template>
+</xsl:stylesheet>
+            """
+
+        private const val IP_XSLT = """
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                xmlns:j="jabber:client"
+                xmlns:c="jitsi:colibri2"
+                xmlns:i="urn:xmpp:jingle:transports:ice-udp:1"
+                >
+  <xsl:output method="xml" omit-xml-declaration="yes"/>
+
+  <xsl:template name="redactIp">
+    <xsl:choose>
+      <xsl:when test='. = "0.0.0.0" or . = "::" or . = "::1" or starts-with(., "127.")'>
+        <xsl:value-of select='.'/>
+      </xsl:when>
+      <xsl:when test='contains(., ":") and (starts-with(., "2") or starts-with(., "3"))'>
+        <xsl:value-of select='"2xxx::xxx"'/>
+      </xsl:when>
+      <xsl:when test='contains(., ":")'>
+        <xsl:value-of select='concat(substring-before(., ":"), "::xxx")'/>
+      </xsl:when>
+      <xsl:when test='contains(., ".")'>
+        <xsl:value-of select='"xx.xx.xx.xx"'/>
+      </xsl:when>
+      <xsl:otherwise>
+        <xsl:value-of select='.'/>
+      </xsl:otherwise>
+    </xsl:choose>
+  </xsl:template>
+
+  <xsl:template match="node()|@*">
+    <xsl:copy>
+      <xsl:apply-templates select="node()|@*"/>
+    </xsl:copy>
+  </xsl:template>
+
+  <xsl:template match='j:iq/c:conference-modify/c:endpoint/c:transport/i:transport/i:candidate[not(@type) or @type != "relay"]/@ip'>
+    <xsl:attribute name="ip">
+      <xsl:call-template name="redactIp"/>
+    </xsl:attribute>
+  </xsl:template>
+
+  <xsl:template match='j:iq/c:conference-modify/c:endpoint/c:transport/i:transport/i:candidate/@rel-addr'>
+    <xsl:attribute name="rel-addr">
+      <xsl:call-template name="redactIp"/>
+    </xsl:attribute>
+  </xsl:template>
+</xsl:stylesheet>
+            """
+
+        private val factory = TransformerFactory.newInstance().also {
+            it.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true)
+        }
+        private val httpHeaderTemplates: Templates = factory.newTemplates(StreamSource(StringReader(HTTP_HEADER_XSLT)))
+        private val ipTemplates: Templates = factory.newTemplates(StreamSource(StringReader(IP_XSLT)))
+
+        fun redactHttpHeaderValues(input: String) = transform(httpHeaderTemplates, input)
+
+        fun redactIp(input: String) = transform(ipTemplates, input)
+
+        private fun transform(templates: Templates, input: String): String {
+            val writer = StringWriter()
+            templates.newTransformer().transform(StreamSource(StringReader(input)), StreamResult(writer))
+            return writer.toString()
+        }
     }
 }